@@ -1,5 +1,8 @@
 package io.github.dalowed.bean;
 
+import io.github.dalowed.filter.BloomLayout;
+import io.github.dalowed.hash.HashStrategy;
+
 import java.util.List;
 
 
@@ -16,6 +19,11 @@ public class BloomInformation {
     private long expectedInsertions;
     private double falsePositiveProbability;
     private boolean isLogging;
+    private HashStrategy hashStrategy; // 哈希策略
+    private long hashSeed; // 哈希种子
+    private String hashKey; // SIPHASH_24 密钥(hex)
+    private BloomLayout layout; // 位图布局
+    private long elementCount; // 已插入元素个数(含重复)
 
 
     /**
@@ -93,6 +101,86 @@ public class BloomInformation {
         isLogging = logging;
     }
 
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * setHashStrategy
+     * @param hashStrategy hashStrategy
+     */
+    public void setHashStrategy(HashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
+    }
+
+    /**
+     * getHashSeed
+     * @return {@link Long}
+     */
+    public long getHashSeed() {
+        return hashSeed;
+    }
+
+    /**
+     * setHashSeed
+     * @param hashSeed hashSeed
+     */
+    public void setHashSeed(long hashSeed) {
+        this.hashSeed = hashSeed;
+    }
+
+    /**
+     * getHashKey
+     * @return {@link String}
+     */
+    public String getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * setHashKey
+     * @param hashKey hex encoded key
+     */
+    public void setHashKey(String hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    /**
+     * getLayout
+     * @return {@link BloomLayout}
+     */
+    public BloomLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * setLayout
+     * @param layout layout
+     */
+    public void setLayout(BloomLayout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
     /**
      * getDescription
      * @return {@link String}
@@ -171,6 +259,17 @@ public class BloomInformation {
         sb.append("\"expectedInsertions\":").append(expectedInsertions).append(",");
         sb.append("\"falsePositiveProbability\":").append(falsePositiveProbability).append(",");
         sb.append("\"isLogging\":").append(isLogging).append(",");
+        if (hashStrategy != null) {
+            sb.append("\"hashStrategy\":\"").append(hashStrategy.name()).append("\",");
+        }
+        sb.append("\"hashSeed\":").append(hashSeed).append(",");
+        sb.append("\"elementCount\":").append(elementCount).append(",");
+        if (layout != null) {
+            sb.append("\"layout\":\"").append(layout.name()).append("\",");
+        }
+        if (hashKey != null) {
+            sb.append("\"hashKey\":\"").append(hashKey).append("\",");
+        }
         sb.append("\"seeds\":[");
         if (seeds != null && !seeds.isEmpty()) {
             for (int i = 0; i < seeds.size(); i++) {
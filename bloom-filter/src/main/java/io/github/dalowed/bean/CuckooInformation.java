@@ -0,0 +1,253 @@
+package io.github.dalowed.bean;
+
+import io.github.dalowed.hash.HashStrategy;
+
+
+/**
+ * cuckoo filter information bean
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class CuckooInformation {
+    private String description; // 描述
+    private long bucketCount; // 桶数
+    private int fingerprintBits; // 指纹位数
+    private long expectedInsertions;
+    private double falsePositiveProbability;
+    private HashStrategy hashStrategy; // 哈希策略
+    private long hashSeed; // 哈希种子
+    private String hashKey; // SIPHASH_24 密钥(hex)
+    private String salt; // HMAC_SHA256 盐
+    private long elementCount; // 元素个数
+    private long victimIndex; // 表满时被踢出的指纹所在桶
+    private int victimFingerprint; // 表满时被踢出的指纹, 0 表示没有
+
+
+    /**
+     * No-argument constructor
+     */
+    public CuckooInformation() {
+    }
+
+    /**
+     * getDescription
+     * @return {@link String}
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * setDescription
+     * @param description description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * getBucketCount
+     * @return {@link Long}
+     */
+    public long getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * setBucketCount
+     * @param bucketCount bucketCount
+     */
+    public void setBucketCount(long bucketCount) {
+        this.bucketCount = bucketCount;
+    }
+
+    /**
+     * getFingerprintBits
+     * @return {@link Integer}
+     */
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * setFingerprintBits
+     * @param fingerprintBits fingerprintBits
+     */
+    public void setFingerprintBits(int fingerprintBits) {
+        this.fingerprintBits = fingerprintBits;
+    }
+
+    /**
+     * getExpectedInsertions
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * setExpectedInsertions
+     * @param expectedInsertions expectedInsertions
+     */
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * setFalsePositiveProbability
+     * @param falsePositiveProbability falsePositiveProbability
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * setHashStrategy
+     * @param hashStrategy hashStrategy
+     */
+    public void setHashStrategy(HashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
+    }
+
+    /**
+     * getHashSeed
+     * @return {@link Long}
+     */
+    public long getHashSeed() {
+        return hashSeed;
+    }
+
+    /**
+     * setHashSeed
+     * @param hashSeed hashSeed
+     */
+    public void setHashSeed(long hashSeed) {
+        this.hashSeed = hashSeed;
+    }
+
+    /**
+     * getHashKey
+     * @return {@link String}
+     */
+    public String getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * setHashKey
+     * @param hashKey hashKey
+     */
+    public void setHashKey(String hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    /**
+     * getSalt
+     * @return {@link String}
+     */
+    public String getSalt() {
+        return salt;
+    }
+
+    /**
+     * setSalt
+     * @param salt salt
+     */
+    public void setSalt(String salt) {
+        this.salt = salt;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * getVictimIndex
+     * @return {@link Long}
+     */
+    public long getVictimIndex() {
+        return victimIndex;
+    }
+
+    /**
+     * setVictimIndex
+     * @param victimIndex victimIndex
+     */
+    public void setVictimIndex(long victimIndex) {
+        this.victimIndex = victimIndex;
+    }
+
+    /**
+     * getVictimFingerprint
+     * @return {@link Integer}
+     */
+    public int getVictimFingerprint() {
+        return victimFingerprint;
+    }
+
+    /**
+     * setVictimFingerprint
+     * @param victimFingerprint victimFingerprint
+     */
+    public void setVictimFingerprint(int victimFingerprint) {
+        this.victimFingerprint = victimFingerprint;
+    }
+
+    /**
+     * toJsonString
+     * @return {@link String}
+     */
+    @Override
+    public final String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"description\":\"").append(description == null ? "" : description.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+        sb.append("\"bucketCount\":").append(bucketCount).append(",");
+        sb.append("\"fingerprintBits\":").append(fingerprintBits).append(",");
+        sb.append("\"expectedInsertions\":").append(expectedInsertions).append(",");
+        sb.append("\"falsePositiveProbability\":").append(falsePositiveProbability).append(",");
+        if (hashStrategy != null) {
+            sb.append("\"hashStrategy\":\"").append(hashStrategy.name()).append("\",");
+        }
+        sb.append("\"hashSeed\":").append(hashSeed).append(",");
+        if (hashKey != null) {
+            sb.append("\"hashKey\":\"").append(hashKey).append("\",");
+        }
+        if (salt != null) {
+            sb.append("\"salt\":\"").append(salt).append("\",");
+        }
+        sb.append("\"elementCount\":").append(elementCount).append(",");
+        sb.append("\"victimIndex\":").append(victimIndex).append(",");
+        sb.append("\"victimFingerprint\":").append(victimFingerprint);
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,270 @@
+package io.github.dalowed.bean;
+
+import io.github.dalowed.hash.HashStrategy;
+
+
+/**
+ * binary fuse filter information bean
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class FuseInformation {
+    private String description; // 描述
+    private int fingerprintBits; // 指纹位数, 8 或 16
+    private int segmentLength; // 段长度, 2 的幂
+    private int segmentCount; // 段数
+    private long segmentCountLength; // 首个位置的取值范围
+    private long arrayLength; // 指纹个数
+    private long seed; // 构建成功时的种子
+    private double falsePositiveProbability; // 误判率, 2^-fingerprintBits
+    private HashStrategy hashStrategy; // 哈希策略
+    private long hashSeed; // 哈希种子
+    private String hashKey; // SIPHASH_24 密钥(hex)
+    private String salt; // HMAC_SHA256 盐
+    private long elementCount; // 元素个数
+
+    /**
+     * No-argument constructor
+     */
+    public FuseInformation() {
+    }
+
+    /**
+     * getDescription
+     * @return {@link String}
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * setDescription
+     * @param description description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * getFingerprintBits
+     * @return {@link Integer}
+     */
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * setFingerprintBits
+     * @param fingerprintBits fingerprintBits
+     */
+    public void setFingerprintBits(int fingerprintBits) {
+        this.fingerprintBits = fingerprintBits;
+    }
+
+    /**
+     * getSegmentLength
+     * @return {@link Integer}
+     */
+    public int getSegmentLength() {
+        return segmentLength;
+    }
+
+    /**
+     * setSegmentLength
+     * @param segmentLength segmentLength
+     */
+    public void setSegmentLength(int segmentLength) {
+        this.segmentLength = segmentLength;
+    }
+
+    /**
+     * getSegmentCount
+     * @return {@link Integer}
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * setSegmentCount
+     * @param segmentCount segmentCount
+     */
+    public void setSegmentCount(int segmentCount) {
+        this.segmentCount = segmentCount;
+    }
+
+    /**
+     * getSegmentCountLength
+     * @return {@link Long}
+     */
+    public long getSegmentCountLength() {
+        return segmentCountLength;
+    }
+
+    /**
+     * setSegmentCountLength
+     * @param segmentCountLength segmentCountLength
+     */
+    public void setSegmentCountLength(long segmentCountLength) {
+        this.segmentCountLength = segmentCountLength;
+    }
+
+    /**
+     * getArrayLength
+     * @return {@link Long}
+     */
+    public long getArrayLength() {
+        return arrayLength;
+    }
+
+    /**
+     * setArrayLength
+     * @param arrayLength arrayLength
+     */
+    public void setArrayLength(long arrayLength) {
+        this.arrayLength = arrayLength;
+    }
+
+    /**
+     * getSeed
+     * @return {@link Long}
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * setSeed
+     * @param seed seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * setFalsePositiveProbability
+     * @param falsePositiveProbability falsePositiveProbability
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * setHashStrategy
+     * @param hashStrategy hashStrategy
+     */
+    public void setHashStrategy(HashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
+    }
+
+    /**
+     * getHashSeed
+     * @return {@link Long}
+     */
+    public long getHashSeed() {
+        return hashSeed;
+    }
+
+    /**
+     * setHashSeed
+     * @param hashSeed hashSeed
+     */
+    public void setHashSeed(long hashSeed) {
+        this.hashSeed = hashSeed;
+    }
+
+    /**
+     * getHashKey
+     * @return {@link String}
+     */
+    public String getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * setHashKey
+     * @param hashKey hashKey
+     */
+    public void setHashKey(String hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    /**
+     * getSalt
+     * @return {@link String}
+     */
+    public String getSalt() {
+        return salt;
+    }
+
+    /**
+     * setSalt
+     * @param salt salt
+     */
+    public void setSalt(String salt) {
+        this.salt = salt;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * toJsonString
+     * @return {@link String}
+     */
+    @Override
+    public final String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"description\":\"").append(description == null ? "" : description.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+        sb.append("\"fingerprintBits\":").append(fingerprintBits).append(",");
+        sb.append("\"segmentLength\":").append(segmentLength).append(",");
+        sb.append("\"segmentCount\":").append(segmentCount).append(",");
+        sb.append("\"segmentCountLength\":").append(segmentCountLength).append(",");
+        sb.append("\"arrayLength\":").append(arrayLength).append(",");
+        sb.append("\"seed\":").append(seed).append(",");
+        sb.append("\"falsePositiveProbability\":").append(falsePositiveProbability).append(",");
+        if (hashStrategy != null) {
+            sb.append("\"hashStrategy\":\"").append(hashStrategy.name()).append("\",");
+        }
+        sb.append("\"hashSeed\":").append(hashSeed).append(",");
+        if (hashKey != null) {
+            sb.append("\"hashKey\":\"").append(hashKey).append("\",");
+        }
+        if (salt != null) {
+            sb.append("\"salt\":\"").append(salt).append("\",");
+        }
+        sb.append("\"elementCount\":").append(elementCount);
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.dalowed.bean;
+
+
+/**
+ * scalable bloomfilter information bean, the sub filters keep their own information
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class ScalableInformation {
+    private String description; // 描述
+    private int filterCount; // 子过滤器个数
+    private long initialCapacity; // 第一个子过滤器的期望插入数
+    private double falsePositiveProbability; // 总容错率
+    private int growthFactor; // 容量倍数
+    private double tighteningRatio; // 容错率比例
+    private long elementCount; // 已插入元素个数
+
+    /**
+     * No-argument constructor
+     */
+    public ScalableInformation() {
+    }
+
+    /**
+     * getDescription
+     * @return {@link String}
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * setDescription
+     * @param description description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * getFilterCount
+     * @return {@link Integer}
+     */
+    public int getFilterCount() {
+        return filterCount;
+    }
+
+    /**
+     * setFilterCount
+     * @param filterCount filterCount
+     */
+    public void setFilterCount(int filterCount) {
+        this.filterCount = filterCount;
+    }
+
+    /**
+     * getInitialCapacity
+     * @return {@link Long}
+     */
+    public long getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    /**
+     * setInitialCapacity
+     * @param initialCapacity initialCapacity
+     */
+    public void setInitialCapacity(long initialCapacity) {
+        this.initialCapacity = initialCapacity;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * setFalsePositiveProbability
+     * @param falsePositiveProbability falsePositiveProbability
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * getGrowthFactor
+     * @return {@link Integer}
+     */
+    public int getGrowthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * setGrowthFactor
+     * @param growthFactor growthFactor
+     */
+    public void setGrowthFactor(int growthFactor) {
+        this.growthFactor = growthFactor;
+    }
+
+    /**
+     * getTighteningRatio
+     * @return {@link Double}
+     */
+    public double getTighteningRatio() {
+        return tighteningRatio;
+    }
+
+    /**
+     * setTighteningRatio
+     * @param tighteningRatio tighteningRatio
+     */
+    public void setTighteningRatio(double tighteningRatio) {
+        this.tighteningRatio = tighteningRatio;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * toJsonString
+     * @return {@link String}
+     */
+    @Override
+    public final String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"description\":\"").append(description == null ? "" : description.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+        sb.append("\"filterCount\":").append(filterCount).append(",");
+        sb.append("\"initialCapacity\":").append(initialCapacity).append(",");
+        sb.append("\"falsePositiveProbability\":").append(falsePositiveProbability).append(",");
+        sb.append("\"growthFactor\":").append(growthFactor).append(",");
+        sb.append("\"tighteningRatio\":").append(tighteningRatio).append(",");
+        sb.append("\"elementCount\":").append(elementCount);
+        sb.append("}");
+        return sb.toString();
+    }
+}
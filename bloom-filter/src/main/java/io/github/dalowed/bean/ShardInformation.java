@@ -0,0 +1,118 @@
+package io.github.dalowed.bean;
+
+
+/**
+ * sharded bloomfilter information bean, the shards keep their own information
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class ShardInformation {
+    private String description; // 描述
+    private int shardCount; // 分片数
+    private long expectedInsertions; // 所有分片的期望插入数
+    private double falsePositiveProbability; // 容错率, 每个元素只查询一个分片
+    private long elementCount; // 已插入元素个数
+
+    /**
+     * No-argument constructor
+     */
+    public ShardInformation() {
+    }
+
+    /**
+     * getDescription
+     * @return {@link String}
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * setDescription
+     * @param description description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * getShardCount
+     * @return {@link Integer}
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * setShardCount
+     * @param shardCount shardCount
+     */
+    public void setShardCount(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    /**
+     * getExpectedInsertions
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * setExpectedInsertions
+     * @param expectedInsertions expectedInsertions
+     */
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * setFalsePositiveProbability
+     * @param falsePositiveProbability falsePositiveProbability
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * toJsonString
+     * @return {@link String}
+     */
+    @Override
+    public final String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"description\":\"").append(description == null ? "" : description.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"").append(",");
+        sb.append("\"shardCount\":").append(shardCount).append(",");
+        sb.append("\"expectedInsertions\":").append(expectedInsertions).append(",");
+        sb.append("\"falsePositiveProbability\":").append(falsePositiveProbability).append(",");
+        sb.append("\"elementCount\":").append(elementCount);
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,154 @@
+package io.github.dalowed.bean;
+
+
+/**
+ * fill statistics of one shard of a sharded bloomfilter
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class ShardStatistics {
+    private String name; // 分片名称
+    private int index; // 分片序号
+    private long expectedInsertions; // 期望插入数
+    private long elementCount; // 已插入元素个数
+    private long size; // 位图大小
+    private double fillRatio; // 置位比例
+    private double estimatedFalsePositiveProbability; // 按置位比例估计的误判率
+
+    /**
+     * No-argument constructor
+     */
+    public ShardStatistics() {
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * setName
+     * @param name name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * getIndex
+     * @return {@link Integer}
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * setIndex
+     * @param index index
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * getExpectedInsertions
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * setExpectedInsertions
+     * @param expectedInsertions expectedInsertions
+     */
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * getSize
+     * @return {@link Long}
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * setSize
+     * @param size size
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * getFillRatio
+     * @return {@link Double}
+     */
+    public double getFillRatio() {
+        return fillRatio;
+    }
+
+    /**
+     * setFillRatio
+     * @param fillRatio fillRatio
+     */
+    public void setFillRatio(double fillRatio) {
+        this.fillRatio = fillRatio;
+    }
+
+    /**
+     * getEstimatedFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getEstimatedFalsePositiveProbability() {
+        return estimatedFalsePositiveProbability;
+    }
+
+    /**
+     * setEstimatedFalsePositiveProbability
+     * @param estimatedFalsePositiveProbability estimatedFalsePositiveProbability
+     */
+    public void setEstimatedFalsePositiveProbability(double estimatedFalsePositiveProbability) {
+        this.estimatedFalsePositiveProbability = estimatedFalsePositiveProbability;
+    }
+
+    /**
+     * toJsonString
+     * @return {@link String}
+     */
+    @Override
+    public final String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"name\":\"").append(name == null ? "" : name.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"").append(",");
+        sb.append("\"index\":").append(index).append(",");
+        sb.append("\"expectedInsertions\":").append(expectedInsertions).append(",");
+        sb.append("\"elementCount\":").append(elementCount).append(",");
+        sb.append("\"size\":").append(size).append(",");
+        sb.append("\"fillRatio\":").append(fillRatio).append(",");
+        sb.append("\"estimatedFalsePositiveProbability\":").append(estimatedFalsePositiveProbability);
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,190 @@
+package io.github.dalowed.bean;
+
+
+/**
+ * sliding window bloomfilter information bean, the time slices keep their own information
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class WindowInformation {
+    private String description; // 描述
+    private long window; // 时间窗口(毫秒)
+    private int slices; // 窗口内的时间片数
+    private long expectedInsertions; // 窗口内的期望插入数
+    private double falsePositiveProbability; // 所有时间片的总容错率
+    private long firstGeneration; // 最旧时间片的代数, 即其目录名
+    private int filterCount; // 时间片个数, slices + 1
+    private long rotatedAt; // 上次轮转时间(毫秒)
+    private long elementCount; // 窗口内已插入元素个数
+
+    /**
+     * No-argument constructor
+     */
+    public WindowInformation() {
+    }
+
+    /**
+     * getDescription
+     * @return {@link String}
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * setDescription
+     * @param description description
+     */
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    /**
+     * getWindow
+     * @return {@link Long}
+     */
+    public long getWindow() {
+        return window;
+    }
+
+    /**
+     * setWindow
+     * @param window window
+     */
+    public void setWindow(long window) {
+        this.window = window;
+    }
+
+    /**
+     * getSlices
+     * @return {@link Integer}
+     */
+    public int getSlices() {
+        return slices;
+    }
+
+    /**
+     * setSlices
+     * @param slices slices
+     */
+    public void setSlices(int slices) {
+        this.slices = slices;
+    }
+
+    /**
+     * getExpectedInsertions
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * setExpectedInsertions
+     * @param expectedInsertions expectedInsertions
+     */
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * setFalsePositiveProbability
+     * @param falsePositiveProbability falsePositiveProbability
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * getFirstGeneration
+     * @return {@link Long}
+     */
+    public long getFirstGeneration() {
+        return firstGeneration;
+    }
+
+    /**
+     * setFirstGeneration
+     * @param firstGeneration firstGeneration
+     */
+    public void setFirstGeneration(long firstGeneration) {
+        this.firstGeneration = firstGeneration;
+    }
+
+    /**
+     * getFilterCount
+     * @return {@link Integer}
+     */
+    public int getFilterCount() {
+        return filterCount;
+    }
+
+    /**
+     * setFilterCount
+     * @param filterCount filterCount
+     */
+    public void setFilterCount(int filterCount) {
+        this.filterCount = filterCount;
+    }
+
+    /**
+     * getRotatedAt
+     * @return {@link Long}
+     */
+    public long getRotatedAt() {
+        return rotatedAt;
+    }
+
+    /**
+     * setRotatedAt
+     * @param rotatedAt rotatedAt
+     */
+    public void setRotatedAt(long rotatedAt) {
+        this.rotatedAt = rotatedAt;
+    }
+
+    /**
+     * getElementCount
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * setElementCount
+     * @param elementCount elementCount
+     */
+    public void setElementCount(long elementCount) {
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * toJsonString
+     * @return {@link String}
+     */
+    @Override
+    public final String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"description\":\"").append(description == null ? "" : description.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",");
+        sb.append("\"window\":").append(window).append(",");
+        sb.append("\"slices\":").append(slices).append(",");
+        sb.append("\"expectedInsertions\":").append(expectedInsertions).append(",");
+        sb.append("\"falsePositiveProbability\":").append(falsePositiveProbability).append(",");
+        sb.append("\"firstGeneration\":").append(firstGeneration).append(",");
+        sb.append("\"filterCount\":").append(filterCount).append(",");
+        sb.append("\"rotatedAt\":").append(rotatedAt).append(",");
+        sb.append("\"elementCount\":").append(elementCount);
+        sb.append("}");
+        return sb.toString();
+    }
+}
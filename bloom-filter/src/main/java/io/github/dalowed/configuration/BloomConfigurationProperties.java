@@ -3,87 +3,34 @@ package io.github.dalowed.configuration;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 
 /**
- * configuration class
+ * configuration class, the settings of the default filter and the named filters
  * @author dalowed
  * @since 0.0.1
  */
 @ConfigurationProperties(prefix = "bloom-filter")
-public class BloomConfigurationProperties {
-
-    // 映射 bloomFilterLong.expectedInsertions, 过滤器的期望插入数
-    private long expectedInsertions;
-
-    // 映射 bloomFilterLong.falsePositiveProbability, 过滤器的容错率
-    private double falsePositiveProbability;
-
-    // 映射 bloomFilterLong.enableLogging,是否开启日志
-    private boolean enableLogging = true;
-
-    private boolean recovery = false;
-
-    /**
-     * get recovery
-     * @return {@link Boolean}
-     */
-    public boolean isRecovery() {
-        return recovery;
-    }
-
-    /**
-     * enable recovery
-     * @param recovery recovery
-     */
-    public void setRecovery(boolean recovery) {
-        this.recovery = recovery;
-    }
-
-    /**
-     * setExpectedInsertions
-     * @param expectedInsertions expectedInsertions
-     */
-    public void setExpectedInsertions(long expectedInsertions) {
-        this.expectedInsertions = expectedInsertions;
-    }
-
-    /**
-     * setFalsePositiveProbability
-     * @param falsePositiveProbability falsePositiveProbability
-     */
-    public void setFalsePositiveProbability(double falsePositiveProbability) {
-        this.falsePositiveProbability = falsePositiveProbability;
-    }
+public class BloomConfigurationProperties extends FilterProperties {
 
-    /**
-     * setEnableLogging
-     * @param enableLogging enable log
-     */
-    public void setEnableLogging(boolean enableLogging) {
-        this.enableLogging = enableLogging;
-    }
-
-    /**
-     * isEnableLogging
-     * @return {@link Boolean}
-     */
-    public boolean isEnableLogging() {
-        return enableLogging;
-    }
+    // 命名过滤器, 各自按自己的插入数和误判率计算大小, 各自保存在自己的目录; 未配置的项取默认值, 不继承默认过滤器的配置
+    private Map<String, FilterProperties> filters = new LinkedHashMap<>();
 
     /**
-     * getExpectedInsertions
-     * @return {@link Long}
+     * getFilters
+     * @return {@link Map<String, FilterProperties>}
      */
-    public long getExpectedInsertions() {
-        return expectedInsertions;
+    public Map<String, FilterProperties> getFilters() {
+        return filters;
     }
 
     /**
-     * getFalsePositiveProbability
-     * @return {@link Double}
+     * setFilters
+     * @param filters filters
      */
-    public double getFalsePositiveProbability() {
-        return falsePositiveProbability;
+    public void setFilters(Map<String, FilterProperties> filters) {
+        this.filters = filters;
     }
 }
@@ -0,0 +1,473 @@
+package io.github.dalowed.configuration;
+
+
+import io.github.dalowed.filter.BloomLayout;
+import io.github.dalowed.filter.FilterType;
+import io.github.dalowed.hash.HashStrategy;
+import io.github.dalowed.storage.StorageType;
+
+import java.time.Duration;
+
+
+/**
+ * configuration of one filter, the default filter is configured under {@code bloom-filter},
+ * named filters under {@code bloom-filter.filters.<name>}
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class FilterProperties {
+
+    // 映射 bloomFilterLong.expectedInsertions, 过滤器的期望插入数
+    private long expectedInsertions;
+
+    // 映射 bloomFilterLong.falsePositiveProbability, 过滤器的容错率
+    private double falsePositiveProbability;
+
+    // 映射 bloomFilterLong.enableLogging,是否开启日志
+    private boolean enableLogging = true;
+
+    private boolean recovery = false;
+
+    // 位图、信息、快照和插入日志所在目录, 为空时默认过滤器使用 bitmap, 命名过滤器使用 bitmap/<name>
+    private String directory;
+
+    /**
+     * getDirectory
+     * @return {@link String}
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * setDirectory
+     * @param directory directory
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    // 哈希策略, 默认 MURMUR3_128, 需要密码学强度时可选 HMAC_SHA256
+    private HashStrategy hashStrategy = HashStrategy.MURMUR3_128;
+
+    // 过滤器结构, CUCKOO 时支持删除元素, BINARY_FUSE 时只能从检查点恢复
+    private FilterType type = FilterType.BLOOM;
+
+    /**
+     * getType
+     * @return {@link FilterType}
+     */
+    public FilterType getType() {
+        return type;
+    }
+
+    /**
+     * setType
+     * @param type type
+     */
+    public void setType(FilterType type) {
+        this.type = type;
+    }
+
+    // 位图布局, BLOCKED 时每个元素只访问一个缓存行
+    private BloomLayout layout = BloomLayout.STANDARD;
+
+    /**
+     * getLayout
+     * @return {@link BloomLayout}
+     */
+    public BloomLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * setLayout
+     * @param layout layout
+     */
+    public void setLayout(BloomLayout layout) {
+        this.layout = layout;
+    }
+
+    // 位图存储位置, OFF_HEAP 时位图在堆外内存, 不受 GC 和 Integer.MAX_VALUE 限制; MAPPED 时位图即映射的位图文件
+    private StorageType storage = StorageType.HEAP;
+
+    /**
+     * getStorage
+     * @return {@link StorageType}
+     */
+    public StorageType getStorage() {
+        return storage;
+    }
+
+    /**
+     * setStorage
+     * @param storage storage
+     */
+    public void setStorage(StorageType storage) {
+        this.storage = storage;
+    }
+
+    // 检查点间隔, 例如 30s; 为空时不自动保存
+    private Duration checkpointInterval;
+
+    /**
+     * getCheckpointInterval
+     * @return {@link Duration}
+     */
+    public Duration getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * setCheckpointInterval
+     * @param checkpointInterval checkpointInterval
+     */
+    public void setCheckpointInterval(Duration checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    // 是否记录插入日志, 恢复时重放上次保存后插入的元素
+    private boolean journal = false;
+    // 插入日志的组提交间隔, 崩溃时最多丢失一个间隔内的插入
+    private Duration journalSyncInterval = Duration.ofMillis(200);
+
+    /**
+     * isJournal
+     * @return {@link Boolean}
+     */
+    public boolean isJournal() {
+        return journal;
+    }
+
+    /**
+     * setJournal
+     * @param journal journal
+     */
+    public void setJournal(boolean journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * getJournalSyncInterval
+     * @return {@link Duration}
+     */
+    public Duration getJournalSyncInterval() {
+        return journalSyncInterval;
+    }
+
+    /**
+     * setJournalSyncInterval
+     * @param journalSyncInterval journalSyncInterval
+     */
+    public void setJournalSyncInterval(Duration journalSyncInterval) {
+        this.journalSyncInterval = journalSyncInterval;
+    }
+
+    // 是否允许多线程并发写入(无锁原子操作), 单线程构建时可关闭
+    private boolean concurrent = true;
+
+    // 是否去除字符元素首尾空白(与 String.trim 相同规则), 默认不处理
+    private boolean trimKeys = false;
+
+    // 是否拒绝空元素, 默认不校验
+    private boolean rejectEmptyKeys = false;
+
+    // 是否可扩容, 插入数超过期望插入数后追加更大的子过滤器
+    private boolean scalable = false;
+
+    // 可扩容时每个子过滤器容量相对上一个的倍数
+    private int growthFactor = 2;
+
+    // 可扩容时每个子过滤器容错率相对上一个的比例, 总容错率不超过 falsePositiveProbability
+    private double tighteningRatio = 0.85;
+
+    // 分片数, 大于 1 时按哈希高位把元素分到各自的子过滤器, 各分片并行构建、保存和恢复
+    private int shards = 1;
+
+    /**
+     * getShards
+     * @return {@link Integer}
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * setShards
+     * @param shards shards
+     */
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    // 时间窗口, 例如 24h; 配置后元素只在窗口内可查询, 为空时永久保留
+    private Duration window;
+
+    // 时间窗口切分的时间片数, 每个时间片结束时清除最旧的时间片
+    private int windowSlices = 24;
+
+    /**
+     * getWindow
+     * @return {@link Duration}
+     */
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * setWindow
+     * @param window window
+     */
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    /**
+     * getWindowSlices
+     * @return {@link Integer}
+     */
+    public int getWindowSlices() {
+        return windowSlices;
+    }
+
+    /**
+     * setWindowSlices
+     * @param windowSlices windowSlices
+     */
+    public void setWindowSlices(int windowSlices) {
+        this.windowSlices = windowSlices;
+    }
+
+    /**
+     * isScalable
+     * @return {@link Boolean}
+     */
+    public boolean isScalable() {
+        return scalable;
+    }
+
+    /**
+     * setScalable
+     * @param scalable scalable
+     */
+    public void setScalable(boolean scalable) {
+        this.scalable = scalable;
+    }
+
+    /**
+     * getGrowthFactor
+     * @return {@link Integer}
+     */
+    public int getGrowthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * setGrowthFactor
+     * @param growthFactor growthFactor
+     */
+    public void setGrowthFactor(int growthFactor) {
+        this.growthFactor = growthFactor;
+    }
+
+    /**
+     * getTighteningRatio
+     * @return {@link Double}
+     */
+    public double getTighteningRatio() {
+        return tighteningRatio;
+    }
+
+    /**
+     * setTighteningRatio
+     * @param tighteningRatio tighteningRatio
+     */
+    public void setTighteningRatio(double tighteningRatio) {
+        this.tighteningRatio = tighteningRatio;
+    }
+
+    /**
+     * isTrimKeys
+     * @return {@link Boolean}
+     */
+    public boolean isTrimKeys() {
+        return trimKeys;
+    }
+
+    /**
+     * setTrimKeys
+     * @param trimKeys trimKeys
+     */
+    public void setTrimKeys(boolean trimKeys) {
+        this.trimKeys = trimKeys;
+    }
+
+    /**
+     * isRejectEmptyKeys
+     * @return {@link Boolean}
+     */
+    public boolean isRejectEmptyKeys() {
+        return rejectEmptyKeys;
+    }
+
+    /**
+     * setRejectEmptyKeys
+     * @param rejectEmptyKeys rejectEmptyKeys
+     */
+    public void setRejectEmptyKeys(boolean rejectEmptyKeys) {
+        this.rejectEmptyKeys = rejectEmptyKeys;
+    }
+
+    /**
+     * isConcurrent
+     * @return {@link Boolean}
+     */
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    /**
+     * setConcurrent
+     * @param concurrent concurrent
+     */
+    public void setConcurrent(boolean concurrent) {
+        this.concurrent = concurrent;
+    }
+
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * setHashStrategy
+     * @param hashStrategy hashStrategy
+     */
+    public void setHashStrategy(HashStrategy hashStrategy) {
+        this.hashStrategy = hashStrategy;
+    }
+
+    // MURMUR3_128 种子, 为空时每个过滤器随机生成; 需要合并的过滤器配置相同的种子
+    private Long hashSeed;
+
+    // SIPHASH_24 密钥(32 位 hex), 为空时随机生成
+    private String hashKey;
+
+    // HMAC_SHA256 盐, 为空时随机生成
+    private String hashSalt;
+
+    /**
+     * getHashSeed
+     * @return {@link Long}
+     */
+    public Long getHashSeed() {
+        return hashSeed;
+    }
+
+    /**
+     * setHashSeed
+     * @param hashSeed hashSeed
+     */
+    public void setHashSeed(Long hashSeed) {
+        this.hashSeed = hashSeed;
+    }
+
+    /**
+     * getHashKey
+     * @return {@link String}
+     */
+    public String getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * setHashKey
+     * @param hashKey hashKey
+     */
+    public void setHashKey(String hashKey) {
+        this.hashKey = hashKey;
+    }
+
+    /**
+     * getHashSalt
+     * @return {@link String}
+     */
+    public String getHashSalt() {
+        return hashSalt;
+    }
+
+    /**
+     * setHashSalt
+     * @param hashSalt hashSalt
+     */
+    public void setHashSalt(String hashSalt) {
+        this.hashSalt = hashSalt;
+    }
+
+    /**
+     * get recovery
+     * @return {@link Boolean}
+     */
+    public boolean isRecovery() {
+        return recovery;
+    }
+
+    /**
+     * enable recovery
+     * @param recovery recovery
+     */
+    public void setRecovery(boolean recovery) {
+        this.recovery = recovery;
+    }
+
+    /**
+     * setExpectedInsertions
+     * @param expectedInsertions expectedInsertions
+     */
+    public void setExpectedInsertions(long expectedInsertions) {
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    /**
+     * setFalsePositiveProbability
+     * @param falsePositiveProbability falsePositiveProbability
+     */
+    public void setFalsePositiveProbability(double falsePositiveProbability) {
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    /**
+     * setEnableLogging
+     * @param enableLogging enable log
+     */
+    public void setEnableLogging(boolean enableLogging) {
+        this.enableLogging = enableLogging;
+    }
+
+    /**
+     * isEnableLogging
+     * @return {@link Boolean}
+     */
+    public boolean isEnableLogging() {
+        return enableLogging;
+    }
+
+    /**
+     * getExpectedInsertions
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+}
@@ -18,4 +18,52 @@ public interface CommonConstants {
      * MD5
      */
     String MD5 = "MD5";
+    /**
+     * directory of the default filter, a named filter uses a sub directory of its name
+     */
+    String BITMAP_DIRECTORY = "bitmap";
+    /**
+     * bitmap file name
+     */
+    String BITMAP_FILE_NAME = "bitmap.bin";
+    /**
+     * filter information file name
+     */
+    String INFO_FILE_NAME = "info.txt";
+    /**
+     * binary snapshot file name
+     */
+    String SNAPSHOT_FILE_NAME = "bloom.snapshot";
+    /**
+     * insert journal file name
+     */
+    String JOURNAL_FILE_NAME = "journal.log";
+    /**
+     * scalable filter manifest file name
+     */
+    String SCALABLE_FILE_NAME = "scalable.txt";
+    /**
+     * sliding window filter manifest file name
+     */
+    String WINDOW_FILE_NAME = "window.txt";
+    /**
+     * sharded filter manifest file name
+     */
+    String SHARDS_FILE_NAME = "shards.txt";
+    /**
+     * bitmap file of the default filter
+     */
+    String BITMAP_FILE = "bitmap/bitmap.bin";
+    /**
+     * filter information file of the default filter
+     */
+    String INFO_FILE = "bitmap/info.txt";
+    /**
+     * binary snapshot file of the default filter, metadata and bitmap
+     */
+    String SNAPSHOT_FILE = "bitmap/bloom.snapshot";
+    /**
+     * insert journal file of the default filter
+     */
+    String JOURNAL_FILE = "bitmap/journal.log";
 }
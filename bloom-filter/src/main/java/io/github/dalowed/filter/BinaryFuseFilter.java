@@ -0,0 +1,728 @@
+package io.github.dalowed.filter;
+
+import com.alibaba.fastjson.JSON;
+import io.github.dalowed.bean.FuseInformation;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.ElementHasher;
+import io.github.dalowed.hash.HashStrategy;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.StorageType;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static io.github.dalowed.constants.CommonConstants.BITMAP_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.INFO_FILE_NAME;
+
+/**
+ * binary fuse filter (Graf and Lemire): an immutable filter built once from the whole key set.
+ * Every key maps to three fingerprints in three consecutive segments whose xor is the fingerprint
+ * of the key, so a lookup reads three words and nothing else. With 8-bit fingerprints it takes
+ * about 9 bits per element for a false positive probability of 2^-8, with 16-bit fingerprints
+ * about 18 bits for 2^-16, where a bloomfilter needs 11.5 and 23 bits.
+ * <p>
+ * Keys can not be added after {@link #build(String, long[], FilterProperties)}, build a new filter
+ * instead. Lookups take no lock, the filter is persisted by {@link #checkpoint()} and recovered like
+ * the other filters
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class BinaryFuseFilter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BinaryFuseFilter.class);
+
+    /**
+     * "BLMF"
+     */
+    public static final int MAGIC = 0x424C4D46;
+
+    // 每次构建失败后换一个种子重试
+    private static final int MAX_ATTEMPTS = 100;
+    private static final int MAX_SEGMENT_LENGTH = 1 << 18;
+
+    // h1, h2 缓冲区, 避免每次调用分配
+    private static final ThreadLocal<long[]> HASH_BUFFER = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final String name; // 过滤器名称
+    private final Path directory; // 指纹文件和信息所在目录
+    private final StorageType storageType; // 指纹存储位置
+    private final BitStore bitStore; // 指纹按位紧密排列
+    private final int fingerprintBits; // 指纹位数, 8 或 16
+    private final long fingerprintMask;
+    private final int laneShift; // 每个 long 中指纹个数的 log2
+    private final int segmentLength;
+    private final long segmentLengthMask;
+    private final int segmentCount;
+    private final long segmentCountLength;
+    private final long arrayLength;
+    private final long seed; // 构建成功时的种子
+    private final long elementCount;
+    private final HashStrategy hashStrategy; // 哈希策略
+    private final long hashSeed; // MURMUR3_128 种子
+    private final String hashKey; // SIPHASH_24 密钥(hex)
+    private final String salt; // HMAC_SHA256 盐
+    private final ElementHasher hasher; // 每个元素只计算一次 128 位哈希
+    private final boolean trimKeys; // 是否去除字符元素首尾空白
+    private final boolean rejectEmptyKeys; // 是否拒绝空元素
+
+    /**
+     * Init BinaryFuseFilter
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param information sizing, seed and hashing of the filter
+     * @param properties storage and key settings
+     * @param loader fills the fingerprints
+     * @param create false when recovering, a mapped store then maps the existing file
+     */
+    private BinaryFuseFilter(String name, Path directory, FuseInformation information, FilterProperties properties,
+                             Consumer<BitStore> loader, boolean create) {
+        if (properties.isJournal()) {
+            throw new IllegalArgumentException("the " + FilterType.BINARY_FUSE + " filter is immutable, it has no insert journal");
+        }
+        int fingerprintBits = information.getFingerprintBits();
+        if (fingerprintBits != Byte.SIZE && fingerprintBits != Short.SIZE) {
+            throw new IllegalArgumentException("unsupported fingerprint bits: " + fingerprintBits);
+        }
+        int segmentLength = information.getSegmentLength();
+        if (segmentLength <= 0 || Integer.bitCount(segmentLength) != 1
+                || information.getSegmentCountLength() != (long) information.getSegmentCount() * segmentLength
+                || information.getArrayLength() != (information.getSegmentCount() + 2L) * segmentLength) {
+            throw new IllegalArgumentException("illegal binary fuse filter segments: " + information);
+        }
+        this.name = name;
+        this.directory = directory;
+        this.storageType = properties.getStorage();
+        this.fingerprintBits = fingerprintBits;
+        this.fingerprintMask = (1L << fingerprintBits) - 1;
+        this.laneShift = Integer.numberOfTrailingZeros(Long.SIZE / fingerprintBits);
+        this.segmentLength = segmentLength;
+        this.segmentLengthMask = segmentLength - 1;
+        this.segmentCount = information.getSegmentCount();
+        this.segmentCountLength = information.getSegmentCountLength();
+        this.arrayLength = information.getArrayLength();
+        this.seed = information.getSeed();
+        this.elementCount = information.getElementCount();
+        this.hashStrategy = information.getHashStrategy();
+        this.hashSeed = information.getHashSeed();
+        this.hashKey = information.getHashKey();
+        this.salt = information.getSalt();
+        this.hasher = ElementHasher.of(hashStrategy, hashSeed, hashKey, salt);
+        this.trimKeys = properties.isTrimKeys();
+        this.rejectEmptyKeys = properties.isRejectEmptyKeys();
+        this.bitStore = FilterStorage.createBitStore(storageType, directory.resolve(BITMAP_FILE_NAME),
+                BitAddressing.wordCount(arrayLength * fingerprintBits), create);
+        loader.accept(bitStore);
+
+        if (properties.isEnableLogging()) {
+            log.info("{} 二进制熔丝过滤器指纹数: {}, 元素: {}, 每个元素位数: {}, 误判率: {}",
+                    name, arrayLength, elementCount, getBitsPerElement(), getFalsePositiveProbability());
+        }
+    }
+
+    /**
+     * build a filter from long keys, duplicates are stored once
+     * @param name filter name
+     * @param keys keys
+     * @param properties fingerprint size from falsePositiveProbability, storage and key settings
+     * @return {@link BinaryFuseFilter}
+     */
+    public static BinaryFuseFilter build(String name, long[] keys, FilterProperties properties) {
+        FuseInformation information = informationOf(properties);
+        ElementHasher hasher = ElementHasher.of(information.getHashStrategy(), information.getHashSeed(), information.getHashKey(), information.getSalt());
+        long[] hashes = HASH_BUFFER.get();
+        long[] keyHashes = new long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            hasher.hashLong(keys[i], hashes);
+            keyHashes[i] = hashes[0];
+        }
+        return build(name, keyHashes, keyHashes.length, information, properties);
+    }
+
+    /**
+     * build a filter from char sequence keys, duplicates are stored once and keys rejected by the
+     * key policy are left out
+     * @param name filter name
+     * @param keys keys
+     * @param properties fingerprint size from falsePositiveProbability, storage and key settings
+     * @return {@link BinaryFuseFilter}
+     */
+    public static BinaryFuseFilter build(String name, Collection<? extends CharSequence> keys, FilterProperties properties) {
+        FuseInformation information = informationOf(properties);
+        ElementHasher hasher = ElementHasher.of(information.getHashStrategy(), information.getHashSeed(), information.getHashKey(), information.getSalt());
+        long[] hashes = HASH_BUFFER.get();
+        long[] keyHashes = new long[keys.size()];
+        int size = 0;
+        for (CharSequence key : keys) {
+            int start = properties.isTrimKeys() ? BloomFilter.keyStart(key) : 0;
+            int end = properties.isTrimKeys() ? BloomFilter.keyEnd(key, start) : key.length();
+            if (properties.isRejectEmptyKeys() && start == end) {
+                continue;
+            }
+            hasher.hashChars(key, start, end, hashes);
+            keyHashes[size++] = hashes[0];
+        }
+        return build(name, keyHashes, size, information, properties);
+    }
+
+    /**
+     * size the filter for the distinct key hashes, peel them and assign the fingerprints
+     * @param name filter name
+     * @param keyHashes h1 of the keys, sorted in place
+     * @param size number of key hashes
+     * @param information hashing of the filter
+     * @param properties storage and key settings
+     * @return {@link BinaryFuseFilter}
+     */
+    private static BinaryFuseFilter build(String name, long[] keyHashes, int size, FuseInformation information, FilterProperties properties) {
+        // 相同的哈希无法剥离, 排序后去重
+        Arrays.sort(keyHashes, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || keyHashes[i] != keyHashes[distinct - 1]) {
+                keyHashes[distinct++] = keyHashes[i];
+            }
+        }
+        segments(information, distinct);
+        long[] order = new long[distinct];
+        byte[] found = new byte[distinct];
+        information.setSeed(peel(keyHashes, distinct, information, order, found));
+        information.setElementCount(distinct);
+        return new BinaryFuseFilter(name, BloomFilterRegistry.directoryOf(name, properties), information, properties,
+                bitStore -> assign(bitStore, order, found, information), true);
+    }
+
+    /**
+     * recover a filter written by {@link #checkpoint()}, a binary fuse filter can not be created
+     * empty
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param properties filter configuration
+     * @return {@link BinaryFuseFilter}
+     */
+    static BinaryFuseFilter create(String name, Path directory, FilterProperties properties) {
+        if (!properties.isRecovery()) {
+            throw new IllegalArgumentException("the " + FilterType.BINARY_FUSE + " filter " + name
+                    + " is built from its keys by BinaryFuseFilter.build, configure recovery: true to load a checkpoint");
+        }
+        FuseInformation information = BloomFilterInfoUtils.getFuseInfo(directory.resolve(INFO_FILE_NAME));
+        // MAPPED 直接映射指纹文件, 无需读取
+        return new BinaryFuseFilter(name, directory, information, properties, properties.getStorage() == StorageType.MAPPED
+                ? bitStore -> { } : bitStore -> BloomFilterInfoUtils.loadingBitMap(bitStore, directory.resolve(BITMAP_FILE_NAME)), false);
+    }
+
+    /**
+     * read a filter streamed by {@link #writeTo(WritableByteChannel)}. The channel is read up to the
+     * end of the filter and is not closed
+     * @param channel channel at the start of the filter
+     * @param name filter name
+     * @param properties storage and key settings, the size and hashing come from the stream
+     * @return {@link BinaryFuseFilter}
+     */
+    public static BinaryFuseFilter readFrom(ReadableByteChannel channel, String name, FilterProperties properties) {
+        try {
+            FuseInformation information = JSON.parseObject(FilterStorage.readInformation(channel, MAGIC, "binary fuse filter"), FuseInformation.class);
+            return new BinaryFuseFilter(name, BloomFilterRegistry.directoryOf(name, properties), information, properties, bitStore -> {
+                try {
+                    FilterStorage.readWords(channel, bitStore, "binary fuse filter");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("read binary fuse filter " + name + " failed", e);
+        }
+    }
+
+    /**
+     * read a filter from a stream, a file stream is read through its channel
+     * @param in stream at the start of the filter, not closed
+     * @param name filter name
+     * @param properties storage and key settings
+     * @return {@link BinaryFuseFilter}
+     */
+    public static BinaryFuseFilter readFrom(InputStream in, String name, FilterProperties properties) {
+        return readFrom(in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : Channels.newChannel(in), name, properties);
+    }
+
+    /**
+     * fingerprint size and hashing of a new filter
+     * @param properties filter configuration
+     * @return {@link FuseInformation}
+     */
+    private static FuseInformation informationOf(FilterProperties properties) {
+        double falsePositiveProbability = properties.getFalsePositiveProbability();
+        // 误判率为 2^-f, 取满足配置的最短指纹
+        int fingerprintBits;
+        if (falsePositiveProbability >= 1.0 / (1 << Byte.SIZE) && falsePositiveProbability < 1) {
+            fingerprintBits = Byte.SIZE;
+        } else if (falsePositiveProbability >= 1.0 / (1 << Short.SIZE) && falsePositiveProbability < 1) {
+            fingerprintBits = Short.SIZE;
+        } else {
+            throw new IllegalArgumentException("binary fuse filter false positive probability must be between " + 1.0 / (1 << Short.SIZE)
+                    + " and 1, falsePositiveProbability:" + falsePositiveProbability);
+        }
+        FuseInformation information = new FuseInformation();
+        information.setFingerprintBits(fingerprintBits);
+        information.setFalsePositiveProbability(1.0 / (1 << fingerprintBits));
+        information.setHashStrategy(properties.getHashStrategy());
+        // 配置了种子、密钥和盐时使用配置的值, 同一组元素每次构建得到相同的过滤器
+        information.setHashSeed(BloomFilter.hashSeedOf(properties));
+        information.setHashKey(BloomFilter.hashKeyOf(properties));
+        information.setSalt(BloomFilter.saltOf(properties));
+        return information;
+    }
+
+    /**
+     * segment length and count for a number of keys, as in the reference implementation: segments
+     * get shorter and the array relatively longer for small sets
+     * @param information information to fill
+     * @param size number of distinct keys
+     */
+    private static void segments(FuseInformation information, int size) {
+        int segmentLength = size <= 1 ? 4 : 1 << (int) Math.floor(Math.log(size) / Math.log(3.33) + 2.25);
+        segmentLength = Math.min(segmentLength, MAX_SEGMENT_LENGTH);
+        double sizeFactor = size <= 1 ? 0 : Math.max(1.125, 0.875 + 0.25 * Math.log(1_000_000) / Math.log(size));
+        long capacity = Math.round(size * sizeFactor);
+        long segmentCount = (capacity + segmentLength - 1) / segmentLength - 2;
+        segmentCount = segmentCount <= 0 ? 1 : segmentCount;
+        long arrayLength = (segmentCount + 2) * segmentLength;
+        // 构建时按 int 下标访问
+        if (arrayLength > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("too many keys for a binary fuse filter: " + size);
+        }
+        information.setSegmentLength(segmentLength);
+        information.setSegmentCount((int) segmentCount);
+        information.setSegmentCountLength(segmentCount * segmentLength);
+        information.setArrayLength(arrayLength);
+    }
+
+    /**
+     * find a seed for which the keys can be peeled: repeatedly take a position only one key maps to,
+     * that key gets its fingerprint there after the keys taken later
+     * @param keyHashes distinct key hashes
+     * @param size number of key hashes
+     * @param information sizing of the filter
+     * @param order hashes in peeling order
+     * @param found position (0, 1 or 2) each key was peeled at
+     * @return {@link Long} seed
+     */
+    private static long peel(long[] keyHashes, int size, FuseInformation information, long[] order, byte[] found) {
+        int arrayLength = (int) information.getArrayLength();
+        int segmentLength = information.getSegmentLength();
+        long segmentCountLength = information.getSegmentCountLength();
+        // 高位为映射到该位置的键数, 低 2 位为这些键在各自三个位置中序号的异或
+        int[] t2count = new int[arrayLength];
+        long[] t2hash = new long[arrayLength];
+        int[] alone = new int[arrayLength];
+        // 首个剥离种子由哈希种子导出, 配置了种子时构建结果可复现
+        long seed = mix(information.getHashSeed());
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++, seed += 0x9E3779B97F4A7C15L) {
+            Arrays.fill(t2count, 0);
+            Arrays.fill(t2hash, 0);
+            for (int i = 0; i < size; i++) {
+                long hash = mix(keyHashes[i] + seed);
+                for (int j = 0; j < 3; j++) {
+                    int position = (int) position(hash, j, segmentLength, segmentCountLength);
+                    t2count[position] = (t2count[position] + 4) ^ j;
+                    t2hash[position] ^= hash;
+                }
+            }
+            int queued = 0;
+            for (int position = 0; position < arrayLength; position++) {
+                if (t2count[position] >> 2 == 1) {
+                    alone[queued++] = position;
+                }
+            }
+            int peeled = 0;
+            while (queued > 0) {
+                int position = alone[--queued];
+                if (t2count[position] >> 2 != 1) {
+                    continue;
+                }
+                long hash = t2hash[position];
+                int j = t2count[position] & 3;
+                order[peeled] = hash;
+                found[peeled++] = (byte) j;
+                // 从另外两个位置移除该键
+                for (int k = 1; k < 3; k++) {
+                    int other = (j + k) % 3;
+                    int otherPosition = (int) position(hash, other, segmentLength, segmentCountLength);
+                    t2count[otherPosition] = (t2count[otherPosition] - 4) ^ other;
+                    t2hash[otherPosition] ^= hash;
+                    if (t2count[otherPosition] >> 2 == 1) {
+                        alone[queued++] = otherPosition;
+                    }
+                }
+                t2count[position] = 0;
+            }
+            if (peeled == size) {
+                return seed;
+            }
+        }
+        throw new IllegalStateException("binary fuse filter construction failed after " + MAX_ATTEMPTS + " seeds, keys: " + size);
+    }
+
+    /**
+     * assign the fingerprints in reverse peeling order, each key sets the one position no key
+     * assigned later maps to
+     * @param bitStore fingerprints
+     * @param order hashes in peeling order
+     * @param found position each key was peeled at
+     * @param information sizing and fingerprint size
+     */
+    private static void assign(BitStore bitStore, long[] order, byte[] found, FuseInformation information) {
+        int fingerprintBits = information.getFingerprintBits();
+        int segmentLength = information.getSegmentLength();
+        long segmentCountLength = information.getSegmentCountLength();
+        long[] positions = new long[3];
+        for (int i = order.length - 1; i >= 0; i--) {
+            long hash = order[i];
+            for (int j = 0; j < 3; j++) {
+                positions[j] = position(hash, j, segmentLength, segmentCountLength);
+            }
+            int j = found[i];
+            long fingerprint = fingerprint(hash, fingerprintBits)
+                    ^ lane(bitStore, positions[(j + 1) % 3], fingerprintBits)
+                    ^ lane(bitStore, positions[(j + 2) % 3], fingerprintBits);
+            setLane(bitStore, positions[j], fingerprintBits, fingerprint);
+        }
+    }
+
+    /**
+     * one of the three positions of a hash, each in its own segment
+     * @param hash hash
+     * @param index 0, 1 or 2
+     * @param segmentLength segment length
+     * @param segmentCountLength range of the first position
+     * @return {@link Long}
+     */
+    private static long position(long hash, int index, int segmentLength, long segmentCountLength) {
+        long h0 = BitAddressing.fastRange(hash, segmentCountLength);
+        long mask = segmentLength - 1;
+        if (index == 0) {
+            return h0;
+        }
+        return index == 1 ? (h0 + segmentLength) ^ ((hash >>> 18) & mask) : (h0 + 2L * segmentLength) ^ (hash & mask);
+    }
+
+    /**
+     * mix the key hash with the seed, so every seed gives independent positions (murmur3 fmix64)
+     * @param k key hash plus seed
+     * @return {@link Long}
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * fingerprint of a mixed hash
+     * @param hash hash
+     * @param fingerprintBits fingerprint bits
+     * @return {@link Long}
+     */
+    private static long fingerprint(long hash, int fingerprintBits) {
+        return (hash ^ (hash >>> 32)) & ((1L << fingerprintBits) - 1);
+    }
+
+    /**
+     * read the fingerprint at a position
+     * @param bitStore fingerprints
+     * @param position position
+     * @param fingerprintBits fingerprint bits
+     * @return {@link Long}
+     */
+    private static long lane(BitStore bitStore, long position, int fingerprintBits) {
+        int lanes = Long.SIZE / fingerprintBits;
+        long word = bitStore.getWord(position / lanes);
+        return (word >>> ((position % lanes) * fingerprintBits)) & ((1L << fingerprintBits) - 1);
+    }
+
+    /**
+     * write the fingerprint at a position
+     * @param bitStore fingerprints
+     * @param position position
+     * @param fingerprintBits fingerprint bits
+     * @param fingerprint fingerprint
+     */
+    private static void setLane(BitStore bitStore, long position, int fingerprintBits, long fingerprint) {
+        int lanes = Long.SIZE / fingerprintBits;
+        int shift = (int) (position % lanes) * fingerprintBits;
+        long mask = ((1L << fingerprintBits) - 1) << shift;
+        long word = bitStore.getWord(position / lanes);
+        bitStore.setWord(position / lanes, (word & ~mask) | (fingerprint << shift));
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(String element) {
+        return isContain((CharSequence) element);
+    }
+
+    /**
+     * check if element exists, its UTF-16 chars are hashed without encoding
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(CharSequence element) {
+        int start = trimKeys ? BloomFilter.keyStart(element) : 0;
+        int end = trimKeys ? BloomFilter.keyEnd(element, start) : element.length();
+        if (rejectEmptyKeys && start == end) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashChars(element, start, end, hashes);
+        return probe(hashes[0]);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return probe(hashes[0]);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return probe(hashes[0]);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return probe(hashes[0]);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element) {
+        return isContain(element, 0, element.length);
+    }
+
+    /**
+     * check if a byte range exists
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        if (rejectEmptyKeys && length == 0) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBytes(element, offset, length, hashes);
+        return probe(hashes[0]);
+    }
+
+    /**
+     * check if the remaining bytes of a buffer exist, its position is not changed
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(ByteBuffer element) {
+        if (rejectEmptyKeys && !element.hasRemaining()) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBuffer(element, hashes);
+        return probe(hashes[0]);
+    }
+
+    /**
+     * xor the fingerprints at the three positions of a key
+     * @param keyHash h1 of the key
+     * @return {@link Boolean}
+     */
+    private boolean probe(long keyHash) {
+        long hash = mix(keyHash + seed);
+        long h0 = BitAddressing.fastRange(hash, segmentCountLength);
+        long h1 = (h0 + segmentLength) ^ ((hash >>> 18) & segmentLengthMask);
+        long h2 = (h0 + 2L * segmentLength) ^ (hash & segmentLengthMask);
+        return ((hash ^ (hash >>> 32)) & fingerprintMask) == (lane(h0) ^ lane(h1) ^ lane(h2));
+    }
+
+    /**
+     * read the fingerprint at a position
+     * @param position position
+     * @return {@link Long}
+     */
+    private long lane(long position) {
+        int shift = (int) (position & ((1 << laneShift) - 1)) * fingerprintBits;
+        return (bitStore.getWord(position >>> laneShift) >>> shift) & fingerprintMask;
+    }
+
+    /**
+     * information of the filter
+     * @param message description
+     * @return {@link FuseInformation}
+     */
+    private FuseInformation information(String message) {
+        FuseInformation information = new FuseInformation();
+        information.setDescription(message);
+        information.setFingerprintBits(fingerprintBits);
+        information.setSegmentLength(segmentLength);
+        information.setSegmentCount(segmentCount);
+        information.setSegmentCountLength(segmentCountLength);
+        information.setArrayLength(arrayLength);
+        information.setSeed(seed);
+        information.setFalsePositiveProbability(getFalsePositiveProbability());
+        information.setHashStrategy(hashStrategy);
+        information.setHashSeed(hashSeed);
+        information.setHashKey(hashKey);
+        information.setSalt(salt);
+        information.setElementCount(elementCount);
+        return information;
+    }
+
+    /**
+     * write the fingerprints and the info file, a mapped fingerprint file is forced
+     * @return {@link Boolean}
+     */
+    public boolean checkpoint() {
+        return BloomFilterInfoUtils.generatorBitmapFile(bitStore, directory.resolve(BITMAP_FILE_NAME))
+                && BloomFilterInfoUtils.generatorFuseInfo(information("checkpoint"), directory.resolve(INFO_FILE_NAME));
+    }
+
+    /**
+     * stream the filter, e.g. to a socket
+     * @param channel channel, not closed
+     */
+    public void writeTo(WritableByteChannel channel) {
+        try {
+            FilterStorage.write(channel, MAGIC, information("stream").toString(), bitStore);
+        } catch (IOException e) {
+            throw new UncheckedIOException("write binary fuse filter " + name + " failed", e);
+        }
+    }
+
+    /**
+     * stream the filter, a file stream is written through its channel
+     * @param out stream, not closed
+     */
+    public void writeTo(OutputStream out) {
+        writeTo(out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out));
+    }
+
+    /**
+     * nothing to release, a mapped fingerprint file is forced by {@link #checkpoint()}
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * number of distinct keys the filter was built from
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * false positive probability, 2^-fingerprintBits
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return 1.0 / (1 << fingerprintBits);
+    }
+
+    /**
+     * bits of storage per element
+     * @return {@link Double}
+     */
+    public double getBitsPerElement() {
+        return elementCount == 0 ? 0 : (double) bitStore.wordCount() * Long.SIZE / elementCount;
+    }
+
+    /**
+     * getFingerprintBits
+     * @return {@link Integer}
+     */
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * getDirectory
+     * @return {@link Path}
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * getStorageType
+     * @return {@link StorageType}
+     */
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * fingerprint storage, 64 / fingerprintBits fingerprints per word
+     * @return {@link BitStore}
+     */
+    public BitStore getBitStore() {
+        return bitStore;
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.dalowed.filter;
+
+/**
+ * Maps 64-bit hashes to bit positions.
+ * The whole position is taken from one multiply (Lemire fast-range), so word index and bit index
+ * are not correlated and every bit in [0, size) is reachable.
+ * @author dalowed
+ * @since 0.0.4
+ */
+final class BitAddressing {
+
+    private BitAddressing() {
+    }
+
+    /**
+     * map hash to [0, range) by the high 64 bits of the unsigned 128-bit product
+     * @param hash hash
+     * @param range range, greater than zero
+     * @return {@link Long}
+     */
+    static long fastRange(long hash, long range) {
+        // Math.unsignedMultiplyHigh 需要 Java 18, range 恒为正数
+        return Math.multiplyHigh(hash, range) + ((hash >> 63) & range);
+    }
+
+    /**
+     * word index of bit position
+     * @param bitIndex bit position
+     * @return {@link Long}
+     */
+    static long wordIndex(long bitIndex) {
+        return bitIndex >>> 6;
+    }
+
+    /**
+     * mask of bit position inside its word
+     * @param bitIndex bit position
+     * @return {@link Long}
+     */
+    static long bitMask(long bitIndex) {
+        // 移位只取低 6 位
+        return 1L << bitIndex;
+    }
+
+    /**
+     * number of 64-bit words needed by bits
+     * @param bits bits
+     * @return {@link Long}
+     */
+    static long wordCount(long bits) {
+        return (bits + 63) >>> 6;
+    }
+}
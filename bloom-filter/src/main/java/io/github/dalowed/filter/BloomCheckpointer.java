@@ -0,0 +1,113 @@
+package io.github.dalowed.filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * runs {@link BloomFilter#checkpoint()}, {@link ScalableBloomFilter#checkpoint()},
+ * {@link SlidingWindowBloomFilter#checkpoint()}, {@link ShardedBloomFilter#checkpoint()} or
+ * {@link CuckooFilter#checkpoint()} at a fixed delay on a daemon thread and once more on close
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class BloomCheckpointer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BloomCheckpointer.class);
+
+    private final BooleanSupplier checkpoint;
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Init BloomCheckpointer
+     * @param bloomFilter bloomfilter
+     * @param interval delay between two checkpoints
+     */
+    public BloomCheckpointer(BloomFilter bloomFilter, Duration interval) {
+        this(bloomFilter::checkpoint, interval);
+    }
+
+    /**
+     * Init BloomCheckpointer for a scalable bloomfilter
+     * @param scalable scalable bloomfilter
+     * @param interval delay between two checkpoints
+     */
+    public BloomCheckpointer(ScalableBloomFilter scalable, Duration interval) {
+        this(scalable::checkpoint, interval);
+    }
+
+    /**
+     * Init BloomCheckpointer for a sliding window bloomfilter
+     * @param windowFilter sliding window bloomfilter
+     * @param interval delay between two checkpoints
+     */
+    public BloomCheckpointer(SlidingWindowBloomFilter windowFilter, Duration interval) {
+        this(windowFilter::checkpoint, interval);
+    }
+
+    /**
+     * Init BloomCheckpointer for a sharded bloomfilter
+     * @param sharded sharded bloomfilter
+     * @param interval delay between two checkpoints
+     */
+    public BloomCheckpointer(ShardedBloomFilter sharded, Duration interval) {
+        this(sharded::checkpoint, interval);
+    }
+
+    /**
+     * Init BloomCheckpointer for a cuckoo filter
+     * @param cuckooFilter cuckoo filter
+     * @param interval delay between two checkpoints
+     */
+    public BloomCheckpointer(CuckooFilter cuckooFilter, Duration interval) {
+        this(cuckooFilter::checkpoint, interval);
+    }
+
+    /**
+     * Init BloomCheckpointer
+     * @param checkpoint checkpoint
+     * @param interval delay between two checkpoints
+     */
+    private BloomCheckpointer(BooleanSupplier checkpoint, Duration interval) {
+        this.checkpoint = checkpoint;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bloom-filter-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long delay = interval.toMillis();
+        executor.scheduleWithFixedDelay(this::checkpoint, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * checkpoint, errors are logged so later checkpoints still run
+     */
+    private void checkpoint() {
+        try {
+            if (!checkpoint.getAsBoolean()) {
+                log.warn("bloomfilter checkpoint failed");
+            }
+        } catch (RuntimeException e) {
+            log.error("bloomfilter checkpoint error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * stop the schedule and write a final checkpoint
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+}
@@ -4,7 +4,9 @@ import io.github.dalowed.configuration.BloomConfigurationProperties;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 /**
  * auto assembly class
@@ -16,14 +18,37 @@ import org.springframework.context.annotation.Configuration;
 public class BloomConfiguration {
 
     /**
-     *
+     * all configured filters, scheduled checkpoints included; the last checkpoints run and the
+     * insert journals are closed when the context is closed
      * @param properties bloomfilter configuration
+     * @return {@link BloomFilterRegistry}
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnMissingBean
+    public BloomFilterRegistry bloomFilterRegistry(BloomConfigurationProperties properties) {
+        return new BloomFilterRegistry(properties);
+    }
+
+    /**
+     * the filter under {@code bloom-filter}, injected when no qualifier is given
+     * @param registry bloomfilter registry
      * @return {@link BloomFilter}
      */
+    @Bean(destroyMethod = "")
+    @Primary
+    @ConditionalOnMissingBean(name = "bloomFilter")
+    @Conditional(OnDefaultFilterCondition.class)
+    public BloomFilter bloomFilter(BloomFilterRegistry registry) {
+       return registry.get(BloomFilterRegistry.DEFAULT_NAME);
+    }
+
+    /**
+     * named filters as beans, injected with {@code @Qualifier("<name>")}
+     * @return {@link BloomFilterBeanRegistrar}
+     */
     @Bean
-    @ConditionalOnMissingBean
-    public BloomFilter bloomFilter(BloomConfigurationProperties properties) {
-       return BloomFilter.getBloomFilter(properties.getExpectedInsertions(), properties.getFalsePositiveProbability(), properties.isEnableLogging(), properties.isRecovery());
+    public static BloomFilterBeanRegistrar bloomFilterBeanRegistrar() {
+        return new BloomFilterBeanRegistrar();
     }
 
 }
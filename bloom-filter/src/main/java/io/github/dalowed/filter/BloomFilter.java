@@ -1,93 +1,213 @@
 package io.github.dalowed.filter;
 
 import io.github.dalowed.bean.BloomInformation;
-import io.micrometer.common.util.StringUtils;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.ElementHasher;
+import io.github.dalowed.hash.HashStrategy;
+import io.github.dalowed.hash.SipHasher;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.ConcurrentHeapBitStore;
+import io.github.dalowed.storage.ConcurrentMappedBitStore;
+import io.github.dalowed.storage.ConcurrentOffHeapBitStore;
+import io.github.dalowed.storage.DirtyPageTracker;
+import io.github.dalowed.storage.HeapBitStore;
+import io.github.dalowed.storage.InsertJournal;
+import io.github.dalowed.storage.MappedBitStore;
+import io.github.dalowed.storage.OffHeapBitStore;
+import io.github.dalowed.storage.StorageType;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import io.github.dalowed.utils.BloomSnapshotUtils;
+import io.github.dalowed.utils.SnapshotEncoding;
+import io.github.dalowed.utils.SnapshotReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
-import java.security.InvalidKeyException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
-import java.util.function.Function;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongToDoubleFunction;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
+import static io.github.dalowed.constants.CommonConstants.BITMAP_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.INFO_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.JOURNAL_FILE_NAME;
 import static io.github.dalowed.constants.CommonConstants.MD5;
 import static io.github.dalowed.constants.CommonConstants.SHA_1;
 import static io.github.dalowed.constants.CommonConstants.SHA_256;
+import static io.github.dalowed.constants.CommonConstants.SNAPSHOT_FILE_NAME;
+import static io.github.dalowed.utils.BloomFilterInfoUtils.generatorBitmapPages;
+import static io.github.dalowed.utils.BloomFilterInfoUtils.generatorInfo;
 import static io.github.dalowed.utils.BloomFilterInfoUtils.getBloomInfo;
-import static io.github.dalowed.utils.BloomFilterInfoUtils.loadingBitMap;
+import static io.github.dalowed.utils.BloomSnapshotUtils.getSnapshotInfo;
+import static io.github.dalowed.utils.BloomSnapshotUtils.loadingSnapshot;
 
 
 /**
- * bloomfilter
+ * bloomfilter, created and owned by a {@link BloomFilterRegistry}
  * @author dalowed
  * @since 0.0.1
  */
 public class BloomFilter {
 
     private static final Logger log = LoggerFactory.getLogger(BloomFilter.class);
-    private long[] bitArray;
+    private final String name; // 过滤器名称
+    private final Path directory; // 位图、信息、快照和插入日志所在目录
+    private final BitStore bitStore; // 位图存储
+    private final boolean concurrent; // 是否允许多线程并发写入
+    private final StorageType storageType; // 位图存储位置
     private final long size; // 位数组的大小
     private final int hashFunctions; // 哈希函数的数量
-    private final Function<String, BigInteger>[] hashFunctionsArray; // 哈希函数数组
+    private final BloomLayout layout; // 位图布局
+    private final long blockCount; // BLOCKED / SPLIT_BLOCK 布局的块数
+    private final long[] vectorWords; // SPLIT_BLOCK 向量化时的位图数组, 否则为 null
+    private final boolean vectorPut; // 向量写入不是原子操作, 仅单线程写入时使用
+    private final DirtyPageTracker dirtyPages; // 开启检查点时记录变更的 4 KB 页, 否则为 null
+    private final InsertJournal journal; // 开启插入日志时记录每个元素的哈希, 否则为 null
+    private final HashStrategy hashStrategy; // 哈希策略
+    private final long hashSeed; // MURMUR3_128 种子
+    private final String hashKey; // SIPHASH_24 密钥(hex), 代替每个哈希函数一个盐
+    private final ElementHasher hasher; // 每个元素只计算一次 128 位哈希
     private final List<String> hashFunctionsSaltList = new ArrayList<>();
+    // 已插入元素个数(含重复), 按纪元奇偶分开计数, 快照时可得到精确的插入数
+    private final LongAdder[] epochCounts = {new LongAdder(), new LongAdder()};
+    // 各纪元正在写入的线程数, 按线程分槽计数: 同一线程的登记和离开总在同一个槽, 每个槽都是精确值
+    private final AtomicLongArray inFlight = new AtomicLongArray(2 * IN_FLIGHT_STRIPES * IN_FLIGHT_PADDING);
+    private volatile int epoch; // 每次快照加一
+    private volatile PageCapture capture; // 快照期间写入前复制页, 否则为 null
+    private final Semaphore snapshotPermit = new Semaphore(1); // 同一时间只有一个快照
 
-    private static long expectedInsertions;
-    private static double falsePositiveProbability;
+    // h1, h2 缓冲区, 避免每次调用分配
+    // 写入计数的槽数为 CPU 数向上取 2 的幂, 每个槽独占一个缓存行
+    private static final int IN_FLIGHT_STRIPES = Math.min(64, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+    private static final int IN_FLIGHT_PADDING = 8;
 
-    private static volatile BloomFilter bloomFilter;
+    private static final ThreadLocal<long[]> HASH_BUFFER = ThreadLocal.withInitial(() -> new long[2]);
+
+    // 批量操作每轮处理的元素个数, 哈希数组保持在 L1 中
+    private static final int BATCH_SIZE = 256;
+
+    // 集合运算和估算每个任务处理的 long 个数, 较大的位图按区间并行
+    private static final long RANGE_WORDS = 1L << 16;
+
+    // BLOCKED 布局每块 512 位, 即一个 64 字节缓存行
+    private static final int BLOCK_BITS_SHIFT = 9;
+    private static final int BLOCK_BITS = 1 << BLOCK_BITS_SHIFT;
+
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+
+    // 最近创建的注册表中的默认过滤器, 供已弃用的 getBloomFilter() 使用
+    private static volatile BloomFilter defaultFilter;
 
     private final boolean isLogging;
 
+    private final boolean trimKeys; // 是否去除字符元素首尾空白
+    private final boolean rejectEmptyKeys; // 是否拒绝空元素
+
 
     /**
      * Init BloomFilter
      *
-     * @param expectedInsertions       expectedInsertions
-     * @param falsePositiveProbability falsePositiveProbability
-     * @param isLogging                Whether to enable logs
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param properties bloomfilter configuration
      */
-    private BloomFilter(long expectedInsertions, double falsePositiveProbability, boolean isLogging) {
-        this.isLogging = isLogging;
+    private BloomFilter(String name, Path directory, FilterProperties properties) {
+        long expectedInsertions = properties.getExpectedInsertions();
+        double falsePositiveProbability = properties.getFalsePositiveProbability();
+        this.name = name;
+        this.directory = directory;
+        this.isLogging = properties.isEnableLogging();
+        this.concurrent = properties.isConcurrent();
+        this.storageType = properties.getStorage();
+        this.trimKeys = properties.isTrimKeys();
+        this.rejectEmptyKeys = properties.isRejectEmptyKeys();
         this.expectedInsertions = expectedInsertions;
         this.falsePositiveProbability = falsePositiveProbability;
+        this.hashStrategy = properties.getHashStrategy();
+        // 配置了种子、密钥和盐时, 相同配置的过滤器可以合并
+        this.hashSeed = hashSeedOf(properties);
+        this.hashKey = hashKeyOf(properties);
+        if (hashStrategy == HashStrategy.HMAC_SHA256) {
+            hashFunctionsSaltList.add(saltOf(properties));
+        }
 
-        logIfEnabled(log::info, "预计插入: " + expectedInsertions + ", 误判率: " + falsePositiveProbability);
+        logIfEnabled(log::info, name + " 预计插入: " + expectedInsertions + ", 误判率: " + falsePositiveProbability);
 
-        this.size = optimalNumOfBits(expectedInsertions, falsePositiveProbability);
+        this.layout = properties.getLayout();
+        if (layout == BloomLayout.BLOCKED) {
+            this.size = optimalNumOfBlockedBits(expectedInsertions, falsePositiveProbability);
+            this.hashFunctions = optimalNumOfBlockedHashFunctions(expectedInsertions, size);
+        } else if (layout == BloomLayout.SPLIT_BLOCK) {
+            this.size = optimalNumOfSplitBlockBits(expectedInsertions, falsePositiveProbability);
+            this.hashFunctions = SplitBlock.LANES;
+        } else {
+            this.size = optimalNumOfBits(expectedInsertions, falsePositiveProbability);
 //        log.info("位图大小:{}", this.size);
-        this.hashFunctions = optimalNumOfHashFunctions(expectedInsertions, size);
+            this.hashFunctions = optimalNumOfHashFunctions(expectedInsertions, size);
+        }
+        this.blockCount = blockCount(layout, size);
 //        log.info("哈希函数个数:{}", this.hashFunctions);
 
-        // 计算 bitArray 的长度，确保不会超过 Integer.MAX_VALUE
-        long bitArrayLength = (size + 64) / 64;
-        if (bitArrayLength > Integer.MAX_VALUE) {
-            throw new IllegalArgumentException("The required bit array length exceeds the maximum integer value.");
-        }
-        this.bitArray = new long[(int) bitArrayLength]; // 每个 long 占 64 位
+        this.bitStore = createBitStore(storageWordCount(), true); // 每个 long 占 64 位, 或 16 个计数器
+        this.vectorWords = vectorWords();
+        this.vectorPut = vectorWords != null && !concurrent;
+        // 位图文件尚不存在, 第一次检查点写出全部页
+        this.dirtyPages = createDirtyPageTracker(properties, true);
+        this.journal = createJournal(properties, true);
 
-        this.hashFunctionsArray = createHashFunctions(hashFunctions);
+        this.hasher = createHasher();
 
 //        log.info("生成的位图大小:{}, 哈希函数个数:{}", size, hashFunctions);
 
-        logIfEnabled(log::info, "生成的位图大小: " + size + " , 哈希函数个数: " + hashFunctions);
+        logIfEnabled(log::info, name + " 生成的位图大小: " + size + " , 哈希函数个数: " + hashFunctions);
     }
 
     /**
      * Recovery bloomFilter constructor
      *
+     * @param name             filter name
+     * @param directory        directory of the filter files
      * @param bloomInformation bloomfilter information
+     * @param properties       bloomfilter configuration
+     * @param loader           fills the bitmap storage
+     * @param fromBitmapFile   whether the bitmap is recovered from the bitmap file, whose pages are then clean
      */
-    private BloomFilter(BloomInformation bloomInformation) {
+    private BloomFilter(String name, Path directory, BloomInformation bloomInformation, FilterProperties properties, Consumer<BitStore> loader, boolean fromBitmapFile) {
+        this.name = name;
+        this.directory = directory;
         // 是否开启日志
         this.isLogging = bloomInformation.isLogging();
+        this.concurrent = properties.isConcurrent();
+        this.storageType = properties.getStorage();
+        this.trimKeys = properties.isTrimKeys();
+        this.rejectEmptyKeys = properties.isRejectEmptyKeys();
         // size 大小
         this.size = bloomInformation.getSize();
 
@@ -95,59 +215,182 @@ public class BloomFilter {
         this.falsePositiveProbability = bloomInformation.getFalsePositiveProbability();
         // hash函数个数
         this.hashFunctions = bloomInformation.getHashFunctions();
-        // 位图信息
-        this.bitArray = loadingBitMap(this.size);
+        // 旧版本没有布局信息, 均为 STANDARD
+        this.layout = bloomInformation.getLayout() == null ? BloomLayout.STANDARD : bloomInformation.getLayout();
+        this.blockCount = blockCount(layout, size);
+        // 0.0.3 及以前的位图按每个哈希函数单独计算 HMAC, 无法按新的哈希方式恢复
+        if (bloomInformation.getHashStrategy() == null) {
+            throw new IllegalStateException("bitmap without hashStrategy was generated by 0.0.3 or earlier and can not be recovered, please rebuild it");
+        }
+        this.hashStrategy = bloomInformation.getHashStrategy();
+        this.hashSeed = bloomInformation.getHashSeed();
+        this.hashKey = bloomInformation.getHashKey();
+        // 位图信息, 只有从位图文件恢复时映射已有的文件
+        this.bitStore = createBitStore(storageWordCount(), !fromBitmapFile);
+        loader.accept(bitStore);
+        this.epochCounts[0].add(bloomInformation.getElementCount());
+        this.vectorWords = vectorWords();
+        this.vectorPut = vectorWords != null && !concurrent;
+        this.dirtyPages = createDirtyPageTracker(properties, !fromBitmapFile);
+        // 重放上次保存后插入的元素, 变更的页在下次检查点写出
+        long replayed = InsertJournal.replay(directory.resolve(JOURNAL_FILE_NAME), hashSeed, size, this::put);
+        if (replayed > 0) {
+            logIfEnabled(log::info, "重放插入日志: " + replayed);
+        }
+        this.journal = createJournal(properties, false);
 
-        // 哈希函数
-        this.hashFunctionsArray = createHashFunctions(hashFunctions);
         // 种子
         this.hashFunctionsSaltList.clear();
         Stream.ofNullable(bloomInformation.getSeeds())
                 .flatMap(List::stream)
                 .forEach(this.hashFunctionsSaltList::add);
+        // 哈希函数
+        this.hasher = createHasher();
 
-        logIfEnabled(log::info, "恢复过滤器:" + "预计过滤数:" + bloomInformation.getExpectedInsertions() + ", 误判率:" + bloomInformation.getFalsePositiveProbability());
+        logIfEnabled(log::info, "恢复过滤器 " + name + ": 预计过滤数:" + bloomInformation.getExpectedInsertions() + ", 误判率:" + bloomInformation.getFalsePositiveProbability());
     }
 
     /**
      * Recovery BloomFilter
      *
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param properties bloomfilter configuration
      * @return {@link BloomFilter}
      */
-    private static BloomFilter recovery() {
+    private static BloomFilter recovery(String name, Path directory, FilterProperties properties) {
+        // 使用较新的二进制快照或位图文件(检查点原地更新位图文件), MAPPED 映射的是位图文件
+        Path snapshot = directory.resolve(SNAPSHOT_FILE_NAME);
+        Path bitmap = directory.resolve(BITMAP_FILE_NAME);
+        // 完成上次中断的检查点
+        BloomFilterInfoUtils.recoverBitmapPages(bitmap);
+        if (properties.getStorage() != StorageType.MAPPED && isNewer(snapshot, bitmap)) {
+            return new BloomFilter(name, directory, getSnapshotInfo(snapshot), properties, bitStore -> loadingSnapshot(snapshot, bitStore), false);
+        }
+
         // 获取信息
-        BloomInformation information = getBloomInfo();
+        BloomInformation information = getBloomInfo(directory.resolve(INFO_FILE_NAME));
 
-        // 初始化
-        bloomFilter = new BloomFilter(information);
+        // 初始化, MAPPED 直接映射位图文件, 无需读取
+        return new BloomFilter(name, directory, information, properties,
+                properties.getStorage() == StorageType.MAPPED ? bitStore -> { } : bitStore -> BloomFilterInfoUtils.loadingBitMap(bitStore, bitmap), true);
+    }
 
-        return bloomFilter;
+    /**
+     * read a filter streamed by {@link #writeTo(WritableByteChannel)} or stored by
+     * {@link io.github.dalowed.utils.BloomSnapshotUtils#generatorSnapshotFile(BloomFilter)}, e.g.
+     * from a socket. The channel is read up to the end of the snapshot and is not closed
+     *
+     * @param channel channel at the start of the snapshot
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings, the size and hashing come from the snapshot
+     * @return {@link BloomFilter}
+     */
+    public static BloomFilter readFrom(ReadableByteChannel channel, String name, FilterProperties properties) {
+        try {
+            SnapshotReader reader = new SnapshotReader(channel);
+            return new BloomFilter(name, BloomFilterRegistry.directoryOf(name, properties), reader.getInformation(), properties, bitStore -> {
+                try {
+                    reader.readBitmap(bitStore);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("read bloomfilter " + name + " failed", e);
+        }
     }
 
     /**
-     * getBloomFilter
+     * read a filter from a stream, a file stream is read through its channel
      *
-     * @param expectedInsertions       expectedInsertions
-     * @param falsePositiveProbability falsePositiveProbability
-     * @param isLogging                enable log
-     * @param recovery                 enable recovery
+     * @param in stream at the start of the snapshot, not closed
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings
      * @return {@link BloomFilter}
      */
-    protected static final BloomFilter getBloomFilter(long expectedInsertions, double falsePositiveProbability, boolean isLogging, boolean recovery) {
-        if (bloomFilter == null)
-            synchronized (BloomFilter.class) {
-                if (bloomFilter == null)
-                    bloomFilter = (recovery ? recovery() : new BloomFilter(expectedInsertions, falsePositiveProbability, isLogging));
-            }
-        return bloomFilter;
+    public static BloomFilter readFrom(InputStream in, String name, FilterProperties properties) {
+        return readFrom(in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : Channels.newChannel(in), name, properties);
     }
 
     /**
-     * getBloomFilter
+     * a new filter holding the union of two compatible filters, e.g. partial filters built by
+     * several workers; the words are OR-ed range by range in parallel. Filters still being written
+     * are read as they are, merge them once their workers are done
+     *
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings, the size and hashing come from the filters
+     * @param first first filter
+     * @param second second filter
+     * @return {@link BloomFilter}
+     */
+    public static BloomFilter union(String name, FilterProperties properties, BloomFilter first, BloomFilter second) {
+        first.checkMergeable(second);
+        // 插入数含重复, 两个过滤器的插入数相加
+        return first.combine(name, properties, second, first.getElementCount() + second.getElementCount(), (word, other) -> word | other);
+    }
+
+    /**
+     * a new filter holding the intersection of two compatible filters, the words are AND-ed range
+     * by range in parallel. Its element count is {@link #estimateIntersectionSize(BloomFilter)}
+     *
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings, the size and hashing come from the filters
+     * @param first first filter
+     * @param second second filter
+     * @return {@link BloomFilter}
+     */
+    public static BloomFilter intersect(String name, FilterProperties properties, BloomFilter first, BloomFilter second) {
+        first.checkMergeable(second);
+        return first.combine(name, properties, second, first.intersectionCount(second), (word, other) -> word & other);
+    }
+
+    /**
+     * whether a file exists and is not older than another one
+     * @param file file
+     * @param other other file
+     * @return {@link Boolean}
+     */
+    private static boolean isNewer(Path file, Path other) {
+        try {
+            return Files.exists(file) && (!Files.exists(other)
+                    || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(other)) >= 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * create or recover a filter
+     *
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param properties bloomfilter configuration
      * @return {@link BloomFilter}
      */
+    static BloomFilter create(String name, Path directory, FilterProperties properties) {
+        return properties.isRecovery() ? recovery(name, directory, properties) : new BloomFilter(name, directory, properties);
+    }
+
+    /**
+     * getBloomFilter
+     * @return {@link BloomFilter} the filter under {@code bloom-filter}, null before the registry is created
+     * @deprecated inject the {@code bloomFilter} bean or use {@link BloomFilterRegistry#get(String)}
+     */
+    @Deprecated
     public static final BloomFilter getBloomFilter() {
-        return bloomFilter;
+        return defaultFilter;
+    }
+
+    /**
+     * set or clear the filter returned by {@link #getBloomFilter()}
+     * @param current filter replaced, null to replace any
+     * @param bloomFilter new default filter, null to clear
+     */
+    static synchronized void replaceDefaultFilter(BloomFilter current, BloomFilter bloomFilter) {
+        if (current == null || defaultFilter == current) {
+            defaultFilter = bloomFilter;
+        }
     }
 
 
@@ -180,215 +423,1622 @@ public class BloomFilter {
     }
 
     /**
-     * Create an array of hash functions
-     * @param count Number of hash functions
-     * @return {@link Function }
+     * Calculate bitmap size of the blocked layout. Elements are not spread evenly over the blocks,
+     * so the false positive probability is averaged over the Poisson distributed block load and the
+     * bitmap grows until the configured probability is met
+     * @param expectedInsertions expectedInsertions
+     * @param falsePositiveProbability falsePositiveProbability
+     * @return {@link Long} multiple of the block size
      */
-    private Function<String, BigInteger>[] createHashFunctions(int count) {
-
-        Function<String, BigInteger>[] functions = new Function[count];
+    private static long optimalNumOfBlockedBits(long expectedInsertions, double falsePositiveProbability) {
+        long bits = optimalNumOfBits(expectedInsertions, falsePositiveProbability);
+        long blocks = Math.max(1, (bits + BLOCK_BITS - 1) >>> BLOCK_BITS_SHIFT);
+        while (blockedFalsePositiveProbability(expectedInsertions, blocks,
+                optimalNumOfBlockedHashFunctions(expectedInsertions, blocks << BLOCK_BITS_SHIFT)) > falsePositiveProbability) {
+            blocks += Math.max(1, blocks / 64);
+        }
+        return blocks << BLOCK_BITS_SHIFT;
+    }
 
-        for (int i = 0; i < count; i++) {
-            final int seed = i; // 使用不同的种子值来生成不同的哈希函数
-            if (hashFunctionsSaltList.size() != hashFunctions) {
-                hashFunctionsSaltList.add(UUID.randomUUID().toString().replace("-", "").substring(7, 17));
+    /**
+     * Calculate the number of hash functions of the blocked layout
+     * @param expectedInsertions expectedInsertions
+     * @param size bitmap size
+     * @return {@link Integer}
+     */
+    private static int optimalNumOfBlockedHashFunctions(long expectedInsertions, long size) {
+        long blocks = size >>> BLOCK_BITS_SHIFT;
+        int standard = optimalNumOfHashFunctions(expectedInsertions, size);
+        int best = standard;
+        double bestProbability = blockedFalsePositiveProbability(expectedInsertions, blocks, standard);
+        // 分块后最优哈希函数个数略小于标准布局
+        for (int k = Math.max(1, standard - 3); k < standard; k++) {
+            double probability = blockedFalsePositiveProbability(expectedInsertions, blocks, k);
+            if (probability < bestProbability) {
+                best = k;
+                bestProbability = probability;
             }
-            // 生成盐
-            functions[i] = (value) -> hash(value, seed);
         }
-        return functions;
+        return best;
     }
 
     /**
-     * add element to bloomfilter
-     * @param element element
-     * @return {@link Boolean}
+     * false positive probability of the blocked layout
+     * @param expectedInsertions expectedInsertions
+     * @param blocks number of blocks
+     * @param hashFunctions hashFunctions
+     * @return {@link Double}
      */
-    public final boolean add(String element) {
+    private static double blockedFalsePositiveProbability(long expectedInsertions, long blocks, int hashFunctions) {
+        return averageOverBlockLoad(expectedInsertions, blocks,
+                load -> Math.pow(1 - Math.pow(1 - 1.0 / BLOCK_BITS, (double) hashFunctions * load), hashFunctions));
+    }
 
-        element = element.trim();
-        if (StringUtils.isEmpty(element)) {
-            logIfEnabled(log::debug, "添加元素 " + element + " 失败, 元素不合法！");
-            return false;
+    /**
+     * Calculate bitmap size of the split block layout, see {@link #optimalNumOfBlockedBits(long, double)}
+     * @param expectedInsertions expectedInsertions
+     * @param falsePositiveProbability falsePositiveProbability
+     * @return {@link Long} multiple of the block size
+     */
+    private static long optimalNumOfSplitBlockBits(long expectedInsertions, double falsePositiveProbability) {
+        long bits = optimalNumOfBits(expectedInsertions, falsePositiveProbability);
+        long blocks = Math.max(1, (bits + SplitBlock.BLOCK_BITS - 1) >>> SplitBlock.BLOCK_BITS_SHIFT);
+        while (averageOverBlockLoad(expectedInsertions, blocks, SplitBlock::blockFalsePositiveProbability) > falsePositiveProbability) {
+            blocks += Math.max(1, blocks / 64);
         }
+        return blocks << SplitBlock.BLOCK_BITS_SHIFT;
+    }
 
-        for (Function<String, BigInteger> hashFunction : hashFunctionsArray) {
-            setBit(hashFunction.apply(element));
+    /**
+     * sum of P(load = i) * fpp(block with i elements), the load of a block is Poisson distributed
+     * @param expectedInsertions expectedInsertions
+     * @param blocks number of blocks
+     * @param blockProbability false positive probability of a block by its load
+     * @return {@link Double}
+     */
+    private static double averageOverBlockLoad(long expectedInsertions, long blocks, LongToDoubleFunction blockProbability) {
+        double lambda = (double) expectedInsertions / blocks;
+        double poisson = Math.exp(-lambda);
+        double probability = 0;
+        long limit = (long) (lambda + 10 * Math.sqrt(lambda) + 10);
+        for (long i = 0; i <= limit; i++) {
+            probability += poisson * blockProbability.applyAsDouble(i);
+            poisson *= lambda / (i + 1);
         }
-//        log.info("添加元素 {} 成功", element);
-        logIfEnabled(log::info, "添加元素 " + element + " 成功");
-        return true;
+        return probability;
     }
 
     /**
-     * check if element exists
-     * @param element element
-     * @return {@link Boolean}
+     * number of blocks of the layout
+     * @param layout layout
+     * @param size bitmap size
+     * @return {@link Long}
      */
-    public final boolean isContain(String element) {
-        for (Function<String, BigInteger> hashFunction : hashFunctionsArray) {
-            if (!getBit(hashFunction.apply(element))) {
-//                log.info("元素 {} 不存在", element);
-                return false;
-            }
-        }
-//        log.info("元素 {} 可能存在", element);
-        return true;
+    private static long blockCount(BloomLayout layout, long size) {
+        return layout == BloomLayout.SPLIT_BLOCK ? size >>> SplitBlock.BLOCK_BITS_SHIFT : size >>> BLOCK_BITS_SHIFT;
+    }
+    /**
+     * number of words of the storage, a word holds 64 bits or 16 counters
+     * @return {@link Long}
+     */
+    private long storageWordCount() {
+        return layout == BloomLayout.COUNTING ? Counters.wordCount(size) : BitAddressing.wordCount(size);
     }
 
+    /**
+     * Create the hasher of the configured strategy, all indexes are derived from its 128-bit hash
+     * @return {@link ElementHasher}
+     */
+    private ElementHasher createHasher() {
+        // 生成盐
+        if (hashStrategy == HashStrategy.HMAC_SHA256 && hashFunctionsSaltList.isEmpty()) {
+            hashFunctionsSaltList.add(generateSalt());
+        }
+        return ElementHasher.of(hashStrategy, hashSeed, hashKey, hashFunctionsSaltList.isEmpty() ? null : hashFunctionsSaltList.get(0));
+    }
 
     /**
-     * Set bitmap
-     * @param hash hash of element
+     * Create the bitmap storage, lock free atomic updates when concurrent
+     * @param wordCount number of words
+     * @param create false when recovering, a mapped store then maps the existing bitmap file
+     * @return {@link BitStore}
      */
-    // 设置位数组中的某一位
-    private void setBit(BigInteger hash) {
-//        long arrayIndex = index / 64;
-//        long bitIndex = index % 64;
-//        System.out.println("hash值:" + index);
-        int arrayIndex = hash.remainder(BigInteger.valueOf(bitArray.length)).intValue();
-        int bitIndex = hash.remainder(BigInteger.valueOf(64)).intValue();
-        bitArray[arrayIndex] |= (1L << bitIndex);
+    private BitStore createBitStore(long wordCount, boolean create) {
+        if (storageType == StorageType.MAPPED) {
+            Path file = directory.resolve(BITMAP_FILE_NAME);
+            return concurrent ? new ConcurrentMappedBitStore(file, wordCount, create) : new MappedBitStore(file, wordCount, create);
+        }
+        if (storageType == StorageType.OFF_HEAP) {
+            return concurrent ? new ConcurrentOffHeapBitStore(wordCount) : new OffHeapBitStore(wordCount);
+        }
+        // 堆内数组长度不能超过 Integer.MAX_VALUE
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The required bit array length exceeds the maximum integer value, use off-heap storage.");
+        }
+        long[] words = new long[(int) wordCount];
+        return concurrent ? new ConcurrentHeapBitStore(words) : new HeapBitStore(words);
     }
 
     /**
-     * Get bitmap
-     * @param hash hash of element
-     * @return {@link Boolean}
+     * Create the dirty page tracker when checkpoints are enabled, a mapped bitmap is tracked by the OS
+     * @param properties bloomfilter configuration
+     * @param dirty whether all pages start dirty
+     * @return {@link DirtyPageTracker} null when not needed
      */
-    // 获取位数组中的某一位
-    private Boolean getBit(BigInteger hash) {
-//        long arrayIndex = index / 64;
-//        long bitIndex = index % 64;
-        int arrayIndex = hash.remainder(BigInteger.valueOf(bitArray.length)).intValue();
-        int bitIndex = hash.remainder(BigInteger.valueOf(64)).intValue();
-        return (bitArray[arrayIndex] & (1L << bitIndex)) != 0;
+    private DirtyPageTracker createDirtyPageTracker(FilterProperties properties, boolean dirty) {
+        if (properties.getCheckpointInterval() == null || storageType == StorageType.MAPPED) {
+            return null;
+        }
+        return new DirtyPageTracker(bitStore.wordCount(), dirty);
     }
 
     /**
-     *
-     * @param value hash
-     * @param hashFunctionIndex Hash function location
-     * @return {@link BigInteger}
+     * Create the insert journal when enabled
+     * @param properties bloomfilter configuration
+     * @param fresh whether the filter is new, journals of a previous filter are then deleted
+     * @return {@link InsertJournal} null when not enabled
      */
-    // 使用不同的种子值生成多个独立的哈希值
-    //  md5 sha-1 sha-256
-    @Deprecated
-    private BigInteger hashDeprecated(String value, int hashFunctionIndex) {
-        MessageDigest messageDigest = null;
-        try {
-            switch (hashFunctionIndex % 3) {
-                case 0:
-                    messageDigest = MessageDigest.getInstance(MD5);
-                    break;
-                case 1:
-                    messageDigest = MessageDigest.getInstance(SHA_1);
-                    break;
-                case 2:
-                    messageDigest = MessageDigest.getInstance(SHA_256);
-                    break;
+    private InsertJournal createJournal(FilterProperties properties, boolean fresh) {
+        if (!properties.isJournal()) {
+            return null;
+        }
+        if (layout == BloomLayout.COUNTING) {
+            // 插入日志只记录插入, 重放会恢复已删除的元素
+            throw new IllegalArgumentException("the insert journal does not record removals, it can not be used with the " + BloomLayout.COUNTING + " layout");
+        }
+        Path file = directory.resolve(JOURNAL_FILE_NAME);
+        if (fresh) {
+            try {
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".old"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
         }
+        return new InsertJournal(file, hashSeed, size, properties.getJournalSyncInterval());
+    }
 
-        StringBuilder stringBuilder = new StringBuilder(value);
-        stringBuilder.append(hashFunctionsSaltList.get(hashFunctionIndex));
+    /**
+     * heap words usable by the split block vector kernel
+     * @return {@link Long[]} null when the layout, the store or the runtime does not allow it
+     */
+    private long[] vectorWords() {
+        if (layout == BloomLayout.SPLIT_BLOCK && SplitBlock.VECTORIZED && bitStore instanceof HeapBitStore) {
+            return ((HeapBitStore) bitStore).getWords();
+        }
+        return null;
+    }
 
-        byte[] bytes = stringBuilder.toString().getBytes();
-        messageDigest.update(bytes);
-        byte[] hash = messageDigest.digest(bytes);
+    /**
+     * MURMUR3_128 seed of a new filter
+     * @param properties filter configuration
+     * @return {@link Long} the configured seed, otherwise a random one
+     */
+    static long hashSeedOf(FilterProperties properties) {
+        return properties.getHashSeed() != null ? properties.getHashSeed() : ThreadLocalRandom.current().nextLong();
+    }
 
-        BigInteger bigInteger = new BigInteger(1, hash);
+    /**
+     * SIPHASH_24 key of a new filter
+     * @param properties filter configuration
+     * @return {@link String} the configured key, otherwise a random one; null for other strategies
+     */
+    static String hashKeyOf(FilterProperties properties) {
+        if (properties.getHashStrategy() != HashStrategy.SIPHASH_24) {
+            return null;
+        }
+        return properties.getHashKey() != null ? properties.getHashKey() : generateHashKey();
+    }
 
-        return bigInteger.mod(BigInteger.valueOf(size));
+    /**
+     * HMAC_SHA256 salt of a new filter
+     * @param properties filter configuration
+     * @return {@link String} the configured salt, otherwise a random one; null for other strategies
+     */
+    static String saltOf(FilterProperties properties) {
+        if (properties.getHashStrategy() != HashStrategy.HMAC_SHA256) {
+            return null;
+        }
+        return properties.getHashSalt() != null ? properties.getHashSalt() : generateSalt();
     }
 
     /**
-     * calculate element`s hash by hash function and salt
-     * @param value element
-     * @param hashFunctionIndex hashFunctionIndex
-     * @return {@link BigInteger}
+     * Generate a random SipHash key
+     * @return {@link String} hex encoded key
+     */
+    static String generateHashKey() {
+        byte[] key = new byte[SipHasher.KEY_BYTES];
+        new SecureRandom().nextBytes(key);
+        return HexFormat.of().formatHex(key);
+    }
+
+    /**
+     * Generate a random HMAC_SHA256 salt
+     * @return {@link String}
      */
-    private BigInteger hash(String value, int hashFunctionIndex) {
-        String seed = hashFunctionsSaltList.get(hashFunctionIndex);
+    static String generateSalt() {
+        return UUID.randomUUID().toString().replace("-", "").substring(7, 17);
+    }
 
-        byte[] bytes = null;
-        try {
-            bytes = hmacSHA256(value, seed);
-        } catch (Exception e) {
-//            log.error("计算哈希失败:{}", e.getMessage());
-            logIfEnabled(log::error, "计算哈希失败: " + e.getMessage());
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public final boolean add(String element) {
+        return add((CharSequence) element);
+    }
+
+    /**
+     * add element to bloomfilter, its UTF-16 chars are hashed without encoding
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public final boolean add(CharSequence element) {
+        int start = trimKeys ? keyStart(element) : 0;
+        int end = trimKeys ? keyEnd(element, start) : element.length();
+        if (rejectEmptyKeys && start == end) {
+            log.debug("添加元素 {} 失败, 元素不合法！", element);
+            return false;
+        }
+
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashChars(element, start, end, hashes);
+        put(hashes);
+        if (isLogging && log.isDebugEnabled()) {
+            log.debug("添加元素 {} 成功", element);
         }
+        return true;
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public final boolean add(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        put(hashes);
+        return true;
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public final boolean add(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        put(hashes);
+        return true;
+    }
 
-        return new BigInteger(1, bytes);
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public final boolean add(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        put(hashes);
+        return true;
     }
 
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public final boolean add(byte[] element) {
+        return add(element, 0, element.length);
+    }
 
     /**
-     * hash algorithm
-     * @param element data
-     * @param secretKey secretKey
-     * @return {@link byte[]}
-     * @throws NoSuchAlgorithmException
-     * @throws InvalidKeyException
+     * add a byte range to bloomfilter
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if rejected by the key policy
      */
-    private byte[] hmacSHA256(String element, String secretKey) throws NoSuchAlgorithmException, InvalidKeyException {
-        // 创建 Mac 实例并初始化
-        Mac sha256Hmac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secretKey.getBytes(), "HmacSHA256");
-        sha256Hmac.init(secretKeySpec);
-        // 计算哈希值
-        byte[] hashBytes = sha256Hmac.doFinal(element.getBytes());
-        return hashBytes;
+    public final boolean add(byte[] element, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        if (rejectEmptyKeys && length == 0) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBytes(element, offset, length, hashes);
+        put(hashes);
+        return true;
     }
 
+    /**
+     * add the remaining bytes of a buffer to bloomfilter, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public final boolean add(ByteBuffer element) {
+        if (rejectEmptyKeys && !element.hasRemaining()) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBuffer(element, hashes);
+        put(hashes);
+        return true;
+    }
 
     /**
-     * getSize
-     * @return {@link Long}
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
      */
-    public long getSize() {
-        return size;
+    public final boolean isContain(String element) {
+        return isContain((CharSequence) element);
     }
 
     /**
-     * getBitArray
-     * @return {@link Long[]}
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
      */
-    public long[] getBitArray() {
-        return bitArray;
+    public final boolean isContain(CharSequence element) {
+        int start = trimKeys ? keyStart(element) : 0;
+        int end = trimKeys ? keyEnd(element, start) : element.length();
+        if (rejectEmptyKeys && start == end) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashChars(element, start, end, hashes);
+        return probe(hashes);
     }
 
     /**
-     * getHashFunctionsSaltList
-     * @return {@link List<String> }
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
      */
-    public List<String> getHashFunctionsSaltList() {
-        return hashFunctionsSaltList;
+    public final boolean isContain(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return probe(hashes);
     }
 
     /**
-     * get isLogging
+     * check if element exists
+     * @param element element
      * @return {@link Boolean}
      */
-    public boolean isLogging() {
-        return isLogging;
+    public final boolean isContain(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return probe(hashes);
     }
+
     /**
-     * getHashFunctions
-     * @return {@link Integer}
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
      */
-    public int getHashFunctions() {
-        return hashFunctions;
+    public final boolean isContain(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return probe(hashes);
     }
 
     /**
-     * setBitArray
-     * @return
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public final boolean isContain(byte[] element) {
+        return isContain(element, 0, element.length);
+    }
+
+    /**
+     * check if a byte range exists
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean}
+     */
+    public final boolean isContain(byte[] element, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        if (rejectEmptyKeys && length == 0) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBytes(element, offset, length, hashes);
+        return probe(hashes);
+    }
+
+    /**
+     * check if the remaining bytes of a buffer exist, its position is not changed
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public final boolean isContain(ByteBuffer element) {
+        if (rejectEmptyKeys && !element.hasRemaining()) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBuffer(element, hashes);
+        return probe(hashes);
+    }
+
+    /**
+     * remove element from a counting bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public final boolean remove(String element) {
+        return remove((CharSequence) element);
+    }
+
+    /**
+     * remove element from a counting bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained or rejected by the key policy
+     */
+    public final boolean remove(CharSequence element) {
+        int start = trimKeys ? keyStart(element) : 0;
+        int end = trimKeys ? keyEnd(element, start) : element.length();
+        if (rejectEmptyKeys && start == end) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashChars(element, start, end, hashes);
+        boolean removed = take(hashes);
+        if (removed && isLogging && log.isDebugEnabled()) {
+            log.debug("删除元素 {} 成功", element);
+        }
+        return removed;
+    }
+
+    /**
+     * remove element from a counting bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public final boolean remove(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove element from a counting bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public final boolean remove(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove element from a counting bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public final boolean remove(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove element from a counting bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained or rejected by the key policy
+     */
+    public final boolean remove(byte[] element) {
+        return remove(element, 0, element.length);
+    }
+
+    /**
+     * remove a byte range from a counting bloomfilter
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if the element is not contained or rejected by the key policy
+     */
+    public final boolean remove(byte[] element, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        if (rejectEmptyKeys && length == 0) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBytes(element, offset, length, hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove the remaining bytes of a buffer from a counting bloomfilter, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained or rejected by the key policy
+     */
+    public final boolean remove(ByteBuffer element) {
+        if (rejectEmptyKeys && !element.hasRemaining()) {
+            return false;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBuffer(element, hashes);
+        return take(hashes);
+    }
+
+    /**
+     * add elements to bloomfilter in batches, no per element logging
+     * @param elements elements
+     * @return {@link Integer} number of elements added
+     */
+    public final int addAll(long[] elements) {
+        long[] hashes = HASH_BUFFER.get();
+        long[] h1 = new long[Math.min(BATCH_SIZE, elements.length)];
+        long[] h2 = new long[h1.length];
+        for (int from = 0; from < elements.length; from += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, elements.length - from);
+            for (int i = 0; i < count; i++) {
+                hasher.hashLong(elements[from + i], hashes);
+                h1[i] = hashes[0];
+                h2[i] = hashes[1];
+            }
+            putBatch(h1, h2, count);
+        }
+        return elements.length;
+    }
+
+    /**
+     * add elements to bloomfilter in batches, no per element logging
+     * @param elements elements
+     * @return {@link Integer} number of elements added, elements rejected by the key policy are skipped
+     */
+    public final int addAll(Collection<? extends CharSequence> elements) {
+        long[] hashes = HASH_BUFFER.get();
+        long[] h1 = new long[Math.min(BATCH_SIZE, elements.size())];
+        long[] h2 = new long[h1.length];
+        int added = 0;
+        int count = 0;
+        for (CharSequence element : elements) {
+            int start = trimKeys ? keyStart(element) : 0;
+            int end = trimKeys ? keyEnd(element, start) : element.length();
+            if (rejectEmptyKeys && start == end) {
+                continue;
+            }
+            hasher.hashChars(element, start, end, hashes);
+            h1[count] = hashes[0];
+            h2[count] = hashes[1];
+            added++;
+            if (++count == h1.length) {
+                putBatch(h1, h2, count);
+                count = 0;
+            }
+        }
+        putBatch(h1, h2, count);
+        return added;
+    }
+
+    /**
+     * check elements in batches
+     * @param elements elements
+     * @return {@link Boolean[]} result of each element, in order
+     */
+    public final boolean[] mightContainAll(long[] elements) {
+        boolean[] result = new boolean[elements.length];
+        long[] hashes = HASH_BUFFER.get();
+        long[] h1 = new long[Math.min(BATCH_SIZE, elements.length)];
+        long[] h2 = new long[h1.length];
+        int[] positions = new int[h1.length];
+        for (int from = 0; from < elements.length; from += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, elements.length - from);
+            for (int i = 0; i < count; i++) {
+                hasher.hashLong(elements[from + i], hashes);
+                h1[i] = hashes[0];
+                h2[i] = hashes[1];
+                positions[i] = from + i;
+            }
+            probeBatch(h1, h2, positions, count, result);
+        }
+        return result;
+    }
+
+    /**
+     * check elements in batches
+     * @param elements elements
+     * @return {@link Boolean[]} result of each element, in iteration order
+     */
+    public final boolean[] mightContainAll(Collection<? extends CharSequence> elements) {
+        boolean[] result = new boolean[elements.size()];
+        long[] hashes = HASH_BUFFER.get();
+        long[] h1 = new long[Math.min(BATCH_SIZE, elements.size())];
+        long[] h2 = new long[h1.length];
+        int[] positions = new int[h1.length];
+        Iterator<? extends CharSequence> iterator = elements.iterator();
+        int count = 0;
+        for (int index = 0; index < result.length; index++) {
+            CharSequence element = iterator.next();
+            int start = trimKeys ? keyStart(element) : 0;
+            int end = trimKeys ? keyEnd(element, start) : element.length();
+            if (rejectEmptyKeys && start == end) {
+                continue;
+            }
+            hasher.hashChars(element, start, end, hashes);
+            h1[count] = hashes[0];
+            h2[count] = hashes[1];
+            positions[count] = index;
+            if (++count == h1.length) {
+                probeBatch(h1, h2, positions, count, result);
+                count = 0;
+            }
+        }
+        probeBatch(h1, h2, positions, count, result);
+        return result;
+    }
+
+    /**
+     * set the k bits of an element hashed by {@link #getHasher()}, entry point of a sharded
+     * filter that already hashed the element to route it
+     * @param hashes h1, h2
+     */
+    final void addHashes(long[] hashes) {
+        put(hashes);
+    }
+
+    /**
+     * set the bits of elements hashed by {@link #getHasher()}, in batches
+     * @param h1 h1 of each element
+     * @param h2 h2 of each element
+     * @param from index of the first element
+     * @param to index after the last element
+     * @return {@link Integer} number of elements added
+     */
+    final int addAllHashes(long[] h1, long[] h2, int from, int to) {
+        long[] batchH1 = new long[Math.min(BATCH_SIZE, to - from)];
+        long[] batchH2 = new long[batchH1.length];
+        for (int start = from; start < to; start += BATCH_SIZE) {
+            int count = Math.min(BATCH_SIZE, to - start);
+            System.arraycopy(h1, start, batchH1, 0, count);
+            System.arraycopy(h2, start, batchH2, 0, count);
+            putBatch(batchH1, batchH2, count);
+        }
+        return to - from;
+    }
+
+    /**
+     * check the k bits of an element hashed by {@link #getHasher()}
+     * @param hashes h1, h2
+     * @return {@link Boolean}
+     */
+    final boolean containsHashes(long[] hashes) {
+        return probe(hashes);
+    }
+
+    /**
+     * set the bits of a batch, one round per hash function so the memory accesses of
+     * different elements are independent and their cache misses overlap
+     * @param h1 h1 of each element
+     * @param h2 h2 of each element
+     * @param count number of elements
+     */
+    private void putBatch(long[] h1, long[] h2, int count) {
+        int writerEpoch = enterEpoch();
+        try {
+            PageCapture pageCapture = captureOf(writerEpoch);
+            for (int round = 0; round < hashFunctions; round++) {
+                for (int i = 0; i < count; i++) {
+                    setBit(bitIndex(h1[i], h2[i], round), pageCapture);
+                }
+            }
+            epochCounts[writerEpoch & 1].add(count);
+            // 先写位图再记日志, 按纪元记录, 检查点快照之前的元素一定在检查点中
+            if (journal != null) {
+                journal.appendAll(writerEpoch, h1, h2, count);
+            }
+        } finally {
+            exitEpoch(writerEpoch);
+        }
+    }
+
+    /**
+     * check the bits of a batch round by round, elements are dropped from later rounds once a bit is missing
+     * @param h1 h1 of each element, compacted in place
+     * @param h2 h2 of each element, compacted in place
+     * @param positions result index of each element, compacted in place
+     * @param count number of elements
+     * @param result result
+     */
+    private void probeBatch(long[] h1, long[] h2, int[] positions, int count, boolean[] result) {
+        for (int round = 0; round < hashFunctions && count > 0; round++) {
+            int alive = 0;
+            for (int i = 0; i < count; i++) {
+                if (getBit(bitIndex(h1[i], h2[i], round))) {
+                    h1[alive] = h1[i];
+                    h2[alive] = h2[i];
+                    positions[alive] = positions[i];
+                    alive++;
+                }
+            }
+            count = alive;
+        }
+        for (int i = 0; i < count; i++) {
+            result[positions[i]] = true;
+        }
+    }
+
+    /**
+     * set the k bits of an element
+     * @param hashes h1, h2
+     */
+    private void put(long[] hashes) {
+        int writerEpoch = enterEpoch();
+        try {
+            PageCapture pageCapture = captureOf(writerEpoch);
+            if (layout == BloomLayout.SPLIT_BLOCK) {
+                long block = BitAddressing.fastRange(hashes[0], blockCount);
+                if (pageCapture != null) {
+                    pageCapture.beforeWrite(block * SplitBlock.BLOCK_WORDS);
+                }
+                if (vectorPut) {
+                    SplitBlockVectors.put(vectorWords, (int) (block * SplitBlock.BLOCK_WORDS), (int) hashes[1]);
+                } else {
+                    SplitBlock.put(bitStore, block, (int) hashes[1]);
+                }
+                if (dirtyPages != null) {
+                    dirtyPages.markWord(block * SplitBlock.BLOCK_WORDS);
+                }
+            } else {
+                for (int i = 0; i < hashFunctions; i++) {
+                    setBit(bitIndex(hashes[0], hashes[1], i), pageCapture);
+                }
+            }
+            epochCounts[writerEpoch & 1].increment();
+            if (journal != null) {
+                journal.append(writerEpoch, hashes[0], hashes[1]);
+            }
+        } finally {
+            exitEpoch(writerEpoch);
+        }
+    }
+
+    /**
+     * decrement the k counters of an element, only elements that are contained are removed;
+     * removing an element that was never added takes the counts of other elements
+     * @param hashes h1, h2
+     * @return {@link Boolean} false if the element is not contained
+     */
+    private boolean take(long[] hashes) {
+        if (layout != BloomLayout.COUNTING) {
+            throw new UnsupportedOperationException("remove requires the " + BloomLayout.COUNTING + " layout, layout is " + layout);
+        }
+        if (!probe(hashes)) {
+            return false;
+        }
+        int writerEpoch = enterEpoch();
+        try {
+            PageCapture pageCapture = captureOf(writerEpoch);
+            for (int i = 0; i < hashFunctions; i++) {
+                long counter = bitIndex(hashes[0], hashes[1], i);
+                long word = Counters.wordIndex(counter);
+                if (pageCapture != null) {
+                    pageCapture.beforeWrite(word);
+                }
+                if (Counters.decrement(bitStore, counter) && dirtyPages != null) {
+                    dirtyPages.markWord(word);
+                }
+            }
+            epochCounts[writerEpoch & 1].decrement();
+        } finally {
+            exitEpoch(writerEpoch);
+        }
+        return true;
+    }
+
+    /**
+     * check the k bits of an element
+     * @param hashes h1, h2
+     * @return {@link Boolean}
+     */
+    private boolean probe(long[] hashes) {
+        if (layout == BloomLayout.SPLIT_BLOCK) {
+            long block = BitAddressing.fastRange(hashes[0], blockCount);
+            if (vectorWords != null) {
+                return SplitBlockVectors.probe(vectorWords, (int) (block * SplitBlock.BLOCK_WORDS), (int) hashes[1]);
+            }
+            return SplitBlock.probe(bitStore, block, (int) hashes[1]);
+        }
+        for (int i = 0; i < hashFunctions; i++) {
+            if (!getBit(bitIndex(hashes[0], hashes[1], i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * bit position of the i-th hash function of an element
+     * @param h1 h1
+     * @param h2 h2
+     * @param round index of the hash function
+     * @return {@link Long}
+     */
+    private long bitIndex(long h1, long h2, int round) {
+        if (layout == BloomLayout.SPLIT_BLOCK) {
+            return SplitBlock.bitIndex(BitAddressing.fastRange(h1, blockCount), (int) h2, round);
+        }
+        if (layout == BloomLayout.BLOCKED) {
+            // h1 选块, h2 按轮次混合后在块内取 9 位; 块内空间只有 512 位, 线性的双重哈希会使位置高度重合
+            long block = BitAddressing.fastRange(h1, blockCount);
+            long mixed = h2 + round * 0x9e3779b97f4a7c15L;
+            mixed = (mixed ^ (mixed >>> 30)) * 0xbf58476d1ce4e5b9L;
+            mixed = (mixed ^ (mixed >>> 27)) * 0x94d049bb133111ebL;
+            long inBlock = mixed >>> (Long.SIZE - BLOCK_BITS_SHIFT);
+            return block << BLOCK_BITS_SHIFT | inBlock;
+        }
+        return BitAddressing.fastRange(h1 + round * h2, size);
+    }
+
+    /**
+     * index of the first non whitespace char, same rule as {@link String#trim()}
+     * @param element element
+     * @return {@link Integer}
+     */
+    static int keyStart(CharSequence element) {
+        int start = 0;
+        int end = element.length();
+        while (start < end && element.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    /**
+     * index after the last non whitespace char, same rule as {@link String#trim()}
+     * @param element element
+     * @param start start index
+     * @return {@link Integer}
+     */
+    static int keyEnd(CharSequence element, int start) {
+        int end = element.length();
+        while (end > start && element.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * register a writer in the current epoch
+     * @return {@link Integer} epoch of the writer, leave it with {@link #exitEpoch(int)}
+     */
+    private int enterEpoch() {
+        int stripe = inFlightStripe();
+        while (true) {
+            int current = epoch;
+            inFlight.incrementAndGet(inFlightSlot(current, stripe));
+            // 快照在登记前切换了纪元, 按新纪元重新登记
+            if (epoch == current) {
+                return current;
+            }
+            inFlight.decrementAndGet(inFlightSlot(current, stripe));
+        }
+    }
+
+    /**
+     * leave the epoch entered by the current thread
+     * @param writerEpoch epoch of the writer
+     */
+    private void exitEpoch(int writerEpoch) {
+        inFlight.decrementAndGet(inFlightSlot(writerEpoch, inFlightStripe()));
+    }
+
+    /**
+     * whether no writer of an epoch is registered, two consecutive scans must read zero
+     * @param writerEpoch epoch
+     * @return {@link Boolean}
+     */
+    private boolean isDrained(int writerEpoch) {
+        for (int scan = 0; scan < 2; scan++) {
+            for (int stripe = 0; stripe < IN_FLIGHT_STRIPES; stripe++) {
+                if (inFlight.get(inFlightSlot(writerEpoch, stripe)) != 0) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * in-flight stripe of the current thread, fixed for the thread
+     * @return {@link Integer}
+     */
+    private static int inFlightStripe() {
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (IN_FLIGHT_STRIPES - 1);
+    }
+
+    /**
+     * in-flight slot of an epoch parity and a stripe
+     * @param writerEpoch epoch
+     * @param stripe stripe
+     * @return {@link Integer}
+     */
+    private static int inFlightSlot(int writerEpoch, int stripe) {
+        return ((writerEpoch & 1) * IN_FLIGHT_STRIPES + stripe) * IN_FLIGHT_PADDING;
+    }
+
+    /**
+     * page capture the writer must honour
+     * @param writerEpoch epoch of the writer
+     * @return {@link PageCapture} null if no snapshot is taken or the writer belongs to the snapshot
+     */
+    private PageCapture captureOf(int writerEpoch) {
+        PageCapture pageCapture = capture;
+        return pageCapture != null && pageCapture.epoch == writerEpoch ? pageCapture : null;
+    }
+
+    /**
+     * Take a point-in-time image without stopping adds: a new epoch starts, adds of the previous
+     * epoch are waited for, and adds of the new epoch copy each page before they first change it
+     * until the snapshot is closed. Blocks while another snapshot is open
+     * @return {@link ConsistentSnapshot}
+     */
+    public ConsistentSnapshot openSnapshot() {
+        return openSnapshot(false);
+    }
+
+    /**
+     * Take a point-in-time image, optionally rotating the insert journal at the same epoch: the
+     * rotated journal holds the adds of the image and the new journal the adds after it
+     * @param rotateJournal whether to rotate the insert journal
+     * @return {@link ConsistentSnapshot}
+     */
+    private ConsistentSnapshot openSnapshot(boolean rotateJournal) {
+        snapshotPermit.acquireUninterruptibly();
+        int previous = epoch;
+        int next = previous + 1;
+        // 上一次快照已等待过该奇偶的写入, 此计数不再变化
+        long earlier = epochCounts[next & 1].sum();
+        PageCapture pageCapture = new PageCapture(next, bitStore);
+        if (rotateJournal) {
+            try {
+                // 新纪元的记录留到轮转后写入新日志
+                journal.hold(next);
+            } catch (RuntimeException e) {
+                snapshotPermit.release();
+                throw e;
+            }
+        }
+        capture = pageCapture;
+        epoch = next;
+        while (!isDrained(previous)) {
+            Thread.yield();
+        }
+        pageCapture.drained();
+        ConsistentSnapshot snapshot = new ConsistentSnapshot(this, pageCapture, earlier + epochCounts[previous & 1].sum());
+        if (rotateJournal) {
+            try {
+                journal.rotate();
+            } catch (RuntimeException e) {
+                snapshot.close();
+                throw e;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * end a snapshot
+     * @param pageCapture capture of the snapshot
+     */
+    void closeSnapshot(PageCapture pageCapture) {
+        if (capture == pageCapture) {
+            capture = null;
+            snapshotPermit.release();
+        }
+    }
+
+    /**
+     * Set bitmap
+     * @param index bit position, counter index of the counting layout
+     * @param pageCapture capture to copy the page to first, may be null
+     */
+    // 设置位数组中的某一位, 计数布局时计数器加一
+    private void setBit(long index, PageCapture pageCapture) {
+        boolean counting = layout == BloomLayout.COUNTING;
+        long word = counting ? Counters.wordIndex(index) : BitAddressing.wordIndex(index);
+        if (pageCapture != null) {
+            pageCapture.beforeWrite(word);
+        }
+        boolean changed = counting ? Counters.increment(bitStore, index) : bitStore.orWord(word, BitAddressing.bitMask(index));
+        if (changed && dirtyPages != null) {
+            dirtyPages.markWord(word);
+        }
+    }
+
+    /**
+     * Get bitmap
+     * @param index bit position, counter index of the counting layout
+     * @return {@link Boolean}
+     */
+    // 获取位数组中的某一位, 计数布局时计数器不为 0
+    private boolean getBit(long index) {
+        if (layout == BloomLayout.COUNTING) {
+            return Counters.get(bitStore, index) != 0;
+        }
+        return (bitStore.getWord(BitAddressing.wordIndex(index)) & BitAddressing.bitMask(index)) != 0;
+    }
+
+    /**
+     *
+     * @param value hash
+     * @param hashFunctionIndex Hash function location
+     * @return {@link BigInteger}
+     */
+    // 使用不同的种子值生成多个独立的哈希值
+    //  md5 sha-1 sha-256
+    @Deprecated
+    private BigInteger hashDeprecated(String value, int hashFunctionIndex) {
+        MessageDigest messageDigest = null;
+        try {
+            switch (hashFunctionIndex % 3) {
+                case 0:
+                    messageDigest = MessageDigest.getInstance(MD5);
+                    break;
+                case 1:
+                    messageDigest = MessageDigest.getInstance(SHA_1);
+                    break;
+                case 2:
+                    messageDigest = MessageDigest.getInstance(SHA_256);
+                    break;
+            }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+
+        StringBuilder stringBuilder = new StringBuilder(value);
+        stringBuilder.append(hashFunctionsSaltList.get(hashFunctionIndex));
+
+        byte[] bytes = stringBuilder.toString().getBytes();
+        messageDigest.update(bytes);
+        byte[] hash = messageDigest.digest(bytes);
+
+        BigInteger bigInteger = new BigInteger(1, hash);
+
+        return bigInteger.mod(BigInteger.valueOf(size));
+    }
+
+    /**
+     * getSize
+     * @return {@link Long}
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * number of elements added, duplicates included, minus the elements removed
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return epochCounts[0].sum() + epochCounts[1].sum();
+    }
+
+    /**
+     * share of the bits set, of the counters above zero for the counting layout; reads the whole bitmap
+     * @return {@link Double}
+     */
+    public double getFillRatio() {
+        return (double) setBits() / size;
+    }
+
+    /**
+     * whether another filter hashes elements to the same bits: same size, hash functions, layout
+     * and hash strategy, and the same seed, key or salt the strategy uses. Filters created with the
+     * same {@code hash-seed}, {@code hash-key} or {@code hash-salt} are compatible
+     * @param other other filter
+     * @return {@link Boolean}
+     */
+    public boolean isCompatible(BloomFilter other) {
+        return mismatchOf(other) == null;
+    }
+
+    /**
+     * OR a compatible filter into this one, the words are merged range by range in parallel while
+     * adds continue. The merged bits are saved by the next checkpoint; the insert journal can not
+     * record them, so with the journal enabled a checkpoint is written right after the merge
+     * @param other other filter, not changed
+     * @return {@link Boolean} whether any bit changed
+     * @throws IllegalStateException if that checkpoint fails, the merge is kept in memory
+     */
+    public boolean union(BloomFilter other) {
+        checkMergeable(other);
+        if (other == this) {
+            return false;
+        }
+        long changed = sumRanges(bitStore.wordCount(), (from, to) -> mergeRange(other, from, to, false));
+        // 插入数含重复, 加上另一个过滤器的插入数
+        addElementCount(other.getElementCount());
+        checkpointMerge();
+        return changed > 0;
+    }
+
+    /**
+     * AND a compatible filter into this one, bits not set in the other filter are cleared range by
+     * range in parallel. The element count becomes {@link #estimateIntersectionSize(BloomFilter)};
+     * the cleared bits are saved by the next checkpoint, with the insert journal enabled right
+     * after the merge. No add or remove of this filter may run meanwhile: a bit set while its word
+     * is cleared is lost and the element count is not exact
+     * @param other other filter, not changed
+     * @return {@link Boolean} whether any bit changed
+     * @throws IllegalStateException if the checkpoint after the merge fails, the merge is kept in memory
+     */
+    public boolean intersect(BloomFilter other) {
+        checkMergeable(other);
+        if (other == this) {
+            return false;
+        }
+        long count = intersectionCount(other);
+        long changed = sumRanges(bitStore.wordCount(), (from, to) -> mergeRange(other, from, to, true));
+        addElementCount(count - getElementCount());
+        // 日志重放会恢复已清除的元素, 立即写检查点
+        checkpointMerge();
+        return changed > 0;
+    }
+
+    /**
+     * number of distinct elements estimated from the bits set, n = -m / k * ln(1 - X / m). Exact in
+     * expectation for the STANDARD layout and close for the block layouts
+     * @return {@link Double} infinity when every bit is set
+     */
+    public double estimateCardinality() {
+        return cardinality(setBits());
+    }
+
+    /**
+     * number of distinct elements of the union with a compatible filter, estimated from the bits
+     * set in either filter without merging them
+     * @param other other filter
+     * @return {@link Double}
+     */
+    public double estimateUnionSize(BloomFilter other) {
+        checkMergeable(other);
+        return cardinality(unionBits(other));
+    }
+
+    /**
+     * number of distinct elements in both filters, |A| + |B| - |A ∪ B| from the estimated sizes.
+     * The error grows when the intersection is small compared to the sets
+     * @param other other filter
+     * @return {@link Double} not negative, NaN when a filter is saturated
+     */
+    public double estimateIntersectionSize(BloomFilter other) {
+        checkMergeable(other);
+        return Math.max(0, estimateCardinality() + other.estimateCardinality() - cardinality(unionBits(other)));
+    }
+
+    /**
+     * Jaccard similarity |A ∩ B| / |A ∪ B| of the sets of two compatible filters
+     * @param other other filter
+     * @return {@link Double} 0 when both are empty, NaN when a filter is saturated
+     */
+    public double estimateJaccard(BloomFilter other) {
+        checkMergeable(other);
+        double union = cardinality(unionBits(other));
+        if (union == 0) {
+            return 0;
+        }
+        return Math.max(0, estimateCardinality() + other.estimateCardinality() - union) / union;
+    }
+
+    /**
+     * property hashing differently in another filter
+     * @param other other filter
+     * @return {@link String} null when compatible
+     */
+    private String mismatchOf(BloomFilter other) {
+        if (size != other.size) {
+            return "size";
+        }
+        if (hashFunctions != other.hashFunctions) {
+            return "hashFunctions";
+        }
+        if (layout != other.layout) {
+            return "layout";
+        }
+        return hashingMismatchOf(other);
+    }
+
+    /**
+     * first hash setting that differs from another filter, equal settings hash every element to
+     * the same h1 and h2
+     * @param other other filter
+     * @return {@link String} name of the setting, null if the hashing is the same
+     */
+    String hashingMismatchOf(BloomFilter other) {
+        if (hashStrategy != other.hashStrategy) {
+            return "hashStrategy";
+        }
+        // 只比较哈希策略使用的种子、密钥或盐
+        if (hashStrategy == HashStrategy.MURMUR3_128 && hashSeed != other.hashSeed) {
+            return "hashSeed";
+        }
+        if (hashStrategy == HashStrategy.SIPHASH_24 && !Objects.equals(hashKey, other.hashKey)) {
+            return "hashKey";
+        }
+        if (hashStrategy == HashStrategy.HMAC_SHA256 && !hashFunctionsSaltList.equals(other.hashFunctionsSaltList)) {
+            return "hashSalt";
+        }
+        return null;
+    }
+
+    /**
+     * check that the words of another filter can be merged with this one
+     * @param other other filter
+     */
+    private void checkMergeable(BloomFilter other) {
+        String mismatch = mismatchOf(other);
+        if (mismatch != null) {
+            throw new IllegalArgumentException(name + " and " + other.name + " are not compatible, different " + mismatch);
+        }
+        if (layout == BloomLayout.COUNTING) {
+            // 计数器不能按位合并
+            throw new UnsupportedOperationException("filters of the " + BloomLayout.COUNTING + " layout can not be merged word-wise");
+        }
+    }
+
+    /**
+     * merge the words of another filter into a range of this one
+     * @param other other filter
+     * @param from first word
+     * @param to word after the last one
+     * @param intersect AND the words, otherwise OR them
+     * @return {@link Long} number of words changed
+     */
+    private long mergeRange(BloomFilter other, long from, long to, boolean intersect) {
+        int writerEpoch = enterEpoch();
+        try {
+            PageCapture pageCapture = captureOf(writerEpoch);
+            long changed = 0;
+            for (long i = from; i < to; i++) {
+                long mask = other.bitStore.getWord(i);
+                long word = bitStore.getWord(i);
+                if ((intersect ? word & mask : word | mask) == word) {
+                    continue;
+                }
+                if (pageCapture != null) {
+                    pageCapture.beforeWrite(i);
+                }
+                if (intersect) {
+                    // 并发写入时重试, 只清除另一个过滤器中未设置的位
+                    while (!bitStore.compareAndSetWord(i, word, word & mask)) {
+                        word = bitStore.getWord(i);
+                    }
+                } else {
+                    bitStore.orWord(i, mask);
+                }
+                if (dirtyPages != null) {
+                    dirtyPages.markWord(i);
+                }
+                changed++;
+            }
+            return changed;
+        } finally {
+            exitEpoch(writerEpoch);
+        }
+    }
+
+    /**
+     * a new filter hashed like this one, its words combined from this and another filter
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings
+     * @param other other filter
+     * @param elementCount element count of the new filter
+     * @param operator combines a word of this filter with the word of the other one
+     * @return {@link BloomFilter}
+     */
+    private BloomFilter combine(String name, FilterProperties properties, BloomFilter other, long elementCount, LongBinaryOperator operator) {
+        BloomInformation information = new BloomInformation();
+        information.setSeeds(new ArrayList<>(hashFunctionsSaltList));
+        information.setSize(size);
+        information.setHashFunctions(hashFunctions);
+        information.setLogging(properties.isEnableLogging());
+        information.setExpectedInsertions(expectedInsertions);
+        information.setFalsePositiveProbability(falsePositiveProbability);
+        information.setHashStrategy(hashStrategy);
+        information.setHashSeed(hashSeed);
+        information.setHashKey(hashKey);
+        information.setLayout(layout);
+        information.setElementCount(elementCount);
+        BloomFilter combined = new BloomFilter(name, BloomFilterRegistry.directoryOf(name, properties), information, properties,
+                store -> sumRanges(store.wordCount(), (from, to) -> {
+                    for (long i = from; i < to; i++) {
+                        store.setWord(i, operator.applyAsLong(bitStore.getWord(i), other.bitStore.getWord(i)));
+                    }
+                    return 0;
+                }), false);
+        combined.checkpointMerge();
+        return combined;
+    }
+
+    /**
+     * write a checkpoint after words were merged when the insert journal is enabled, the journal
+     * only records adds; without it the next checkpoint saves the merge
+     */
+    private void checkpointMerge() {
+        if (journal != null && !checkpoint()) {
+            throw new IllegalStateException("checkpoint of " + name + " failed, the merged words are lost on a crash");
+        }
+    }
+
+    /**
+     * element count of the intersection with another filter
+     * @param other other filter
+     * @return {@link Long} the smaller element count when a filter is saturated
+     */
+    private long intersectionCount(BloomFilter other) {
+        double estimate = estimateIntersectionSize(other);
+        return Double.isNaN(estimate) ? Math.min(getElementCount(), other.getElementCount()) : Math.round(estimate);
+    }
+
+    /**
+     * add to the element count
+     * @param delta delta, may be negative
+     */
+    private void addElementCount(long delta) {
+        int writerEpoch = enterEpoch();
+        try {
+            epochCounts[writerEpoch & 1].add(delta);
+        } finally {
+            exitEpoch(writerEpoch);
+        }
+    }
+
+    /**
+     * number of elements estimated from the bits set
+     * @param setBits bits set, counters above zero for the counting layout
+     * @return {@link Double} infinity when every bit is set
+     */
+    private double cardinality(long setBits) {
+        if (setBits >= size) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return -(double) size / hashFunctions * Math.log1p(-(double) setBits / size);
+    }
+
+    /**
+     * number of bits set, of counters above zero for the counting layout
+     * @return {@link Long}
+     */
+    private long setBits() {
+        boolean counting = layout == BloomLayout.COUNTING;
+        return sumRanges(bitStore.wordCount(), (from, to) -> {
+            long set = 0;
+            for (long i = from; i < to; i++) {
+                long word = bitStore.getWord(i);
+                set += counting ? Counters.nonZero(word) : Long.bitCount(word);
+            }
+            return set;
+        });
+    }
+
+    /**
+     * number of bits set in this or another filter
+     * @param other other filter
+     * @return {@link Long}
+     */
+    private long unionBits(BloomFilter other) {
+        return sumRanges(bitStore.wordCount(), (from, to) -> {
+            long set = 0;
+            for (long i = from; i < to; i++) {
+                set += Long.bitCount(bitStore.getWord(i) | other.bitStore.getWord(i));
+            }
+            return set;
+        });
+    }
+
+    /**
+     * apply a function to every range of {@value #RANGE_WORDS} words and sum the results, a
+     * bitmap of several ranges is processed in parallel
+     * @param wordCount number of words
+     * @param rangeFunction (from, to) to the result of the range
+     * @return {@link Long}
+     */
+    private static long sumRanges(long wordCount, LongBinaryOperator rangeFunction) {
+        long ranges = (wordCount + RANGE_WORDS - 1) / RANGE_WORDS;
+        LongStream stream = LongStream.range(0, ranges);
+        return (ranges > 1 ? stream.parallel() : stream).map(range -> {
+            long from = range * RANGE_WORDS;
+            return rangeFunction.applyAsLong(from, Math.min(wordCount, from + RANGE_WORDS));
+        }).sum();
+    }
+
+    /**
+     * getBitArray, only available for heap storage
+     * @return {@link Long[]}
+     */
+    public long[] getBitArray() {
+        if (!(bitStore instanceof HeapBitStore)) {
+            throw new UnsupportedOperationException("bitmap is stored " + storageType + ", use getBitStore()");
+        }
+        return ((HeapBitStore) bitStore).getWords();
+    }
+
+    /**
+     * write the pages changed since the last checkpoint into the bitmap file and update the info
+     * file with the element count of the same point-in-time image, adds continue meanwhile. The
+     * insert journal is rotated at the image, so after a crash an element is either in the bitmap
+     * file or replayed from the journal. A mapped bitmap is forced, without checkpoints enabled the
+     * whole bitmap is written
+     * @return {@link Boolean}
+     */
+    public synchronized boolean checkpoint() {
+        // 轮转前的插入日志在检查点成功后删除
+        try (ConsistentSnapshot snapshot = openSnapshot(journal != null)) {
+            boolean written;
+            if (bitStore instanceof MappedBitStore) {
+                // 映射的位图文件就是位图, 只需纪元的分界, 之后的插入重放时位已设置且只计数一次
+                snapshot.close();
+                force();
+                written = true;
+            } else if (dirtyPages != null) {
+                written = generatorBitmapPages(snapshot.getBitStore(), dirtyPages, directory.resolve(BITMAP_FILE_NAME)) >= 0;
+                // 快照之后改动的页写入的是旧内容, 下次检查点重写
+                snapshot.markChangedPages(dirtyPages);
+            } else {
+                written = BloomFilterInfoUtils.generatorBitmapFile(snapshot.getBitStore(), directory.resolve(BITMAP_FILE_NAME));
+            }
+            if (written && generatorInfo(this, snapshot.getElementCount(), "checkpoint")) {
+                if (journal != null) {
+                    journal.commit();
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * stream a consistent snapshot of the filter, taken while adds continue, e.g. to a socket.
+     * Words go from the bitmap through one direct buffer to the channel, no copy of the bitmap is
+     * made; a stored snapshot file is sent with
+     * {@link io.github.dalowed.utils.BloomSnapshotUtils#transferSnapshot(Path, WritableByteChannel)}
+     * @param channel channel, not closed
+     */
+    public void writeTo(WritableByteChannel channel) {
+        try {
+            BloomSnapshotUtils.writeSnapshot(this, channel, SnapshotEncoding.of(BloomSnapshotUtils.fillRatio(this)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("write bloomfilter " + name + " failed", e);
+        }
+    }
+
+    /**
+     * stream a consistent snapshot of the filter, a file stream is written through its channel
+     * @param out stream, not closed
+     */
+    public void writeTo(OutputStream out) {
+        writeTo(out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out));
+    }
+
+    /**
+     * sync and close the insert journal, called when the spring context is closed
+     */
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * write a mapped bitmap to the disk, other storage is saved with {@link #checkpoint()}
+     */
+    public void force() {
+        if (bitStore instanceof MappedBitStore) {
+            ((MappedBitStore) bitStore).force();
+        }
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * getDirectory
+     * @return {@link Path}
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * getHashSeed
+     * @return {@link Long}
+     */
+    public long getHashSeed() {
+        return hashSeed;
+    }
+
+    /**
+     * getHashKey
+     * @return {@link String}
+     */
+    public String getHashKey() {
+        return hashKey;
+    }
+
+    /**
+     * hasher of the elements, keys are not trimmed or checked
+     * @return {@link ElementHasher}
+     */
+    ElementHasher getHasher() {
+        return hasher;
+    }
+
+    /**
+     * getHashFunctionsSaltList
+     * @return {@link List<String> }
+     */
+    public List<String> getHashFunctionsSaltList() {
+        return hashFunctionsSaltList;
+    }
+
+    /**
+     * get isLogging
+     * @return {@link Boolean}
+     */
+    public boolean isLogging() {
+        return isLogging;
+    }
+    /**
+     * getHashFunctions
+     * @return {@link Integer}
+     */
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    /**
+     * getLayout
+     * @return {@link BloomLayout}
+     */
+    public BloomLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * getBitStore
+     * @return {@link BitStore}
+     */
+    public BitStore getBitStore() {
+        return bitStore;
+    }
+
+    /**
+     * getStorageType
+     * @return {@link StorageType}
+     */
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * isConcurrent
+     * @return {@link Boolean}
      */
-    private void setBitArray(long[] bitArray) {
-        this.bitArray = bitArray;
+    public boolean isConcurrent() {
+        return concurrent;
     }
 
     /**
@@ -413,10 +2063,8 @@ public class BloomFilter {
      * @param message message
      */
     private void logIfEnabled(Consumer<String> logAction, String message) {
-        if (bloomFilter != null && ! bloomFilter.isLogging) {
+        if (isLogging) {
             logAction.accept(message);
-        }else {
-            System.out.println(message);
         }
     }
 }
\ No newline at end of file
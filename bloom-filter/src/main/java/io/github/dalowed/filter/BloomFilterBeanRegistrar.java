@@ -0,0 +1,98 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.BloomConfigurationProperties;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AutowireCandidateQualifier;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.util.StringUtils;
+
+/**
+ * registers a {@link BloomFilter} bean for every filter under {@code bloom-filter.filters}, so a
+ * named filter is injected with {@code @Qualifier("<name>")}; a scalable filter is registered as a
+ * {@link ScalableBloomFilter}, a windowed one as a {@link SlidingWindowBloomFilter}, a sharded one as a
+ * {@link ShardedBloomFilter}, a cuckoo filter as a {@link CuckooFilter} and a binary fuse filter as a
+ * {@link BinaryFuseFilter}, the default one under the uncapitalized class name, e.g.
+ * {@code scalableBloomFilter}. The beans are taken
+ * from the {@link BloomFilterRegistry}, which also closes them
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class BloomFilterBeanRegistrar implements BeanDefinitionRegistryPostProcessor, EnvironmentAware {
+
+    private Environment environment;
+
+    /**
+     * setEnvironment
+     * @param environment environment
+     */
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    /**
+     * register the named filters, bean name {@code <name>BloomFilter}, qualifier {@code <name>}
+     * @param registry bean definition registry
+     * @throws BeansException BeansException
+     */
+    @Override
+    public void postProcessBeanDefinitionRegistry(BeanDefinitionRegistry registry) throws BeansException {
+        // 配置属性此时尚未绑定, 直接从环境中读取过滤器名称
+        BloomConfigurationProperties properties = bind(environment);
+        // 普通的默认过滤器由 BloomConfiguration.bloomFilter 注册
+        Class<?> defaultType = BloomFilterRegistry.typeOf(properties);
+        String defaultBean = StringUtils.uncapitalize(defaultType.getSimpleName());
+        if (defaultType != BloomFilter.class && BloomFilterRegistry.hasDefaultFilter(properties)
+                && !registry.containsBeanDefinition(defaultBean)) {
+            AbstractBeanDefinition definition = definition(BloomFilterRegistry.DEFAULT_NAME, defaultType);
+            definition.setPrimary(true);
+            registry.registerBeanDefinition(defaultBean, definition);
+        }
+        properties.getFilters().forEach((name, filterProperties) ->
+                registry.registerBeanDefinition(name + "BloomFilter", definition(name, BloomFilterRegistry.typeOf(filterProperties))));
+    }
+
+    /**
+     * bean taken from the registry
+     * @param name filter name
+     * @param type filter class
+     * @return {@link AbstractBeanDefinition}
+     */
+    private static AbstractBeanDefinition definition(String name, Class<?> type) {
+        AbstractBeanDefinition definition = BeanDefinitionBuilder.genericBeanDefinition(type)
+                .setFactoryMethodOnBean(BloomFilterRegistry.getterOf(type), "bloomFilterRegistry")
+                .addConstructorArgValue(name)
+                .getBeanDefinition();
+        // 由注册表关闭
+        definition.setDestroyMethodName("");
+        definition.addQualifier(new AutowireCandidateQualifier(Qualifier.class, name));
+        return definition;
+    }
+
+    /**
+     * nothing to do
+     * @param beanFactory bean factory
+     * @throws BeansException BeansException
+     */
+    @Override
+    public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) throws BeansException {
+    }
+
+    /**
+     * bind {@code bloom-filter} before the configuration properties bean exists
+     * @param environment environment
+     * @return {@link BloomConfigurationProperties}
+     */
+    static BloomConfigurationProperties bind(Environment environment) {
+        return Binder.get(environment).bind("bloom-filter", BloomConfigurationProperties.class)
+                .orElseGet(BloomConfigurationProperties::new);
+    }
+}
@@ -0,0 +1,372 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.BloomConfigurationProperties;
+import io.github.dalowed.configuration.FilterProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static io.github.dalowed.constants.CommonConstants.BITMAP_DIRECTORY;
+
+/**
+ * named filters, each sized by its own expected insertions and false positive probability and
+ * persisted in its own directory. The filter configured under {@code bloom-filter} is registered
+ * as {@value #DEFAULT_NAME}, filters under {@code bloom-filter.filters.<name>} by their name.
+ * A filter with {@code scalable: true} is a {@link ScalableBloomFilter}, see {@link #getScalable(String)},
+ * one with a {@code window} a {@link SlidingWindowBloomFilter}, see {@link #getWindow(String)},
+ * one with {@code shards} above 1 a {@link ShardedBloomFilter}, see {@link #getSharded(String)},
+ * one with {@code type: CUCKOO} a {@link CuckooFilter}, see {@link #getCuckoo(String)}, and one with
+ * {@code type: BINARY_FUSE} a {@link BinaryFuseFilter} recovered from its checkpoint, see {@link #getBinaryFuse(String)}
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class BloomFilterRegistry implements AutoCloseable {
+
+    /**
+     * name of the filter configured under {@code bloom-filter}
+     */
+    public static final String DEFAULT_NAME = "default";
+
+    // 名称同时用作目录名和 bean 限定符
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_-]+");
+
+    private final Map<String, Object> filters; // BloomFilter, ScalableBloomFilter, SlidingWindowBloomFilter, ShardedBloomFilter, CuckooFilter 或 BinaryFuseFilter
+    private final List<BloomCheckpointer> checkpointers = new ArrayList<>();
+
+    /**
+     * Init BloomFilterRegistry, create or recover every configured filter
+     * @param properties bloomfilter configuration
+     */
+    public BloomFilterRegistry(BloomConfigurationProperties properties) {
+        Map<String, Object> created = new LinkedHashMap<>();
+        Map<String, Duration> intervals = new LinkedHashMap<>();
+        try {
+            if (hasDefaultFilter(properties)) {
+                created.put(DEFAULT_NAME, create(DEFAULT_NAME, properties));
+                intervals.put(DEFAULT_NAME, properties.getCheckpointInterval());
+            }
+            for (Map.Entry<String, FilterProperties> entry : properties.getFilters().entrySet()) {
+                String name = entry.getKey();
+                if (!NAME.matcher(name).matches() || DEFAULT_NAME.equals(name)) {
+                    throw new IllegalArgumentException("illegal filter name: " + name);
+                }
+                created.put(name, create(name, entry.getValue()));
+                intervals.put(name, entry.getValue().getCheckpointInterval());
+            }
+        } catch (RuntimeException e) {
+            // 已创建的过滤器要关闭插入日志
+            created.values().forEach(BloomFilterRegistry::close);
+            throw e;
+        }
+        this.filters = Collections.unmodifiableMap(created);
+        if (filters.get(DEFAULT_NAME) instanceof BloomFilter) {
+            BloomFilter.replaceDefaultFilter(null, (BloomFilter) filters.get(DEFAULT_NAME));
+        }
+        // 全部创建成功后再开始检查点
+        filters.forEach((name, filter) -> {
+            Duration interval = intervals.get(name);
+            // 二进制熔丝过滤器不可变, 无需定期保存
+            if (interval == null || filter instanceof BinaryFuseFilter) {
+                return;
+            }
+            if (filter instanceof CuckooFilter) {
+                checkpointers.add(new BloomCheckpointer((CuckooFilter) filter, interval));
+            } else if (filter instanceof ScalableBloomFilter) {
+                checkpointers.add(new BloomCheckpointer((ScalableBloomFilter) filter, interval));
+            } else if (filter instanceof SlidingWindowBloomFilter) {
+                checkpointers.add(new BloomCheckpointer((SlidingWindowBloomFilter) filter, interval));
+            } else if (filter instanceof ShardedBloomFilter) {
+                checkpointers.add(new BloomCheckpointer((ShardedBloomFilter) filter, interval));
+            } else {
+                checkpointers.add(new BloomCheckpointer((BloomFilter) filter, interval));
+            }
+        });
+    }
+
+    /**
+     * create or recover a filter
+     * @param name filter name
+     * @param properties filter configuration
+     * @return {@link Object} filter of {@link #typeOf(FilterProperties)}
+     */
+    private static Object create(String name, FilterProperties properties) {
+        Path directory = directoryOf(name, properties);
+        if (properties.getShards() > 1) {
+            if (properties.getType() != FilterType.BLOOM || properties.isScalable() || properties.getWindow() != null) {
+                throw new IllegalArgumentException("filter " + name + ": shards only split a plain bloomfilter, not a scalable, windowed or " + properties.getType() + " one");
+            }
+            return ShardedBloomFilter.create(name, directory, properties);
+        }
+        if (properties.getType() == FilterType.CUCKOO) {
+            return CuckooFilter.create(name, directory, properties);
+        }
+        if (properties.getType() == FilterType.BINARY_FUSE) {
+            return BinaryFuseFilter.create(name, directory, properties);
+        }
+        if (properties.getWindow() != null) {
+            if (properties.isScalable()) {
+                throw new IllegalArgumentException("filter " + name + " can not be both scalable and windowed");
+            }
+            return SlidingWindowBloomFilter.create(name, directory, properties);
+        }
+        return properties.isScalable() ? ScalableBloomFilter.create(name, directory, properties) : BloomFilter.create(name, directory, properties);
+    }
+
+    /**
+     * close a filter
+     * @param filter filter
+     */
+    private static void close(Object filter) {
+        if (filter instanceof BloomFilter) {
+            ((BloomFilter) filter).close();
+        } else if (filter instanceof ScalableBloomFilter) {
+            ((ScalableBloomFilter) filter).close();
+        } else if (filter instanceof SlidingWindowBloomFilter) {
+            ((SlidingWindowBloomFilter) filter).close();
+        } else if (filter instanceof ShardedBloomFilter) {
+            ((ShardedBloomFilter) filter).close();
+        } else if (filter instanceof CuckooFilter) {
+            ((CuckooFilter) filter).close();
+        } else {
+            ((BinaryFuseFilter) filter).close();
+        }
+    }
+
+    /**
+     * class of a configured filter
+     * @param properties filter configuration
+     * @return {@link Class}
+     */
+    static Class<?> typeOf(FilterProperties properties) {
+        if (properties.getType() == FilterType.CUCKOO) {
+            return CuckooFilter.class;
+        }
+        if (properties.getType() == FilterType.BINARY_FUSE) {
+            return BinaryFuseFilter.class;
+        }
+        if (properties.getWindow() != null) {
+            return SlidingWindowBloomFilter.class;
+        }
+        if (properties.getShards() > 1) {
+            return ShardedBloomFilter.class;
+        }
+        return properties.isScalable() ? ScalableBloomFilter.class : BloomFilter.class;
+    }
+
+    /**
+     * registry method returning filters of a class
+     * @param type filter class
+     * @return {@link String}
+     */
+    static String getterOf(Class<?> type) {
+        if (type == CuckooFilter.class) {
+            return "getCuckoo";
+        }
+        if (type == BinaryFuseFilter.class) {
+            return "getBinaryFuse";
+        }
+        if (type == SlidingWindowBloomFilter.class) {
+            return "getWindow";
+        }
+        if (type == ShardedBloomFilter.class) {
+            return "getSharded";
+        }
+        return type == ScalableBloomFilter.class ? "getScalable" : "get";
+    }
+
+    /**
+     * whether the filter under {@code bloom-filter} is configured, it may be left out when only
+     * named filters are used
+     * @param properties bloomfilter configuration
+     * @return {@link Boolean}
+     */
+    public static boolean hasDefaultFilter(BloomConfigurationProperties properties) {
+        return properties.getFilters().isEmpty() || properties.getExpectedInsertions() != 0 || properties.isRecovery();
+    }
+
+    /**
+     * directory of the filter files, bitmap for the default filter and bitmap/<name> for a named
+     * one unless configured
+     * @param name filter name
+     * @param properties filter configuration
+     * @return {@link Path}
+     */
+    static Path directoryOf(String name, FilterProperties properties) {
+        if (properties.getDirectory() != null) {
+            return Path.of(properties.getDirectory());
+        }
+        return DEFAULT_NAME.equals(name) ? Path.of(BITMAP_DIRECTORY) : Path.of(BITMAP_DIRECTORY, name);
+    }
+
+    /**
+     * get a filter by name
+     * @param name filter name
+     * @return {@link BloomFilter}
+     */
+    public BloomFilter get(String name) {
+        return filterOf(name, BloomFilter.class);
+    }
+
+    /**
+     * get a scalable filter by name
+     * @param name filter name
+     * @return {@link ScalableBloomFilter}
+     */
+    public ScalableBloomFilter getScalable(String name) {
+        return filterOf(name, ScalableBloomFilter.class);
+    }
+
+    /**
+     * get a sliding window filter by name
+     * @param name filter name
+     * @return {@link SlidingWindowBloomFilter}
+     */
+    public SlidingWindowBloomFilter getWindow(String name) {
+        return filterOf(name, SlidingWindowBloomFilter.class);
+    }
+
+    /**
+     * get a sharded filter by name
+     * @param name filter name
+     * @return {@link ShardedBloomFilter}
+     */
+    public ShardedBloomFilter getSharded(String name) {
+        return filterOf(name, ShardedBloomFilter.class);
+    }
+
+    /**
+     * get a cuckoo filter by name
+     * @param name filter name
+     * @return {@link CuckooFilter}
+     */
+    public CuckooFilter getCuckoo(String name) {
+        return filterOf(name, CuckooFilter.class);
+    }
+
+    /**
+     * get a binary fuse filter by name
+     * @param name filter name
+     * @return {@link BinaryFuseFilter}
+     */
+    public BinaryFuseFilter getBinaryFuse(String name) {
+        return filterOf(name, BinaryFuseFilter.class);
+    }
+
+    /**
+     * get a filter of a class by name, not an overload of get(String) so its bean type can be predicted
+     * @param name filter name
+     * @param type filter class
+     * @return {@link T}
+     * @param <T> filter class
+     */
+    private <T> T filterOf(String name, Class<T> type) {
+        Object filter = filters.get(name);
+        if (filter == null) {
+            throw new IllegalArgumentException("no bloomfilter named " + name + ", configured: " + filters.keySet());
+        }
+        if (!type.isInstance(filter)) {
+            throw new IllegalArgumentException("filter " + name + " is a " + filter.getClass().getSimpleName() + ", use " + getterOf(filter.getClass()));
+        }
+        return type.cast(filter);
+    }
+
+    /**
+     * whether a filter is configured
+     * @param name filter name
+     * @return {@link Boolean}
+     */
+    public boolean contains(String name) {
+        return filters.containsKey(name);
+    }
+
+    /**
+     * names of the filters, in configuration order
+     * @return {@link Set<String>}
+     */
+    public Set<String> getNames() {
+        return filters.keySet();
+    }
+
+    /**
+     * filters that are neither scalable, windowed, sharded, cuckoo nor binary fuse filters
+     * @return {@link Map<String, BloomFilter>}
+     */
+    public Map<String, BloomFilter> getFilters() {
+        return filtersOf(BloomFilter.class);
+    }
+
+    /**
+     * getScalableFilters
+     * @return {@link Map<String, ScalableBloomFilter>}
+     */
+    public Map<String, ScalableBloomFilter> getScalableFilters() {
+        return filtersOf(ScalableBloomFilter.class);
+    }
+
+    /**
+     * getWindowFilters
+     * @return {@link Map<String, SlidingWindowBloomFilter>}
+     */
+    public Map<String, SlidingWindowBloomFilter> getWindowFilters() {
+        return filtersOf(SlidingWindowBloomFilter.class);
+    }
+
+    /**
+     * getShardedFilters
+     * @return {@link Map<String, ShardedBloomFilter>}
+     */
+    public Map<String, ShardedBloomFilter> getShardedFilters() {
+        return filtersOf(ShardedBloomFilter.class);
+    }
+
+    /**
+     * getCuckooFilters
+     * @return {@link Map<String, CuckooFilter>}
+     */
+    public Map<String, CuckooFilter> getCuckooFilters() {
+        return filtersOf(CuckooFilter.class);
+    }
+
+    /**
+     * getBinaryFuseFilters
+     * @return {@link Map<String, BinaryFuseFilter>}
+     */
+    public Map<String, BinaryFuseFilter> getBinaryFuseFilters() {
+        return filtersOf(BinaryFuseFilter.class);
+    }
+
+    /**
+     * filters of a class, in configuration order
+     * @param type filter class
+     * @return {@link Map}
+     * @param <T> filter class
+     */
+    private <T> Map<String, T> filtersOf(Class<T> type) {
+        Map<String, T> result = new LinkedHashMap<>();
+        filters.forEach((name, filter) -> {
+            if (type.isInstance(filter)) {
+                result.put(name, type.cast(filter));
+            }
+        });
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * write the final checkpoints, then close the insert journals
+     */
+    @Override
+    public void close() {
+        checkpointers.forEach(BloomCheckpointer::close);
+        if (filters.get(DEFAULT_NAME) instanceof BloomFilter) {
+            BloomFilter.replaceDefaultFilter((BloomFilter) filters.get(DEFAULT_NAME), null);
+        }
+        filters.values().forEach(BloomFilterRegistry::close);
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.dalowed.filter;
+
+/**
+ * bit layout of the bloomfilter
+ * @author dalowed
+ * @since 0.0.4
+ */
+public enum BloomLayout {
+    /**
+     * every hash function addresses the whole bitmap (default)
+     */
+    STANDARD,
+    /**
+     * all bits of an element fall into one 512-bit (64 byte, one cache line) block,
+     * a lookup touches one block at the cost of a slightly larger bitmap
+     */
+    BLOCKED,
+    /**
+     * split block (Parquet / Impala): 256-bit blocks of eight 32-bit lanes, every element sets one bit
+     * per lane (k = 8). Insert and probe use the Vector API when {@code jdk.incubator.vector} is enabled,
+     * otherwise a scalar kernel with the same bit layout
+     */
+    SPLIT_BLOCK,
+    /**
+     * standard addressing over 4-bit counters instead of bits, elements can be removed. Takes four
+     * times the memory of STANDARD, counters saturate at 15
+     */
+    COUNTING
+}
@@ -0,0 +1,65 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.DirtyPageTracker;
+
+/**
+ * point-in-time image of a bloomfilter taken while adds continue, see {@link BloomFilter#openSnapshot()}.
+ * The bitmap must be read once, in ascending word order, by a single thread; close it when done
+ * so writers stop copying pages
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class ConsistentSnapshot implements AutoCloseable {
+
+    private final BloomFilter bloomFilter;
+    private final PageCapture capture;
+    private final BitStore bitStore;
+    private final long elementCount;
+
+    /**
+     * Init ConsistentSnapshot
+     * @param bloomFilter bloomfilter
+     * @param capture page capture
+     * @param elementCount elements added before the snapshot
+     */
+    ConsistentSnapshot(BloomFilter bloomFilter, PageCapture capture, long elementCount) {
+        this.bloomFilter = bloomFilter;
+        this.capture = capture;
+        this.bitStore = capture.view();
+        this.elementCount = elementCount;
+    }
+
+    /**
+     * getBitStore, read only
+     * @return {@link BitStore}
+     */
+    public BitStore getBitStore() {
+        return bitStore;
+    }
+
+    /**
+     * number of elements added before the snapshot, duplicates included
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * mark the pages writers changed since the snapshot was taken, their dirty bits may have been
+     * drained by a checkpoint writing this image
+     * @param dirtyPages dirty pages of the bitmap
+     */
+    void markChangedPages(DirtyPageTracker dirtyPages) {
+        capture.markChangedPages(dirtyPages);
+    }
+
+    /**
+     * end the snapshot
+     */
+    @Override
+    public void close() {
+        bloomFilter.closeSnapshot(capture);
+    }
+}
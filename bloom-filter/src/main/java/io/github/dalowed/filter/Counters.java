@@ -0,0 +1,119 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.storage.BitStore;
+
+/**
+ * 4-bit counters of the counting layout, 16 per 64-bit word. A counter is updated with
+ * compare-and-set on its word, so concurrent stores stay lock free; a counter that reached
+ * {@value #MAX} is saturated and never changes again, it may be shared by more elements than it
+ * can count and decrementing it could cause false negatives
+ * @author dalowed
+ * @since 0.0.4
+ */
+final class Counters {
+
+    /**
+     * bits of a counter
+     */
+    static final int COUNTER_BITS = 4;
+    /**
+     * saturated value
+     */
+    static final long MAX = (1 << COUNTER_BITS) - 1;
+
+    // 每个字 16 个计数器
+    private static final int COUNTERS_PER_WORD_SHIFT = 4;
+
+    private Counters() {
+    }
+
+    /**
+     * number of 64-bit words needed by counters
+     * @param counters counters
+     * @return {@link Long}
+     */
+    static long wordCount(long counters) {
+        return (counters + (1 << COUNTERS_PER_WORD_SHIFT) - 1) >>> COUNTERS_PER_WORD_SHIFT;
+    }
+
+    /**
+     * word index of a counter
+     * @param counter counter index
+     * @return {@link Long}
+     */
+    static long wordIndex(long counter) {
+        return counter >>> COUNTERS_PER_WORD_SHIFT;
+    }
+
+    /**
+     * number of counters above zero in a word
+     * @param word word of 16 counters
+     * @return {@link Integer}
+     */
+    static int nonZero(long word) {
+        // 每个计数器的 4 位合并到最低位
+        word |= word >>> 2;
+        word |= word >>> 1;
+        return Long.bitCount(word & 0x1111111111111111L);
+    }
+
+    /**
+     * shift of a counter inside its word
+     * @param counter counter index
+     * @return {@link Integer}
+     */
+    private static int shift(long counter) {
+        return (int) (counter & ((1 << COUNTERS_PER_WORD_SHIFT) - 1)) << 2;
+    }
+
+    /**
+     * read a counter
+     * @param bitStore counters
+     * @param counter counter index
+     * @return {@link Long}
+     */
+    static long get(BitStore bitStore, long counter) {
+        return bitStore.getWord(wordIndex(counter)) >>> shift(counter) & MAX;
+    }
+
+    /**
+     * add one, a saturated counter is left as it is
+     * @param bitStore counters
+     * @param counter counter index
+     * @return {@link Boolean} whether the counter changed
+     */
+    static boolean increment(BitStore bitStore, long counter) {
+        long index = wordIndex(counter);
+        int shift = shift(counter);
+        while (true) {
+            long word = bitStore.getWord(index);
+            if ((word >>> shift & MAX) == MAX) {
+                return false;
+            }
+            if (bitStore.compareAndSetWord(index, word, word + (1L << shift))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * subtract one, a counter at zero or saturated is left as it is
+     * @param bitStore counters
+     * @param counter counter index
+     * @return {@link Boolean} whether the counter changed
+     */
+    static boolean decrement(BitStore bitStore, long counter) {
+        long index = wordIndex(counter);
+        int shift = shift(counter);
+        while (true) {
+            long word = bitStore.getWord(index);
+            long value = word >>> shift & MAX;
+            if (value == 0 || value == MAX) {
+                return false;
+            }
+            if (bitStore.compareAndSetWord(index, word, word - (1L << shift))) {
+                return true;
+            }
+        }
+    }
+}
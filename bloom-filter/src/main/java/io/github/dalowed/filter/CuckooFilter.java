@@ -0,0 +1,946 @@
+package io.github.dalowed.filter;
+
+import com.alibaba.fastjson.JSON;
+import io.github.dalowed.bean.CuckooInformation;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.ElementHasher;
+import io.github.dalowed.hash.HashStrategy;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.StorageType;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import static io.github.dalowed.constants.CommonConstants.BITMAP_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.INFO_FILE_NAME;
+
+/**
+ * cuckoo filter (Fan et al.): every element leaves an f-bit fingerprint in one of two buckets of
+ * four slots, so a lookup reads two buckets and an element can be removed. f is the shortest of 8,
+ * 12 and 16 bits whose false positive probability 8 / 2^f meets the configured one; buckets of 4f
+ * bits are packed into the words, at 95% load that is about f / 0.95 bits per element.
+ * <p>
+ * Adds and removes take a write lock, lookups read optimistically and only retry under the read
+ * lock when a writer moved fingerprints meanwhile. An element added twice is stored twice and has to
+ * be removed twice; removing an element that was never added may remove another one. Once a
+ * fingerprint finds no free slot after {@value #MAX_KICKS} moves it is kept aside and the filter is
+ * full, further adds return false until elements are removed
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class CuckooFilter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CuckooFilter.class);
+
+    /**
+     * "BLMC"
+     */
+    public static final int MAGIC = 0x424C4D43;
+    /**
+     * fingerprints per bucket
+     */
+    public static final int SLOTS = 4;
+    /**
+     * supported bits per fingerprint
+     */
+    private static final int[] FINGERPRINT_BITS = {8, 12, 16};
+
+    private static final double LOAD_FACTOR = 0.95;
+    private static final int MAX_KICKS = 500;
+
+    // h1, h2 缓冲区, 避免每次调用分配
+    private static final ThreadLocal<long[]> HASH_BUFFER = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final String name; // 过滤器名称
+    private final Path directory; // 桶文件和信息所在目录
+    private final StorageType storageType; // 桶存储位置
+    private final BitStore bitStore; // 每个桶一个 long
+    private final long bucketCount; // 桶数
+    private final int fingerprintBits; // 指纹位数
+    private final long fingerprintMask;
+    private final int bucketBits; // 每个桶 SLOTS * fingerprintBits 位, 依次排列在位存储中
+    private final long bucketMask;
+    private final long lanesLow; // 每个槽的最低位
+    private final long lanesHigh; // 每个槽的最高位
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final HashStrategy hashStrategy; // 哈希策略
+    private final long hashSeed; // MURMUR3_128 种子
+    private final String hashKey; // SIPHASH_24 密钥(hex)
+    private final String salt; // HMAC_SHA256 盐
+    private final ElementHasher hasher; // 每个元素只计算一次 128 位哈希
+    private final boolean isLogging;
+    private final boolean trimKeys; // 是否去除字符元素首尾空白
+    private final boolean rejectEmptyKeys; // 是否拒绝空元素
+
+    private final StampedLock lock = new StampedLock();
+    private volatile long elementCount; // 由写锁保护
+    private long victimIndex; // 由写锁保护
+    private int victimFingerprint; // 表满时放不下的指纹, 0 表示没有, 由写锁保护
+
+    /**
+     * Init CuckooFilter
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param information sizing and hashing of the filter
+     * @param properties storage and key settings
+     * @param loader fills the buckets, null for a new filter
+     */
+    private CuckooFilter(String name, Path directory, CuckooInformation information, FilterProperties properties, Consumer<BitStore> loader) {
+        if (properties.isJournal()) {
+            // 插入日志只记录插入, 重放会恢复已删除的元素
+            throw new IllegalArgumentException("the insert journal does not record removals, it can not be used with the " + FilterType.CUCKOO + " filter");
+        }
+        int fingerprintBits = information.getFingerprintBits();
+        if (Arrays.stream(FINGERPRINT_BITS).noneMatch(bits -> bits == fingerprintBits)) {
+            throw new IllegalArgumentException("unsupported fingerprint bits: " + fingerprintBits);
+        }
+        long bucketCount = information.getBucketCount();
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("bucket count must be greater than zero, bucketCount:" + bucketCount);
+        }
+        this.name = name;
+        this.directory = directory;
+        this.storageType = properties.getStorage();
+        this.bucketCount = bucketCount;
+        this.fingerprintBits = fingerprintBits;
+        this.fingerprintMask = (1L << fingerprintBits) - 1;
+        this.bucketBits = SLOTS * fingerprintBits;
+        this.bucketMask = bucketBits == Long.SIZE ? -1L : (1L << bucketBits) - 1;
+        long lanes = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            lanes |= 1L << (slot * fingerprintBits);
+        }
+        this.lanesLow = lanes;
+        this.lanesHigh = lanes << (fingerprintBits - 1);
+        this.expectedInsertions = information.getExpectedInsertions();
+        this.falsePositiveProbability = information.getFalsePositiveProbability();
+        this.hashStrategy = information.getHashStrategy();
+        this.hashSeed = information.getHashSeed();
+        this.hashKey = information.getHashKey();
+        this.salt = information.getSalt();
+        this.hasher = ElementHasher.of(hashStrategy, hashSeed, hashKey, salt);
+        this.isLogging = properties.isEnableLogging();
+        this.trimKeys = properties.isTrimKeys();
+        this.rejectEmptyKeys = properties.isRejectEmptyKeys();
+        // 写入持有写锁, 无需原子操作
+        long wordCount = (bucketCount * bucketBits + Long.SIZE - 1) / Long.SIZE;
+        this.bitStore = FilterStorage.createBitStore(storageType, directory.resolve(BITMAP_FILE_NAME), wordCount, loader == null);
+        if (loader != null) {
+            loader.accept(bitStore);
+        }
+        this.elementCount = information.getElementCount();
+        this.victimIndex = information.getVictimIndex();
+        this.victimFingerprint = information.getVictimFingerprint();
+
+        if (isLogging) {
+            log.info("{} 布谷鸟过滤器桶数: {}, 指纹位数: {}, 预计插入: {}, 误判率: {}", name, bucketCount, fingerprintBits, expectedInsertions, falsePositiveProbability);
+        }
+    }
+
+    /**
+     * create or recover a filter
+     * @param name filter name
+     * @param directory directory of the filter files
+     * @param properties filter configuration
+     * @return {@link CuckooFilter}
+     */
+    static CuckooFilter create(String name, Path directory, FilterProperties properties) {
+        if (!properties.isRecovery()) {
+            return new CuckooFilter(name, directory, informationOf(properties), properties, null);
+        }
+        CuckooInformation information = BloomFilterInfoUtils.getCuckooInfo(directory.resolve(INFO_FILE_NAME));
+        // MAPPED 直接映射桶文件, 无需读取
+        return new CuckooFilter(name, directory, information, properties, properties.getStorage() == StorageType.MAPPED
+                ? bitStore -> { } : bitStore -> BloomFilterInfoUtils.loadingBitMap(bitStore, directory.resolve(BITMAP_FILE_NAME)));
+    }
+
+    /**
+     * read a filter streamed by {@link #writeTo(WritableByteChannel)}. The channel is read up to the
+     * end of the filter and is not closed
+     * @param channel channel at the start of the filter
+     * @param name filter name
+     * @param properties storage and key settings, the size and hashing come from the stream
+     * @return {@link CuckooFilter}
+     */
+    public static CuckooFilter readFrom(ReadableByteChannel channel, String name, FilterProperties properties) {
+        try {
+            CuckooInformation information = JSON.parseObject(FilterStorage.readInformation(channel, MAGIC, "cuckoo filter"), CuckooInformation.class);
+            return new CuckooFilter(name, BloomFilterRegistry.directoryOf(name, properties), information, properties, bitStore -> {
+                try {
+                    FilterStorage.readWords(channel, bitStore, "cuckoo filter");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("read cuckoo filter " + name + " failed", e);
+        }
+    }
+
+    /**
+     * read a filter from a stream, a file stream is read through its channel
+     * @param in stream at the start of the filter, not closed
+     * @param name filter name
+     * @param properties storage and key settings
+     * @return {@link CuckooFilter}
+     */
+    public static CuckooFilter readFrom(InputStream in, String name, FilterProperties properties) {
+        return readFrom(in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : Channels.newChannel(in), name, properties);
+    }
+
+    /**
+     * sizing and hashing of a new filter
+     * @param properties filter configuration
+     * @return {@link CuckooInformation}
+     */
+    private static CuckooInformation informationOf(FilterProperties properties) {
+        long expectedInsertions = properties.getExpectedInsertions();
+        double falsePositiveProbability = properties.getFalsePositiveProbability();
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions number must be greater than zero, insert value:" + expectedInsertions);
+        }
+        // 两个桶共 2 * SLOTS 个指纹, 每个以 2^-f 的概率相同, 取满足配置的最短指纹
+        int fingerprintBits = 0;
+        for (int bits : FINGERPRINT_BITS) {
+            if (falsePositiveProbability >= 2.0 * SLOTS / (1 << bits) && falsePositiveProbability < 1) {
+                fingerprintBits = bits;
+                break;
+            }
+        }
+        if (fingerprintBits == 0) {
+            int maxBits = FINGERPRINT_BITS[FINGERPRINT_BITS.length - 1];
+            throw new IllegalArgumentException("cuckoo filter false positive probability must be between " + 2.0 * SLOTS / (1 << maxBits)
+                    + " and 1, falsePositiveProbability:" + falsePositiveProbability);
+        }
+        CuckooInformation information = new CuckooInformation();
+        information.setBucketCount(Math.max(1, (long) Math.ceil(expectedInsertions / (SLOTS * LOAD_FACTOR))));
+        information.setFingerprintBits(fingerprintBits);
+        information.setExpectedInsertions(expectedInsertions);
+        information.setFalsePositiveProbability(falsePositiveProbability);
+        information.setHashStrategy(properties.getHashStrategy());
+        // 配置了种子、密钥和盐时使用配置的值
+        information.setHashSeed(BloomFilter.hashSeedOf(properties));
+        information.setHashKey(BloomFilter.hashKeyOf(properties));
+        information.setSalt(BloomFilter.saltOf(properties));
+        return information;
+    }
+
+    /**
+     * add element to the filter
+     * @param element element
+     * @return {@link Boolean} false if the filter is full or the element is rejected by the key policy
+     */
+    public boolean add(String element) {
+        return add((CharSequence) element);
+    }
+
+    /**
+     * add element to the filter, its UTF-16 chars are hashed without encoding
+     * @param element element
+     * @return {@link Boolean} false if the filter is full or the element is rejected by the key policy
+     */
+    public boolean add(CharSequence element) {
+        long[] hashes = hashChars(element);
+        return hashes != null && put(hashes);
+    }
+
+    /**
+     * add element to the filter
+     * @param element element
+     * @return {@link Boolean} false if the filter is full
+     */
+    public boolean add(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return put(hashes);
+    }
+
+    /**
+     * add element to the filter
+     * @param element element
+     * @return {@link Boolean} false if the filter is full
+     */
+    public boolean add(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return put(hashes);
+    }
+
+    /**
+     * add element to the filter
+     * @param element element
+     * @return {@link Boolean} false if the filter is full
+     */
+    public boolean add(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return put(hashes);
+    }
+
+    /**
+     * add element to the filter
+     * @param element element
+     * @return {@link Boolean} false if the filter is full or the element is rejected by the key policy
+     */
+    public boolean add(byte[] element) {
+        return add(element, 0, element.length);
+    }
+
+    /**
+     * add a byte range to the filter
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if the filter is full or the element is rejected by the key policy
+     */
+    public boolean add(byte[] element, int offset, int length) {
+        long[] hashes = hashBytes(element, offset, length);
+        return hashes != null && put(hashes);
+    }
+
+    /**
+     * add the remaining bytes of a buffer to the filter, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if the filter is full or the element is rejected by the key policy
+     */
+    public boolean add(ByteBuffer element) {
+        long[] hashes = hashBuffer(element);
+        return hashes != null && put(hashes);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(String element) {
+        return isContain((CharSequence) element);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(CharSequence element) {
+        long[] hashes = hashChars(element);
+        return hashes != null && probe(hashes);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return probe(hashes);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return probe(hashes);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return probe(hashes);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element) {
+        return isContain(element, 0, element.length);
+    }
+
+    /**
+     * check if a byte range exists
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element, int offset, int length) {
+        long[] hashes = hashBytes(element, offset, length);
+        return hashes != null && probe(hashes);
+    }
+
+    /**
+     * check if the remaining bytes of a buffer exist, its position is not changed
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(ByteBuffer element) {
+        long[] hashes = hashBuffer(element);
+        return hashes != null && probe(hashes);
+    }
+
+    /**
+     * remove an element that was added
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(String element) {
+        return remove((CharSequence) element);
+    }
+
+    /**
+     * remove an element that was added
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(CharSequence element) {
+        long[] hashes = hashChars(element);
+        return hashes != null && take(hashes);
+    }
+
+    /**
+     * remove an element that was added
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove an element that was added
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove an element that was added
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return take(hashes);
+    }
+
+    /**
+     * remove an element that was added
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(byte[] element) {
+        return remove(element, 0, element.length);
+    }
+
+    /**
+     * remove a byte range that was added
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(byte[] element, int offset, int length) {
+        long[] hashes = hashBytes(element, offset, length);
+        return hashes != null && take(hashes);
+    }
+
+    /**
+     * remove the remaining bytes of a buffer that were added, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if the element is not contained
+     */
+    public boolean remove(ByteBuffer element) {
+        long[] hashes = hashBuffer(element);
+        return hashes != null && take(hashes);
+    }
+
+    /**
+     * hash a char sequence after the key policy
+     * @param element element
+     * @return {@link Long[]} h1, h2, null if rejected
+     */
+    private long[] hashChars(CharSequence element) {
+        int start = trimKeys ? BloomFilter.keyStart(element) : 0;
+        int end = trimKeys ? BloomFilter.keyEnd(element, start) : element.length();
+        if (rejectEmptyKeys && start == end) {
+            return null;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashChars(element, start, end, hashes);
+        return hashes;
+    }
+
+    /**
+     * hash a byte range after the key policy
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Long[]} h1, h2, null if rejected
+     */
+    private long[] hashBytes(byte[] element, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        if (rejectEmptyKeys && length == 0) {
+            return null;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBytes(element, offset, length, hashes);
+        return hashes;
+    }
+
+    /**
+     * hash the remaining bytes of a buffer after the key policy
+     * @param element element
+     * @return {@link Long[]} h1, h2, null if rejected
+     */
+    private long[] hashBuffer(ByteBuffer element) {
+        if (rejectEmptyKeys && !element.hasRemaining()) {
+            return null;
+        }
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashBuffer(element, hashes);
+        return hashes;
+    }
+
+    /**
+     * fingerprint of an element, 0 marks an empty slot
+     * @param h2 h2
+     * @return {@link Integer}
+     */
+    private int fingerprint(long h2) {
+        int fingerprint = (int) (h2 >>> (64 - fingerprintBits));
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    /**
+     * the other bucket of a fingerprint, (hash(f) - 1 - index) mod bucketCount gives the bucket back
+     * when applied twice, unlike the xor form it does not need a power of two bucket count
+     * @param index bucket
+     * @param fingerprint fingerprint
+     * @return {@link Long}
+     */
+    private long alternate(long index, int fingerprint) {
+        long alternate = BitAddressing.fastRange(fingerprint * 0x9E3779B97F4A7C15L, bucketCount) + bucketCount - 1 - index;
+        return alternate >= bucketCount ? alternate - bucketCount : alternate;
+    }
+
+    /**
+     * whether one of the four slots of a bucket holds a fingerprint (SWAR zero lane test)
+     * @param bucket bucket
+     * @param fingerprint fingerprint
+     * @return {@link Boolean}
+     */
+    private boolean hasFingerprint(long bucket, int fingerprint) {
+        long lanes = bucket ^ (fingerprint * lanesLow);
+        return ((lanes - lanesLow) & ~lanes & lanesHigh) != 0;
+    }
+
+    /**
+     * read a bucket, a bucket of 12-bit fingerprints may span two words
+     * @param index bucket
+     * @return {@link Long} the slots in the low bits
+     */
+    private long getBucket(long index) {
+        long bit = index * bucketBits;
+        long word = bit >>> 6;
+        int shift = (int) (bit & 63);
+        long bucket = bitStore.getWord(word) >>> shift;
+        if (shift + bucketBits > Long.SIZE) {
+            bucket |= bitStore.getWord(word + 1) << (Long.SIZE - shift);
+        }
+        return bucket & bucketMask;
+    }
+
+    /**
+     * write a bucket, called with the write lock held
+     * @param index bucket
+     * @param bucket the slots in the low bits
+     */
+    private void setBucket(long index, long bucket) {
+        long bit = index * bucketBits;
+        long word = bit >>> 6;
+        int shift = (int) (bit & 63);
+        bitStore.setWord(word, (bitStore.getWord(word) & ~(bucketMask << shift)) | (bucket << shift));
+        if (shift + bucketBits > Long.SIZE) {
+            // 跨字的高位部分
+            int low = Long.SIZE - shift;
+            bitStore.setWord(word + 1, (bitStore.getWord(word + 1) & ~(bucketMask >>> low)) | (bucket >>> low));
+        }
+    }
+
+    /**
+     * lookup without the lock, retried under the read lock when a writer ran meanwhile
+     * @param hashes h1, h2
+     * @return {@link Boolean}
+     */
+    private boolean probe(long[] hashes) {
+        int fingerprint = fingerprint(hashes[1]);
+        long first = BitAddressing.fastRange(hashes[0], bucketCount);
+        long second = alternate(first, fingerprint);
+        long stamp = lock.tryOptimisticRead();
+        boolean found = find(first, second, fingerprint);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                found = find(first, second, fingerprint);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * look for a fingerprint in its two buckets and the victim
+     * @param first first bucket
+     * @param second second bucket
+     * @param fingerprint fingerprint
+     * @return {@link Boolean}
+     */
+    private boolean find(long first, long second, int fingerprint) {
+        return hasFingerprint(getBucket(first), fingerprint)
+                || hasFingerprint(getBucket(second), fingerprint)
+                || (victimFingerprint == fingerprint && (victimIndex == first || victimIndex == second));
+    }
+
+    /**
+     * store the fingerprint of an element
+     * @param hashes h1, h2
+     * @return {@link Boolean} false if the filter is full
+     */
+    private boolean put(long[] hashes) {
+        int fingerprint = fingerprint(hashes[1]);
+        long first = BitAddressing.fastRange(hashes[0], bucketCount);
+        long second = alternate(first, fingerprint);
+        long stamp = lock.writeLock();
+        try {
+            if (victimFingerprint != 0) {
+                return false;
+            }
+            // 放不下时元素已放入, 留下的是最后被踢出的指纹, 之后的插入失败
+            if (!place(first, second, fingerprint, hashes[0] ^ hashes[1])) {
+                log.warn("cuckoo filter {} is full, elements: {}", name, elementCount + 1);
+            }
+            elementCount++;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * put a fingerprint into one of its buckets, moving other fingerprints to their other bucket
+     * if both are full. The kicked slots are drawn from a sequence seeded by the element, so the
+     * same elements added in the same order give the same buckets. Called with the write lock held
+     * @param first first bucket
+     * @param second second bucket
+     * @param fingerprint fingerprint
+     * @param seed seed of the kicked slots
+     * @return {@link Boolean} false if a fingerprint was left over, it is then the victim
+     */
+    private boolean place(long first, long second, int fingerprint, long seed) {
+        if (insertSlot(first, fingerprint) || insertSlot(second, fingerprint)) {
+            return true;
+        }
+        long random = seed;
+        long index = mix(random) < 0 ? first : second;
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            // 放入伪随机槽位, 原指纹换到它的另一个桶
+            random += 0x9E3779B97F4A7C15L;
+            long bucket = getBucket(index);
+            int shift = (int) BitAddressing.fastRange(mix(random), SLOTS) * fingerprintBits;
+            int evicted = (int) ((bucket >>> shift) & fingerprintMask);
+            setBucket(index, (bucket & ~(fingerprintMask << shift)) | ((long) fingerprint << shift));
+            fingerprint = evicted;
+            index = alternate(index, fingerprint);
+            if (insertSlot(index, fingerprint)) {
+                return true;
+            }
+        }
+        victimIndex = index;
+        victimFingerprint = fingerprint;
+        return false;
+    }
+
+    /**
+     * next value of the kick sequence (murmur3 fmix64)
+     * @param k state of the sequence
+     * @return {@link Long}
+     */
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * remove the fingerprint of an element, the victim is then placed again
+     * @param hashes h1, h2
+     * @return {@link Boolean} false if the element is not contained
+     */
+    private boolean take(long[] hashes) {
+        int fingerprint = fingerprint(hashes[1]);
+        long first = BitAddressing.fastRange(hashes[0], bucketCount);
+        long second = alternate(first, fingerprint);
+        long stamp = lock.writeLock();
+        try {
+            if (victimFingerprint == fingerprint && (victimIndex == first || victimIndex == second)) {
+                victimFingerprint = 0;
+            } else if (deleteSlot(first, fingerprint) || deleteSlot(second, fingerprint)) {
+                if (victimFingerprint != 0) {
+                    int victim = victimFingerprint;
+                    victimFingerprint = 0;
+                    place(victimIndex, alternate(victimIndex, victim), victim, victimIndex ^ victim);
+                }
+            } else {
+                return false;
+            }
+            elementCount--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * put a fingerprint into a free slot of a bucket
+     * @param index bucket
+     * @param fingerprint fingerprint
+     * @return {@link Boolean} false if the bucket is full
+     */
+    private boolean insertSlot(long index, int fingerprint) {
+        long bucket = getBucket(index);
+        for (int shift = 0; shift < bucketBits; shift += fingerprintBits) {
+            if (((bucket >>> shift) & fingerprintMask) == 0) {
+                setBucket(index, bucket | ((long) fingerprint << shift));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * clear one slot of a bucket holding a fingerprint
+     * @param index bucket
+     * @param fingerprint fingerprint
+     * @return {@link Boolean} false if the bucket does not hold it
+     */
+    private boolean deleteSlot(long index, int fingerprint) {
+        long bucket = getBucket(index);
+        for (int shift = 0; shift < bucketBits; shift += fingerprintBits) {
+            if (((bucket >>> shift) & fingerprintMask) == fingerprint) {
+                setBucket(index, bucket & ~(fingerprintMask << shift));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * information of the filter, taken under the lock
+     * @param message description
+     * @return {@link CuckooInformation}
+     */
+    private CuckooInformation information(String message) {
+        CuckooInformation information = new CuckooInformation();
+        information.setDescription(message);
+        information.setBucketCount(bucketCount);
+        information.setFingerprintBits(fingerprintBits);
+        information.setExpectedInsertions(expectedInsertions);
+        information.setFalsePositiveProbability(falsePositiveProbability);
+        information.setHashStrategy(hashStrategy);
+        information.setHashSeed(hashSeed);
+        information.setHashKey(hashKey);
+        information.setSalt(salt);
+        information.setElementCount(elementCount);
+        information.setVictimIndex(victimIndex);
+        information.setVictimFingerprint(victimFingerprint);
+        return information;
+    }
+
+    /**
+     * write the buckets and the info file, adds and removes wait until both are written. A mapped
+     * bucket file is forced
+     * @return {@link Boolean}
+     */
+    public boolean checkpoint() {
+        long stamp = lock.readLock();
+        try {
+            return BloomFilterInfoUtils.generatorBitmapFile(bitStore, directory.resolve(BITMAP_FILE_NAME))
+                    && BloomFilterInfoUtils.generatorCuckooInfo(information("checkpoint"), directory.resolve(INFO_FILE_NAME));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * stream the filter, e.g. to a socket; adds and removes wait until it is written, lookups do not
+     * @param channel channel, not closed
+     */
+    public void writeTo(WritableByteChannel channel) {
+        long stamp = lock.readLock();
+        try {
+            FilterStorage.write(channel, MAGIC, information("stream").toString(), bitStore);
+        } catch (IOException e) {
+            throw new UncheckedIOException("write cuckoo filter " + name + " failed", e);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * stream the filter, a file stream is written through its channel
+     * @param out stream, not closed
+     */
+    public void writeTo(OutputStream out) {
+        writeTo(out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out));
+    }
+
+    /**
+     * nothing to release, a mapped bucket file is forced by {@link #checkpoint()}
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * number of elements added minus the elements removed
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        return elementCount;
+    }
+
+    /**
+     * share of the slots in use
+     * @return {@link Double}
+     */
+    public double getLoadFactor() {
+        return (double) elementCount / (bucketCount * SLOTS);
+    }
+
+    /**
+     * whether a fingerprint is kept aside, adds fail until elements are removed
+     * @return {@link Boolean}
+     */
+    public boolean isFull() {
+        long stamp = lock.readLock();
+        try {
+            return victimFingerprint != 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * getBucketCount
+     * @return {@link Long}
+     */
+    public long getBucketCount() {
+        return bucketCount;
+    }
+
+    /**
+     * getFingerprintBits
+     * @return {@link Integer}
+     */
+    public int getFingerprintBits() {
+        return fingerprintBits;
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * getDirectory
+     * @return {@link Path}
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * getExpectedInsertions
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * getHashStrategy
+     * @return {@link HashStrategy}
+     */
+    public HashStrategy getHashStrategy() {
+        return hashStrategy;
+    }
+
+    /**
+     * getStorageType
+     * @return {@link StorageType}
+     */
+    public StorageType getStorageType() {
+        return storageType;
+    }
+
+    /**
+     * bucket storage, buckets of 4 fingerprints packed one after another
+     * @return {@link BitStore}
+     */
+    public BitStore getBitStore() {
+        return bitStore;
+    }
+}
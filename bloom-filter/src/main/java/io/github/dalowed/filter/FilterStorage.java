@@ -0,0 +1,173 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.HeapBitStore;
+import io.github.dalowed.storage.MappedBitStore;
+import io.github.dalowed.storage.OffHeapBitStore;
+import io.github.dalowed.storage.StorageType;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.CRC32C;
+
+/**
+ * word storage and stream format of the filters that keep their own information bean, the cuckoo
+ * and the binary fuse filter
+ * <pre>
+ * magic(int) version(int) infoLength(int) info(json) words(little-endian longs) crc32c(int)
+ * </pre>
+ * @author dalowed
+ * @since 0.0.4
+ */
+final class FilterStorage {
+
+    /**
+     * current stream format version
+     */
+    static final int VERSION = 1;
+
+    // 流式读写每次 64 KB
+    private static final int CHUNK_WORDS = 1 << 13;
+    private static final int MAX_INFO_BYTES = 1 << 16;
+
+    private FilterStorage() {
+    }
+
+    /**
+     * Create a single writer word storage
+     * @param storageType storage type
+     * @param file file mapped by the MAPPED storage
+     * @param wordCount number of words
+     * @param create false when recovering, a mapped store then maps the existing file
+     * @return {@link BitStore}
+     */
+    static BitStore createBitStore(StorageType storageType, Path file, long wordCount, boolean create) {
+        if (storageType == StorageType.MAPPED) {
+            return new MappedBitStore(file, wordCount, create);
+        }
+        if (storageType == StorageType.OFF_HEAP) {
+            return new OffHeapBitStore(wordCount);
+        }
+        // 堆内数组长度不能超过 Integer.MAX_VALUE
+        if (wordCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The required array length exceeds the maximum integer value, use off-heap storage.");
+        }
+        return new HeapBitStore(new long[(int) wordCount]);
+    }
+
+    /**
+     * stream the information and the words
+     * @param channel channel, not closed
+     * @param magic magic of the filter type
+     * @param information information(json)
+     * @param bitStore words
+     * @throws IOException IOException
+     */
+    static void write(WritableByteChannel channel, int magic, String information, BitStore bitStore) throws IOException {
+        byte[] info = information.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(CHUNK_WORDS << 3, 12 + info.length));
+        buffer.putInt(magic).putInt(VERSION).putInt(info.length).put(info).flip();
+        writeFully(channel, buffer);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        long wordCount = bitStore.wordCount();
+        for (long from = 0; from < wordCount; from += CHUNK_WORDS) {
+            buffer.clear();
+            long to = Math.min(wordCount, from + CHUNK_WORDS);
+            for (long i = from; i < to; i++) {
+                buffer.putLong(bitStore.getWord(i));
+            }
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully(channel, buffer);
+        }
+        buffer.clear();
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt((int) crc.getValue()).flip();
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * read the prefix and the information of a stream
+     * @param channel channel at the start of the stream
+     * @param magic expected magic
+     * @param type filter type, used in messages
+     * @return {@link String} information(json)
+     * @throws IOException IOException
+     */
+    static String readInformation(ReadableByteChannel channel, int magic, String type) throws IOException {
+        ByteBuffer prefix = readFully(channel, ByteBuffer.allocate(12), type);
+        if (prefix.getInt() != magic) {
+            throw new IllegalArgumentException("not a " + type + " stream");
+        }
+        int version = prefix.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported " + type + " version: " + version);
+        }
+        int infoLength = prefix.getInt();
+        if (infoLength <= 0 || infoLength > MAX_INFO_BYTES) {
+            throw new IllegalArgumentException("illegal " + type + " header length: " + infoLength);
+        }
+        return new String(readFully(channel, ByteBuffer.allocate(infoLength), type).array(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * read the words and the checksum of a stream, nothing past them is read
+     * @param channel channel after the information
+     * @param bitStore words
+     * @param type filter type, used in messages
+     * @throws IOException IOException
+     */
+    static void readWords(ReadableByteChannel channel, BitStore bitStore, String type) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_WORDS << 3).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32C crc = new CRC32C();
+        long wordCount = bitStore.wordCount();
+        for (long from = 0; from < wordCount; from += CHUNK_WORDS) {
+            int count = (int) Math.min(CHUNK_WORDS, wordCount - from);
+            buffer.clear().limit(count << 3);
+            readFully(channel, buffer, type);
+            crc.update(buffer.duplicate());
+            for (int i = 0; i < count; i++) {
+                bitStore.setWord(from + i, buffer.getLong());
+            }
+        }
+        buffer.clear().limit(Integer.BYTES);
+        if (readFully(channel, buffer, type).order(ByteOrder.BIG_ENDIAN).getInt() != (int) crc.getValue()) {
+            throw new IOException(type + " checksum mismatch");
+        }
+    }
+
+    /**
+     * fill the remaining bytes of a buffer
+     * @param channel channel
+     * @param buffer buffer
+     * @param type filter type, used in messages
+     * @return {@link ByteBuffer} the buffer, flipped
+     * @throws IOException IOException
+     */
+    private static ByteBuffer readFully(ReadableByteChannel channel, ByteBuffer buffer, String type) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException(type + " is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * write the remaining bytes of a buffer
+     * @param channel channel
+     * @param buffer buffer
+     * @throws IOException IOException
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
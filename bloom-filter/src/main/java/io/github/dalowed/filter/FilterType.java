@@ -0,0 +1,22 @@
+package io.github.dalowed.filter;
+
+/**
+ * structure of a configured filter
+ * @author dalowed
+ * @since 0.0.4
+ */
+public enum FilterType {
+    /**
+     * {@link BloomFilter}, or {@link ScalableBloomFilter} when scalable (default)
+     */
+    BLOOM,
+    /**
+     * {@link CuckooFilter}, elements can be removed, a lookup reads two buckets
+     */
+    CUCKOO,
+    /**
+     * {@link BinaryFuseFilter}, built once from all keys by {@link BinaryFuseFilter#build}, a lookup
+     * reads three words; configured filters of this type are recovered from a checkpoint
+     */
+    BINARY_FUSE
+}
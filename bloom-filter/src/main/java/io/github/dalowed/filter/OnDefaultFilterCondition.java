@@ -0,0 +1,27 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.BloomConfigurationProperties;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * matches when the filter under {@code bloom-filter} is a plain {@link BloomFilter}, see
+ * {@link BloomFilterRegistry#hasDefaultFilter(io.github.dalowed.configuration.BloomConfigurationProperties)}
+ * @author dalowed
+ * @since 0.0.4
+ */
+class OnDefaultFilterCondition implements Condition {
+
+    /**
+     * matches
+     * @param context condition context
+     * @param metadata annotation metadata
+     * @return {@link Boolean}
+     */
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        BloomConfigurationProperties properties = BloomFilterBeanRegistrar.bind(context.getEnvironment());
+        return BloomFilterRegistry.hasDefaultFilter(properties) && BloomFilterRegistry.typeOf(properties) == BloomFilter.class;
+    }
+}
@@ -0,0 +1,191 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.DirtyPageTracker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * copy-on-write capture of a bitmap at the start of an epoch. Writers of the epoch copy a 4 KB page
+ * before they first change it, the snapshot reads each page once, either from the copy or, if no
+ * writer got there first, from the live bitmap which it then releases to the writers
+ * @author dalowed
+ * @since 0.0.4
+ */
+final class PageCapture {
+
+    // 页状态
+    private static final int UNTOUCHED = 0;
+    private static final int COPYING = 1;
+    private static final int COPIED = 2;
+    private static final int READING = 3;
+    private static final int DONE = 4;
+    private static final int RELEASED = 5; // 已从写入方的副本读取
+
+    private static final VarHandle STATES = MethodHandles.arrayElementVarHandle(int[].class);
+
+    final int epoch;
+    private final BitStore bitStore;
+    private final int[] states;
+    private final long[][] copies;
+    // 上一个纪元的写入全部完成后才能复制页
+    private volatile boolean drained;
+
+    /**
+     * Init PageCapture
+     * @param epoch epoch whose writers copy pages
+     * @param bitStore live bitmap
+     */
+    PageCapture(int epoch, BitStore bitStore) {
+        this.epoch = epoch;
+        this.bitStore = bitStore;
+        long pageCount = (bitStore.wordCount() + DirtyPageTracker.PAGE_WORDS - 1) >>> DirtyPageTracker.PAGE_WORDS_SHIFT;
+        if (pageCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("too many pages: " + pageCount);
+        }
+        this.states = new int[(int) pageCount];
+        this.copies = new long[(int) pageCount][];
+    }
+
+    /**
+     * the writers of the previous epoch are done, the live bitmap is the captured image
+     */
+    void drained() {
+        this.drained = true;
+    }
+
+    /**
+     * called by a writer of the epoch before it changes a word
+     * @param word word index
+     */
+    void beforeWrite(long word) {
+        int page = (int) (word >>> DirtyPageTracker.PAGE_WORDS_SHIFT);
+        int state = (int) STATES.getAcquire(states, page);
+        if (state == COPIED || state >= DONE) {
+            return;
+        }
+        while (!drained) {
+            Thread.yield();
+        }
+        while (true) {
+            state = (int) STATES.getAcquire(states, page);
+            if (state == COPIED || state >= DONE) {
+                return;
+            }
+            if (state == UNTOUCHED && STATES.compareAndSet(states, page, UNTOUCHED, COPYING)) {
+                copies[page] = readPage(page, new long[pageWords(page)]);
+                STATES.setRelease(states, page, COPIED);
+                return;
+            }
+            // 其他线程正在复制或读取该页
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * captured words of a page, each page can be read once
+     * @param page page
+     * @param words buffer of at least the page words
+     * @return {@link Long[]} words
+     */
+    long[] capturedPage(int page, long[] words) {
+        while (true) {
+            int state = (int) STATES.getAcquire(states, page);
+            if (state == COPIED) {
+                System.arraycopy(copies[page], 0, words, 0, pageWords(page));
+                copies[page] = null;
+                STATES.setRelease(states, page, RELEASED);
+                return words;
+            }
+            if (state == UNTOUCHED && STATES.compareAndSet(states, page, UNTOUCHED, READING)) {
+                readPage(page, words);
+                STATES.setRelease(states, page, DONE);
+                return words;
+            }
+            if (state >= DONE) {
+                throw new IllegalStateException("page " + page + " was already read");
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * mark the pages a writer of the epoch copied, i.e. changed after the capture
+     * @param dirtyPages dirty pages of the bitmap
+     */
+    void markChangedPages(DirtyPageTracker dirtyPages) {
+        for (int page = 0; page < states.length; page++) {
+            int state = (int) STATES.getAcquire(states, page);
+            if (state == COPIED || state == RELEASED) {
+                dirtyPages.markWord((long) page << DirtyPageTracker.PAGE_WORDS_SHIFT);
+            }
+        }
+    }
+
+    /**
+     * read a page of the live bitmap
+     * @param page page
+     * @param words buffer
+     * @return {@link Long[]} words
+     */
+    private long[] readPage(int page, long[] words) {
+        long from = (long) page << DirtyPageTracker.PAGE_WORDS_SHIFT;
+        int count = pageWords(page);
+        for (int i = 0; i < count; i++) {
+            words[i] = bitStore.getWord(from + i);
+        }
+        return words;
+    }
+
+    /**
+     * words of a page, the last page may be shorter
+     * @param page page
+     * @return {@link Integer}
+     */
+    private int pageWords(int page) {
+        long from = (long) page << DirtyPageTracker.PAGE_WORDS_SHIFT;
+        return (int) Math.min(DirtyPageTracker.PAGE_WORDS, bitStore.wordCount() - from);
+    }
+
+    /**
+     * read-only view of the captured image for a single reader, pages are released as it moves on
+     * @return {@link BitStore}
+     */
+    BitStore view() {
+        return new BitStore() {
+            private final long[] page = new long[DirtyPageTracker.PAGE_WORDS];
+            private long current = -1;
+
+            @Override
+            public long wordCount() {
+                return bitStore.wordCount();
+            }
+
+            @Override
+            public long getWord(long index) {
+                long pageIndex = index >>> DirtyPageTracker.PAGE_WORDS_SHIFT;
+                if (pageIndex != current) {
+                    capturedPage((int) pageIndex, page);
+                    current = pageIndex;
+                }
+                return page[(int) (index & (DirtyPageTracker.PAGE_WORDS - 1))];
+            }
+
+            @Override
+            public void setWord(long index, long value) {
+                throw new UnsupportedOperationException("snapshot is read only");
+            }
+
+            @Override
+            public boolean orWord(long index, long mask) {
+                throw new UnsupportedOperationException("snapshot is read only");
+            }
+
+            @Override
+            public boolean compareAndSetWord(long index, long expected, long value) {
+                throw new UnsupportedOperationException("snapshot is read only");
+            }
+        };
+    }
+}
@@ -0,0 +1,599 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.bean.ScalableInformation;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static io.github.dalowed.constants.CommonConstants.SCALABLE_FILE_NAME;
+
+/**
+ * bloomfilter that grows past its expected insertions. Elements go to the newest sub filter, once
+ * it holds its expected insertions a sub filter growthFactor times larger is added whose false
+ * positive probability is tighteningRatio times smaller, so the sum over all sub filters stays
+ * below the configured false positive probability:
+ * <pre>
+ * capacity(i) = expectedInsertions * growthFactor^i
+ * fpp(i)      = falsePositiveProbability * (1 - tighteningRatio) * tighteningRatio^i
+ * </pre>
+ * Memory follows the number of elements instead of a worst case guess, a lookup checks every sub
+ * filter. Sub filter i is stored in the sub directory i, next to the scalable.txt manifest
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class ScalableBloomFilter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ScalableBloomFilter.class);
+
+    /**
+     * "BLMG", snapshots use "BLMS"
+     */
+    public static final int MAGIC = 0x424C4D47;
+    /**
+     * current stream format version
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 40;
+
+    private final String name; // 过滤器名称
+    private final Path directory; // 清单和子过滤器目录所在目录
+    private final FilterProperties properties; // 子过滤器的存储、哈希和持久化配置
+    private final long initialCapacity; // 第一个子过滤器的期望插入数
+    private final double falsePositiveProbability; // 总容错率
+    private final int growthFactor; // 容量倍数
+    private final double tighteningRatio; // 容错率比例
+    private volatile BloomFilter[] filters; // 子过滤器, 扩容时整体替换
+
+    /**
+     * Init ScalableBloomFilter
+     * @param name filter name
+     * @param directory directory of the manifest and the sub filters
+     * @param properties configuration of the sub filters
+     * @param information sizing of the filter
+     * @param filters existing sub filters, the first one is created when empty
+     */
+    private ScalableBloomFilter(String name, Path directory, FilterProperties properties, ScalableInformation information, List<BloomFilter> filters) {
+        if (information.getGrowthFactor() < 1) {
+            throw new IllegalArgumentException("growthFactor must be at least 1, growthFactor:" + information.getGrowthFactor());
+        }
+        if (!(information.getTighteningRatio() > 0 && information.getTighteningRatio() < 1)) {
+            throw new IllegalArgumentException("tighteningRatio must be between 0 and 1, tighteningRatio:" + information.getTighteningRatio());
+        }
+        this.name = name;
+        this.directory = directory;
+        this.properties = properties;
+        this.initialCapacity = information.getInitialCapacity();
+        this.falsePositiveProbability = information.getFalsePositiveProbability();
+        this.growthFactor = information.getGrowthFactor();
+        this.tighteningRatio = information.getTighteningRatio();
+        this.filters = filters.toArray(new BloomFilter[0]);
+        if (this.filters.length == 0) {
+            this.filters = new BloomFilter[]{newFilter(0, initialCapacity, false)};
+        }
+    }
+
+    /**
+     * create or recover a filter
+     * @param name filter name
+     * @param directory directory of the manifest and the sub filters
+     * @param properties bloomfilter configuration
+     * @return {@link ScalableBloomFilter}
+     */
+    static ScalableBloomFilter create(String name, Path directory, FilterProperties properties) {
+        if (!properties.isRecovery()) {
+            return new ScalableBloomFilter(name, directory, properties, informationOf(properties), List.of());
+        }
+        ScalableInformation information = BloomFilterInfoUtils.getScalableInfo(directory.resolve(SCALABLE_FILE_NAME));
+        // 清单之后创建的子过滤器没有保存, 其插入日志也不再重放
+        List<BloomFilter> recovered = new ArrayList<>();
+        try {
+            for (int i = 0; i < information.getFilterCount(); i++) {
+                recovered.add(BloomFilter.create(name + "-" + i, directory.resolve(String.valueOf(i)), propertiesOf(properties, directory, i, 0, 0, true)));
+            }
+        } catch (RuntimeException e) {
+            recovered.forEach(BloomFilter::close);
+            throw e;
+        }
+        ScalableBloomFilter scalable = new ScalableBloomFilter(name, directory, properties, information, recovered);
+        log.info("恢复可扩容过滤器 {}: 子过滤器数:{}, 元素数:{}", name, recovered.size(), scalable.getElementCount());
+        return scalable;
+    }
+
+    /**
+     * read a filter streamed by {@link #writeTo(WritableByteChannel)}. The channel is read up to the
+     * end of the last sub filter and is not closed
+     * @param channel channel at the start of the filter
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings of the sub filters
+     * @return {@link ScalableBloomFilter}
+     */
+    public static ScalableBloomFilter readFrom(ReadableByteChannel channel, String name, FilterProperties properties) {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try {
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new EOFException("scalable bloomfilter is truncated");
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("read scalable bloomfilter " + name + " failed", e);
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a scalable bloomfilter stream");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported scalable bloomfilter version: " + version);
+        }
+        ScalableInformation information = new ScalableInformation();
+        information.setFilterCount(header.getInt());
+        information.setInitialCapacity(header.getLong());
+        information.setFalsePositiveProbability(header.getDouble());
+        information.setGrowthFactor(header.getInt());
+        information.setTighteningRatio(header.getDouble());
+        if (information.getFilterCount() < 1) {
+            throw new IllegalArgumentException("scalable bloomfilter without sub filters");
+        }
+
+        Path directory = BloomFilterRegistry.directoryOf(name, properties);
+        List<BloomFilter> read = new ArrayList<>();
+        try {
+            for (int i = 0; i < information.getFilterCount(); i++) {
+                read.add(BloomFilter.readFrom(channel, name + "-" + i, propertiesOf(properties, directory, i, 0, 0, false)));
+            }
+        } catch (RuntimeException e) {
+            read.forEach(BloomFilter::close);
+            throw e;
+        }
+        return new ScalableBloomFilter(name, directory, properties, information, read);
+    }
+
+    /**
+     * read a filter from a stream, a file stream is read through its channel
+     * @param in stream at the start of the filter, not closed
+     * @param name filter name
+     * @param properties storage, concurrency, checkpoint and journal settings of the sub filters
+     * @return {@link ScalableBloomFilter}
+     */
+    public static ScalableBloomFilter readFrom(InputStream in, String name, FilterProperties properties) {
+        return readFrom(in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : Channels.newChannel(in), name, properties);
+    }
+
+    /**
+     * sizing of a new filter
+     * @param properties bloomfilter configuration
+     * @return {@link ScalableInformation}
+     */
+    private static ScalableInformation informationOf(FilterProperties properties) {
+        ScalableInformation information = new ScalableInformation();
+        information.setInitialCapacity(properties.getExpectedInsertions());
+        information.setFalsePositiveProbability(properties.getFalsePositiveProbability());
+        information.setGrowthFactor(properties.getGrowthFactor());
+        information.setTighteningRatio(properties.getTighteningRatio());
+        return information;
+    }
+
+    /**
+     * configuration of a sub filter
+     * @param properties bloomfilter configuration
+     * @param directory directory of the manifest and the sub filters
+     * @param index sub filter index
+     * @param capacity expected insertions of a new sub filter
+     * @param fpp false positive probability of a new sub filter
+     * @param recovery whether the sub filter is recovered
+     * @return {@link FilterProperties}
+     */
+    private static FilterProperties propertiesOf(FilterProperties properties, Path directory, int index, long capacity, double fpp, boolean recovery) {
+        FilterProperties sub = new FilterProperties();
+        BeanUtils.copyProperties(properties, sub);
+        sub.setExpectedInsertions(capacity);
+        sub.setFalsePositiveProbability(fpp);
+        sub.setRecovery(recovery);
+        sub.setScalable(false);
+        sub.setDirectory(directory.resolve(String.valueOf(index)).toString());
+        return sub;
+    }
+
+    /**
+     * create a sub filter
+     * @param index sub filter index
+     * @param capacity expected insertions
+     * @param persist whether the sub filter and the manifest are saved at once
+     * @return {@link BloomFilter}
+     */
+    private BloomFilter newFilter(int index, long capacity, boolean persist) {
+        double fpp = falsePositiveProbability * (1 - tighteningRatio) * Math.pow(tighteningRatio, index);
+        BloomFilter bloomFilter = BloomFilter.create(name + "-" + index, directory.resolve(String.valueOf(index)),
+                propertiesOf(properties, directory, index, capacity, fpp, false));
+        if (persist && !bloomFilter.checkpoint()) {
+            log.warn("save sub filter {} of {} failed", index, name);
+        }
+        return bloomFilter;
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained or is rejected by the key policy
+     */
+    public boolean add(String element) {
+        return add((CharSequence) element);
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained or is rejected by the key policy
+     */
+    public boolean add(CharSequence element) {
+        return add(bloomFilter -> bloomFilter.isContain(element), bloomFilter -> bloomFilter.add(element));
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained
+     */
+    public boolean add(long element) {
+        return add(bloomFilter -> bloomFilter.isContain(element), bloomFilter -> bloomFilter.add(element));
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained
+     */
+    public boolean add(int element) {
+        return add(bloomFilter -> bloomFilter.isContain(element), bloomFilter -> bloomFilter.add(element));
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained
+     */
+    public boolean add(UUID element) {
+        return add(bloomFilter -> bloomFilter.isContain(element), bloomFilter -> bloomFilter.add(element));
+    }
+
+    /**
+     * add element to bloomfilter
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained or is rejected by the key policy
+     */
+    public boolean add(byte[] element) {
+        return add(element, 0, element.length);
+    }
+
+    /**
+     * add a byte range to bloomfilter
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if it may already be contained or is rejected by the key policy
+     */
+    public boolean add(byte[] element, int offset, int length) {
+        return add(bloomFilter -> bloomFilter.isContain(element, offset, length), bloomFilter -> bloomFilter.add(element, offset, length));
+    }
+
+    /**
+     * add the remaining bytes of a buffer to bloomfilter, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if it may already be contained or is rejected by the key policy
+     */
+    public boolean add(ByteBuffer element) {
+        return add(bloomFilter -> bloomFilter.isContain(element), bloomFilter -> bloomFilter.add(element));
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(String element) {
+        return isContain((CharSequence) element);
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(CharSequence element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(long element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(int element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(UUID element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element exists
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element) {
+        return isContain(element, 0, element.length);
+    }
+
+    /**
+     * check if a byte range exists
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element, int offset, int length) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element, offset, length));
+    }
+
+    /**
+     * check if the remaining bytes of a buffer exist, its position is not changed
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(ByteBuffer element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * add an element that is not contained yet to the newest sub filter, duplicates do not fill it
+     * @param contains lookup in a sub filter
+     * @param adder add to a sub filter
+     * @return {@link Boolean}
+     */
+    private boolean add(Predicate<BloomFilter> contains, Predicate<BloomFilter> adder) {
+        BloomFilter[] current = filters;
+        // 新的子过滤器元素最多, 从后往前查找
+        for (int i = current.length - 1; i >= 0; i--) {
+            if (contains.test(current[i])) {
+                return false;
+            }
+        }
+        BloomFilter last = current[current.length - 1];
+        if (!adder.test(last)) {
+            return false;
+        }
+        if (last.getElementCount() >= last.getExpectedInsertions()) {
+            grow(current.length);
+        }
+        return true;
+    }
+
+    /**
+     * check every sub filter
+     * @param contains lookup in a sub filter
+     * @return {@link Boolean}
+     */
+    private boolean isContain(Predicate<BloomFilter> contains) {
+        BloomFilter[] current = filters;
+        for (int i = current.length - 1; i >= 0; i--) {
+            if (contains.test(current[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * add the next sub filter once the newest one is full, only the first caller grows
+     * @param count number of sub filters seen by the caller
+     */
+    private synchronized void grow(int count) {
+        BloomFilter[] current = filters;
+        if (current.length != count) {
+            return;
+        }
+        long capacity;
+        try {
+            capacity = Math.multiplyExact(current[count - 1].getExpectedInsertions(), (long) growthFactor);
+        } catch (ArithmeticException e) {
+            throw new IllegalStateException("scalable bloomfilter " + name + " can not grow past " + count + " sub filters");
+        }
+        // 开启插入日志时立即保存新的子过滤器和清单, 否则恢复时找不到其插入日志
+        boolean persist = properties.isJournal();
+        BloomFilter[] grown = Arrays.copyOf(current, count + 1);
+        grown[count] = newFilter(count, capacity, persist);
+        filters = grown;
+        if (persist) {
+            BloomFilterInfoUtils.generatorScalableInfo(this, "grow");
+        }
+        if (log.isInfoEnabled()) {
+            log.info("可扩容过滤器 {} 扩容: 子过滤器数:{}, 预计过滤数:{}, 误判率:{}", name, grown.length, capacity, grown[count].getFalsePositiveProbability());
+        }
+    }
+
+    /**
+     * estimated false positive probability of the current sub filters, at most the configured one
+     * @return {@link Double}
+     */
+    public double getEstimatedFalsePositiveProbability() {
+        double miss = 1;
+        for (BloomFilter bloomFilter : filters) {
+            miss *= 1 - bloomFilter.getFalsePositiveProbability();
+        }
+        return 1 - miss;
+    }
+
+    /**
+     * checkpoint every sub filter, then write the manifest
+     * @return {@link Boolean}
+     */
+    public synchronized boolean checkpoint() {
+        boolean written = true;
+        for (BloomFilter bloomFilter : filters) {
+            written &= bloomFilter.checkpoint();
+        }
+        return written && BloomFilterInfoUtils.generatorScalableInfo(this, "checkpoint");
+    }
+
+    /**
+     * stream the filter, a header followed by a consistent snapshot of each sub filter
+     * @param channel channel, not closed
+     */
+    public void writeTo(WritableByteChannel channel) {
+        BloomFilter[] current = filters;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(current.length)
+                .putLong(initialCapacity)
+                .putDouble(falsePositiveProbability)
+                .putInt(growthFactor)
+                .putDouble(tighteningRatio)
+                .flip();
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("write scalable bloomfilter " + name + " failed", e);
+        }
+        for (BloomFilter bloomFilter : current) {
+            bloomFilter.writeTo(channel);
+        }
+    }
+
+    /**
+     * stream the filter, a file stream is written through its channel
+     * @param out stream, not closed
+     */
+    public void writeTo(OutputStream out) {
+        writeTo(out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out));
+    }
+
+    /**
+     * close the insert journals of the sub filters
+     */
+    @Override
+    public void close() {
+        for (BloomFilter bloomFilter : filters) {
+            bloomFilter.close();
+        }
+    }
+
+    /**
+     * number of distinct elements added, elements that were possibly contained are not counted
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        long count = 0;
+        for (BloomFilter bloomFilter : filters) {
+            count += bloomFilter.getElementCount();
+        }
+        return count;
+    }
+
+    /**
+     * total bitmap size of the sub filters
+     * @return {@link Long}
+     */
+    public long getSize() {
+        long size = 0;
+        for (BloomFilter bloomFilter : filters) {
+            size += bloomFilter.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * sub filters, oldest first
+     * @return {@link List<BloomFilter>}
+     */
+    public List<BloomFilter> getFilters() {
+        return List.of(filters);
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * getDirectory
+     * @return {@link Path}
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * expected insertions of the first sub filter
+     * @return {@link Long}
+     */
+    public long getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    /**
+     * bound of the false positive probability over all sub filters
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * getGrowthFactor
+     * @return {@link Integer}
+     */
+    public int getGrowthFactor() {
+        return growthFactor;
+    }
+
+    /**
+     * getTighteningRatio
+     * @return {@link Double}
+     */
+    public double getTighteningRatio() {
+        return tighteningRatio;
+    }
+}
@@ -0,0 +1,620 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.bean.ShardInformation;
+import io.github.dalowed.bean.ShardStatistics;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.ElementHasher;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+import static io.github.dalowed.constants.CommonConstants.SHARDS_FILE_NAME;
+
+/**
+ * bloomfilter split into shards, each a sub filter with its own bitmap, files and insert journal.
+ * The shards share the hash seed, key and salt, an element is hashed once and routed by the high
+ * bits of h1 (fast-range) to exactly one shard, which gets the low bits of the same product as its
+ * h1, so a lookup hashes once, reads one shard and the false positive probability is the one of a shard:
+ * <pre>
+ * capacity(shard) = expectedInsertions / shards
+ * fpp(shard)      = falsePositiveProbability
+ * </pre>
+ * Creating, recovering and checkpointing run one task per shard on the common ForkJoinPool, and
+ * {@link #addAll(long[])} routes the elements first and then fills every shard on its own thread,
+ * so rebuilds and recovery scale with the cores instead of one huge bitmap being written by one
+ * thread. Shard i is stored in the sub directory i, next to the shards.txt manifest
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class ShardedBloomFilter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardedBloomFilter.class);
+
+    // h1, h2 缓冲区, 避免每次调用分配
+    private static final ThreadLocal<long[]> HASH_BUFFER = ThreadLocal.withInitial(() -> new long[2]);
+
+    private final String name; // 过滤器名称
+    private final Path directory; // 清单和分片目录所在目录
+    private final long expectedInsertions; // 所有分片的期望插入数
+    private final double falsePositiveProbability; // 容错率
+    private final ElementHasher hasher; // 各分片共用的哈希, 每个元素只计算一次
+    private final boolean trimKeys; // 是否去除字符元素首尾空白
+    private final boolean rejectEmptyKeys; // 是否拒绝空元素
+    private final BloomFilter[] shards; // 分片
+
+    /**
+     * Init ShardedBloomFilter
+     * @param name filter name
+     * @param directory directory of the manifest and the shards
+     * @param properties key settings
+     * @param information sizing of the filter
+     * @param shards shards
+     */
+    private ShardedBloomFilter(String name, Path directory, FilterProperties properties, ShardInformation information, BloomFilter[] shards) {
+        this.name = name;
+        this.directory = directory;
+        this.expectedInsertions = information.getExpectedInsertions();
+        this.falsePositiveProbability = information.getFalsePositiveProbability();
+        this.hasher = shards[0].getHasher();
+        this.trimKeys = properties.isTrimKeys();
+        this.rejectEmptyKeys = properties.isRejectEmptyKeys();
+        this.shards = shards;
+    }
+
+    /**
+     * create or recover a filter, the shards in parallel
+     * @param name filter name
+     * @param directory directory of the manifest and the shards
+     * @param properties bloomfilter configuration
+     * @return {@link ShardedBloomFilter}
+     */
+    static ShardedBloomFilter create(String name, Path directory, FilterProperties properties) {
+        ShardInformation information = properties.isRecovery()
+                ? BloomFilterInfoUtils.getShardInfo(directory.resolve(SHARDS_FILE_NAME)) : informationOf(properties);
+        int shardCount = information.getShardCount();
+        if (shardCount < 2) {
+            throw new IllegalArgumentException("shards must be at least 2, shards:" + shardCount);
+        }
+        if (information.getExpectedInsertions() <= 0) {
+            throw new IllegalArgumentException("expectedInsertions number must be greater than zero, insert value:" + information.getExpectedInsertions());
+        }
+        long start = System.nanoTime();
+        FilterProperties hashing = hashingOf(properties);
+        BloomFilter[] shards = inParallel(shardCount, i -> BloomFilter.create(name + "-" + i, directory.resolve(String.valueOf(i)),
+                propertiesOf(hashing, directory, i, information)));
+        checkHashing(name, shards);
+        ShardedBloomFilter sharded = new ShardedBloomFilter(name, directory, properties, information, shards);
+        log.info("{}分片过滤器 {}: 分片数:{}, 元素数:{}, 耗时:{}ms", properties.isRecovery() ? "恢复" : "创建", name, shardCount,
+                sharded.getElementCount(), (System.nanoTime() - start) / 1_000_000);
+        return sharded;
+    }
+
+    /**
+     * create the shards, one task per shard on the common ForkJoinPool; the created ones are closed
+     * if one fails
+     * @param shardCount number of shards
+     * @param factory creates shard i
+     * @return {@link BloomFilter[]}
+     */
+    private static BloomFilter[] inParallel(int shardCount, IntFunction<BloomFilter> factory) {
+        BloomFilter[] shards = new BloomFilter[shardCount];
+        try {
+            IntStream.range(0, shardCount).parallel().forEach(i -> shards[i] = factory.apply(i));
+        } catch (RuntimeException e) {
+            Arrays.stream(shards).filter(Objects::nonNull).forEach(BloomFilter::close);
+            throw e;
+        }
+        return shards;
+    }
+
+    /**
+     * check that the shards share the hashing, the filter hashes an element once for all of them
+     * @param name filter name
+     * @param shards shards, closed if the hashing differs
+     */
+    private static void checkHashing(String name, BloomFilter[] shards) {
+        for (int i = 1; i < shards.length; i++) {
+            String mismatch = shards[0].hashingMismatchOf(shards[i]);
+            if (mismatch != null) {
+                Arrays.stream(shards).forEach(BloomFilter::close);
+                throw new IllegalStateException("shards of " + name + " must share the hashing, " + mismatch + " of shard " + i + " differs");
+            }
+        }
+    }
+
+    /**
+     * sizing of a new filter
+     * @param properties bloomfilter configuration
+     * @return {@link ShardInformation}
+     */
+    private static ShardInformation informationOf(FilterProperties properties) {
+        ShardInformation information = new ShardInformation();
+        information.setShardCount(properties.getShards());
+        information.setExpectedInsertions(properties.getExpectedInsertions());
+        information.setFalsePositiveProbability(properties.getFalsePositiveProbability());
+        return information;
+    }
+
+    /**
+     * configuration with the hash seed, key and salt of a new filter fixed, so the shards share them;
+     * recovered shards read their own
+     * @param properties bloomfilter configuration
+     * @return {@link FilterProperties}
+     */
+    private static FilterProperties hashingOf(FilterProperties properties) {
+        if (properties.isRecovery()) {
+            return properties;
+        }
+        FilterProperties hashing = new FilterProperties();
+        BeanUtils.copyProperties(properties, hashing);
+        hashing.setHashSeed(BloomFilter.hashSeedOf(properties));
+        hashing.setHashKey(BloomFilter.hashKeyOf(properties));
+        hashing.setHashSalt(BloomFilter.saltOf(properties));
+        return hashing;
+    }
+
+    /**
+     * configuration of a shard
+     * @param properties bloomfilter configuration
+     * @param directory directory of the manifest and the shards
+     * @param index shard index
+     * @param information sizing of the filter
+     * @return {@link FilterProperties}
+     */
+    private static FilterProperties propertiesOf(FilterProperties properties, Path directory, int index, ShardInformation information) {
+        FilterProperties shard = new FilterProperties();
+        BeanUtils.copyProperties(properties, shard);
+        int shardCount = information.getShardCount();
+        shard.setExpectedInsertions((information.getExpectedInsertions() + shardCount - 1) / shardCount);
+        shard.setFalsePositiveProbability(information.getFalsePositiveProbability());
+        shard.setShards(1);
+        shard.setDirectory(directory.resolve(String.valueOf(index)).toString());
+        return shard;
+    }
+
+    /**
+     * add element to its shard
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(String element) {
+        return add((CharSequence) element);
+    }
+
+    /**
+     * add element to its shard
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(CharSequence element) {
+        long[] hashes = HASH_BUFFER.get();
+        int shard = hashChars(element, hashes);
+        if (shard < 0) {
+            return false;
+        }
+        shards[shard].addHashes(hashes);
+        return true;
+    }
+
+    /**
+     * add element to its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean add(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        shards[route(hashes)].addHashes(hashes);
+        return true;
+    }
+
+    /**
+     * add element to its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean add(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        shards[route(hashes)].addHashes(hashes);
+        return true;
+    }
+
+    /**
+     * add element to its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean add(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        shards[route(hashes)].addHashes(hashes);
+        return true;
+    }
+
+    /**
+     * add element to its shard
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(byte[] element) {
+        return add(element, 0, element.length);
+    }
+
+    /**
+     * add a byte range to its shard
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(byte[] element, int offset, int length) {
+        long[] hashes = HASH_BUFFER.get();
+        int shard = hashBytes(element, offset, length, hashes);
+        if (shard < 0) {
+            return false;
+        }
+        shards[shard].addHashes(hashes);
+        return true;
+    }
+
+    /**
+     * add the remaining bytes of a buffer to its shard, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(ByteBuffer element) {
+        long[] hashes = HASH_BUFFER.get();
+        int shard = hashBuffer(element, hashes);
+        if (shard < 0) {
+            return false;
+        }
+        shards[shard].addHashes(hashes);
+        return true;
+    }
+
+    /**
+     * hash and route the elements in parallel, then add every shard's elements on its own thread
+     * @param elements elements
+     * @return {@link Integer} number of elements added
+     */
+    public int addAll(long[] elements) {
+        long[] h1 = new long[elements.length];
+        long[] h2 = new long[elements.length];
+        int[] routes = new int[elements.length];
+        IntStream.range(0, elements.length).parallel().forEach(i -> {
+            long[] hashes = HASH_BUFFER.get();
+            hasher.hashLong(elements[i], hashes);
+            routes[i] = route(hashes);
+            h1[i] = hashes[0];
+            h2[i] = hashes[1];
+        });
+        return addAllHashes(h1, h2, routes);
+    }
+
+    /**
+     * hash and route the elements in parallel, then add every shard's elements on its own thread
+     * @param elements elements
+     * @return {@link Integer} number of elements added, elements rejected by the key policy are skipped
+     */
+    public int addAll(Collection<? extends CharSequence> elements) {
+        CharSequence[] array = elements.toArray(new CharSequence[0]);
+        long[] h1 = new long[array.length];
+        long[] h2 = new long[array.length];
+        int[] routes = new int[array.length];
+        IntStream.range(0, array.length).parallel().forEach(i -> {
+            long[] hashes = HASH_BUFFER.get();
+            routes[i] = hashChars(array[i], hashes);
+            h1[i] = hashes[0];
+            h2[i] = hashes[1];
+        });
+        return addAllHashes(h1, h2, routes);
+    }
+
+    /**
+     * group the hashes by shard (counting sort), then add every shard's hashes on its own thread
+     * @param h1 h1 of each element, remapped by {@link #route(long[])}
+     * @param h2 h2 of each element
+     * @param routes shard of each element, -1 if rejected
+     * @return {@link Integer} number of elements added
+     */
+    private int addAllHashes(long[] h1, long[] h2, int[] routes) {
+        int[] offsets = offsets(routes);
+        long[] routedH1 = new long[offsets[shards.length]];
+        long[] routedH2 = new long[routedH1.length];
+        int[] next = Arrays.copyOf(offsets, shards.length);
+        for (int i = 0; i < routes.length; i++) {
+            if (routes[i] >= 0) {
+                int position = next[routes[i]]++;
+                routedH1[position] = h1[i];
+                routedH2[position] = h2[i];
+            }
+        }
+        return IntStream.range(0, shards.length).parallel()
+                .map(shard -> shards[shard].addAllHashes(routedH1, routedH2, offsets[shard], offsets[shard + 1]))
+                .sum();
+    }
+
+    /**
+     * start offset of every shard's elements in routing order, counting sort
+     * @param routes shard of every element, -1 if rejected
+     * @return {@link Integer[]} shards + 1 offsets
+     */
+    private int[] offsets(int[] routes) {
+        int[] offsets = new int[shards.length + 1];
+        for (int route : routes) {
+            if (route >= 0) {
+                offsets[route + 1]++;
+            }
+        }
+        for (int shard = 0; shard < shards.length; shard++) {
+            offsets[shard + 1] += offsets[shard];
+        }
+        return offsets;
+    }
+
+    /**
+     * check if element exists in its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(String element) {
+        return isContain((CharSequence) element);
+    }
+
+    /**
+     * check if element exists in its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(CharSequence element) {
+        long[] hashes = HASH_BUFFER.get();
+        int shard = hashChars(element, hashes);
+        return shard >= 0 && shards[shard].containsHashes(hashes);
+    }
+
+    /**
+     * check if element exists in its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(long element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLong(element, hashes);
+        return shards[route(hashes)].containsHashes(hashes);
+    }
+
+    /**
+     * check if element exists in its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(int element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashInt(element, hashes);
+        return shards[route(hashes)].containsHashes(hashes);
+    }
+
+    /**
+     * check if element exists in its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(UUID element) {
+        long[] hashes = HASH_BUFFER.get();
+        hasher.hashLongs(element.getMostSignificantBits(), element.getLeastSignificantBits(), hashes);
+        return shards[route(hashes)].containsHashes(hashes);
+    }
+
+    /**
+     * check if element exists in its shard
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element) {
+        return isContain(element, 0, element.length);
+    }
+
+    /**
+     * check if a byte range exists in its shard
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element, int offset, int length) {
+        long[] hashes = HASH_BUFFER.get();
+        int shard = hashBytes(element, offset, length, hashes);
+        return shard >= 0 && shards[shard].containsHashes(hashes);
+    }
+
+    /**
+     * check if the remaining bytes of a buffer exist in its shard, its position is not changed
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(ByteBuffer element) {
+        long[] hashes = HASH_BUFFER.get();
+        int shard = hashBuffer(element, hashes);
+        return shard >= 0 && shards[shard].containsHashes(hashes);
+    }
+
+    /**
+     * shard of a hashed element, taken from the high bits of h1 (fast-range); h1 is replaced by the
+     * low bits of the same product, so the bit positions in the shard do not depend on the route
+     * @param hashes h1, h2
+     * @return {@link Integer}
+     */
+    private int route(long[] hashes) {
+        long h1 = hashes[0];
+        hashes[0] = h1 * shards.length;
+        return (int) BitAddressing.fastRange(h1, shards.length);
+    }
+
+    /**
+     * hash and route a char sequence after the key policy
+     * @param element element
+     * @param hashes receives h1, h2
+     * @return {@link Integer} shard, -1 if rejected
+     */
+    private int hashChars(CharSequence element, long[] hashes) {
+        int start = trimKeys ? BloomFilter.keyStart(element) : 0;
+        int end = trimKeys ? BloomFilter.keyEnd(element, start) : element.length();
+        if (rejectEmptyKeys && start == end) {
+            return -1;
+        }
+        hasher.hashChars(element, start, end, hashes);
+        return route(hashes);
+    }
+
+    /**
+     * hash and route a byte range after the key policy
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @param hashes receives h1, h2
+     * @return {@link Integer} shard, -1 if rejected
+     */
+    private int hashBytes(byte[] element, int offset, int length, long[] hashes) {
+        Objects.checkFromIndexSize(offset, length, element.length);
+        if (rejectEmptyKeys && length == 0) {
+            return -1;
+        }
+        hasher.hashBytes(element, offset, length, hashes);
+        return route(hashes);
+    }
+
+    /**
+     * hash and route the remaining bytes of a buffer after the key policy
+     * @param element element
+     * @param hashes receives h1, h2
+     * @return {@link Integer} shard, -1 if rejected
+     */
+    private int hashBuffer(ByteBuffer element, long[] hashes) {
+        if (rejectEmptyKeys && !element.hasRemaining()) {
+            return -1;
+        }
+        hasher.hashBuffer(element, hashes);
+        return route(hashes);
+    }
+
+    /**
+     * checkpoint the shards in parallel, then write the manifest
+     * @return {@link Boolean}
+     */
+    public synchronized boolean checkpoint() {
+        long failed = IntStream.range(0, shards.length).parallel().filter(shard -> !shards[shard].checkpoint()).count();
+        if (failed > 0) {
+            log.warn("checkpoint of {} shards of {} failed", failed, name);
+            return false;
+        }
+        return BloomFilterInfoUtils.generatorShardInfo(this, "checkpoint");
+    }
+
+    /**
+     * close the insert journals of the shards
+     */
+    @Override
+    public void close() {
+        for (BloomFilter shard : shards) {
+            shard.close();
+        }
+    }
+
+    /**
+     * fill statistics of every shard, each bitmap is read in parallel. The false positive
+     * probability is estimated as fillRatio^hashFunctions, exact for the STANDARD layout
+     * @return {@link List<ShardStatistics>}
+     */
+    public List<ShardStatistics> getShardStatistics() {
+        return IntStream.range(0, shards.length).parallel().mapToObj(index -> {
+            BloomFilter shard = shards[index];
+            double fillRatio = shard.getFillRatio();
+            ShardStatistics statistics = new ShardStatistics();
+            statistics.setName(shard.getName());
+            statistics.setIndex(index);
+            statistics.setExpectedInsertions(shard.getExpectedInsertions());
+            statistics.setElementCount(shard.getElementCount());
+            statistics.setSize(shard.getSize());
+            statistics.setFillRatio(fillRatio);
+            statistics.setEstimatedFalsePositiveProbability(Math.pow(fillRatio, shard.getHashFunctions()));
+            return statistics;
+        }).toList();
+    }
+
+    /**
+     * number of elements added to all shards
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        long count = 0;
+        for (BloomFilter shard : shards) {
+            count += shard.getElementCount();
+        }
+        return count;
+    }
+
+    /**
+     * total bitmap size of the shards
+     * @return {@link Long}
+     */
+    public long getSize() {
+        long size = 0;
+        for (BloomFilter shard : shards) {
+            size += shard.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * shards, by index; a shard holds h1 remapped by the routing, query it through this filter
+     * @return {@link List<BloomFilter>}
+     */
+    public List<BloomFilter> getShards() {
+        return List.of(shards);
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * getDirectory
+     * @return {@link Path}
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * expected insertions of all shards
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * getFalsePositiveProbability
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+}
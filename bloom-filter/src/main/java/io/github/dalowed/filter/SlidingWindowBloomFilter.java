@@ -0,0 +1,613 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.bean.WindowInformation;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+import static io.github.dalowed.constants.CommonConstants.INFO_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.WINDOW_FILE_NAME;
+
+/**
+ * bloomfilter that forgets elements older than its window, e.g. to drop duplicate events within
+ * 24 hours. The window is cut into windowSlices time slices, each a sub filter sized for the
+ * elements of one slice; elements go to the newest slice and a lookup checks all of them. When a
+ * slice ends the oldest slice is dropped and an empty one becomes the newest, so memory and the
+ * false positive probability stay bounded however long the stream is:
+ * <pre>
+ * capacity(slice) = expectedInsertions / windowSlices
+ * fpp(slice)      = 1 - (1 - falsePositiveProbability)^(1 / (windowSlices + 1))
+ * </pre>
+ * windowSlices + 1 slices are kept, so an element is contained for at least the window and at
+ * most one slice longer. The empty slice is allocated before it replaces the oldest one, the swap
+ * itself is a single reference write. Slice g is stored in the sub directory g, next to the
+ * window.txt manifest
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class SlidingWindowBloomFilter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SlidingWindowBloomFilter.class);
+
+    private final String name; // 过滤器名称
+    private final Path directory; // 清单和时间片目录所在目录
+    private final FilterProperties properties; // 时间片的存储、哈希和持久化配置
+    private final Duration window; // 时间窗口
+    private final int slices; // 窗口内的时间片数
+    private final long sliceMillis; // 每个时间片的时长
+    private final long expectedInsertions; // 窗口内的期望插入数
+    private final double falsePositiveProbability; // 总容错率
+    private final ScheduledExecutorService rotator; // 按时间片轮转
+    private ScheduledFuture<?> schedule; // 定时轮转, 手动轮转后重新计时, 由 this 保护
+    private volatile BloomFilter[] filters; // 时间片, 最旧的在前, 轮转时整体替换
+    private long firstGeneration; // 最旧时间片的代数, 由 this 保护
+    private long rotatedAt; // 上次轮转时间(毫秒), 由 this 保护
+
+    /**
+     * Init SlidingWindowBloomFilter
+     * @param name filter name
+     * @param directory directory of the manifest and the slices
+     * @param properties configuration of the slices
+     * @param information window of the filter
+     * @param filters existing slices, oldest first, created when empty
+     */
+    private SlidingWindowBloomFilter(String name, Path directory, FilterProperties properties, WindowInformation information, List<BloomFilter> filters) {
+        if (information.getWindow() <= 0) {
+            throw new IllegalArgumentException("window must be greater than zero, window:" + information.getWindow() + "ms");
+        }
+        if (information.getSlices() < 1 || information.getWindow() / information.getSlices() < 1) {
+            throw new IllegalArgumentException("windowSlices must be between 1 and the window in milliseconds, windowSlices:" + information.getSlices());
+        }
+        if (information.getExpectedInsertions() <= 0) {
+            throw new IllegalArgumentException("expectedInsertions number must be greater than zero, insert value:" + information.getExpectedInsertions());
+        }
+        this.name = name;
+        this.directory = directory;
+        this.properties = properties;
+        this.window = Duration.ofMillis(information.getWindow());
+        this.slices = information.getSlices();
+        this.sliceMillis = information.getWindow() / slices;
+        this.expectedInsertions = information.getExpectedInsertions();
+        this.falsePositiveProbability = information.getFalsePositiveProbability();
+        this.firstGeneration = information.getFirstGeneration();
+        this.rotatedAt = information.getRotatedAt();
+        this.filters = filters.toArray(new BloomFilter[0]);
+        if (this.filters.length == 0) {
+            BloomFilter[] created = new BloomFilter[slices + 1];
+            for (int i = 0; i < created.length; i++) {
+                created[i] = newFilter(firstGeneration + i, false);
+            }
+            this.filters = created;
+        }
+        // 恢复时补上停机期间的轮转, 最多清空全部时间片
+        long elapsed = Math.max(0, System.currentTimeMillis() - rotatedAt);
+        long missed = Math.min(elapsed / sliceMillis, slices + 1);
+        rotatedAt += elapsed - elapsed % sliceMillis;
+        for (long i = 0; i < missed; i++) {
+            rotateSlice();
+        }
+        this.rotator = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bloom-filter-window-" + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.schedule = rotator.scheduleAtFixedRate(this::scheduledRotate, sliceMillis - elapsed % sliceMillis, sliceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * create or recover a filter
+     * @param name filter name
+     * @param directory directory of the manifest and the slices
+     * @param properties bloomfilter configuration
+     * @return {@link SlidingWindowBloomFilter}
+     */
+    static SlidingWindowBloomFilter create(String name, Path directory, FilterProperties properties) {
+        if (!properties.isRecovery()) {
+            return new SlidingWindowBloomFilter(name, directory, properties, informationOf(properties), List.of());
+        }
+        WindowInformation information = BloomFilterInfoUtils.getWindowInfo(directory.resolve(WINDOW_FILE_NAME));
+        List<BloomFilter> recovered = new ArrayList<>();
+        try {
+            for (int i = 0; i < information.getFilterCount(); i++) {
+                long generation = information.getFirstGeneration() + i;
+                // 清单之后轮转出的时间片没有保存, 重新创建
+                boolean saved = Files.exists(directory.resolve(String.valueOf(generation)).resolve(INFO_FILE_NAME));
+                recovered.add(BloomFilter.create(name + "-" + generation, directory.resolve(String.valueOf(generation)),
+                        propertiesOf(properties, directory, generation, information, saved)));
+            }
+        } catch (RuntimeException e) {
+            recovered.forEach(BloomFilter::close);
+            throw e;
+        }
+        SlidingWindowBloomFilter windowFilter = new SlidingWindowBloomFilter(name, directory, properties, information, recovered);
+        log.info("恢复滑动窗口过滤器 {}: 时间片数:{}, 元素数:{}", name, recovered.size(), windowFilter.getElementCount());
+        return windowFilter;
+    }
+
+    /**
+     * window of a new filter
+     * @param properties bloomfilter configuration
+     * @return {@link WindowInformation}
+     */
+    private static WindowInformation informationOf(FilterProperties properties) {
+        WindowInformation information = new WindowInformation();
+        information.setWindow(properties.getWindow().toMillis());
+        information.setSlices(properties.getWindowSlices());
+        information.setExpectedInsertions(properties.getExpectedInsertions());
+        information.setFalsePositiveProbability(properties.getFalsePositiveProbability());
+        information.setFilterCount(properties.getWindowSlices() + 1);
+        information.setRotatedAt(System.currentTimeMillis());
+        return information;
+    }
+
+    /**
+     * configuration of a slice
+     * @param properties bloomfilter configuration
+     * @param directory directory of the manifest and the slices
+     * @param generation slice generation
+     * @param information window of the filter
+     * @param recovery whether the slice is recovered
+     * @return {@link FilterProperties}
+     */
+    private static FilterProperties propertiesOf(FilterProperties properties, Path directory, long generation, WindowInformation information, boolean recovery) {
+        return propertiesOf(properties, directory, generation, information.getSlices(), information.getExpectedInsertions(),
+                information.getFalsePositiveProbability(), recovery);
+    }
+
+    /**
+     * configuration of a slice
+     * @param properties bloomfilter configuration
+     * @param directory directory of the manifest and the slices
+     * @param generation slice generation
+     * @param slices number of slices in the window
+     * @param expectedInsertions expected insertions within the window
+     * @param falsePositiveProbability bound of the false positive probability over all slices
+     * @param recovery whether the slice is recovered
+     * @return {@link FilterProperties}
+     */
+    private static FilterProperties propertiesOf(FilterProperties properties, Path directory, long generation, int slices,
+                                                 long expectedInsertions, double falsePositiveProbability, boolean recovery) {
+        FilterProperties slice = new FilterProperties();
+        BeanUtils.copyProperties(properties, slice);
+        slice.setExpectedInsertions((expectedInsertions + slices - 1) / slices);
+        // 查询检查 slices + 1 个时间片, 总误判率为 1 - (1 - p)^(slices + 1)
+        slice.setFalsePositiveProbability(-Math.expm1(Math.log1p(-falsePositiveProbability) / (slices + 1)));
+        slice.setRecovery(recovery);
+        slice.setScalable(false);
+        slice.setWindow(null);
+        slice.setDirectory(directory.resolve(String.valueOf(generation)).toString());
+        return slice;
+    }
+
+    /**
+     * create an empty slice
+     * @param generation slice generation
+     * @param persist whether the slice is saved at once
+     * @return {@link BloomFilter}
+     */
+    private BloomFilter newFilter(long generation, boolean persist) {
+        BloomFilter bloomFilter = BloomFilter.create(name + "-" + generation, directory.resolve(String.valueOf(generation)),
+                propertiesOf(properties, directory, generation, slices, expectedInsertions, falsePositiveProbability, false));
+        if (persist && !bloomFilter.checkpoint()) {
+            log.warn("save slice {} of {} failed", generation, name);
+        }
+        return bloomFilter;
+    }
+
+    /**
+     * add element to the newest slice
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(String element) {
+        return add((CharSequence) element);
+    }
+
+    /**
+     * add element to the newest slice
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(CharSequence element) {
+        return newest().add(element);
+    }
+
+    /**
+     * add element to the newest slice
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean add(long element) {
+        return newest().add(element);
+    }
+
+    /**
+     * add element to the newest slice
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean add(int element) {
+        return newest().add(element);
+    }
+
+    /**
+     * add element to the newest slice
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean add(UUID element) {
+        return newest().add(element);
+    }
+
+    /**
+     * add element to the newest slice
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(byte[] element) {
+        return add(element, 0, element.length);
+    }
+
+    /**
+     * add a byte range to the newest slice
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(byte[] element, int offset, int length) {
+        return newest().add(element, offset, length);
+    }
+
+    /**
+     * add the remaining bytes of a buffer to the newest slice, its position is not changed
+     * @param element element
+     * @return {@link Boolean} false if rejected by the key policy
+     */
+    public boolean add(ByteBuffer element) {
+        return newest().add(element);
+    }
+
+    /**
+     * check if element was added within the window
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(String element) {
+        return isContain((CharSequence) element);
+    }
+
+    /**
+     * check if element was added within the window
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(CharSequence element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element was added within the window
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(long element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element was added within the window
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(int element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element was added within the window
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(UUID element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * check if element was added within the window
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element) {
+        return isContain(element, 0, element.length);
+    }
+
+    /**
+     * check if a byte range was added within the window
+     * @param element element
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @return {@link Boolean}
+     */
+    public boolean isContain(byte[] element, int offset, int length) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element, offset, length));
+    }
+
+    /**
+     * check if the remaining bytes of a buffer were added within the window, its position is not changed
+     * @param element element
+     * @return {@link Boolean}
+     */
+    public boolean isContain(ByteBuffer element) {
+        return isContain(bloomFilter -> bloomFilter.isContain(element));
+    }
+
+    /**
+     * newest slice
+     * @return {@link BloomFilter}
+     */
+    private BloomFilter newest() {
+        BloomFilter[] current = filters;
+        return current[current.length - 1];
+    }
+
+    /**
+     * check every slice
+     * @param contains lookup in a slice
+     * @return {@link Boolean}
+     */
+    private boolean isContain(Predicate<BloomFilter> contains) {
+        BloomFilter[] current = filters;
+        // 重复元素多在最近的时间片, 从新往旧查找
+        for (int i = current.length - 1; i >= 0; i--) {
+            if (contains.test(current[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * rotation on the scheduler thread, errors are logged so later rotations still run
+     */
+    private void scheduledRotate() {
+        try {
+            synchronized (this) {
+                // 等锁期间被手动轮转重新计时, 本次不再轮转
+                if (System.currentTimeMillis() - rotatedAt < sliceMillis / 2) {
+                    return;
+                }
+                rotatedAt += sliceMillis;
+                rotateSlice();
+            }
+        } catch (RuntimeException e) {
+            log.error("sliding window bloomfilter {} rotation error: {}", name, e.getMessage());
+        }
+    }
+
+    /**
+     * drop the oldest slice and start an empty one now, the scheduler rotates again one slice
+     * duration later. An element added to the newest slice right before is still contained for
+     * the whole window
+     */
+    public synchronized void rotate() {
+        rotatedAt = System.currentTimeMillis();
+        rotateSlice();
+        // 新的时间片从此刻开始, 定时轮转重新计时, 恢复时也按此时间补轮转
+        if (schedule.cancel(false)) {
+            schedule = rotator.scheduleAtFixedRate(this::scheduledRotate, sliceMillis, sliceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * drop the oldest slice and start an empty one, called at the end of every slice once
+     * {@link #rotatedAt} is set
+     */
+    private synchronized void rotateSlice() {
+        BloomFilter[] current = filters;
+        long generation = firstGeneration + current.length;
+        // 开启插入日志时立即保存新的时间片, 否则恢复时找不到其插入日志
+        boolean persist = properties.isJournal();
+        BloomFilter[] rotated = Arrays.copyOfRange(current, 1, current.length + 1);
+        rotated[current.length - 1] = newFilter(generation, persist);
+        filters = rotated;
+        firstGeneration++;
+        // 已保存过的清单不能指向即将删除的时间片
+        if (persist || Files.exists(directory.resolve(WINDOW_FILE_NAME))) {
+            BloomFilterInfoUtils.generatorWindowInfo(this, "rotate");
+        }
+        BloomFilter dropped = current[0];
+        dropped.close();
+        delete(dropped.getDirectory());
+        if (log.isDebugEnabled()) {
+            log.debug("滑动窗口过滤器 {} 轮转: 丢弃时间片 {}, 元素数:{}", name, dropped.getName(), dropped.getElementCount());
+        }
+    }
+
+    /**
+     * delete the files of a dropped slice, a mapped bitmap stays readable until it is unmapped
+     * @param sliceDirectory slice directory
+     */
+    private void delete(Path sliceDirectory) {
+        if (!Files.exists(sliceDirectory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(sliceDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("delete slice {} of {} failed: {}", sliceDirectory, name, e.getMessage());
+        }
+    }
+
+    /**
+     * estimated false positive probability of the current slices, at most the configured one while
+     * no slice holds more than its expected insertions
+     * @return {@link Double}
+     */
+    public double getEstimatedFalsePositiveProbability() {
+        double miss = 1;
+        for (BloomFilter bloomFilter : filters) {
+            miss *= 1 - bloomFilter.getFalsePositiveProbability();
+        }
+        return 1 - miss;
+    }
+
+    /**
+     * checkpoint every slice, then write the manifest
+     * @return {@link Boolean}
+     */
+    public synchronized boolean checkpoint() {
+        boolean written = true;
+        for (BloomFilter bloomFilter : filters) {
+            written &= bloomFilter.checkpoint();
+        }
+        return written && BloomFilterInfoUtils.generatorWindowInfo(this, "checkpoint");
+    }
+
+    /**
+     * stop the rotation and close the insert journals of the slices
+     */
+    @Override
+    public void close() {
+        // 等待正在进行的轮转, 中断会关闭其文件通道
+        rotator.shutdown();
+        try {
+            rotator.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (BloomFilter bloomFilter : filters) {
+            bloomFilter.close();
+        }
+    }
+
+    /**
+     * number of elements added to the current slices
+     * @return {@link Long}
+     */
+    public long getElementCount() {
+        long count = 0;
+        for (BloomFilter bloomFilter : filters) {
+            count += bloomFilter.getElementCount();
+        }
+        return count;
+    }
+
+    /**
+     * total bitmap size of the slices
+     * @return {@link Long}
+     */
+    public long getSize() {
+        long size = 0;
+        for (BloomFilter bloomFilter : filters) {
+            size += bloomFilter.getSize();
+        }
+        return size;
+    }
+
+    /**
+     * slices, oldest first
+     * @return {@link List<BloomFilter>}
+     */
+    public List<BloomFilter> getFilters() {
+        return List.of(filters);
+    }
+
+    /**
+     * generation of the oldest slice, the slices are stored in the sub directories named by their generation
+     * @return {@link Long}
+     */
+    public synchronized long getFirstGeneration() {
+        return firstGeneration;
+    }
+
+    /**
+     * time of the last rotation in milliseconds
+     * @return {@link Long}
+     */
+    public synchronized long getRotatedAt() {
+        return rotatedAt;
+    }
+
+    /**
+     * getName
+     * @return {@link String}
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * getDirectory
+     * @return {@link Path}
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * getWindow
+     * @return {@link Duration}
+     */
+    public Duration getWindow() {
+        return window;
+    }
+
+    /**
+     * number of slices the window is cut into
+     * @return {@link Integer}
+     */
+    public int getSlices() {
+        return slices;
+    }
+
+    /**
+     * getSliceDuration
+     * @return {@link Duration}
+     */
+    public Duration getSliceDuration() {
+        return Duration.ofMillis(sliceMillis);
+    }
+
+    /**
+     * expected insertions within the window
+     * @return {@link Long}
+     */
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    /**
+     * bound of the false positive probability over all slices
+     * @return {@link Double}
+     */
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.storage.BitStore;
+
+/**
+ * Split block layout (Parquet / Impala): a 256-bit block is split into eight 32-bit lanes and every
+ * element sets exactly one bit per lane. Lane j is bits [32j, 32j + 32) of the block, i.e. the low
+ * half of word j / 2 for even j and the high half for odd j.
+ * @author dalowed
+ * @since 0.0.4
+ */
+final class SplitBlock {
+
+    static final int BLOCK_BITS_SHIFT = 8;
+    static final int BLOCK_BITS = 1 << BLOCK_BITS_SHIFT;
+    static final int BLOCK_WORDS = BLOCK_BITS >>> 6;
+    static final int LANES = 8;
+
+    static final int[] SALT = {
+            0x47b6137b, 0x44974d91, 0x8824ad5b, 0xa2b7289d,
+            0x705495c7, 0x2df1424b, 0x9efc4947, 0x5c6bfb31
+    };
+
+    /**
+     * whether the Vector API kernel can be used, requires {@code --add-modules jdk.incubator.vector}
+     * and 256-bit vectors on the current CPU
+     */
+    static final boolean VECTORIZED = vectorized();
+
+    private SplitBlock() {
+    }
+
+    /**
+     * bit inside the lane
+     * @param key 32-bit key
+     * @param lane lane
+     * @return {@link Integer} 0 - 31
+     */
+    static int laneBit(int key, int lane) {
+        return (key * SALT[lane]) >>> 27;
+    }
+
+    /**
+     * bit position of a lane inside the whole bitmap
+     * @param block block index
+     * @param key 32-bit key
+     * @param lane lane
+     * @return {@link Long}
+     */
+    static long bitIndex(long block, int key, int lane) {
+        return block << BLOCK_BITS_SHIFT | (long) lane << 5 | laneBit(key, lane);
+    }
+
+    /**
+     * mask of one word of the block, two lanes per word
+     * @param key 32-bit key
+     * @param word word inside the block, 0 - 3
+     * @return {@link Long}
+     */
+    static long wordMask(int key, int word) {
+        int lane = word << 1;
+        return (1L << laneBit(key, lane)) | (1L << (32 + laneBit(key, lane + 1)));
+    }
+
+    /**
+     * scalar insert, each word is updated by the store so concurrent stores stay atomic
+     * @param store store
+     * @param block block index
+     * @param key 32-bit key
+     */
+    static void put(BitStore store, long block, int key) {
+        long base = block * BLOCK_WORDS;
+        for (int word = 0; word < BLOCK_WORDS; word++) {
+            store.orWord(base + word, wordMask(key, word));
+        }
+    }
+
+    /**
+     * scalar probe
+     * @param store store
+     * @param block block index
+     * @param key 32-bit key
+     * @return {@link Boolean}
+     */
+    static boolean probe(BitStore store, long block, int key) {
+        long base = block * BLOCK_WORDS;
+        for (int word = 0; word < BLOCK_WORDS; word++) {
+            long mask = wordMask(key, word);
+            if ((store.getWord(base + word) & mask) != mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * false positive probability of a block holding elements
+     * @param elements elements in the block
+     * @return {@link Double}
+     */
+    static double blockFalsePositiveProbability(long elements) {
+        return Math.pow(1 - Math.pow(1 - 1.0 / 32, elements), LANES);
+    }
+
+    private static boolean vectorized() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return SplitBlockVectors.supported();
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
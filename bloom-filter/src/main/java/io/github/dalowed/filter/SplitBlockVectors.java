@@ -0,0 +1,65 @@
+package io.github.dalowed.filter;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernel of {@link SplitBlock}, one 256-bit load, multiply, shift and or per element.
+ * Only loaded when {@link SplitBlock#VECTORIZED} is true.
+ * @author dalowed
+ * @since 0.0.4
+ */
+final class SplitBlockVectors {
+
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_256;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_256;
+
+    private static final IntVector SALTS = IntVector.fromArray(INTS, SplitBlock.SALT, 0);
+    private static final IntVector ONES = IntVector.broadcast(INTS, 1);
+
+    private SplitBlockVectors() {
+    }
+
+    /**
+     * whether 256-bit vectors are supported by the CPU
+     * @return {@link Boolean}
+     */
+    static boolean supported() {
+        return IntVector.SPECIES_PREFERRED.vectorBitSize() >= INTS.vectorBitSize();
+    }
+
+    /**
+     * mask of the block, lane j holds 1 << ((key * SALT[j]) >>> 27); reinterpreting the eight int lanes
+     * as four longs is little-endian, so lane j lands in bits [32j, 32j + 32) as in the scalar layout
+     * @param key 32-bit key
+     * @return {@link LongVector}
+     */
+    private static LongVector mask(int key) {
+        IntVector bits = IntVector.broadcast(INTS, key).mul(SALTS).lanewise(VectorOperators.LSHR, 27);
+        return ONES.lanewise(VectorOperators.LSHL, bits).reinterpretAsLongs();
+    }
+
+    /**
+     * insert, not atomic
+     * @param words words
+     * @param offset first word of the block
+     * @param key 32-bit key
+     */
+    static void put(long[] words, int offset, int key) {
+        LongVector.fromArray(LONGS, words, offset).or(mask(key)).intoArray(words, offset);
+    }
+
+    /**
+     * probe
+     * @param words words
+     * @param offset first word of the block
+     * @param key 32-bit key
+     * @return {@link Boolean}
+     */
+    static boolean probe(long[] words, int offset, int key) {
+        LongVector mask = mask(key);
+        return LongVector.fromArray(LONGS, words, offset).and(mask).eq(mask).allTrue();
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.dalowed.hash;
+
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+
+/**
+ * Computes one 128-bit hash per element, the bloomfilter derives all of its
+ * indexes from the two halves by double hashing ({@code h1 + i * h2}).
+ * Implementations write into the caller supplied {@code out} array and must be thread safe.
+ * @author dalowed
+ * @since 0.0.4
+ */
+public interface ElementHasher {
+
+    /**
+     * getStrategy
+     * @return {@link HashStrategy}
+     */
+    HashStrategy getStrategy();
+
+    /**
+     * hash a byte range
+     * @param data data
+     * @param offset offset of the first byte
+     * @param length number of bytes
+     * @param out receives h1 at index 0 and h2 at index 1
+     */
+    void hashBytes(byte[] data, int offset, int length, long[] out);
+
+    /**
+     * hash the UTF-16 code units of a char range, no charset encoding is involved
+     * @param chars chars
+     * @param start start index, inclusive
+     * @param end end index, exclusive
+     * @param out receives h1 at index 0 and h2 at index 1
+     */
+    void hashChars(CharSequence chars, int start, int end, long[] out);
+
+    /**
+     * hash a long as its 8 little-endian bytes
+     * @param value value
+     * @param out receives h1 at index 0 and h2 at index 1
+     */
+    void hashLong(long value, long[] out);
+
+    /**
+     * hash an int as its 4 little-endian bytes
+     * @param value value
+     * @param out receives h1 at index 0 and h2 at index 1
+     */
+    void hashInt(int value, long[] out);
+
+    /**
+     * hash two longs as 16 little-endian bytes, e.g. the two halves of a UUID
+     * @param first first
+     * @param second second
+     * @param out receives h1 at index 0 and h2 at index 1
+     */
+    void hashLongs(long first, long second, long[] out);
+
+    /**
+     * hash the remaining bytes of a buffer, its position is not changed
+     * @param buffer buffer
+     * @param out receives h1 at index 0 and h2 at index 1
+     */
+    void hashBuffer(ByteBuffer buffer, long[] out);
+
+    /**
+     * hasher of a strategy
+     * @param strategy hash strategy
+     * @param seed MURMUR3_128 seed
+     * @param hashKey SIPHASH_24 key(hex)
+     * @param salt HMAC_SHA256 salt
+     * @return {@link ElementHasher}
+     */
+    static ElementHasher of(HashStrategy strategy, long seed, String hashKey, String salt) {
+        switch (strategy) {
+            case HMAC_SHA256:
+                return new HmacSha256Hasher(salt);
+            case SIPHASH_24:
+                if (hashKey == null) {
+                    throw new IllegalStateException("hashKey is required by " + HashStrategy.SIPHASH_24);
+                }
+                return new SipHasher(HexFormat.of().parseHex(hashKey));
+            case MURMUR3_128:
+            default:
+                return new Murmur3Hasher(seed);
+        }
+    }
+}
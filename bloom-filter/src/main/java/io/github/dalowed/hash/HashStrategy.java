@@ -0,0 +1,21 @@
+package io.github.dalowed.hash;
+
+/**
+ * hash strategy used to derive the bit indexes of an element
+ * @author dalowed
+ * @since 0.0.4
+ */
+public enum HashStrategy {
+    /**
+     * MurmurHash3 x64 128, one pass per element (default)
+     */
+    MURMUR3_128,
+    /**
+     * SipHash-2-4 128 with a random 128-bit key, resists hash flooding by crafted elements
+     */
+    SIPHASH_24,
+    /**
+     * HmacSHA256 keyed with the filter salt, cryptographic but slow
+     */
+    HMAC_SHA256
+}
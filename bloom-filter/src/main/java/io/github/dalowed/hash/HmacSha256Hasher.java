@@ -0,0 +1,125 @@
+package io.github.dalowed.hash;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+
+/**
+ * HmacSHA256 keyed with the filter salt, the first 16 bytes of the digest are used as h1 and h2.
+ * Mac instances are cached per thread.
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class HmacSha256Hasher implements ElementHasher {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final VarHandle LONG_BE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final ThreadLocal<Mac> mac;
+
+    private final ThreadLocal<byte[]> digest = ThreadLocal.withInitial(() -> new byte[32]);
+
+    // 基本类型和字符分块的编码缓冲区
+    private final ThreadLocal<byte[]> scratch = ThreadLocal.withInitial(() -> new byte[256]);
+
+    /**
+     * Init HmacSha256Hasher
+     * @param secretKey secretKey
+     */
+    public HmacSha256Hasher(String secretKey) {
+        SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(keySpec);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("init " + ALGORITHM + " failed", e);
+            }
+        });
+    }
+
+    @Override
+    public HashStrategy getStrategy() {
+        return HashStrategy.HMAC_SHA256;
+    }
+
+    @Override
+    public void hashBytes(byte[] data, int offset, int length, long[] out) {
+        Mac instance = mac.get();
+        instance.update(data, offset, length);
+        finish(instance, out);
+    }
+
+    @Override
+    public void hashLong(long value, long[] out) {
+        byte[] bytes = scratch.get();
+        LONG_LE.set(bytes, 0, value);
+        hashBytes(bytes, 0, Long.BYTES, out);
+    }
+
+    @Override
+    public void hashInt(int value, long[] out) {
+        byte[] bytes = scratch.get();
+        LONG_LE.set(bytes, 0, value & 0xffffffffL);
+        hashBytes(bytes, 0, Integer.BYTES, out);
+    }
+
+    @Override
+    public void hashLongs(long first, long second, long[] out) {
+        byte[] bytes = scratch.get();
+        LONG_LE.set(bytes, 0, first);
+        LONG_LE.set(bytes, 8, second);
+        hashBytes(bytes, 0, Long.BYTES << 1, out);
+    }
+
+    @Override
+    public void hashBuffer(ByteBuffer buffer, long[] out) {
+        Mac instance = mac.get();
+        // duplicate 避免修改调用方的 position
+        instance.update(buffer.duplicate());
+        finish(instance, out);
+    }
+
+    @Override
+    public void hashChars(CharSequence chars, int start, int end, long[] out) {
+        Mac instance = mac.get();
+        byte[] bytes = scratch.get();
+        // 每个 char 按 UTF-16LE 两个字节分块送入, 与 hashBytes(UTF_16LE 编码) 结果一致, 不创建字符串
+        for (int from = start; from < end; ) {
+            int count = Math.min(end - from, bytes.length >>> 1);
+            for (int i = 0; i < count; i++) {
+                char c = chars.charAt(from + i);
+                bytes[i << 1] = (byte) c;
+                bytes[(i << 1) + 1] = (byte) (c >>> 8);
+            }
+            instance.update(bytes, 0, count << 1);
+            from += count;
+        }
+        finish(instance, out);
+    }
+
+    /**
+     * finish the digest, its first 16 bytes are h1 and h2
+     * @param instance mac of the current thread
+     * @param out h1, h2
+     */
+    private void finish(Mac instance, long[] out) {
+        byte[] bytes = digest.get();
+        try {
+            instance.doFinal(bytes, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        out[0] = (long) LONG_BE.get(bytes, 0);
+        out[1] = (long) LONG_BE.get(bytes, 8);
+    }
+}
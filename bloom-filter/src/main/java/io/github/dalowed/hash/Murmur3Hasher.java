@@ -0,0 +1,209 @@
+package io.github.dalowed.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * MurmurHash3 x64 128, allocation free
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class Murmur3Hasher implements ElementHasher {
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONG_LE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final long seed;
+
+    /**
+     * Init Murmur3Hasher
+     * @param seed seed
+     */
+    public Murmur3Hasher(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public HashStrategy getStrategy() {
+        return HashStrategy.MURMUR3_128;
+    }
+
+    @Override
+    public void hashBytes(byte[] data, int offset, int length, long[] out) {
+        long h1 = seed;
+        long h2 = seed;
+        int roundedEnd = offset + (length & ~15);
+        for (int i = offset; i < roundedEnd; i += 16) {
+            h1 ^= mixK1((long) LONG_LE.get(data, i));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2((long) LONG_LE.get(data, i + 8));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        switch (length & 15) {
+            case 15: k2 ^= (long) (data[roundedEnd + 14] & 0xff) << 48;
+            case 14: k2 ^= (long) (data[roundedEnd + 13] & 0xff) << 40;
+            case 13: k2 ^= (long) (data[roundedEnd + 12] & 0xff) << 32;
+            case 12: k2 ^= (long) (data[roundedEnd + 11] & 0xff) << 24;
+            case 11: k2 ^= (long) (data[roundedEnd + 10] & 0xff) << 16;
+            case 10: k2 ^= (long) (data[roundedEnd + 9] & 0xff) << 8;
+            case 9: k2 ^= data[roundedEnd + 8] & 0xff;
+            case 8: k1 ^= (long) (data[roundedEnd + 7] & 0xff) << 56;
+            case 7: k1 ^= (long) (data[roundedEnd + 6] & 0xff) << 48;
+            case 6: k1 ^= (long) (data[roundedEnd + 5] & 0xff) << 40;
+            case 5: k1 ^= (long) (data[roundedEnd + 4] & 0xff) << 32;
+            case 4: k1 ^= (long) (data[roundedEnd + 3] & 0xff) << 24;
+            case 3: k1 ^= (long) (data[roundedEnd + 2] & 0xff) << 16;
+            case 2: k1 ^= (long) (data[roundedEnd + 1] & 0xff) << 8;
+            case 1: k1 ^= data[roundedEnd] & 0xff;
+            default:
+        }
+        finish(h1, h2, k1, k2, length, out);
+    }
+
+    @Override
+    public void hashChars(CharSequence chars, int start, int end, long[] out) {
+        // 每个 char 按 UTF-16LE 两个字节参与计算, 与 hashBytes(UTF_16LE 编码) 结果一致
+        long h1 = seed;
+        long h2 = seed;
+        int count = end - start;
+        int roundedEnd = start + (count & ~7);
+        for (int i = start; i < roundedEnd; i += 8) {
+            h1 ^= mixK1(pack(chars, i));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(pack(chars, i + 4));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        switch (count & 7) {
+            case 7: k2 ^= (long) chars.charAt(roundedEnd + 6) << 32;
+            case 6: k2 ^= (long) chars.charAt(roundedEnd + 5) << 16;
+            case 5: k2 ^= chars.charAt(roundedEnd + 4);
+            case 4: k1 ^= (long) chars.charAt(roundedEnd + 3) << 48;
+            case 3: k1 ^= (long) chars.charAt(roundedEnd + 2) << 32;
+            case 2: k1 ^= (long) chars.charAt(roundedEnd + 1) << 16;
+            case 1: k1 ^= chars.charAt(roundedEnd);
+            default:
+        }
+        finish(h1, h2, k1, k2, count << 1, out);
+    }
+
+    @Override
+    public void hashLong(long value, long[] out) {
+        finish(seed, seed, value, 0, Long.BYTES, out);
+    }
+
+    @Override
+    public void hashInt(int value, long[] out) {
+        finish(seed, seed, value & 0xffffffffL, 0, Integer.BYTES, out);
+    }
+
+    @Override
+    public void hashLongs(long first, long second, long[] out) {
+        long h1 = seed ^ mixK1(first);
+        h1 = Long.rotateLeft(h1, 27) + seed;
+        h1 = h1 * 5 + 0x52dce729;
+        long h2 = seed ^ mixK2(second);
+        h2 = Long.rotateLeft(h2, 31) + h1;
+        h2 = h2 * 5 + 0x38495ab5;
+        finish(h1, h2, 0, 0, Long.BYTES << 1, out);
+    }
+
+    @Override
+    public void hashBuffer(ByteBuffer buffer, long[] out) {
+        int offset = buffer.position();
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            hashBytes(buffer.array(), buffer.arrayOffset() + offset, length, out);
+            return;
+        }
+
+        long h1 = seed;
+        long h2 = seed;
+        int roundedEnd = offset + (length & ~15);
+        for (int i = offset; i < roundedEnd; i += 16) {
+            h1 ^= mixK1((long) BUFFER_LONG_LE.get(buffer, i));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2((long) BUFFER_LONG_LE.get(buffer, i + 8));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = 0; i < (length & 15); i++) {
+            long b = buffer.get(roundedEnd + i) & 0xff;
+            if (i < 8) {
+                k1 ^= b << (i << 3);
+            } else {
+                k2 ^= b << ((i - 8) << 3);
+            }
+        }
+        finish(h1, h2, k1, k2, length, out);
+    }
+
+    /**
+     * pack four chars into one little-endian long
+     */
+    private static long pack(CharSequence chars, int index) {
+        return chars.charAt(index)
+                | (long) chars.charAt(index + 1) << 16
+                | (long) chars.charAt(index + 2) << 32
+                | (long) chars.charAt(index + 3) << 48;
+    }
+
+    /**
+     * mix the tail and finalize
+     */
+    private static void finish(long h1, long h2, long k1, long k2, int length, long[] out) {
+        h2 ^= mixK2(k2);
+        h1 ^= mixK1(k1);
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+
+        out[0] = h1;
+        out[1] = h2;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        return k1 * C2;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        return k2 * C1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
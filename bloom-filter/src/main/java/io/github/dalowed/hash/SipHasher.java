@@ -0,0 +1,220 @@
+package io.github.dalowed.hash;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * SipHash-2-4 with 128-bit output, keyed so that crafted elements can not target the same bits
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class SipHasher implements ElementHasher {
+
+    /**
+     * key length in bytes
+     */
+    public static final int KEY_BYTES = 16;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle BUFFER_LONG_LE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final long k0;
+    private final long k1;
+
+    /**
+     * Init SipHasher
+     * @param key 16 bytes key
+     */
+    public SipHasher(byte[] key) {
+        if (key == null || key.length != KEY_BYTES) {
+            throw new IllegalArgumentException("SipHash key must be " + KEY_BYTES + " bytes");
+        }
+        this.k0 = (long) LONG_LE.get(key, 0);
+        this.k1 = (long) LONG_LE.get(key, 8);
+    }
+
+    @Override
+    public HashStrategy getStrategy() {
+        return HashStrategy.SIPHASH_24;
+    }
+
+    @Override
+    public void hashBytes(byte[] data, int offset, int length, long[] out) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1 ^ 0xee;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        int roundedEnd = offset + (length & ~7);
+        for (int i = offset; i < roundedEnd; i += 8) {
+            long m = (long) LONG_LE.get(data, i);
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        long b = (long) length << 56;
+        for (int i = (length & 7) - 1; i >= 0; i--) {
+            b |= (long) (data[roundedEnd + i] & 0xff) << (i << 3);
+        }
+        finish(v0, v1, v2, v3, b, out);
+    }
+
+    @Override
+    public void hashChars(CharSequence chars, int start, int end, long[] out) {
+        // 每个 char 按 UTF-16LE 两个字节参与计算
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1 ^ 0xee;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        int count = end - start;
+        int roundedEnd = start + (count & ~3);
+        for (int i = start; i < roundedEnd; i += 4) {
+            long m = chars.charAt(i)
+                    | (long) chars.charAt(i + 1) << 16
+                    | (long) chars.charAt(i + 2) << 32
+                    | (long) chars.charAt(i + 3) << 48;
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        long b = (long) (count << 1) << 56;
+        for (int i = (count & 3) - 1; i >= 0; i--) {
+            b |= (long) chars.charAt(roundedEnd + i) << (i << 4);
+        }
+        finish(v0, v1, v2, v3, b, out);
+    }
+
+    @Override
+    public void hashLong(long value, long[] out) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1 ^ 0xee;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        v3 ^= value;
+        for (int r = 0; r < 2; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= value;
+        finish(v0, v1, v2, v3, (long) Long.BYTES << 56, out);
+    }
+
+    @Override
+    public void hashInt(int value, long[] out) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1 ^ 0xee;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+        finish(v0, v1, v2, v3, (long) Integer.BYTES << 56 | (value & 0xffffffffL), out);
+    }
+
+    @Override
+    public void hashLongs(long first, long second, long[] out) {
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1 ^ 0xee;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        v3 ^= first;
+        for (int r = 0; r < 2; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= first;
+        v3 ^= second;
+        for (int r = 0; r < 2; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= second;
+        finish(v0, v1, v2, v3, (long) (Long.BYTES << 1) << 56, out);
+    }
+
+    @Override
+    public void hashBuffer(ByteBuffer buffer, long[] out) {
+        int offset = buffer.position();
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            hashBytes(buffer.array(), buffer.arrayOffset() + offset, length, out);
+            return;
+        }
+
+        long v0 = 0x736f6d6570736575L ^ k0;
+        long v1 = 0x646f72616e646f6dL ^ k1 ^ 0xee;
+        long v2 = 0x6c7967656e657261L ^ k0;
+        long v3 = 0x7465646279746573L ^ k1;
+
+        int roundedEnd = offset + (length & ~7);
+        for (int i = offset; i < roundedEnd; i += 8) {
+            long m = (long) BUFFER_LONG_LE.get(buffer, i);
+            v3 ^= m;
+            for (int r = 0; r < 2; r++) {
+                v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+                v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+                v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+                v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+            }
+            v0 ^= m;
+        }
+
+        long b = (long) length << 56;
+        for (int i = (length & 7) - 1; i >= 0; i--) {
+            b |= (long) (buffer.get(roundedEnd + i) & 0xff) << (i << 3);
+        }
+        finish(v0, v1, v2, v3, b, out);
+    }
+
+    /**
+     * compress the last block and run the finalization rounds
+     */
+    private static void finish(long v0, long v1, long v2, long v3, long b, long[] out) {
+        v3 ^= b;
+        for (int r = 0; r < 2; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        v0 ^= b;
+
+        v2 ^= 0xee;
+        for (int r = 0; r < 4; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        out[0] = v0 ^ v1 ^ v2 ^ v3;
+
+        v1 ^= 0xdd;
+        for (int r = 0; r < 4; r++) {
+            v0 += v1; v1 = Long.rotateLeft(v1, 13); v1 ^= v0; v0 = Long.rotateLeft(v0, 32);
+            v2 += v3; v3 = Long.rotateLeft(v3, 16); v3 ^= v2;
+            v0 += v3; v3 = Long.rotateLeft(v3, 21); v3 ^= v0;
+            v2 += v1; v1 = Long.rotateLeft(v1, 17); v1 ^= v2; v2 = Long.rotateLeft(v2, 32);
+        }
+        out[1] = v0 ^ v1 ^ v2 ^ v3;
+    }
+}
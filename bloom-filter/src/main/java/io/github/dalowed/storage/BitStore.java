@@ -0,0 +1,46 @@
+package io.github.dalowed.storage;
+
+/**
+ * storage of the bloomfilter bitmap, addressed by 64-bit words
+ * @author dalowed
+ * @since 0.0.4
+ */
+public interface BitStore {
+
+    /**
+     * number of 64-bit words
+     * @return {@link Long}
+     */
+    long wordCount();
+
+    /**
+     * read a word
+     * @param index word index
+     * @return {@link Long}
+     */
+    long getWord(long index);
+
+    /**
+     * overwrite a word, used when loading a bitmap
+     * @param index word index
+     * @param value value
+     */
+    void setWord(long index, long value);
+
+    /**
+     * set the bits of mask in a word
+     * @param index word index
+     * @param mask bits to set
+     * @return {@link Boolean} whether any bit changed
+     */
+    boolean orWord(long index, long mask);
+
+    /**
+     * replace a word if it still holds the expected value, used for counters spanning several bits
+     * @param index word index
+     * @param expected expected value
+     * @param value new value
+     * @return {@link Boolean} whether the word was replaced
+     */
+    boolean compareAndSetWord(long index, long expected, long value);
+}
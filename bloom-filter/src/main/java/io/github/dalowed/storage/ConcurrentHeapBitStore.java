@@ -0,0 +1,48 @@
+package io.github.dalowed.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * bitmap on a heap long[] that may be updated by many threads without locking.
+ * Bits are set with an atomic OR, counters with compare-and-set, reads are opaque loads.
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class ConcurrentHeapBitStore extends HeapBitStore {
+
+    private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    /**
+     * Init ConcurrentHeapBitStore
+     * @param words bitmap words
+     */
+    public ConcurrentHeapBitStore(long[] words) {
+        super(words);
+    }
+
+    @Override
+    public long getWord(long index) {
+        return (long) WORDS.getOpaque(words, (int) index);
+    }
+
+    @Override
+    public void setWord(long index, long value) {
+        WORDS.setOpaque(words, (int) index, value);
+    }
+
+    @Override
+    public boolean orWord(long index, long mask) {
+        // 位已存在时不写, 避免热点缓存行在各核之间来回失效
+        if (((long) WORDS.getOpaque(words, (int) index) & mask) == mask) {
+            return false;
+        }
+        long previous = (long) WORDS.getAndBitwiseOr(words, (int) index, mask);
+        return (previous & mask) != mask;
+    }
+
+    @Override
+    public boolean compareAndSetWord(long index, long expected, long value) {
+        return WORDS.compareAndSet(words, (int) index, expected, value);
+    }
+}
@@ -0,0 +1,49 @@
+package io.github.dalowed.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * mapped bitmap that may be updated by many threads without locking,
+ * see {@link ConcurrentHeapBitStore}
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class ConcurrentMappedBitStore extends MappedBitStore {
+
+    /**
+     * Init ConcurrentMappedBitStore
+     * @param file bitmap file
+     * @param wordCount number of words
+     * @param create true to create an empty bitmap, false to map an existing bitmap
+     */
+    public ConcurrentMappedBitStore(Path file, long wordCount, boolean create) {
+        super(file, wordCount, create);
+    }
+
+    @Override
+    public long getWord(long index) {
+        return (long) FILE_WORDS.getOpaque(segment(index), offset(index));
+    }
+
+    @Override
+    public void setWord(long index, long value) {
+        FILE_WORDS.setOpaque(segment(index), offset(index), value);
+    }
+
+    @Override
+    public boolean orWord(long index, long mask) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        if (((long) FILE_WORDS.getOpaque(segment, offset) & mask) == mask) {
+            return false;
+        }
+        long previous = (long) FILE_WORDS.getAndBitwiseOr(segment, offset, mask);
+        return (previous & mask) != mask;
+    }
+
+    @Override
+    public boolean compareAndSetWord(long index, long expected, long value) {
+        return FILE_WORDS.compareAndSet(segment(index), offset(index), expected, value);
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.dalowed.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * bitmap in direct memory that may be updated by many threads without locking,
+ * see {@link ConcurrentHeapBitStore}
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class ConcurrentOffHeapBitStore extends OffHeapBitStore {
+
+    /**
+     * Init ConcurrentOffHeapBitStore
+     * @param wordCount number of words
+     */
+    public ConcurrentOffHeapBitStore(long wordCount) {
+        super(wordCount);
+    }
+
+    @Override
+    public long getWord(long index) {
+        return (long) WORDS.getOpaque(segment(index), offset(index));
+    }
+
+    @Override
+    public void setWord(long index, long value) {
+        WORDS.setOpaque(segment(index), offset(index), value);
+    }
+
+    @Override
+    public boolean orWord(long index, long mask) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        if (((long) WORDS.getOpaque(segment, offset) & mask) == mask) {
+            return false;
+        }
+        long previous = (long) WORDS.getAndBitwiseOr(segment, offset, mask);
+        return (previous & mask) != mask;
+    }
+
+    @Override
+    public boolean compareAndSetWord(long index, long expected, long value) {
+        return WORDS.compareAndSet(segment(index), offset(index), expected, value);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.dalowed.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * one bit per 4 KB page of a bitmap, set when a word of the page changes and cleared when the
+ * page is written by a checkpoint. A page must be drained before it is read, so a bit set after
+ * the read marks the page again
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class DirtyPageTracker {
+
+    /**
+     * 每页 512 个 long, 即 4 KB
+     */
+    public static final int PAGE_WORDS_SHIFT = 9;
+    /**
+     * words of a page
+     */
+    public static final int PAGE_WORDS = 1 << PAGE_WORDS_SHIFT;
+
+    private static final VarHandle PAGES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final long[] pages;
+    private final long pageCount;
+
+    /**
+     * Init DirtyPageTracker
+     * @param wordCount number of words of the bitmap
+     * @param dirty whether all pages start dirty, e.g. when the bitmap file does not hold the bitmap yet
+     */
+    public DirtyPageTracker(long wordCount, boolean dirty) {
+        this.pageCount = (wordCount + PAGE_WORDS - 1) >>> PAGE_WORDS_SHIFT;
+        long length = (pageCount + 63) >>> 6;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("too many pages: " + pageCount);
+        }
+        this.pages = new long[(int) length];
+        if (dirty) {
+            markAll();
+        }
+    }
+
+    /**
+     * mark the page of a word
+     * @param wordIndex word index
+     */
+    public void markWord(long wordIndex) {
+        long page = wordIndex >>> PAGE_WORDS_SHIFT;
+        int index = (int) (page >>> 6);
+        long mask = 1L << page;
+        // 已标记时不写, 避免多线程争用同一缓存行
+        if (((long) PAGES.getOpaque(pages, index) & mask) == 0) {
+            PAGES.getAndBitwiseOr(pages, index, mask);
+        }
+    }
+
+    /**
+     * mark every page
+     */
+    public void markAll() {
+        for (int i = 0; i < pages.length; i++) {
+            long remaining = pageCount - ((long) i << 6);
+            PAGES.getAndBitwiseOr(pages, i, remaining >= 64 ? -1L : (1L << remaining) - 1);
+        }
+    }
+
+    /**
+     * take and clear the dirty bits of pages [64 * index, 64 * index + 64)
+     * @param index index of the group
+     * @return {@link Long} dirty bits, bit i is page 64 * index + i
+     */
+    public long drain(int index) {
+        return (long) PAGES.getAndSet(pages, index, 0L);
+    }
+
+    /**
+     * number of groups of 64 pages
+     * @return {@link Integer}
+     */
+    public int groupCount() {
+        return pages.length;
+    }
+
+    /**
+     * number of pages
+     * @return {@link Long}
+     */
+    public long pageCount() {
+        return pageCount;
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.dalowed.storage;
+
+/**
+ * bitmap on a heap long[], single writer
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class HeapBitStore implements BitStore {
+
+    protected final long[] words;
+
+    /**
+     * Init HeapBitStore
+     * @param words bitmap words
+     */
+    public HeapBitStore(long[] words) {
+        this.words = words;
+    }
+
+    @Override
+    public long wordCount() {
+        return words.length;
+    }
+
+    @Override
+    public long getWord(long index) {
+        return words[(int) index];
+    }
+
+    @Override
+    public void setWord(long index, long value) {
+        words[(int) index] = value;
+    }
+
+    @Override
+    public boolean orWord(long index, long mask) {
+        long word = words[(int) index];
+        if ((word & mask) == mask) {
+            return false;
+        }
+        words[(int) index] = word | mask;
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSetWord(long index, long expected, long value) {
+        if (words[(int) index] != expected) {
+            return false;
+        }
+        words[(int) index] = value;
+        return true;
+    }
+
+    /**
+     * getWords
+     * @return {@link Long[]}
+     */
+    public long[] getWords() {
+        return words;
+    }
+}
@@ -0,0 +1,519 @@
+package io.github.dalowed.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * append-only journal of the (h1, h2) hash of every added element. Adds claim slots in one of
+ * several lock-free ring buffers and return; only the background thread writes the published
+ * records, with one fsync per sync interval (group commit), so add neither locks nor waits for the
+ * disk unless every ring is full. At most one interval of adds is lost on a crash. A checkpoint
+ * {@link #rotate() rotates} the journal and {@link #commit() drops} the rotated file once the
+ * bitmap is on disk. The element must be in the bitmap before its record is appended, and the
+ * record is appended under the epoch of the add: each epoch parity has its own rings, so the
+ * records of the epoch started by a checkpoint can be {@link #hold(int) held} back from the
+ * rotated file
+ * <pre>
+ * magic(int) version(int) hashSeed(long) size(long) then (h1, h2) little-endian longs
+ * </pre>
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class InsertJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(InsertJournal.class);
+
+    /**
+     * "BLMJ"
+     */
+    public static final int MAGIC = 0x424C4D4A;
+    /**
+     * current format version
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 24;
+    private static final int RECORD_BYTES = 16;
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    // 每个环形缓冲区的记录数, 环的个数为 CPU 数向上取 2 的幂, 最多 16 个
+    private static final int RING_RECORDS = 1 << 14;
+    private static final int MAX_RINGS = 16;
+    // 全部环已满时等待后台线程写出的时间
+    private static final long FULL_PARK_NANOS = 50_000;
+
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Path file;
+    private final Path rotated;
+    private final long hashSeed;
+    private final long size;
+    private final Ring[][] rings; // 按纪元奇偶分两组
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+    private final ByteBuffer writeBuffer; // 只由后台线程使用
+    private volatile boolean closed;
+
+    private FileChannel channel; // 只由后台线程使用
+    private int held = -1; // 暂不写出的纪元奇偶, 只由后台线程使用
+
+    /**
+     * Init InsertJournal, records of an existing journal are kept
+     * @param file journal file
+     * @param hashSeed hash seed of the filter, journals of another filter are not replayed
+     * @param size bitmap size of the filter
+     * @param syncInterval delay between two group commits
+     */
+    public InsertJournal(Path file, long hashSeed, long size, Duration syncInterval) {
+        this.file = file;
+        this.rotated = file.resolveSibling(file.getFileName() + ".old");
+        this.hashSeed = hashSeed;
+        this.size = size;
+        this.writeBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        int ringCount = Math.min(MAX_RINGS, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1)));
+        this.rings = new Ring[2][ringCount];
+        for (Ring[] parity : rings) {
+            for (int i = 0; i < ringCount; i++) {
+                parity[i] = new Ring();
+            }
+        }
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            this.channel = open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("open journal " + file + " failed", e);
+        }
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bloom-filter-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long delay = Math.max(1, syncInterval.toMillis());
+        executor.scheduleWithFixedDelay(this::syncQuietly, delay, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * open a journal for appending, a header is written to an empty one
+     * @param path journal file
+     * @return {@link FileChannel}
+     * @throws IOException IOException
+     */
+    private FileChannel open(Path path) throws IOException {
+        FileChannel opened = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (opened.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putLong(hashSeed).putLong(size).flip();
+            while (header.hasRemaining()) {
+                opened.write(header);
+            }
+        }
+        return opened;
+    }
+
+    /**
+     * append the record of an element
+     * @param epoch epoch of the add
+     * @param h1 h1
+     * @param h2 h2
+     */
+    public void append(int epoch, long h1, long h2) {
+        Ring[] rings = this.rings[epoch & 1];
+        int home = home(rings);
+        while (true) {
+            // 先试本线程的环, 已满时依次试其他环
+            for (int i = 0; i < rings.length; i++) {
+                Ring ring = rings[(home + i) & (rings.length - 1)];
+                long sequence = ring.claim(1);
+                if (sequence >= 0) {
+                    ring.publish(sequence, h1, h2);
+                    return;
+                }
+            }
+            awaitSpace();
+        }
+    }
+
+    /**
+     * append the records of a batch
+     * @param epoch epoch of the add
+     * @param h1 h1 of each element
+     * @param h2 h2 of each element
+     * @param count number of elements
+     */
+    public void appendAll(int epoch, long[] h1, long[] h2, int count) {
+        Ring[] rings = this.rings[epoch & 1];
+        int home = home(rings);
+        int from = 0;
+        while (from < count) {
+            boolean claimed = false;
+            for (int i = 0; i < rings.length && from < count; i++) {
+                Ring ring = rings[(home + i) & (rings.length - 1)];
+                int n = ring.free(count - from);
+                long sequence = n > 0 ? ring.claim(n) : -1;
+                if (sequence < 0) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    ring.publish(sequence + j, h1[from + j], h2[from + j]);
+                }
+                from += n;
+                claimed = true;
+            }
+            if (!claimed) {
+                awaitSpace();
+            }
+        }
+    }
+
+    /**
+     * ring tried first by the current thread
+     * @param rings rings of an epoch parity
+     * @return {@link Integer}
+     */
+    private static int home(Ring[] rings) {
+        // 同一线程总是先用同一个环
+        long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & (rings.length - 1);
+    }
+
+    /**
+     * every ring is full: wake the background thread and wait for it to write
+     */
+    private void awaitSpace() {
+        if (closed) {
+            throw new IllegalStateException("journal " + file + " is closed");
+        }
+        requestSync();
+        LockSupport.parkNanos(FULL_PARK_NANOS);
+    }
+
+    /**
+     * run a group commit on the background thread now
+     */
+    private void requestSync() {
+        if (syncRequested.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::syncQuietly);
+            } catch (RejectedExecutionException e) {
+                syncRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * write the published records and fsync, waits for the background thread
+     */
+    public void sync() {
+        runOnWriter(() -> {
+            drain();
+            return null;
+        });
+    }
+
+    /**
+     * write the records published to the rings and fsync, the rings of a held epoch are skipped;
+     * runs on the background thread
+     * @throws IOException IOException
+     */
+    private void drain() throws IOException {
+        boolean written = false;
+        writeBuffer.clear();
+        for (int parity = 0; parity < rings.length; parity++) {
+            written |= parity != held && drain(rings[parity]);
+        }
+        if (writeBuffer.position() > 0) {
+            writeFully(writeBuffer);
+        }
+        if (written) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * copy the records published to rings into the write buffer, a full buffer is written
+     * @param rings rings of an epoch parity
+     * @return {@link Boolean} whether any record was taken
+     * @throws IOException IOException
+     */
+    private boolean drain(Ring[] rings) throws IOException {
+        boolean written = false;
+        for (Ring ring : rings) {
+            long consumed = ring.consumed;
+            long sequence = consumed;
+            // 停在第一个尚未发布的槽, 其后的记录下次写出
+            while ((long) SEQUENCES.getAcquire(ring.sequences, (int) (sequence & (RING_RECORDS - 1))) == sequence + 1) {
+                if (writeBuffer.remaining() < RECORD_BYTES) {
+                    writeFully(writeBuffer);
+                    written = true;
+                }
+                int slot = (int) (sequence & (RING_RECORDS - 1)) << 1;
+                writeBuffer.putLong(ring.records[slot]).putLong(ring.records[slot + 1]);
+                sequence++;
+            }
+            // 记录已复制, 槽可以重用
+            ring.consumed = sequence;
+            written |= sequence != consumed;
+        }
+        return written;
+    }
+
+    /**
+     * write the buffer to the journal
+     * @param buffer buffer, cleared afterwards
+     * @throws IOException IOException
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * sync on the background thread, errors are logged
+     */
+    private void syncQuietly() {
+        syncRequested.set(false);
+        try {
+            drain();
+        } catch (IOException | RuntimeException e) {
+            log.error("journal sync error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * run a journal file operation on the background thread and wait for it
+     * @param task task
+     */
+    private void runOnWriter(Callable<Void> task) {
+        try {
+            executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for journal " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException("journal " + file + " failed", (IOException) cause);
+            }
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * keep the records of an epoch in the rings until the next {@link #rotate()}, so they go to the
+     * new journal. Called before the epoch starts, earlier records of its parity are written first
+     * @param epoch epoch
+     */
+    public void hold(int epoch) {
+        runOnWriter(() -> {
+            drain();
+            held = epoch & 1;
+            return null;
+        });
+    }
+
+    /**
+     * start a checkpoint: the records so far, except those of a {@link #hold(int) held} epoch,
+     * move to the rotated file, later records go to a new journal. A rotated file left by a failed
+     * checkpoint is kept and the records are appended to it
+     */
+    public void rotate() {
+        runOnWriter(() -> {
+            try {
+                drain();
+                rotateFile();
+            } finally {
+                held = -1;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * move the journal to the rotated file and open a new one, runs on the background thread
+     * @throws IOException IOException
+     */
+    private void rotateFile() throws IOException {
+        channel.close();
+        if (Files.exists(rotated)) {
+            // 上一次检查点失败, 合并到旧文件, 跳过文件头
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(rotated, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long position = HEADER_BYTES;
+                while (position < source.size()) {
+                    position += source.transferTo(position, source.size() - position, target);
+                }
+                target.force(false);
+            }
+            Files.delete(file);
+        } else {
+            Files.move(file, rotated, StandardCopyOption.ATOMIC_MOVE);
+        }
+        channel = open(file);
+    }
+
+    /**
+     * finish a checkpoint, the rotated records are no longer needed
+     */
+    public void commit() {
+        try {
+            Files.deleteIfExists(rotated);
+        } catch (IOException e) {
+            throw new UncheckedIOException("delete journal " + rotated + " failed", e);
+        }
+    }
+
+    /**
+     * stop the background thread and sync the remaining records
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            runOnWriter(() -> {
+                drain();
+                channel.close();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("close journal error: {}", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * ring buffer of records, adds claim slots with a CAS and publish each slot by storing its
+     * sequence + 1; the background thread reads published slots in order
+     */
+    private static final class Ring {
+        private final long[] records = new long[RING_RECORDS << 1]; // h1, h2 交替
+        private final long[] sequences = new long[RING_RECORDS]; // 槽中记录的序号 + 1, 0 为未发布
+        private final AtomicLong claimed = new AtomicLong(); // 下一个可申请的序号
+        private volatile long consumed; // 后台线程已写出的序号, 只由后台线程修改
+
+        /**
+         * number of slots free for a claim
+         * @param wanted slots wanted
+         * @return {@link Integer} at most wanted
+         */
+        int free(int wanted) {
+            return (int) Math.min(wanted, RING_RECORDS - (claimed.get() - consumed));
+        }
+
+        /**
+         * claim consecutive slots
+         * @param n number of slots
+         * @return {@link Long} sequence of the first slot, -1 if the ring has not n free slots
+         */
+        long claim(int n) {
+            while (true) {
+                long current = claimed.get();
+                if (current + n - consumed > RING_RECORDS) {
+                    return -1;
+                }
+                if (claimed.compareAndSet(current, current + n)) {
+                    return current;
+                }
+            }
+        }
+
+        /**
+         * fill and publish a claimed slot
+         * @param sequence sequence of the slot
+         * @param h1 h1
+         * @param h2 h2
+         */
+        void publish(long sequence, long h1, long h2) {
+            int slot = (int) (sequence & (RING_RECORDS - 1));
+            records[slot << 1] = h1;
+            records[(slot << 1) + 1] = h2;
+            SEQUENCES.setRelease(sequences, slot, sequence + 1);
+        }
+    }
+
+    /**
+     * replay the rotated journal and then the journal, a torn last record is ignored
+     * @param file journal file
+     * @param hashSeed hash seed of the filter
+     * @param size bitmap size of the filter
+     * @param put receives h1, h2 of each record, the array is reused
+     * @return {@link Long} number of records replayed
+     */
+    public static long replay(Path file, long hashSeed, long size, Consumer<long[]> put) {
+        return replayFile(file.resolveSibling(file.getFileName() + ".old"), hashSeed, size, put)
+                + replayFile(file, hashSeed, size, put);
+    }
+
+    /**
+     * replay one journal file
+     * @param path journal file
+     * @param hashSeed hash seed of the filter
+     * @param size bitmap size of the filter
+     * @param put receives h1, h2 of each record
+     * @return {@link Long} number of records replayed
+     */
+    private static long replayFile(Path path, long hashSeed, long size, Consumer<long[]> put) {
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(HEADER_BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // 读满文件头
+            }
+            if (buffer.position() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+                    || buffer.getLong(8) != hashSeed || buffer.getLong(16) != size) {
+                log.warn("journal {} does not belong to this filter, skipped", path);
+                return 0;
+            }
+            long[] hashes = new long[2];
+            long records = 0;
+            buffer.clear();
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= RECORD_BYTES) {
+                    hashes[0] = buffer.getLong();
+                    hashes[1] = buffer.getLong();
+                    put.accept(hashes);
+                    records++;
+                }
+                buffer.compact();
+            }
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("replay journal " + path + " failed", e);
+        }
+    }
+}
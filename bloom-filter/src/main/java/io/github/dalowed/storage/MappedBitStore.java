@@ -0,0 +1,128 @@
+package io.github.dalowed.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * bitmap that is the bitmap file itself, mapped into memory. Opening an existing file does not
+ * read it, pages are loaded lazily by the OS on first access. Writes reach the page cache at once
+ * and the disk on {@link #force()}. Words are big-endian, the same format as the saved bitmap
+ * file, so a file saved from any storage can be mapped. Single writer
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class MappedBitStore extends OffHeapBitStore {
+
+    // 与 DataOutputStream 写出的位图文件字节序一致
+    protected static final VarHandle FILE_WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final Path file;
+
+    /**
+     * Init MappedBitStore
+     * @param file bitmap file
+     * @param wordCount number of words
+     * @param create true to create an empty bitmap (an existing file is cleared), false to map an existing bitmap
+     */
+    public MappedBitStore(Path file, long wordCount, boolean create) {
+        super(map(file, wordCount, create), wordCount);
+        this.file = file;
+    }
+
+    /**
+     * map the file in segments of 2^27 words
+     * @param file bitmap file
+     * @param wordCount number of words
+     * @param create create
+     * @return {@link ByteBuffer[]}
+     */
+    private static ByteBuffer[] map(Path file, long wordCount, boolean create) {
+        long bytes = wordCount << 3;
+        try {
+            if (create && file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            StandardOpenOption[] options = create
+                    ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+                    : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+            // 映射建立后关闭通道不影响映射
+            try (FileChannel channel = FileChannel.open(file, options)) {
+                if (create) {
+                    // 截断后扩展, 新文件内容全为 0(稀疏文件)
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.allocate(1), bytes - 1);
+                } else if (channel.size() < bytes) {
+                    throw new IllegalStateException("bitmap file " + file + " holds " + channel.size() + " bytes, " + bytes + " required");
+                }
+                int segmentCount = (int) ((wordCount + SEGMENT_WORDS_MASK) >>> SEGMENT_WORDS_SHIFT);
+                ByteBuffer[] segments = new ByteBuffer[Math.max(1, segmentCount)];
+                for (int i = 0; i < segments.length; i++) {
+                    long position = (long) i << (SEGMENT_WORDS_SHIFT + 3);
+                    segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(1L << (SEGMENT_WORDS_SHIFT + 3), bytes - position));
+                }
+                return segments;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("map bitmap file " + file + " failed", e);
+        }
+    }
+
+    @Override
+    public long getWord(long index) {
+        return (long) FILE_WORDS.get(segment(index), offset(index));
+    }
+
+    @Override
+    public void setWord(long index, long value) {
+        FILE_WORDS.set(segment(index), offset(index), value);
+    }
+
+    @Override
+    public boolean orWord(long index, long mask) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        long word = (long) FILE_WORDS.get(segment, offset);
+        if ((word & mask) == mask) {
+            return false;
+        }
+        FILE_WORDS.set(segment, offset, word | mask);
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSetWord(long index, long expected, long value) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        if ((long) FILE_WORDS.get(segment, offset) != expected) {
+            return false;
+        }
+        FILE_WORDS.set(segment, offset, value);
+        return true;
+    }
+
+    /**
+     * write the dirty pages of all segments to the disk
+     */
+    public void force() {
+        for (ByteBuffer segment : segments) {
+            ((MappedByteBuffer) segment).force();
+        }
+    }
+
+    /**
+     * getFile
+     * @return {@link Path}
+     */
+    public Path getFile() {
+        return file;
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.dalowed.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * bitmap in direct memory, split into segments of at most 1 GiB so that more than
+ * Integer.MAX_VALUE words can be addressed. Segments are aligned to 64 bytes, so a block of the
+ * BLOCKED layout is exactly one cache line. Single writer
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class OffHeapBitStore implements BitStore {
+
+    protected static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    // 每段 2^27 个 long, 即 1 GiB
+    protected static final int SEGMENT_WORDS_SHIFT = 27;
+    protected static final long SEGMENT_WORDS_MASK = (1L << SEGMENT_WORDS_SHIFT) - 1;
+
+    private static final int CACHE_LINE = 64;
+
+    protected final ByteBuffer[] segments;
+    private final long wordCount;
+
+    /**
+     * Init OffHeapBitStore
+     * @param wordCount number of words
+     */
+    public OffHeapBitStore(long wordCount) {
+        this.wordCount = wordCount;
+        int segmentCount = (int) ((wordCount + SEGMENT_WORDS_MASK) >>> SEGMENT_WORDS_SHIFT);
+        this.segments = new ByteBuffer[Math.max(1, segmentCount)];
+        for (int i = 0; i < segments.length; i++) {
+            long words = Math.min(1L << SEGMENT_WORDS_SHIFT, wordCount - ((long) i << SEGMENT_WORDS_SHIFT));
+            int bytes = (int) (words << 3);
+            // alignedSlice 会把首尾都截到缓存行边界, 多申请一个缓存行; allocateDirect 已清零
+            int alignedBytes = (bytes + CACHE_LINE - 1) & -CACHE_LINE;
+            segments[i] = ByteBuffer.allocateDirect(alignedBytes + CACHE_LINE).alignedSlice(CACHE_LINE).limit(bytes).slice();
+        }
+    }
+
+    @Override
+    public long wordCount() {
+        return wordCount;
+    }
+
+    @Override
+    public long getWord(long index) {
+        return (long) WORDS.get(segment(index), offset(index));
+    }
+
+    @Override
+    public void setWord(long index, long value) {
+        WORDS.set(segment(index), offset(index), value);
+    }
+
+    @Override
+    public boolean orWord(long index, long mask) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        long word = (long) WORDS.get(segment, offset);
+        if ((word & mask) == mask) {
+            return false;
+        }
+        WORDS.set(segment, offset, word | mask);
+        return true;
+    }
+
+    @Override
+    public boolean compareAndSetWord(long index, long expected, long value) {
+        ByteBuffer segment = segment(index);
+        int offset = offset(index);
+        if ((long) WORDS.get(segment, offset) != expected) {
+            return false;
+        }
+        WORDS.set(segment, offset, value);
+        return true;
+    }
+
+    /**
+     * Init OffHeapBitStore over existing segments, every segment but the last holds 2^27 words
+     * @param segments segments
+     * @param wordCount number of words
+     */
+    protected OffHeapBitStore(ByteBuffer[] segments, long wordCount) {
+        this.segments = segments;
+        this.wordCount = wordCount;
+    }
+
+    /**
+     * segment of a word
+     * @param index word index
+     * @return {@link ByteBuffer}
+     */
+    protected final ByteBuffer segment(long index) {
+        return segments[(int) (index >>> SEGMENT_WORDS_SHIFT)];
+    }
+
+    /**
+     * byte offset of a word inside its segment
+     * @param index word index
+     * @return {@link Integer}
+     */
+    protected static int offset(long index) {
+        return (int) (index & SEGMENT_WORDS_MASK) << 3;
+    }
+}
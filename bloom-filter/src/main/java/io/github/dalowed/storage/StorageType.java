@@ -0,0 +1,23 @@
+package io.github.dalowed.storage;
+
+/**
+ * where the bitmap is stored
+ * @author dalowed
+ * @since 0.0.4
+ */
+public enum StorageType {
+    /**
+     * heap long[] (default), at most Integer.MAX_VALUE words
+     */
+    HEAP,
+    /**
+     * direct memory outside the java heap, 64-bit addressing, not scanned or copied by the GC.
+     * Limited by -XX:MaxDirectMemorySize
+     */
+    OFF_HEAP,
+    /**
+     * the bitmap file mapped into memory, recovery maps the file instead of reading it.
+     * Call {@link io.github.dalowed.filter.BloomFilter#force()} to write changes to the disk
+     */
+    MAPPED
+}
@@ -2,12 +2,39 @@ package io.github.dalowed.utils;
 
 import com.alibaba.fastjson.JSON;
 import io.github.dalowed.bean.BloomInformation;
+import io.github.dalowed.bean.CuckooInformation;
+import io.github.dalowed.bean.FuseInformation;
+import io.github.dalowed.bean.ScalableInformation;
+import io.github.dalowed.bean.ShardInformation;
+import io.github.dalowed.bean.WindowInformation;
 import io.github.dalowed.filter.BloomFilter;
+import io.github.dalowed.filter.ScalableBloomFilter;
+import io.github.dalowed.filter.ShardedBloomFilter;
+import io.github.dalowed.filter.SlidingWindowBloomFilter;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.DirtyPageTracker;
+import io.github.dalowed.storage.HeapBitStore;
+import io.github.dalowed.storage.MappedBitStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.LongStream;
+import java.util.zip.CRC32C;
+
+import static io.github.dalowed.constants.CommonConstants.BITMAP_FILE;
+import static io.github.dalowed.constants.CommonConstants.INFO_FILE;
+import static io.github.dalowed.constants.CommonConstants.INFO_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.SCALABLE_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.SHARDS_FILE_NAME;
+import static io.github.dalowed.constants.CommonConstants.WINDOW_FILE_NAME;
 
 
 /**
@@ -17,50 +44,260 @@ import java.nio.ByteBuffer;
 public class BloomFilterInfoUtils {
     private static final Logger log = LoggerFactory.getLogger(BloomFilterInfoUtils.class);
 
+    // 并行加载时每个任务读取 16 MiB, 每次读取 1 MiB
+    private static final long LOAD_RANGE_WORDS = 1L << 21;
+    private static final int LOAD_CHUNK_WORDS = 1 << 17;
+
+    // 页日志每段的起始字与字数
+    private static final int PAGE_RECORD_HEADER = Long.BYTES + Integer.BYTES;
+
     /**
      * generate bitmap
      * @param bitArray bloomfilter bitmap
      * @return {@link Boolean}
      */
     public static boolean generatorBitmapFile(long[] bitArray) {
-        FileOutputStream fos = null;
-        try {
-            // 创建一个 FileWriter 对象，然后用它创建一个 BufferedWriter 对象
-            String filePath = "bitmap/bitmap.bin";
-            File file = new File(filePath);
-
-            checkFile(file);
+        return generatorBitmapFile(new HeapBitStore(bitArray));
+    }
 
-            fos = new FileOutputStream(filePath);
+    /**
+     * generate bitmap of any storage at the default location, words are written big-endian
+     * @param bitStore bloomfilter bitmap
+     * @return {@link Boolean}
+     */
+    public static boolean generatorBitmapFile(BitStore bitStore) {
+        return generatorBitmapFile(bitStore, Path.of(BITMAP_FILE));
+    }
 
-            for (int i = 0; i < bitArray.length; i++) {
+    /**
+     * generate bitmap of any storage, words are written big-endian
+     * @param bitStore bloomfilter bitmap
+     * @param path bitmap file
+     * @return {@link Boolean}
+     */
+    public static boolean generatorBitmapFile(BitStore bitStore, Path path) {
+        File file = path.toFile();
 
-                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
-                buffer.putLong(bitArray[i]);
+        // 映射存储本身就是位图文件, 只需刷盘, 重写会截断正在映射的文件
+        if (bitStore instanceof MappedBitStore && ((MappedBitStore) bitStore).getFile().equals(path)) {
+            ((MappedBitStore) bitStore).force();
+            log.info("bitmap force success: {}", file.getAbsoluteFile());
+            return true;
+        }
 
+        checkFile(file);
 
-                fos.write(buffer.array());
+        // 先写临时文件再改名, 中断时保留上一次完整的位图文件
+        File temp = new File(file.getPath() + ".tmp");
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+                for (long i = 0; i < bitStore.wordCount(); i++) {
+                    out.writeLong(bitStore.getWord(i));
+                }
+                out.flush();
+                fileOut.getFD().sync();
             }
-//            log.info("bitmap保存成功,文件位置:{}", filePath);
-//            logIfEnabled(log::info, "bitmap保存成功,文件位置: " + filePath);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
             log.info("bitmap generate success: {}", file.getAbsoluteFile());
             return true;
         } catch (IOException e) {
-//            log.error("bitmap信息保存失败:{}", e.getMessage());
-//            logIfEnabled(log::error, "bitmap信息保存失败: " + e.getMessage());
-            log.error("bitmap generate error", e.getMessage());
+            log.error("bitmap generate error: {}", e.getMessage());
             return false;
-        }finally {
-            if (fos != null) {
-                try {
-                    fos.close();
-                } catch (IOException e) {
-//                    logIfEnabled(log::error, "关闭流失败: " + e.getMessage());
-                    log.error("bitmap stream close error: ", e.getMessage());
+        }
+    }
+    /**
+     * write the dirty pages of a bitmap into the bitmap file in place, runs of consecutive pages
+     * are written at once. The runs first go to a page log that is synced and only then copied into
+     * the bitmap file, so a torn write never leaves a bitmap mixing old and new pages; a checkpoint
+     * interrupted while copying is completed by {@link #recoverBitmapPages(Path)}, one interrupted
+     * before leaves the bitmap file untouched. On error all pages are marked dirty again
+     * @param bitStore bloomfilter bitmap
+     * @param dirtyPages dirty pages of the bitmap
+     * @param file bitmap file
+     * @return {@link Long} number of pages written, -1 on error
+     */
+    public static long generatorBitmapPages(BitStore bitStore, DirtyPageTracker dirtyPages, Path file) {
+        Path pages = pagesFileOf(file);
+        long written = 0;
+        try {
+            Files.createDirectories(file.getParent());
+            try (FileChannel channel = FileChannel.open(pages, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // 一次最多写 64 页, 与 DataOutputStream 相同使用大端序
+                ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_RECORD_HEADER + (DirtyPageTracker.PAGE_WORDS << 9));
+                CRC32C crc = new CRC32C();
+                for (int group = 0; group < dirtyPages.groupCount(); group++) {
+                    long dirty = dirtyPages.drain(group);
+                    while (dirty != 0) {
+                        int first = Long.numberOfTrailingZeros(dirty);
+                        int run = Long.numberOfTrailingZeros(~(dirty >>> first));
+                        dirty &= run == 64 ? 0 : ~(((1L << run) - 1) << first);
+
+                        long fromWord = (((long) group << 6) + first) << DirtyPageTracker.PAGE_WORDS_SHIFT;
+                        long toWord = Math.min(bitStore.wordCount(), fromWord + ((long) run << DirtyPageTracker.PAGE_WORDS_SHIFT));
+                        buffer.clear();
+                        buffer.putLong(fromWord).putInt((int) (toWord - fromWord));
+                        for (long i = fromWord; i < toWord; i++) {
+                            buffer.putLong(bitStore.getWord(i));
+                        }
+                        buffer.flip();
+                        crc.update(buffer.duplicate());
+                        writeFully(channel, buffer);
+                        written += run;
+                    }
+                }
+                // 结束标记和校验和, 缺少时页日志不完整
+                buffer.clear();
+                buffer.putLong(-1).putInt((int) crc.getValue()).flip();
+                writeFully(channel, buffer);
+                channel.force(false);
+            }
+            applyBitmapPages(pages, file, bitStore.wordCount());
+            Files.delete(pages);
+            log.debug("bitmap pages written: {}", written);
+            return written;
+        } catch (IOException e) {
+            dirtyPages.markAll();
+            log.error("bitmap pages write error: {}", e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * finish a checkpoint interrupted by a crash: a complete page log left next to the bitmap file
+     * is copied into it, an incomplete one is discarded. Called before the bitmap file is read or mapped
+     * @param file bitmap file
+     */
+    public static void recoverBitmapPages(Path file) {
+        Path pages = pagesFileOf(file);
+        if (!Files.exists(pages)) {
+            return;
+        }
+        try {
+            if (applyBitmapPages(pages, file, -1)) {
+                log.info("bitmap pages recovered: {}", pages.toAbsolutePath());
+            } else {
+                log.warn("incomplete bitmap pages discarded: {}", pages.toAbsolutePath());
+            }
+            Files.delete(pages);
+        } catch (IOException e) {
+            throw new UncheckedIOException("recover bitmap pages failed: " + pages, e);
+        }
+    }
+
+    /**
+     * page log of a bitmap file
+     * @param file bitmap file
+     * @return {@link Path}
+     */
+    private static Path pagesFileOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".pages");
+    }
+
+    /**
+     * copy the runs of a complete page log into the bitmap file and sync it
+     * @param pages page log
+     * @param file bitmap file
+     * @param wordCount words of the bitmap, a longer file is truncated; -1 keeps the length
+     * @return {@link Boolean} false if the page log is incomplete, the bitmap file is then not changed
+     * @throws IOException IOException, also when a run starts after the end of the bitmap file
+     */
+    private static boolean applyBitmapPages(Path pages, Path file, long wordCount) throws IOException {
+        try (FileChannel pageLog = FileChannel.open(pages, StandardOpenOption.READ)) {
+            if (!isCompletePageLog(pageLog)) {
+                return false;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(PAGE_RECORD_HEADER);
+                long position = 0;
+                while (true) {
+                    header.clear();
+                    readFully(pageLog, header, position);
+                    long fromWord = header.getLong(0);
+                    if (fromWord < 0) {
+                        break;
+                    }
+                    long bytes = (long) header.getInt(Long.BYTES) << 3;
+                    position += PAGE_RECORD_HEADER;
+                    // 零拷贝复制页
+                    pageLog.position(position);
+                    for (long copied = 0; copied < bytes; ) {
+                        long transferred = channel.transferFrom(pageLog, (fromWord << 3) + copied, bytes - copied);
+                        if (transferred == 0) {
+                            // 位置超出文件末尾时不复制, 位图文件被截断或删除
+                            throw new EOFException("bitmap file " + file + " ends at " + channel.size() + ", before word " + fromWord);
+                        }
+                        copied += transferred;
+                    }
+                    position += bytes;
+                }
+                if (wordCount >= 0 && channel.size() > wordCount << 3) {
+                    channel.truncate(wordCount << 3);
                 }
+                channel.force(false);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * whether a page log ends with its marker and its checksum matches
+     * @param pageLog page log
+     * @return {@link Boolean}
+     * @throws IOException IOException
+     */
+    private static boolean isCompletePageLog(FileChannel pageLog) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(PAGE_RECORD_HEADER + (DirtyPageTracker.PAGE_WORDS << 9));
+        CRC32C crc = new CRC32C();
+        long position = 0;
+        long size = pageLog.size();
+        while (position + PAGE_RECORD_HEADER <= size) {
+            buffer.clear().limit(PAGE_RECORD_HEADER);
+            readFully(pageLog, buffer, position);
+            if (buffer.getLong(0) < 0) {
+                return buffer.getInt(Long.BYTES) == (int) crc.getValue();
             }
+            int count = buffer.getInt(Long.BYTES);
+            if (count <= 0 || count > DirtyPageTracker.PAGE_WORDS << 6 || position + PAGE_RECORD_HEADER + ((long) count << 3) > size) {
+                return false;
+            }
+            buffer.limit(PAGE_RECORD_HEADER + (count << 3));
+            readFully(pageLog, buffer, position + PAGE_RECORD_HEADER);
+            crc.update(buffer.flip());
+            position += PAGE_RECORD_HEADER + ((long) count << 3);
         }
+        return false;
     }
+
+    /**
+     * fill the remaining bytes of a buffer with positional reads
+     * @param channel channel
+     * @param buffer buffer
+     * @param position file position of the buffer position
+     * @throws IOException IOException
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("file ends at " + position);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * write the remaining bytes of a buffer
+     * @param channel channel
+     * @param buffer buffer
+     * @throws IOException IOException
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     /**
      * checkFile
      * @param file file
@@ -90,21 +327,33 @@ public class BloomFilterInfoUtils {
     }
 
     /**
-     * Generate filter information(json)
+     * Generate filter information(json) in the directory of the filter
      * @param bloomFilter bloomfilter
      * @param message message
      * @return {@link Boolean}
      */
     // 生成状态信息
     public static boolean generatorInfo(BloomFilter bloomFilter, String message) {
+        return generatorInfo(bloomFilter, bloomFilter.getElementCount(), message);
+    }
+
+    /**
+     * Generate filter information(json) in the directory of the filter
+     * @param bloomFilter bloomfilter
+     * @param elementCount element count to save, e.g. that of the snapshot a checkpoint wrote
+     * @param message message
+     * @return {@link Boolean}
+     */
+    public static boolean generatorInfo(BloomFilter bloomFilter, long elementCount, String message) {
         FileOutputStream fileOutputStream = null;
         try {
-            String filePath = "bitmap/info.txt";
-            File file = new File(filePath);
+            File file = bloomFilter.getDirectory().resolve(INFO_FILE_NAME).toFile();
+            // 先写临时文件再改名, 检查点中断时保留旧的信息文件
+            File temp = new File(file.getPath() + ".tmp");
 
             checkFile(file);
 
-            fileOutputStream = new FileOutputStream(file);
+            fileOutputStream = new FileOutputStream(temp);
 
             BloomInformation information = new BloomInformation();
             information.setSeeds(bloomFilter.getHashFunctionsSaltList());
@@ -113,11 +362,18 @@ public class BloomFilterInfoUtils {
             information.setLogging(bloomFilter.isLogging());
             information.setExpectedInsertions(bloomFilter.getExpectedInsertions());
             information.setFalsePositiveProbability(bloomFilter.getFalsePositiveProbability());
+            information.setHashStrategy(bloomFilter.getHashStrategy());
+            information.setHashSeed(bloomFilter.getHashSeed());
+            information.setHashKey(bloomFilter.getHashKey());
+            information.setLayout(bloomFilter.getLayout());
+            information.setElementCount(elementCount);
 
             information.setDescription(message);
 
             fileOutputStream.write(information.toString().getBytes());
             fileOutputStream.flush();
+            fileOutputStream.close();
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
 
 //            logIfEnabled(log::info, "过滤器信息保存成功, 文件位置:" + filePath);
 //            System.out.println("过滤器信息保存成功, 文件位置:" + filePath);
@@ -148,34 +404,80 @@ public class BloomFilterInfoUtils {
      * @return {@link Long[] }
      */
     public static long[] loadingBitMap(long size) {
-        File filename = new File("bitmap/bitmap.bin");
-        BufferedInputStream in = null;
-        try {
-            in = new BufferedInputStream(new FileInputStream(filename));
-            byte[] temp = new byte[8];
-            long num = 0;
-            int count = 0;
-            long[] longs = new long[(int)(size + 63) / 64];
-            while(in.read(temp) != -1){
-                for (byte b : temp) {
-                    num = (num << 8) | (b & 0xFF);
-                }
-                longs[count++] = num;
-                num = 0;
+        HeapBitStore bitStore = new HeapBitStore(new long[(int) ((size + 63) / 64)]);
+        loadingBitMap(bitStore);
+        return bitStore.getWords();
+    }
+
+    /**
+     * loading the bitmap at the default location into a storage
+     * @param bitStore bitmap storage
+     */
+    public static void loadingBitMap(BitStore bitStore) {
+        loadingBitMap(bitStore, Path.of(BITMAP_FILE));
+    }
+
+    /**
+     * loading bitmap into a storage, the file must hold at least wordCount words. Ranges of
+     * {@value #LOAD_RANGE_WORDS} words are read in parallel with positional reads, for a bitmap
+     * that should be queryable before it is read use the MAPPED storage
+     * @param bitStore bitmap storage
+     * @param file bitmap file
+     */
+    public static void loadingBitMap(BitStore bitStore, Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long wordCount = bitStore.wordCount();
+            if (channel.size() < wordCount << 3) {
+                throw new IllegalStateException("bitmap file holds " + channel.size() + " bytes, " + (wordCount << 3) + " required");
             }
-            return longs;
-        } catch (FileNotFoundException e) {
+            long ranges = (wordCount + LOAD_RANGE_WORDS - 1) / LOAD_RANGE_WORDS;
+            LongStream.range(0, ranges).parallel().forEach(range -> {
+                long from = range * LOAD_RANGE_WORDS;
+                loadingRange(channel, bitStore, from, Math.min(wordCount, from + LOAD_RANGE_WORDS));
+            });
+        } catch (NoSuchFileException e) {
             throw new RuntimeException("could not found file: " + e);
         } catch (IOException e) {
             throw new RuntimeException("read file error: " + e.getMessage());
-        }finally {
-            if (in != null) {
-                try {
-                    in.close();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("read file error: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * read words [from, to) of the bitmap file, short reads are continued until the buffer is full
+     * @param channel bitmap file
+     * @param bitStore bitmap storage
+     * @param from first word
+     * @param to end word
+     */
+    private static void loadingRange(FileChannel channel, BitStore bitStore, long from, long to) {
+        long[] words = bitStore instanceof HeapBitStore ? ((HeapBitStore) bitStore).getWords() : null;
+        // DataOutputStream 写出的位图为大端序
+        ByteBuffer buffer = ByteBuffer.allocateDirect(LOAD_CHUNK_WORDS << 3);
+        try {
+            for (long chunk = from; chunk < to; chunk += LOAD_CHUNK_WORDS) {
+                int count = (int) Math.min(LOAD_CHUNK_WORDS, to - chunk);
+                buffer.clear().limit(count << 3);
+                long position = chunk << 3;
+                while (buffer.hasRemaining()) {
+                    int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new EOFException("bitmap file ends at " + position);
+                    }
+                    position += read;
+                }
+                buffer.flip();
+                if (words != null) {
+                    buffer.asLongBuffer().get(words, (int) chunk, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        bitStore.setWord(chunk + i, buffer.getLong(i << 3));
+                    }
                 }
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -184,9 +486,18 @@ public class BloomFilterInfoUtils {
      * @return {@link BloomInformation }
      */
     public static BloomInformation getBloomInfo() {
+        return getBloomInfo(Path.of(INFO_FILE));
+    }
+
+    /**
+     * read the filter information(json)
+     * @param file information file
+     * @return {@link BloomInformation }
+     */
+    public static BloomInformation getBloomInfo(Path file) {
         FileInputStream fileInputStream = null;
         try {
-            fileInputStream = new FileInputStream("bitmap/info.txt");
+            fileInputStream = new FileInputStream(file.toFile());
             byte[] bytes = fileInputStream.readAllBytes();
             String s = new String(bytes);
 
@@ -200,4 +511,163 @@ public class BloomFilterInfoUtils {
             throw new RuntimeException("read file content error: " + e.getMessage());
         }
     }
+
+    /**
+     * write the manifest of a scalable filter, the sub filters write their own information
+     * @param scalable scalable bloomfilter
+     * @param message description
+     * @return {@link Boolean}
+     */
+    public static boolean generatorScalableInfo(ScalableBloomFilter scalable, String message) {
+        ScalableInformation information = new ScalableInformation();
+        information.setDescription(message);
+        information.setFilterCount(scalable.getFilters().size());
+        information.setInitialCapacity(scalable.getInitialCapacity());
+        information.setFalsePositiveProbability(scalable.getFalsePositiveProbability());
+        information.setGrowthFactor(scalable.getGrowthFactor());
+        information.setTighteningRatio(scalable.getTighteningRatio());
+        information.setElementCount(scalable.getElementCount());
+
+        return writeInfo(information.toString(), scalable.getDirectory().resolve(SCALABLE_FILE_NAME));
+    }
+
+    /**
+     * write the manifest of a sliding window filter, the slices write their own information
+     * @param windowFilter sliding window bloomfilter
+     * @param message description
+     * @return {@link Boolean}
+     */
+    public static boolean generatorWindowInfo(SlidingWindowBloomFilter windowFilter, String message) {
+        WindowInformation information = new WindowInformation();
+        information.setDescription(message);
+        information.setWindow(windowFilter.getWindow().toMillis());
+        information.setSlices(windowFilter.getSlices());
+        information.setExpectedInsertions(windowFilter.getExpectedInsertions());
+        information.setFalsePositiveProbability(windowFilter.getFalsePositiveProbability());
+        information.setFirstGeneration(windowFilter.getFirstGeneration());
+        information.setFilterCount(windowFilter.getFilters().size());
+        information.setRotatedAt(windowFilter.getRotatedAt());
+        information.setElementCount(windowFilter.getElementCount());
+
+        return writeInfo(information.toString(), windowFilter.getDirectory().resolve(WINDOW_FILE_NAME));
+    }
+
+    /**
+     * write the manifest of a sharded filter, the shards write their own information
+     * @param sharded sharded bloomfilter
+     * @param message description
+     * @return {@link Boolean}
+     */
+    public static boolean generatorShardInfo(ShardedBloomFilter sharded, String message) {
+        ShardInformation information = new ShardInformation();
+        information.setDescription(message);
+        information.setShardCount(sharded.getShards().size());
+        information.setExpectedInsertions(sharded.getExpectedInsertions());
+        information.setFalsePositiveProbability(sharded.getFalsePositiveProbability());
+        information.setElementCount(sharded.getElementCount());
+
+        return writeInfo(information.toString(), sharded.getDirectory().resolve(SHARDS_FILE_NAME));
+    }
+
+    /**
+     * write the information of a cuckoo filter
+     * @param information cuckoo filter information
+     * @param file information file
+     * @return {@link Boolean}
+     */
+    public static boolean generatorCuckooInfo(CuckooInformation information, Path file) {
+        return writeInfo(information.toString(), file);
+    }
+
+    /**
+     * write the information of a binary fuse filter
+     * @param information binary fuse filter information
+     * @param file information file
+     * @return {@link Boolean}
+     */
+    public static boolean generatorFuseInfo(FuseInformation information, Path file) {
+        return writeInfo(information.toString(), file);
+    }
+
+    /**
+     * write an information file through a temporary file, an interrupted write keeps the old one
+     * @param json information
+     * @param file information file
+     * @return {@link Boolean}
+     */
+    private static boolean writeInfo(String json, Path file) {
+        Path temp = Path.of(file + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Files.writeString(temp, json);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("create done: {}", file.toAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            log.error("create info file failed. {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * read the manifest of a scalable filter(json)
+     * @param file manifest file
+     * @return {@link ScalableInformation}
+     */
+    public static ScalableInformation getScalableInfo(Path file) {
+        return readInfo(file, ScalableInformation.class);
+    }
+
+    /**
+     * read the manifest of a sliding window filter(json)
+     * @param file manifest file
+     * @return {@link WindowInformation}
+     */
+    public static WindowInformation getWindowInfo(Path file) {
+        return readInfo(file, WindowInformation.class);
+    }
+
+    /**
+     * read the manifest of a sharded filter(json)
+     * @param file manifest file
+     * @return {@link ShardInformation}
+     */
+    public static ShardInformation getShardInfo(Path file) {
+        return readInfo(file, ShardInformation.class);
+    }
+
+    /**
+     * read the information of a cuckoo filter(json)
+     * @param file information file
+     * @return {@link CuckooInformation}
+     */
+    public static CuckooInformation getCuckooInfo(Path file) {
+        return readInfo(file, CuckooInformation.class);
+    }
+
+    /**
+     * read the information of a binary fuse filter(json)
+     * @param file information file
+     * @return {@link FuseInformation}
+     */
+    public static FuseInformation getFuseInfo(Path file) {
+        return readInfo(file, FuseInformation.class);
+    }
+
+    /**
+     * read an information file(json)
+     * @param file information file
+     * @param type information type
+     * @return {@link T}
+     * @param <T> information type
+     */
+    private static <T> T readInfo(Path file, Class<T> type) {
+        try {
+            return JSON.parseObject(Files.readString(file), type);
+        } catch (NoSuchFileException e) {
+            throw new RuntimeException("read file error: " + e.getMessage());
+        } catch (IOException e) {
+            throw new RuntimeException("read file content error: " + e.getMessage());
+        }
+    }
 }
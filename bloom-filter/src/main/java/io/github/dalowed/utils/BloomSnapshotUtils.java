@@ -0,0 +1,445 @@
+package io.github.dalowed.utils;
+
+import io.github.dalowed.bean.BloomInformation;
+import io.github.dalowed.filter.BloomFilter;
+import io.github.dalowed.filter.ConsistentSnapshot;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.HeapBitStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+import static io.github.dalowed.constants.CommonConstants.SNAPSHOT_FILE_NAME;
+
+/**
+ * single file binary snapshot of a bloomfilter:
+ * <pre>
+ * magic(int) version(int) encoding(int) headerLength(int) header(headerLength bytes)
+ * payloadLength(long) payload(payloadLength bytes) crc32c(int)
+ * </pre>
+ * The payload is the bitmap in a {@link SnapshotEncoding}, chosen from the fill ratio unless
+ * given. The checksum covers the prefix, the header and the bitmap as little-endian words, so it
+ * does not depend on the encoding. Version 1 files (no encoding and payloadLength, RAW payload)
+ * are still read. The file is written through a FileChannel in chunks of {@value #CHUNK_BYTES}
+ * bytes to a temporary file, which then replaces the snapshot by an atomic rename. A snapshot
+ * streamed to a channel has payloadLength -1 and its payload is split into frames of
+ * length(int) bytes, ended by a frame of length 0; {@link SnapshotReader} reads both
+ * @author dalowed
+ * @since 0.0.4
+ */
+public class BloomSnapshotUtils {
+    private static final Logger log = LoggerFactory.getLogger(BloomSnapshotUtils.class);
+
+    /**
+     * "BLMS"
+     */
+    public static final int MAGIC = 0x424C4D53;
+    /**
+     * current format version
+     */
+    public static final int VERSION = 2;
+
+    static final int CHUNK_BYTES = 4 << 20;
+    static final int CHUNK_WORDS = CHUNK_BYTES >>> 3;
+    // varint 最长 10 字节
+    static final int MAX_VARINT_BYTES = 10;
+
+    /**
+     * generate snapshot in the directory of the filter
+     * @param bloomFilter bloomfilter
+     * @return {@link Boolean}
+     */
+    public static boolean generatorSnapshotFile(BloomFilter bloomFilter) {
+        return generatorSnapshotFile(bloomFilter, bloomFilter.getDirectory().resolve(SNAPSHOT_FILE_NAME));
+    }
+
+    /**
+     * generate snapshot, the encoding is chosen from the fill ratio
+     * @param bloomFilter bloomfilter
+     * @param file snapshot file
+     * @return {@link Boolean}
+     */
+    public static boolean generatorSnapshotFile(BloomFilter bloomFilter, Path file) {
+        return generatorSnapshotFile(bloomFilter, file, SnapshotEncoding.of(fillRatio(bloomFilter)));
+    }
+
+    /**
+     * generate snapshot, the previous snapshot is kept until the new one is complete
+     * @param bloomFilter bloomfilter
+     * @param file snapshot file
+     * @param encoding bitmap encoding
+     * @return {@link Boolean}
+     */
+    public static boolean generatorSnapshotFile(BloomFilter bloomFilter, Path file, SnapshotEncoding encoding) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // 一致的时间点镜像, 写入不暂停
+                try (ConsistentSnapshot snapshot = bloomFilter.openSnapshot()) {
+                    writeSnapshot(bloomFilter, snapshot, channel, encoding, true);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("snapshot generate success: {}, encoding: {}", file.toAbsolutePath(), encoding);
+            return true;
+        } catch (IOException e) {
+            log.error("snapshot generate error: {}", e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // 临时文件删除失败不影响旧快照
+            }
+            return false;
+        }
+    }
+
+    /**
+     * fraction of set bits of the storage, read without a snapshot
+     * @param bloomFilter bloomfilter
+     * @return {@link Double}
+     */
+    public static double fillRatio(BloomFilter bloomFilter) {
+        BitStore bitStore = bloomFilter.getBitStore();
+        long bits = 0;
+        for (long i = 0; i < bitStore.wordCount(); i++) {
+            bits += Long.bitCount(bitStore.getWord(i));
+        }
+        // 计数布局每个元素位置占 4 位, 按存储的位数计算
+        return (double) bits / (bitStore.wordCount() << 6);
+    }
+
+    /**
+     * stream a snapshot to a channel, e.g. a socket, from a consistent image of the filter. The
+     * payload length is not known in advance, so the payload is written in frames; read it back
+     * with {@link SnapshotReader}
+     * @param bloomFilter bloomfilter
+     * @param channel channel, not closed
+     * @param encoding bitmap encoding
+     * @throws IOException IOException
+     */
+    public static void writeSnapshot(BloomFilter bloomFilter, WritableByteChannel channel, SnapshotEncoding encoding) throws IOException {
+        try (ConsistentSnapshot snapshot = bloomFilter.openSnapshot()) {
+            writeSnapshot(bloomFilter, snapshot, channel, encoding, false);
+        }
+    }
+
+    /**
+     * write the snapshot to a channel
+     * @param bloomFilter bloomfilter
+     * @param snapshot point-in-time image of the filter
+     * @param channel channel
+     * @param encoding bitmap encoding
+     * @param seekable whether the payload length can be filled in afterwards, the channel must then
+     *                 be a FileChannel that is not in append mode
+     * @throws IOException IOException
+     */
+    private static void writeSnapshot(BloomFilter bloomFilter, ConsistentSnapshot snapshot, WritableByteChannel channel,
+                                      SnapshotEncoding encoding, boolean seekable) throws IOException {
+        BitStore bitStore = snapshot.getBitStore();
+        byte[] header = header(bloomFilter, snapshot.getElementCount());
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(CHUNK_BYTES, 16 + header.length)).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(encoding.ordinal()).putInt(header.length).put(header).flip();
+        crc.update(buffer.duplicate());
+        writeFully(channel, buffer);
+
+        // 编码后的长度写完负载后回填, 不能回填时写 -1 并分帧
+        long lengthPosition = seekable ? ((FileChannel) channel).position() : -1;
+        writeFully(channel, ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, seekable ? 0 : -1));
+        PayloadOutput out = new PayloadOutput(channel, !seekable);
+        switch (encoding) {
+            case DELTA:
+                writeDelta(bitStore, out, buffer, crc);
+                break;
+            case DEFLATE:
+                writeDeflate(bitStore, out, buffer, crc);
+                break;
+            case RAW:
+            default:
+                writeRaw(bitStore, out, buffer, crc);
+                break;
+        }
+        out.finish();
+
+        buffer.clear();
+        buffer.putInt((int) crc.getValue()).flip();
+        writeFully(channel, buffer);
+
+        if (seekable) {
+            ByteBuffer length = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(0, out.length);
+            while (length.hasRemaining()) {
+                ((FileChannel) channel).write(length, lengthPosition + length.position());
+            }
+        }
+    }
+
+    /**
+     * copy words [from, from + count) into the buffer as little-endian longs, ready to read
+     * @param bitStore bitmap
+     * @param buffer buffer
+     * @param from first word
+     * @param count number of words
+     */
+    static void fillChunk(BitStore bitStore, ByteBuffer buffer, long from, int count) {
+        buffer.clear();
+        if (bitStore instanceof HeapBitStore) {
+            // 堆内位图整块复制
+            buffer.asLongBuffer().put(((HeapBitStore) bitStore).getWords(), (int) from, count);
+        } else {
+            LongBuffer longs = buffer.asLongBuffer();
+            for (int i = 0; i < count; i++) {
+                longs.put(i, bitStore.getWord(from + i));
+            }
+        }
+        buffer.limit(count << 3);
+    }
+
+    /**
+     * RAW payload, the words as they are
+     * @param bitStore bitmap
+     * @param out payload output
+     * @param buffer chunk buffer
+     * @param crc checksum
+     * @throws IOException IOException
+     */
+    private static void writeRaw(BitStore bitStore, PayloadOutput out, ByteBuffer buffer, CRC32C crc) throws IOException {
+        for (long from = 0; from < bitStore.wordCount(); from += CHUNK_WORDS) {
+            fillChunk(bitStore, buffer, from, (int) Math.min(CHUNK_WORDS, bitStore.wordCount() - from));
+            crc.update(buffer.duplicate());
+            out.write(buffer);
+        }
+    }
+
+    /**
+     * DELTA payload, the varint gap of each set bit to the previous one, ended by 0
+     * @param bitStore bitmap
+     * @param out payload output
+     * @param buffer chunk buffer
+     * @param crc checksum
+     * @throws IOException IOException
+     */
+    private static void writeDelta(BitStore bitStore, PayloadOutput out, ByteBuffer buffer, CRC32C crc) throws IOException {
+        ByteBuffer encoded = ByteBuffer.allocateDirect(CHUNK_BYTES);
+        long previous = -1;
+        for (long from = 0; from < bitStore.wordCount(); from += CHUNK_WORDS) {
+            int count = (int) Math.min(CHUNK_WORDS, bitStore.wordCount() - from);
+            // 校验和与编码使用同一份数据, 并发写入时两者仍一致
+            fillChunk(bitStore, buffer, from, count);
+            crc.update(buffer.duplicate());
+            for (int i = 0; i < count; i++) {
+                long word = buffer.getLong(i << 3);
+                while (word != 0) {
+                    long bit = ((from + i) << 6) + Long.numberOfTrailingZeros(word);
+                    if (encoded.remaining() < MAX_VARINT_BYTES) {
+                        out.write(encoded.flip());
+                        encoded.clear();
+                    }
+                    putVarint(encoded, bit - previous);
+                    previous = bit;
+                    word &= word - 1;
+                }
+            }
+        }
+        if (encoded.remaining() < MAX_VARINT_BYTES) {
+            out.write(encoded.flip());
+            encoded.clear();
+        }
+        putVarint(encoded, 0);
+        out.write(encoded.flip());
+    }
+
+    /**
+     * DEFLATE payload, the words deflated at the fastest level
+     * @param bitStore bitmap
+     * @param out payload output
+     * @param buffer chunk buffer
+     * @param crc checksum
+     * @throws IOException IOException
+     */
+    private static void writeDeflate(BitStore bitStore, PayloadOutput out, ByteBuffer buffer, CRC32C crc) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteBuffer encoded = ByteBuffer.allocateDirect(1 << 16);
+        try {
+            for (long from = 0; from < bitStore.wordCount(); from += CHUNK_WORDS) {
+                fillChunk(bitStore, buffer, from, (int) Math.min(CHUNK_WORDS, bitStore.wordCount() - from));
+                crc.update(buffer.duplicate());
+                deflater.setInput(buffer);
+                while (!deflater.needsInput()) {
+                    deflater.deflate(encoded);
+                    out.write(encoded.flip());
+                    encoded.clear();
+                }
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                deflater.deflate(encoded);
+                out.write(encoded.flip());
+                encoded.clear();
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * encode the header
+     * @param bloomFilter bloomfilter
+     * @param elementCount elements in the snapshot
+     * @return {@link Byte[]}
+     * @throws IOException IOException
+     */
+    private static byte[] header(BloomFilter bloomFilter, long elementCount) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(bloomFilter.getSize());
+            out.writeInt(bloomFilter.getHashFunctions());
+            out.writeUTF(bloomFilter.getLayout().name());
+            out.writeUTF(bloomFilter.getHashStrategy().name());
+            out.writeLong(bloomFilter.getHashSeed());
+            out.writeBoolean(bloomFilter.getHashKey() != null);
+            if (bloomFilter.getHashKey() != null) {
+                out.writeUTF(bloomFilter.getHashKey());
+            }
+            List<String> seeds = bloomFilter.getHashFunctionsSaltList();
+            out.writeInt(seeds.size());
+            for (String seed : seeds) {
+                out.writeUTF(seed);
+            }
+            out.writeLong(bloomFilter.getExpectedInsertions());
+            out.writeDouble(bloomFilter.getFalsePositiveProbability());
+            out.writeBoolean(bloomFilter.isLogging());
+            out.writeLong(elementCount);
+            out.writeLong(bloomFilter.getBitStore().wordCount());
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * read the snapshot header
+     * @param file snapshot file
+     * @return {@link BloomInformation}
+     */
+    public static BloomInformation getSnapshotInfo(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SnapshotReader(channel).getInformation();
+        } catch (IOException e) {
+            throw new UncheckedIOException("read snapshot error: " + file, e);
+        }
+    }
+
+    /**
+     * loading the snapshot bitmap into an empty storage and verify the checksum
+     * @param file snapshot file
+     * @param bitStore bitmap storage, sized by the snapshot header
+     */
+    public static void loadingSnapshot(Path file, BitStore bitStore) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            new SnapshotReader(channel).readBitmap(bitStore);
+        } catch (IOException e) {
+            throw new UncheckedIOException("read snapshot error: " + file, e);
+        } catch (IllegalStateException e) {
+            throw new IllegalStateException(e.getMessage() + ": " + file, e);
+        }
+    }
+
+    /**
+     * send a snapshot file as it is, e.g. to a socket, with {@link FileChannel#transferTo}, which
+     * the OS can do without copying the bytes through the JVM
+     * @param file snapshot file
+     * @param target target channel, not closed
+     * @return {@link Long} bytes sent
+     */
+    public static long transferSnapshot(Path file, WritableByteChannel target) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            return size;
+        } catch (IOException e) {
+            throw new UncheckedIOException("transfer snapshot error: " + file, e);
+        }
+    }
+
+    /**
+     * write an unsigned LEB128 varint
+     * @param out buffer
+     * @param value value
+     */
+    private static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    /**
+     * write all remaining bytes
+     * @param channel channel
+     * @param buffer buffer
+     * @throws IOException IOException
+     */
+    private static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * payload writer, counts the bytes and, when the length can not be filled in afterwards,
+     * writes each buffer as a frame: length(int) bytes, ended by a frame of length 0
+     */
+    private static final class PayloadOutput {
+        private final WritableByteChannel channel;
+        private final boolean framed;
+        private final ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        private long length;
+
+        private PayloadOutput(WritableByteChannel channel, boolean framed) {
+            this.channel = channel;
+            this.framed = framed;
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return;
+            }
+            length += buffer.remaining();
+            if (framed) {
+                frame.clear();
+                writeFully(channel, frame.putInt(0, buffer.remaining()));
+            }
+            writeFully(channel, buffer);
+        }
+
+        private void finish() throws IOException {
+            if (framed) {
+                frame.clear();
+                writeFully(channel, frame.putInt(0, 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.dalowed.utils;
+
+/**
+ * encoding of the bitmap in a snapshot, chosen from the fill ratio by default
+ * @author dalowed
+ * @since 0.0.4
+ */
+public enum SnapshotEncoding {
+    /**
+     * little-endian words, for filled bitmaps
+     */
+    RAW,
+    /**
+     * varint gaps between set bits, for sparse bitmaps (fill ratio below 5%)
+     */
+    DELTA,
+    /**
+     * deflated words, for bitmaps below 25% fill ratio
+     */
+    DEFLATE;
+
+    /**
+     * the smallest encoding for a fill ratio, a gap takes one or two bytes below 5%, deflate
+     * stops paying off at about 25%
+     * @param fillRatio set bits / bitmap size
+     * @return {@link SnapshotEncoding}
+     */
+    public static SnapshotEncoding of(double fillRatio) {
+        if (fillRatio < 0.05) {
+            return DELTA;
+        }
+        return fillRatio < 0.25 ? DEFLATE : RAW;
+    }
+}
@@ -0,0 +1,379 @@
+package io.github.dalowed.utils;
+
+import io.github.dalowed.bean.BloomInformation;
+import io.github.dalowed.filter.BloomLayout;
+import io.github.dalowed.hash.HashStrategy;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.HeapBitStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static io.github.dalowed.utils.BloomSnapshotUtils.CHUNK_BYTES;
+import static io.github.dalowed.utils.BloomSnapshotUtils.CHUNK_WORDS;
+import static io.github.dalowed.utils.BloomSnapshotUtils.MAGIC;
+import static io.github.dalowed.utils.BloomSnapshotUtils.MAX_VARINT_BYTES;
+import static io.github.dalowed.utils.BloomSnapshotUtils.VERSION;
+
+/**
+ * reads a snapshot, see {@link BloomSnapshotUtils}, from a file, a socket or any other channel.
+ * The header is read when the reader is created, so the bitmap storage can be sized before
+ * {@link #readBitmap(BitStore)}. Bytes are read sequentially and never past the checksum, so
+ * further data on the channel is left to the caller; the channel is not closed
+ * @author dalowed
+ * @since 0.0.4
+ */
+public final class SnapshotReader {
+
+    private final ReadableByteChannel channel;
+    private final CRC32C crc = new CRC32C();
+    private final SnapshotEncoding encoding;
+    private final byte[] header;
+    private final long payloadLength;
+    private ByteBuffer in; // 读取负载时分配, 只读文件头时不需要
+    private long frameRemaining; // 当前帧未读的字节数
+    private boolean ended; // 负载已全部读入缓冲区
+
+    /**
+     * Init SnapshotReader, reads and checks the prefix and the header
+     * @param channel channel at the start of the snapshot
+     * @throws IOException IOException
+     */
+    public SnapshotReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer start = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(start);
+        if (start.getInt(0) != MAGIC) {
+            throw new IllegalStateException("not a bloomfilter snapshot");
+        }
+        int version = start.getInt(4);
+        if (version < 1 || version > VERSION) {
+            throw new IllegalStateException("unsupported snapshot version: " + version);
+        }
+        // 版本 1 没有编码字段
+        ByteBuffer rest = ByteBuffer.allocate(version == 1 ? 4 : 8).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(rest);
+        this.encoding = version == 1 ? SnapshotEncoding.RAW : encodingOf(rest.getInt(0));
+        ByteBuffer headerBuffer = ByteBuffer.allocate(rest.getInt(rest.capacity() - 4));
+        readFully(headerBuffer);
+        crc.update(start.flip());
+        crc.update(rest.flip());
+        crc.update(headerBuffer.flip());
+        this.header = headerBuffer.array();
+        // 版本 1 只有 RAW 负载; 写入流时长度未知, 为 -1, 负载分帧
+        if (version > 1) {
+            ByteBuffer length = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(length);
+            this.payloadLength = length.getLong(0);
+        } else {
+            this.payloadLength = wordCount() << 3;
+        }
+    }
+
+    /**
+     * getEncoding
+     * @return {@link SnapshotEncoding}
+     */
+    public SnapshotEncoding getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * number of words in the snapshot, the last header field
+     * @return {@link Long}
+     */
+    public long wordCount() {
+        return ByteBuffer.wrap(header).getLong(header.length - Long.BYTES);
+    }
+
+    /**
+     * decode the header
+     * @return {@link BloomInformation}
+     * @throws IOException IOException
+     */
+    public BloomInformation getInformation() throws IOException {
+        try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(header))) {
+            BloomInformation information = new BloomInformation();
+            information.setSize(data.readLong());
+            information.setHashFunctions(data.readInt());
+            information.setLayout(BloomLayout.valueOf(data.readUTF()));
+            information.setHashStrategy(HashStrategy.valueOf(data.readUTF()));
+            information.setHashSeed(data.readLong());
+            if (data.readBoolean()) {
+                information.setHashKey(data.readUTF());
+            }
+            int seedCount = data.readInt();
+            List<String> seeds = new ArrayList<>(seedCount);
+            for (int i = 0; i < seedCount; i++) {
+                seeds.add(data.readUTF());
+            }
+            information.setSeeds(seeds);
+            information.setExpectedInsertions(data.readLong());
+            information.setFalsePositiveProbability(data.readDouble());
+            information.setLogging(data.readBoolean());
+            information.setElementCount(data.readLong());
+            information.setDescription("snapshot");
+            return information;
+        }
+    }
+
+    /**
+     * read the bitmap into an empty storage and verify the checksum
+     * @param bitStore bitmap storage, sized by the header
+     * @throws IOException IOException
+     */
+    public void readBitmap(BitStore bitStore) throws IOException {
+        if (wordCount() != bitStore.wordCount()) {
+            throw new IllegalStateException("snapshot holds " + wordCount() + " words, " + bitStore.wordCount() + " expected");
+        }
+        in = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        in.limit(0);
+        // 已知长度的负载按一帧处理
+        frameRemaining = payloadLength >= 0 ? payloadLength : 0;
+        ended = payloadLength == 0;
+        switch (encoding) {
+            case DELTA:
+                readDelta(bitStore);
+                updateChecksum(bitStore);
+                break;
+            case DEFLATE:
+                readDeflate(bitStore);
+                break;
+            case RAW:
+            default:
+                readRaw(bitStore);
+                break;
+        }
+        if (in.hasRemaining() || fillAvailable(1) > 0) {
+            throw new IllegalStateException("snapshot payload is longer than its bitmap");
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(trailer);
+        if (trailer.getInt(0) != (int) crc.getValue()) {
+            throw new IllegalStateException("snapshot checksum mismatch");
+        }
+    }
+
+    /**
+     * read a RAW payload
+     * @param bitStore bitmap
+     * @throws IOException IOException
+     */
+    private void readRaw(BitStore bitStore) throws IOException {
+        long[] words = bitStore instanceof HeapBitStore ? ((HeapBitStore) bitStore).getWords() : null;
+        for (long from = 0; from < bitStore.wordCount(); from += CHUNK_WORDS) {
+            int count = (int) Math.min(CHUNK_WORDS, bitStore.wordCount() - from);
+            fill(count << 3);
+            ByteBuffer chunk = in.slice().limit(count << 3);
+            crc.update(chunk.duplicate());
+            if (words != null) {
+                chunk.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(words, (int) from, count);
+            } else {
+                LongBuffer longs = chunk.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                for (int i = 0; i < count; i++) {
+                    bitStore.setWord(from + i, longs.get(i));
+                }
+            }
+            in.position(in.position() + (count << 3));
+        }
+    }
+
+    /**
+     * read a DELTA payload, bits are ascending so each word is written once
+     * @param bitStore empty bitmap
+     * @throws IOException IOException
+     */
+    private void readDelta(BitStore bitStore) throws IOException {
+        long bit = -1;
+        long wordIndex = -1;
+        long word = 0;
+        try {
+            while (true) {
+                // 尽量保证缓冲区中有一个完整的 varint, 流末尾时可能不足
+                if (in.remaining() < MAX_VARINT_BYTES) {
+                    fillAvailable(MAX_VARINT_BYTES);
+                }
+                long gap = getVarint(in);
+                if (gap == 0) {
+                    break;
+                }
+                bit += gap;
+                long index = bit >>> 6;
+                if (index >= bitStore.wordCount()) {
+                    throw new IllegalStateException("snapshot bit out of range: " + bit);
+                }
+                if (index != wordIndex) {
+                    if (wordIndex >= 0) {
+                        bitStore.setWord(wordIndex, word);
+                    }
+                    wordIndex = index;
+                    word = 0;
+                }
+                word |= 1L << bit;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("snapshot is truncated");
+        }
+        if (wordIndex >= 0) {
+            bitStore.setWord(wordIndex, word);
+        }
+    }
+
+    /**
+     * read a DEFLATE payload, input left over by the inflater stays in the buffer
+     * @param bitStore bitmap
+     * @throws IOException IOException
+     */
+    private void readDeflate(BitStore bitStore) throws IOException {
+        Inflater inflater = new Inflater();
+        ByteBuffer out = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long wordIndex = 0;
+        try {
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    if (!in.hasRemaining()) {
+                        fill(1);
+                    }
+                    inflater.setInput(in);
+                }
+                inflater.inflate(out);
+                out.flip();
+                int words = out.remaining() >>> 3;
+                if (wordIndex + words > bitStore.wordCount()) {
+                    throw new IllegalStateException("snapshot holds more than " + bitStore.wordCount() + " words");
+                }
+                ByteBuffer complete = out.duplicate();
+                crc.update(complete.limit(words << 3));
+                for (int i = 0; i < words; i++) {
+                    bitStore.setWord(wordIndex++, out.getLong());
+                }
+                out.compact();
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("snapshot is corrupted: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        if (wordIndex != bitStore.wordCount()) {
+            throw new IllegalStateException("snapshot holds " + wordIndex + " words, " + bitStore.wordCount() + " expected");
+        }
+    }
+
+    /**
+     * add the words of a bitmap to the checksum as little-endian longs
+     * @param bitStore bitmap
+     */
+    private void updateChecksum(BitStore bitStore) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (long from = 0; from < bitStore.wordCount(); from += CHUNK_WORDS) {
+            BloomSnapshotUtils.fillChunk(bitStore, buffer, from, (int) Math.min(CHUNK_WORDS, bitStore.wordCount() - from));
+            crc.update(buffer);
+        }
+    }
+
+    /**
+     * read until the buffer holds at least the given bytes
+     * @param bytes bytes, at most the buffer capacity
+     * @throws IOException IOException
+     */
+    private void fill(int bytes) throws IOException {
+        if (fillAvailable(bytes) < bytes) {
+            throw new IllegalStateException("snapshot is truncated");
+        }
+    }
+
+    /**
+     * read payload bytes until the buffer holds at least the given bytes or the payload ends,
+     * reads stop at the end of each frame so nothing after the payload is consumed
+     * @param bytes bytes, at most the buffer capacity
+     * @return {@link Integer} bytes in the buffer
+     * @throws IOException IOException
+     */
+    private int fillAvailable(int bytes) throws IOException {
+        if (in.remaining() >= bytes) {
+            return in.remaining();
+        }
+        in.compact();
+        try {
+            while (in.position() < bytes && !ended) {
+                if (frameRemaining == 0) {
+                    ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    readFully(length);
+                    frameRemaining = length.getInt(0);
+                    if (frameRemaining < 0) {
+                        throw new IllegalStateException("snapshot frame length " + frameRemaining);
+                    }
+                    ended = frameRemaining == 0;
+                    continue;
+                }
+                in.limit((int) Math.min(in.capacity(), in.position() + frameRemaining));
+                int read = channel.read(in);
+                in.limit(in.capacity());
+                if (read < 0) {
+                    throw new IllegalStateException("snapshot is truncated");
+                }
+                frameRemaining -= read;
+                // 已知长度的负载只有一帧
+                ended = frameRemaining == 0 && payloadLength >= 0;
+            }
+        } finally {
+            in.flip();
+        }
+        return in.remaining();
+    }
+
+    /**
+     * fill a small buffer directly from the channel
+     * @param buffer buffer
+     * @throws IOException IOException
+     */
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IllegalStateException("snapshot is truncated");
+            }
+        }
+    }
+
+    /**
+     * encoding of a header field
+     * @param ordinal ordinal written by the snapshot
+     * @return {@link SnapshotEncoding}
+     */
+    private static SnapshotEncoding encodingOf(int ordinal) {
+        SnapshotEncoding[] encodings = SnapshotEncoding.values();
+        // 损坏或更新版本写入的编码
+        if (ordinal < 0 || ordinal >= encodings.length) {
+            throw new IllegalStateException("unsupported snapshot encoding: " + ordinal);
+        }
+        return encodings[ordinal];
+    }
+
+    /**
+     * read an unsigned LEB128 varint
+     * @param in buffer
+     * @return {@link Long}
+     */
+    private static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("snapshot varint is too long");
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.HashStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * binary fuse filter membership, false positive rate per fingerprint size, reproducible builds and
+ * persistence
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BinaryFuseFilterTest {
+
+    private static final int ELEMENTS = 100_000;
+    private static final int PROBES = 500_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @CsvSource({"0.01, 8", "0.0001, 16"})
+    void noFalseNegativesAndFalsePositiveRate(double fpp, int fingerprintBits) {
+        long[] keys = new long[ELEMENTS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i * 0x9E3779B97F4A7C15L;
+        }
+        try (BinaryFuseFilter fuseFilter = BinaryFuseFilter.build("fuse", keys, properties(fpp))) {
+            assertEquals(fingerprintBits, fuseFilter.getFingerprintBits());
+            for (long key : keys) {
+                assertTrue(fuseFilter.isContain(key), "key " + key);
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < PROBES; i++) {
+                if (fuseFilter.isContain(i * 0x9E3779B97F4A7C15L + 1)) {
+                    falsePositives++;
+                }
+            }
+            double rate = (double) falsePositives / PROBES;
+            assertTrue(rate <= fpp * 1.5, "false positive rate " + rate + " above " + fpp);
+        }
+    }
+
+    @Test
+    void keyPolicyAndDuplicates() {
+        FilterProperties properties = properties(0.01);
+        properties.setTrimKeys(true);
+        properties.setRejectEmptyKeys(true);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < ELEMENTS; i++) {
+            keys.add(" element-" + i + " ");
+            keys.add("element-" + i);
+        }
+        keys.add("   ");
+        try (BinaryFuseFilter fuseFilter = BinaryFuseFilter.build("fuse", keys, properties)) {
+            // 去除空白后重复的元素只保存一次, 空元素被拒绝
+            assertEquals(ELEMENTS, fuseFilter.getElementCount());
+            for (int i = 0; i < ELEMENTS; i++) {
+                assertTrue(fuseFilter.isContain("element-" + i), "element-" + i);
+                assertTrue(fuseFilter.isContain("\telement-" + i), "element-" + i);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(HashStrategy.class)
+    void configuredHashingBuildsIdenticalFilters(HashStrategy strategy) {
+        FilterProperties properties = properties(0.01);
+        properties.setHashStrategy(strategy);
+        properties.setHashSeed(20240801L);
+        properties.setHashKey("000102030405060708090a0b0c0d0e0f");
+        properties.setHashSalt("salt");
+        long[] keys = new long[ELEMENTS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i;
+        }
+        try (BinaryFuseFilter first = BinaryFuseFilter.build("first", keys, properties);
+             BinaryFuseFilter second = BinaryFuseFilter.build("second", keys, properties)) {
+            assertArrayEquals(bytesOf(first), bytesOf(second));
+        }
+    }
+
+    @Test
+    void streamAndCheckpointRoundTrip() {
+        FilterProperties properties = properties(0.0001);
+        long[] keys = new long[ELEMENTS];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = -i;
+        }
+        try (BinaryFuseFilter fuseFilter = BinaryFuseFilter.build("fuse", keys, properties)) {
+            byte[] bytes = bytesOf(fuseFilter);
+            try (BinaryFuseFilter read = BinaryFuseFilter.readFrom(new ByteArrayInputStream(bytes), "fuse", properties)) {
+                assertArrayEquals(bytes, bytesOf(read));
+            }
+
+            assertTrue(fuseFilter.checkpoint());
+            FilterProperties recovery = properties(0.0001);
+            recovery.setRecovery(true);
+            try (BinaryFuseFilter recovered = BinaryFuseFilter.create("fuse", directory, recovery)) {
+                assertArrayEquals(bytes, bytesOf(recovered));
+                for (long key : keys) {
+                    assertTrue(recovered.isContain(key), "key " + key);
+                }
+            }
+        }
+    }
+
+    @Test
+    void createRequiresRecovery() {
+        assertThrows(IllegalArgumentException.class, () -> BinaryFuseFilter.create("fuse", directory, properties(0.01)));
+    }
+
+    private static byte[] bytesOf(BinaryFuseFilter fuseFilter) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        fuseFilter.writeTo(out);
+        return out.toByteArray();
+    }
+
+    private FilterProperties properties(double fpp) {
+        FilterProperties properties = new FilterProperties();
+        properties.setType(FilterType.BINARY_FUSE);
+        properties.setFalsePositiveProbability(fpp);
+        properties.setEnableLogging(false);
+        properties.setDirectory(directory.toString());
+        return properties;
+    }
+}
@@ -0,0 +1,122 @@
+package io.github.dalowed.filter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * the default filter and the named filters under {@code bloom-filter.filters} as registry entries
+ * and beans, injected with and without a qualifier
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomConfigurationTest {
+
+    @TempDir
+    Path directory;
+
+    private ApplicationContextRunner runner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(BloomConfiguration.class))
+                .withPropertyValues(
+                        "bloom-filter.filters.users.expected-insertions=10000",
+                        "bloom-filter.filters.users.false-positive-probability=0.001",
+                        "bloom-filter.filters.users.enable-logging=false",
+                        "bloom-filter.filters.users.directory=" + directory.resolve("users"),
+                        "bloom-filter.filters.orders.expected-insertions=1000",
+                        "bloom-filter.filters.orders.false-positive-probability=0.01",
+                        "bloom-filter.filters.orders.enable-logging=false",
+                        "bloom-filter.filters.orders.scalable=true",
+                        "bloom-filter.filters.orders.directory=" + directory.resolve("orders"));
+    }
+
+    @Test
+    void defaultAndNamedFilters() {
+        runner().withPropertyValues(
+                        "bloom-filter.expected-insertions=5000",
+                        "bloom-filter.false-positive-probability=0.01",
+                        "bloom-filter.enable-logging=false",
+                        "bloom-filter.directory=" + directory.resolve("default"))
+                .withBean(Clients.class)
+                .run(context -> {
+                    BloomFilterRegistry registry = context.getBean(BloomFilterRegistry.class);
+                    assertEquals(3, registry.getNames().size());
+                    assertTrue(registry.getNames().containsAll(List.of(BloomFilterRegistry.DEFAULT_NAME, "users", "orders")));
+
+                    Clients clients = context.getBean(Clients.class);
+                    assertSame(registry.get(BloomFilterRegistry.DEFAULT_NAME), clients.defaultFilter);
+                    assertSame(registry.get("users"), clients.users);
+                    assertSame(registry.getScalable("orders"), clients.orders);
+                    assertSame(clients.users, context.getBean("usersBloomFilter"));
+                    assertEquals(5000, clients.defaultFilter.getExpectedInsertions());
+                    assertEquals(10000, clients.users.getExpectedInsertions());
+                    assertEquals(0.001, clients.users.getFalsePositiveProbability());
+                    assertEquals(1000, clients.orders.getInitialCapacity());
+                    // 各过滤器互不影响
+                    clients.users.add("alice");
+                    assertTrue(clients.users.isContain("alice"));
+                    assertFalse(clients.defaultFilter.isContain("alice"));
+                    // 已弃用的静态方法返回默认过滤器
+                    assertSame(clients.defaultFilter, BloomFilter.getBloomFilter());
+                });
+        // 关闭注册表后不再返回已关闭的过滤器
+        assertNull(BloomFilter.getBloomFilter());
+    }
+
+    @Test
+    void namedFiltersOnly() {
+        runner().run(context -> {
+            BloomFilterRegistry registry = context.getBean(BloomFilterRegistry.class);
+            assertFalse(registry.contains(BloomFilterRegistry.DEFAULT_NAME));
+            // 没有默认过滤器时不注册无限定符的 bloomFilter
+            assertFalse(context.containsBean("bloomFilter"));
+            assertEquals(1, context.getBeansOfType(BloomFilter.class).size());
+            assertSame(registry.getScalable("orders"), context.getBean("ordersBloomFilter"));
+            assertNull(BloomFilter.getBloomFilter());
+        });
+    }
+
+    @Test
+    void scalableDefaultFilter() {
+        runner().withPropertyValues(
+                        "bloom-filter.expected-insertions=5000",
+                        "bloom-filter.false-positive-probability=0.01",
+                        "bloom-filter.enable-logging=false",
+                        "bloom-filter.scalable=true",
+                        "bloom-filter.directory=" + directory.resolve("default"))
+                .run(context -> {
+                    // 可扩容的默认过滤器由注册器按类名注册
+                    assertFalse(context.containsBean("bloomFilter"));
+                    assertSame(context.getBean(BloomFilterRegistry.class).getScalable(BloomFilterRegistry.DEFAULT_NAME),
+                            context.getBean(ScalableBloomFilter.class));
+                    assertNull(BloomFilter.getBloomFilter());
+                });
+    }
+
+    /**
+     * injects the default filter without a qualifier and the named filters by name
+     */
+    static class Clients {
+
+        final BloomFilter defaultFilter;
+        final BloomFilter users;
+        final ScalableBloomFilter orders;
+
+        Clients(BloomFilter defaultFilter, @Qualifier("users") BloomFilter users, @Qualifier("orders") ScalableBloomFilter orders) {
+            this.defaultFilter = defaultFilter;
+            this.users = users;
+            this.orders = orders;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.storage.BitStore;
+import io.github.dalowed.storage.DirtyPageTracker;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * checkpoints write only the changed pages through the page log, a page log left by a crash is
+ * applied when complete and discarded when torn
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomFilterCheckpointTest {
+
+    private static final int ELEMENTS = 100;
+    private static final int PAGE_BYTES = DirtyPageTracker.PAGE_WORDS << 3;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void onlyChangedPagesAreWritten() throws IOException {
+        BloomFilter bloomFilter = BloomFilter.create("checkpoint", directory, properties());
+        add(bloomFilter, "first-");
+        assertTrue(bloomFilter.checkpoint());
+        long[] before = words(bloomFilter.getBitStore());
+
+        add(bloomFilter, "second-");
+        long[] after = words(bloomFilter.getBitStore());
+        int untouched = 0;
+        while (!Arrays.equals(before, untouched * DirtyPageTracker.PAGE_WORDS, (untouched + 1) * DirtyPageTracker.PAGE_WORDS,
+                after, untouched * DirtyPageTracker.PAGE_WORDS, (untouched + 1) * DirtyPageTracker.PAGE_WORDS)) {
+            untouched++;
+        }
+        // 改写一个未变更的页, 稀疏的检查点不会覆盖它
+        Path bitmap = directory.resolve("bitmap.bin");
+        byte[] marker = new byte[PAGE_BYTES];
+        Arrays.fill(marker, (byte) 0x5A);
+        try (FileChannel channel = FileChannel.open(bitmap, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(marker), (long) untouched * PAGE_BYTES);
+        }
+        assertTrue(bloomFilter.checkpoint());
+
+        byte[] file = Files.readAllBytes(bitmap);
+        assertArrayEquals(marker, Arrays.copyOfRange(file, untouched * PAGE_BYTES, (untouched + 1) * PAGE_BYTES));
+        ByteBuffer words = ByteBuffer.wrap(file);
+        for (int i = 0; i < after.length; i++) {
+            if (i / DirtyPageTracker.PAGE_WORDS != untouched) {
+                assertEquals(after[i], words.getLong(i << 3), "word " + i);
+            }
+        }
+        assertFalse(Files.exists(directory.resolve("bitmap.bin.pages")));
+    }
+
+    @Test
+    @Timeout(30)
+    void completePageLogIsAppliedOnRecovery() throws IOException {
+        BloomFilter bloomFilter = BloomFilter.create("checkpoint", directory, properties());
+        byte[] first = crashBeforeApply(bloomFilter);
+        Path bitmap = directory.resolve("bitmap.bin");
+        Path pages = directory.resolve("bitmap.bin.pages");
+        assertTrue(Files.exists(pages));
+        // 进程在页日志写完后、复制到位图文件前退出
+        Files.write(bitmap, first);
+
+        FilterProperties recovery = properties();
+        recovery.setRecovery(true);
+        BloomFilter recovered = BloomFilter.create("checkpoint", directory, recovery);
+        assertArrayEquals(words(bloomFilter.getBitStore()), words(recovered.getBitStore()));
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertTrue(recovered.isContain("first-" + i));
+            assertTrue(recovered.isContain("second-" + i));
+        }
+        assertFalse(Files.exists(pages));
+    }
+
+    @Test
+    @Timeout(30)
+    void tornPageLogIsDiscardedOnRecovery() throws IOException {
+        BloomFilter bloomFilter = BloomFilter.create("checkpoint", directory, properties());
+        byte[] first = crashBeforeApply(bloomFilter);
+        Path bitmap = directory.resolve("bitmap.bin");
+        Path pages = directory.resolve("bitmap.bin.pages");
+        Files.write(bitmap, first);
+        // 页日志写到一半, 缺少结束标记
+        try (FileChannel channel = FileChannel.open(pages, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        FilterProperties recovery = properties();
+        recovery.setRecovery(true);
+        BloomFilter recovered = BloomFilter.create("checkpoint", directory, recovery);
+        ByteBuffer words = ByteBuffer.wrap(first);
+        for (long i = 0; i < recovered.getBitStore().wordCount(); i++) {
+            assertEquals(words.getLong((int) i << 3), recovered.getBitStore().getWord(i), "word " + i);
+        }
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertTrue(recovered.isContain("first-" + i));
+        }
+        assertEquals(ELEMENTS, recovered.getElementCount());
+        assertFalse(Files.exists(pages));
+    }
+
+    @Test
+    void checkpointerSavesOnClose() {
+        BloomFilter bloomFilter = BloomFilter.create("checkpoint", directory, properties());
+        try (BloomCheckpointer checkpointer = new BloomCheckpointer(bloomFilter, Duration.ofMillis(10))) {
+            add(bloomFilter, "first-");
+            add(bloomFilter, "second-");
+        }
+
+        FilterProperties recovery = properties();
+        recovery.setRecovery(true);
+        BloomFilter recovered = BloomFilter.create("checkpoint", directory, recovery);
+        assertArrayEquals(words(bloomFilter.getBitStore()), words(recovered.getBitStore()));
+        assertEquals(2 * ELEMENTS, recovered.getElementCount());
+    }
+
+    /**
+     * checkpoint a few elements, add a few more and fail the next checkpoint after its page log is
+     * written: the truncated bitmap file ends before the changed pages
+     * @param bloomFilter bloomfilter
+     * @return {@link Byte[]} bitmap file of the first checkpoint
+     * @throws IOException IOException
+     */
+    private byte[] crashBeforeApply(BloomFilter bloomFilter) throws IOException {
+        add(bloomFilter, "first-");
+        assertTrue(bloomFilter.checkpoint());
+        Path bitmap = directory.resolve("bitmap.bin");
+        byte[] first = Files.readAllBytes(bitmap);
+        add(bloomFilter, "second-");
+        Files.write(bitmap, new byte[0]);
+        assertFalse(bloomFilter.checkpoint());
+        return first;
+    }
+
+    private static void add(BloomFilter bloomFilter, String prefix) {
+        for (int i = 0; i < ELEMENTS; i++) {
+            bloomFilter.add(prefix + i);
+        }
+    }
+
+    private static long[] words(BitStore bitStore) {
+        long[] words = new long[(int) bitStore.wordCount()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = bitStore.getWord(i);
+        }
+        return words;
+    }
+
+    private static FilterProperties properties() {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(1_000_000);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        // 开启脏页跟踪, 检查点由测试执行
+        properties.setCheckpointInterval(Duration.ofHours(1));
+        return properties;
+    }
+}
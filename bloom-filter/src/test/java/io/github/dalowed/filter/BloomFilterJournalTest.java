@@ -0,0 +1,126 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.storage.StorageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * elements added after the last checkpoint are recovered from the insert journal, each element is
+ * counted once even when it was added while a checkpoint ran
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomFilterJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoveryReplaysJournal() {
+        FilterProperties properties = properties(StorageType.HEAP, false);
+        BloomFilter bloomFilter = BloomFilter.create("journal", directory, properties);
+        for (long i = 0; i < 10_000; i++) {
+            bloomFilter.add(i);
+        }
+        assertTrue(bloomFilter.checkpoint());
+        // 检查点之后的元素只在插入日志中
+        for (long i = 10_000; i < 20_000; i++) {
+            bloomFilter.add(i);
+        }
+        long[] batch = new long[50_000];
+        for (int i = 0; i < batch.length; i++) {
+            batch[i] = 20_000 + i;
+        }
+        bloomFilter.addAll(batch);
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            strings.add("element-" + i);
+        }
+        bloomFilter.addAll(strings);
+        bloomFilter.close();
+
+        properties.setRecovery(true);
+        BloomFilter recovered = BloomFilter.create("journal", directory, properties);
+        for (long i = 0; i < 70_000; i++) {
+            assertTrue(recovered.isContain(i), "element " + i);
+        }
+        for (String element : strings) {
+            assertTrue(recovered.isContain(element), element);
+        }
+        assertEquals(bloomFilter.getElementCount(), recovered.getElementCount());
+        for (long i = 0; i < bloomFilter.getBitStore().wordCount(); i++) {
+            assertEquals(bloomFilter.getBitStore().getWord(i), recovered.getBitStore().getWord(i), "word " + i);
+        }
+        recovered.close();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"HEAP, false", "HEAP, true", "OFF_HEAP, true", "MAPPED, false"})
+    void checkpointsDuringAddsCountEachElementOnce(StorageType storage, boolean dirtyPages) throws Exception {
+        FilterProperties properties = properties(storage, dirtyPages);
+        BloomFilter bloomFilter = BloomFilter.create("journal", directory, properties);
+        int threads = 4;
+        int perThread = 40_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                for (long i = 0; i < perThread; i++) {
+                    bloomFilter.add(i * threads + thread);
+                }
+            }));
+        }
+        // 插入进行时反复检查点, 每个元素要么在位图文件中, 要么在新的插入日志中
+        int checkpoints = 0;
+        while (!futures.stream().allMatch(Future::isDone) || checkpoints < 3) {
+            assertTrue(bloomFilter.checkpoint());
+            checkpoints++;
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        bloomFilter.close();
+
+        properties.setRecovery(true);
+        BloomFilter recovered = BloomFilter.create("journal", directory, properties);
+        assertEquals((long) threads * perThread, recovered.getElementCount());
+        for (long i = 0; i < (long) threads * perThread; i++) {
+            assertTrue(recovered.isContain(i), "element " + i);
+        }
+        for (long i = 0; i < bloomFilter.getBitStore().wordCount(); i++) {
+            assertEquals(bloomFilter.getBitStore().getWord(i), recovered.getBitStore().getWord(i), "word " + i);
+        }
+        recovered.close();
+    }
+
+    private static FilterProperties properties(StorageType storage, boolean dirtyPages) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(200_000);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        properties.setStorage(storage);
+        properties.setJournal(true);
+        properties.setJournalSyncInterval(Duration.ofMillis(10));
+        if (dirtyPages) {
+            // 只设置间隔, 检查点由测试执行
+            properties.setCheckpointInterval(Duration.ofHours(1));
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.storage.MappedBitStore;
+import io.github.dalowed.storage.StorageType;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * a MAPPED filter recovers by mapping the saved bitmap file, which is not read: changes to the
+ * file show in the filter and adds reach the file without a checkpoint
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomFilterMappedTest {
+
+    private static final int ELEMENTS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void recoveryMapsTheBitmapFile(boolean concurrent) throws IOException {
+        // 任意存储保存的位图文件都可以映射
+        FilterProperties properties = properties(StorageType.HEAP, concurrent);
+        BloomFilter saved = BloomFilter.create("mapped", directory, properties);
+        for (int i = 0; i < ELEMENTS; i++) {
+            saved.add("first-" + i);
+        }
+        assertTrue(saved.checkpoint());
+        saved.close();
+        // 较新的快照不用于 MAPPED, 读取这个文件会失败
+        Files.write(directory.resolve("bloom.snapshot"), new byte[]{1, 2, 3});
+
+        FilterProperties recovery = properties(StorageType.MAPPED, concurrent);
+        recovery.setRecovery(true);
+        BloomFilter mapped = BloomFilter.create("mapped", directory, recovery);
+        assertInstanceOf(MappedBitStore.class, mapped.getBitStore());
+        assertEquals(ELEMENTS, mapped.getElementCount());
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertTrue(mapped.isContain("first-" + i), "first-" + i);
+        }
+
+        Path bitmap = directory.resolve("bitmap.bin");
+        // 直接改写文件, 映射的位图立即可见
+        long marker = 0x0123456789ABCDEFL;
+        try (FileChannel channel = FileChannel.open(bitmap, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, marker), 0);
+        }
+        assertEquals(marker, mapped.getBitStore().getWord(0));
+
+        // 插入不经检查点即写入文件
+        for (int i = 0; i < ELEMENTS; i++) {
+            mapped.add("second-" + i);
+        }
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(bitmap));
+        for (long i = 0; i < mapped.getBitStore().wordCount(); i++) {
+            assertEquals(mapped.getBitStore().getWord(i), file.getLong((int) i << 3), "word " + i);
+        }
+        mapped.close();
+    }
+
+    private static FilterProperties properties(StorageType storage, boolean concurrent) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(4L * ELEMENTS);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        properties.setStorage(storage);
+        properties.setConcurrent(concurrent);
+        return properties;
+    }
+}
@@ -0,0 +1,191 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * union and intersection of compatible filters, in place and into a new filter, the estimates
+ * from the bits set, and merges surviving a crash with the insert journal enabled
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomFilterMergeTest {
+
+    private static final int ELEMENTS = 50_000;
+    // first 持有 [0, 50000), second 持有 [25000, 75000)
+    private static final int SHARED_FROM = ELEMENTS / 2;
+    private static final int SECOND_TO = SHARED_FROM + ELEMENTS;
+    private static final double FPP = 0.01;
+
+    @TempDir
+    Path directory;
+
+    private BloomFilter first;
+    private BloomFilter second;
+
+    @BeforeEach
+    void fill() {
+        first = BloomFilter.create("first", directory.resolve("first"), properties());
+        second = BloomFilter.create("second", directory.resolve("second"), properties());
+        add(first, 0, ELEMENTS);
+        add(second, SHARED_FROM, SECOND_TO);
+    }
+
+    @Test
+    void estimatesFromSetBits() {
+        assertClose(ELEMENTS, first.estimateCardinality(), 0.03);
+        assertClose(SECOND_TO, first.estimateUnionSize(second), 0.03);
+        assertClose(ELEMENTS - SHARED_FROM, first.estimateIntersectionSize(second), 0.1);
+        assertClose((double) (ELEMENTS - SHARED_FROM) / SECOND_TO, first.estimateJaccard(second), 0.1);
+        assertClose(1, first.estimateJaccard(first), 0.001);
+    }
+
+    @Test
+    void unionInPlace() {
+        assertTrue(first.union(second));
+        assertContains(first, 0, SECOND_TO);
+        assertEquals(2L * ELEMENTS, first.getElementCount());
+        assertClose(SECOND_TO, first.estimateCardinality(), 0.03);
+        assertFalse(first.union(second));
+    }
+
+    @Test
+    void intersectInPlace() {
+        assertTrue(first.intersect(second));
+        // 共有的元素不会丢失, 只在一方的元素按很低的概率残留
+        assertContains(first, SHARED_FROM, ELEMENTS);
+        assertTrue(containedOf(first, 0, SHARED_FROM) < SHARED_FROM * FPP, "first only elements still contained");
+        assertClose(ELEMENTS - SHARED_FROM, first.getElementCount(), 0.1);
+    }
+
+    @Test
+    void combineIntoNewFilters() {
+        long[] words = words(first);
+        FilterProperties unionProperties = properties();
+        unionProperties.setDirectory(directory.resolve("union").toString());
+        BloomFilter union = BloomFilter.union("union", unionProperties, first, second);
+        assertContains(union, 0, SECOND_TO);
+        assertEquals(2L * ELEMENTS, union.getElementCount());
+        assertTrue(union.isCompatible(first));
+
+        FilterProperties intersectProperties = properties();
+        intersectProperties.setDirectory(directory.resolve("intersect").toString());
+        BloomFilter intersection = BloomFilter.intersect("intersect", intersectProperties, first, second);
+        assertContains(intersection, SHARED_FROM, ELEMENTS);
+        assertTrue(containedOf(intersection, 0, SHARED_FROM) < SHARED_FROM * FPP, "first only elements still contained");
+        assertClose(ELEMENTS - SHARED_FROM, intersection.getElementCount(), 0.1);
+        // 合并为新过滤器时原过滤器不变
+        assertEquals(words.length, words(first).length);
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(words[i], first.getBitStore().getWord(i), "word " + i);
+        }
+    }
+
+    @Test
+    void onlyCompatibleFiltersMerge() {
+        assertTrue(first.isCompatible(second));
+        FilterProperties otherSeed = properties();
+        otherSeed.setHashSeed(1L);
+        BloomFilter reseeded = BloomFilter.create("reseeded", directory.resolve("reseeded"), otherSeed);
+        FilterProperties otherSize = properties();
+        otherSize.setExpectedInsertions(4L * ELEMENTS);
+        BloomFilter resized = BloomFilter.create("resized", directory.resolve("resized"), otherSize);
+        assertFalse(first.isCompatible(reseeded));
+        assertFalse(first.isCompatible(resized));
+        assertThrows(IllegalArgumentException.class, () -> first.union(reseeded));
+        assertThrows(IllegalArgumentException.class, () -> first.intersect(resized));
+        assertThrows(IllegalArgumentException.class, () -> first.estimateUnionSize(reseeded));
+
+        FilterProperties counting = properties();
+        counting.setLayout(BloomLayout.COUNTING);
+        BloomFilter countingFirst = BloomFilter.create("counting-first", directory.resolve("counting-first"), counting);
+        BloomFilter countingSecond = BloomFilter.create("counting-second", directory.resolve("counting-second"), counting);
+        assertThrows(UnsupportedOperationException.class, () -> countingFirst.union(countingSecond));
+    }
+
+    @Test
+    void mergesSurviveCrashWithJournal() {
+        FilterProperties properties = properties();
+        properties.setJournal(true);
+        properties.setJournalSyncInterval(Duration.ofMillis(10));
+        Path unionDirectory = directory.resolve("journal-union");
+        BloomFilter union = BloomFilter.create("journal-union", unionDirectory, properties);
+        add(union, 0, ELEMENTS);
+        union.union(second);
+        // 合并后没有显式检查点, 关闭只同步插入日志
+        union.close();
+
+        Path intersectDirectory = directory.resolve("journal-intersect");
+        BloomFilter intersection = BloomFilter.create("journal-intersect", intersectDirectory, properties);
+        add(intersection, 0, ELEMENTS);
+        intersection.intersect(second);
+        intersection.close();
+
+        properties.setRecovery(true);
+        BloomFilter recoveredUnion = BloomFilter.create("journal-union", unionDirectory, properties);
+        assertContains(recoveredUnion, 0, SECOND_TO);
+        assertEquals(2L * ELEMENTS, recoveredUnion.getElementCount());
+        recoveredUnion.close();
+
+        BloomFilter recoveredIntersection = BloomFilter.create("journal-intersect", intersectDirectory, properties);
+        // 重放插入日志不会恢复交集中已清除的元素
+        assertContains(recoveredIntersection, SHARED_FROM, ELEMENTS);
+        assertTrue(containedOf(recoveredIntersection, 0, SHARED_FROM) < SHARED_FROM * FPP, "first only elements replayed");
+        assertEquals(intersection.getElementCount(), recoveredIntersection.getElementCount());
+        recoveredIntersection.close();
+    }
+
+    private static void add(BloomFilter bloomFilter, int from, int to) {
+        for (int i = from; i < to; i++) {
+            bloomFilter.add("element-" + i);
+        }
+    }
+
+    private static void assertContains(BloomFilter bloomFilter, int from, int to) {
+        for (int i = from; i < to; i++) {
+            assertTrue(bloomFilter.isContain("element-" + i), "element-" + i);
+        }
+    }
+
+    private static int containedOf(BloomFilter bloomFilter, int from, int to) {
+        int contained = 0;
+        for (int i = from; i < to; i++) {
+            if (bloomFilter.isContain("element-" + i)) {
+                contained++;
+            }
+        }
+        return contained;
+    }
+
+    private static void assertClose(double expected, double actual, double tolerance) {
+        assertTrue(Math.abs(actual - expected) <= expected * tolerance, "expected about " + expected + " but was " + actual);
+    }
+
+    private static long[] words(BloomFilter bloomFilter) {
+        long[] words = new long[(int) bloomFilter.getBitStore().wordCount()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = bloomFilter.getBitStore().getWord(i);
+        }
+        return words;
+    }
+
+    private static FilterProperties properties() {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(2L * ELEMENTS);
+        properties.setFalsePositiveProbability(FPP);
+        properties.setEnableLogging(false);
+        // 相同的种子, 过滤器可以合并
+        properties.setHashSeed(20240801L);
+        return properties;
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.utils.BloomSnapshotUtils;
+import io.github.dalowed.utils.SnapshotEncoding;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.github.dalowed.constants.CommonConstants.SNAPSHOT_FILE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * v2 snapshot files: written, also while adds continue, recovered word for word and rejected when
+ * damaged
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomFilterSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void rawSnapshotRoundTrip() {
+        assertRoundTrip(SnapshotEncoding.RAW, 20_000);
+    }
+
+    @Test
+    void deltaSnapshotRoundTrip() {
+        assertRoundTrip(SnapshotEncoding.DELTA, 2_000);
+    }
+
+    @Test
+    void deflateSnapshotRoundTrip() {
+        assertRoundTrip(SnapshotEncoding.DEFLATE, 20_000);
+    }
+
+    @Test
+    void emptyFilterRoundTrip() {
+        for (SnapshotEncoding encoding : SnapshotEncoding.values()) {
+            assertRoundTrip(encoding, 0);
+        }
+    }
+
+    @Test
+    void encodingChosenByFillRatio() {
+        assertEquals(SnapshotEncoding.DELTA, SnapshotEncoding.of(0));
+        assertEquals(SnapshotEncoding.DELTA, SnapshotEncoding.of(0.049));
+        assertEquals(SnapshotEncoding.DEFLATE, SnapshotEncoding.of(0.05));
+        assertEquals(SnapshotEncoding.DEFLATE, SnapshotEncoding.of(0.249));
+        assertEquals(SnapshotEncoding.RAW, SnapshotEncoding.of(0.25));
+        assertEquals(SnapshotEncoding.RAW, SnapshotEncoding.of(0.5));
+    }
+
+    @Test
+    void rejectsUnknownEncoding() throws IOException {
+        BloomFilter bloomFilter = filled(1_000);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE_NAME);
+        assertTrue(BloomSnapshotUtils.generatorSnapshotFile(bloomFilter, snapshot, SnapshotEncoding.RAW));
+        bloomFilter.close();
+
+        // magic 与版本之后是编码序号
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(8, SnapshotEncoding.values().length);
+        Files.write(snapshot, bytes);
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> BloomSnapshotUtils.getSnapshotInfo(snapshot));
+        assertTrue(e.getMessage().startsWith("unsupported snapshot encoding"), e.getMessage());
+    }
+
+    @Test
+    void rejectsCorruptPayload() throws IOException {
+        BloomFilter bloomFilter = filled(1_000);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE_NAME);
+        assertTrue(BloomSnapshotUtils.generatorSnapshotFile(bloomFilter, snapshot, SnapshotEncoding.RAW));
+        bloomFilter.close();
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+        assertThrows(IllegalStateException.class, () -> BloomFilter.create("snapshot", directory, recovery()));
+    }
+
+    @Test
+    void rejectsUnknownVersion() throws IOException {
+        BloomFilter bloomFilter = filled(1_000);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE_NAME);
+        assertTrue(BloomSnapshotUtils.generatorSnapshotFile(bloomFilter, snapshot));
+        bloomFilter.close();
+
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(Integer.BYTES, BloomSnapshotUtils.VERSION + 1);
+        Files.write(snapshot, bytes);
+        assertThrows(IllegalStateException.class, () -> BloomSnapshotUtils.getSnapshotInfo(snapshot));
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE_NAME);
+        Files.write(file, new byte[64]);
+        assertThrows(IllegalStateException.class, () -> BloomSnapshotUtils.getSnapshotInfo(file));
+    }
+
+    @Test
+    void snapshotTakenWhileAddingHoldsEveryEarlierAdd() throws InterruptedException {
+        BloomFilter bloomFilter = filled(20_000);
+        long base = bloomFilter.getElementCount();
+        AtomicLong done = new AtomicLong();
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (long i = 0; !stop.get(); i++) {
+                bloomFilter.add("live-" + i);
+                done.set(i + 1);
+            }
+        });
+        writer.start();
+        while (done.get() < 10_000) {
+            Thread.onSpinWait();
+        }
+
+        long wordCount = bloomFilter.getBitStore().wordCount();
+        // 打开快照前已设置的位一定在快照中
+        long[] before = new long[(int) wordCount];
+        long addedBefore = done.get();
+        for (int i = 0; i < wordCount; i++) {
+            before[i] = bloomFilter.getBitStore().getWord(i);
+        }
+        long[] words = new long[(int) wordCount];
+        long count;
+        try (ConsistentSnapshot snapshot = bloomFilter.openSnapshot()) {
+            count = snapshot.getElementCount();
+            for (int i = 0; i < wordCount; i++) {
+                words[i] = snapshot.getBitStore().getWord(i);
+            }
+        }
+        long addedAfter = done.get();
+        stop.set(true);
+        writer.join();
+
+        assertTrue(count >= base + addedBefore && count <= base + addedAfter + 1, "count " + count);
+        for (int i = 0; i < wordCount; i++) {
+            assertEquals(before[i], words[i] & before[i], "word " + i);
+            assertEquals(words[i], words[i] & bloomFilter.getBitStore().getWord(i), "word " + i);
+        }
+        bloomFilter.close();
+    }
+
+    /**
+     * write a snapshot in an encoding and recover it
+     * @param encoding encoding
+     * @param elements number of elements added
+     */
+    void assertRoundTrip(SnapshotEncoding encoding, int elements) {
+        BloomFilter bloomFilter = filled(elements);
+        assertTrue(BloomSnapshotUtils.generatorSnapshotFile(bloomFilter, directory.resolve(SNAPSHOT_FILE_NAME), encoding));
+        bloomFilter.close();
+
+        BloomFilter recovered = BloomFilter.create("snapshot", directory, recovery());
+        assertEquals(bloomFilter.getSize(), recovered.getSize());
+        assertEquals(bloomFilter.getHashFunctions(), recovered.getHashFunctions());
+        assertEquals(bloomFilter.getHashSeed(), recovered.getHashSeed());
+        assertEquals(bloomFilter.getElementCount(), recovered.getElementCount());
+        for (long i = 0; i < bloomFilter.getBitStore().wordCount(); i++) {
+            assertEquals(bloomFilter.getBitStore().getWord(i), recovered.getBitStore().getWord(i), "word " + i);
+        }
+        for (int i = 0; i < elements; i++) {
+            assertTrue(recovered.isContain("element-" + i));
+        }
+        recovered.close();
+    }
+
+    /**
+     * filter sized for 100 000 elements with the first elements added
+     * @param elements number of elements
+     * @return {@link BloomFilter}
+     */
+    BloomFilter filled(int elements) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(100_000);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        BloomFilter bloomFilter = BloomFilter.create("snapshot", directory, properties);
+        for (int i = 0; i < elements; i++) {
+            bloomFilter.add("element-" + i);
+        }
+        return bloomFilter;
+    }
+
+    private static FilterProperties recovery() {
+        FilterProperties properties = new FilterProperties();
+        properties.setRecovery(true);
+        properties.setEnableLogging(false);
+        return properties;
+    }
+}
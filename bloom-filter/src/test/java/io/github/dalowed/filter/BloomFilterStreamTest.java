@@ -0,0 +1,92 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.storage.StorageType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * filters streamed with writeTo are read back by readFrom, the stream is not read past the filter
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BloomFilterStreamTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void streamRoundTrip() {
+        BloomFilter bloomFilter = filled("source", 30_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bloomFilter.writeTo(out);
+
+        BloomFilter read = BloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), "copy", properties("copy", StorageType.OFF_HEAP));
+        assertSameFilter(bloomFilter, read, 30_000);
+        bloomFilter.close();
+        read.close();
+    }
+
+    @Test
+    void channelHoldsSeveralFilters() throws IOException {
+        BloomFilter first = filled("first", 1_000);
+        BloomFilter second = filled("second", 50_000);
+        Path file = directory.resolve("filters.bin");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            first.writeTo(channel);
+            second.writeTo(channel);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertSameFilter(first, BloomFilter.readFrom(channel, "first-copy", properties("first-copy", StorageType.HEAP)), 1_000);
+            assertSameFilter(second, BloomFilter.readFrom(channel, "second-copy", properties("second-copy", StorageType.HEAP)), 50_000);
+            assertEquals(channel.size(), channel.position());
+        }
+        try (InputStream in = new ByteArrayInputStream(Files.readAllBytes(file))) {
+            assertSameFilter(first, BloomFilter.readFrom(in, "first-stream", properties("first-stream", StorageType.HEAP)), 1_000);
+            assertSameFilter(second, BloomFilter.readFrom(in, "second-stream", properties("second-stream", StorageType.HEAP)), 50_000);
+        }
+    }
+
+    private BloomFilter filled(String name, int elements) {
+        FilterProperties properties = properties(name, StorageType.HEAP);
+        properties.setExpectedInsertions(100_000);
+        properties.setFalsePositiveProbability(0.01);
+        BloomFilter bloomFilter = BloomFilter.create(name, directory.resolve(name), properties);
+        for (int i = 0; i < elements; i++) {
+            bloomFilter.add("element-" + i);
+        }
+        return bloomFilter;
+    }
+
+    private FilterProperties properties(String name, StorageType storage) {
+        FilterProperties properties = new FilterProperties();
+        properties.setEnableLogging(false);
+        properties.setStorage(storage);
+        properties.setDirectory(directory.resolve(name).toString());
+        return properties;
+    }
+
+    private static void assertSameFilter(BloomFilter expected, BloomFilter actual, int elements) {
+        assertEquals(expected.getSize(), actual.getSize());
+        assertEquals(expected.getHashFunctions(), actual.getHashFunctions());
+        assertEquals(expected.getElementCount(), actual.getElementCount());
+        for (long i = 0; i < expected.getBitStore().wordCount(); i++) {
+            assertEquals(expected.getBitStore().getWord(i), actual.getBitStore().getWord(i), "word " + i);
+        }
+        for (int i = 0; i < elements; i++) {
+            assertTrue(actual.isContain("element-" + i));
+        }
+    }
+}
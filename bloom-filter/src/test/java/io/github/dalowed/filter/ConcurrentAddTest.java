@@ -0,0 +1,97 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.storage.StorageType;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * elements added from several threads at once are not lost: the words equal those of the same
+ * elements added by one thread
+ * @author dalowed
+ * @since 0.0.4
+ */
+class ConcurrentAddTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 25_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @CsvSource({"STANDARD, HEAP", "STANDARD, OFF_HEAP", "BLOCKED, HEAP", "SPLIT_BLOCK, HEAP", "COUNTING, HEAP", "STANDARD, MAPPED", "BLOCKED, MAPPED"})
+    void concurrentAddsMatchSequentialAdds(BloomLayout layout, StorageType storage) throws Exception {
+        BloomFilter concurrent = BloomFilter.create("concurrent", directory.resolve("concurrent"), properties(layout, storage));
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                // 单个插入和批量插入交替, 两条路径同时写同一批字
+                long[] batch = new long[100];
+                for (int i = 0; i < PER_THREAD; i += batch.length) {
+                    for (int j = 0; j < batch.length; j++) {
+                        batch[j] = (long) (i + j) * THREADS + thread;
+                    }
+                    if ((i / batch.length & 1) == 0) {
+                        concurrent.addAll(batch);
+                    } else {
+                        for (long element : batch) {
+                            concurrent.add(element);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        FilterProperties sequentialProperties = properties(layout, storage);
+        sequentialProperties.setConcurrent(false);
+        BloomFilter sequential = BloomFilter.create("sequential", directory.resolve("sequential"), sequentialProperties);
+        for (long element = 0; element < (long) THREADS * PER_THREAD; element++) {
+            sequential.add(element);
+        }
+
+        assertEquals(sequential.getElementCount(), concurrent.getElementCount());
+        for (long i = 0; i < sequential.getBitStore().wordCount(); i++) {
+            assertEquals(sequential.getBitStore().getWord(i), concurrent.getBitStore().getWord(i), "word " + i);
+        }
+        for (long element = 0; element < (long) THREADS * PER_THREAD; element++) {
+            assertTrue(concurrent.isContain(element), "element " + element);
+        }
+        concurrent.close();
+        sequential.close();
+    }
+
+    private static FilterProperties properties(BloomLayout layout, StorageType storage) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(THREADS * PER_THREAD);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        properties.setLayout(layout);
+        properties.setStorage(storage);
+        // 相同的种子, 两个过滤器的位置相同
+        properties.setHashSeed(20240801L);
+        return properties;
+    }
+}
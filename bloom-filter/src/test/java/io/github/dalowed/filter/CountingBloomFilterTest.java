@@ -0,0 +1,74 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * removing elements from the counting layout never drops an element that is still added
+ * @author dalowed
+ * @since 0.0.4
+ */
+class CountingBloomFilterTest {
+
+    private static final int ELEMENTS = 50_000;
+    private static final double FPP = 0.01;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void removeKeepsRemainingElements() {
+        BloomFilter bloomFilter = BloomFilter.create("counting", directory, properties(BloomLayout.COUNTING));
+        for (int i = 0; i < ELEMENTS; i++) {
+            bloomFilter.add("element-" + i);
+        }
+        for (int i = 0; i < ELEMENTS; i += 2) {
+            assertTrue(bloomFilter.remove("element-" + i));
+        }
+        int stillContained = 0;
+        for (int i = 0; i < ELEMENTS; i++) {
+            if (i % 2 == 1) {
+                assertTrue(bloomFilter.isContain("element-" + i), "element-" + i);
+            } else if (bloomFilter.isContain("element-" + i)) {
+                stillContained++;
+            }
+        }
+        // 删除后的元素只以误判率残留
+        assertTrue(stillContained < ELEMENTS / 2 * FPP * 2, "removed elements still contained: " + stillContained);
+    }
+
+    @Test
+    void duplicateAddsNeedAsManyRemoves() {
+        BloomFilter bloomFilter = BloomFilter.create("counting", directory, properties(BloomLayout.COUNTING));
+        bloomFilter.add(42L);
+        bloomFilter.add(42L);
+        assertTrue(bloomFilter.remove(42L));
+        assertTrue(bloomFilter.isContain(42L));
+        assertTrue(bloomFilter.remove(42L));
+        assertFalse(bloomFilter.isContain(42L));
+        assertFalse(bloomFilter.remove(42L));
+    }
+
+    @Test
+    void removeRequiresCountingLayout() {
+        BloomFilter bloomFilter = BloomFilter.create("standard", directory, properties(BloomLayout.STANDARD));
+        bloomFilter.add("element");
+        assertThrows(UnsupportedOperationException.class, () -> bloomFilter.remove("element"));
+    }
+
+    private static FilterProperties properties(BloomLayout layout) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(ELEMENTS);
+        properties.setFalsePositiveProbability(FPP);
+        properties.setEnableLogging(false);
+        properties.setLayout(layout);
+        return properties;
+    }
+}
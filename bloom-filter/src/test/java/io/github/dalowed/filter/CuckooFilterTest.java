@@ -0,0 +1,125 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.HashStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * cuckoo filter membership, false positive rate per fingerprint size, removal and persistence
+ * @author dalowed
+ * @since 0.0.4
+ */
+class CuckooFilterTest {
+
+    private static final int ELEMENTS = 100_000;
+    private static final int PROBES = 200_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @CsvSource({"0.04, 8", "0.002, 12", "0.0002, 16"})
+    void noFalseNegativesAndFalsePositiveRate(double fpp, int fingerprintBits) {
+        try (CuckooFilter cuckooFilter = CuckooFilter.create("cuckoo", directory, properties(fpp))) {
+            assertEquals(fingerprintBits, cuckooFilter.getFingerprintBits());
+            for (int i = 0; i < ELEMENTS; i++) {
+                assertTrue(cuckooFilter.add("element-" + i));
+            }
+            for (int i = 0; i < ELEMENTS; i++) {
+                assertTrue(cuckooFilter.isContain("element-" + i), "element-" + i);
+            }
+            int falsePositives = 0;
+            for (int i = 0; i < PROBES; i++) {
+                if (cuckooFilter.isContain("absent-" + i)) {
+                    falsePositives++;
+                }
+            }
+            double rate = (double) falsePositives / PROBES;
+            assertTrue(rate <= fpp * 1.5, "false positive rate " + rate + " above " + fpp);
+        }
+    }
+
+    @Test
+    void removeKeepsRemainingElements() {
+        try (CuckooFilter cuckooFilter = CuckooFilter.create("cuckoo", directory, properties(0.01))) {
+            for (int i = 0; i < ELEMENTS; i++) {
+                cuckooFilter.add(i);
+            }
+            for (int i = 0; i < ELEMENTS; i += 2) {
+                assertTrue(cuckooFilter.remove(i));
+            }
+            for (int i = 1; i < ELEMENTS; i += 2) {
+                assertTrue(cuckooFilter.isContain(i), "element " + i);
+            }
+            assertEquals(ELEMENTS / 2, cuckooFilter.getElementCount());
+        }
+    }
+
+    @Test
+    void configuredHashingBuildsIdenticalFilters() {
+        FilterProperties properties = properties(0.01);
+        properties.setHashStrategy(HashStrategy.SIPHASH_24);
+        properties.setHashKey("000102030405060708090a0b0c0d0e0f");
+        try (CuckooFilter first = CuckooFilter.create("first", directory.resolve("first"), properties);
+             CuckooFilter second = CuckooFilter.create("second", directory.resolve("second"), properties)) {
+            for (int i = 0; i < ELEMENTS; i++) {
+                first.add("element-" + i);
+                second.add("element-" + i);
+            }
+            assertSameWords(first, second);
+        }
+    }
+
+    @Test
+    void streamAndCheckpointRoundTrip() {
+        FilterProperties properties = properties(0.01);
+        properties.setDirectory(directory.resolve("copy").toString());
+        try (CuckooFilter cuckooFilter = CuckooFilter.create("cuckoo", directory, properties)) {
+            for (int i = 0; i < ELEMENTS; i++) {
+                cuckooFilter.add("element-" + i);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            cuckooFilter.writeTo(out);
+            try (CuckooFilter read = CuckooFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), "copy", properties)) {
+                assertSameWords(cuckooFilter, read);
+                assertEquals(cuckooFilter.getElementCount(), read.getElementCount());
+            }
+
+            assertTrue(cuckooFilter.checkpoint());
+            FilterProperties recovery = properties(0.01);
+            recovery.setRecovery(true);
+            try (CuckooFilter recovered = CuckooFilter.create("cuckoo", directory, recovery)) {
+                assertSameWords(cuckooFilter, recovered);
+                for (int i = 0; i < ELEMENTS; i++) {
+                    assertTrue(recovered.isContain("element-" + i), "element-" + i);
+                }
+            }
+        }
+    }
+
+    private static void assertSameWords(CuckooFilter expected, CuckooFilter actual) {
+        assertEquals(expected.getBitStore().wordCount(), actual.getBitStore().wordCount());
+        for (long i = 0; i < expected.getBitStore().wordCount(); i++) {
+            assertEquals(expected.getBitStore().getWord(i), actual.getBitStore().getWord(i), "word " + i);
+        }
+    }
+
+    private static FilterProperties properties(double fpp) {
+        FilterProperties properties = new FilterProperties();
+        properties.setType(FilterType.CUCKOO);
+        properties.setExpectedInsertions(ELEMENTS);
+        properties.setFalsePositiveProbability(fpp);
+        properties.setEnableLogging(false);
+        return properties;
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * scalable filters grow once the newest sub filter is full, sub filters follow the geometric
+ * capacity and false positive probability, checkpoints and streams keep every sub filter
+ * @author dalowed
+ * @since 0.0.4
+ */
+class ScalableBloomFilterTest {
+
+    private static final int CAPACITY = 1_000;
+    private static final double FPP = 0.01;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void growsWhenTheNewestFilterIsFull() {
+        try (ScalableBloomFilter scalable = ScalableBloomFilter.create("scalable", directory, properties(2, 0.5))) {
+            int added = 0;
+            for (int i = 0; scalable.getFilters().size() == 1; i++) {
+                if (scalable.add("element-" + i)) {
+                    added++;
+                }
+            }
+            // 第一个子过滤器恰好在达到期望插入数时扩容
+            assertEquals(CAPACITY, added);
+            assertEquals(CAPACITY, scalable.getFilters().get(0).getElementCount());
+            assertEquals(0, scalable.getFilters().get(1).getElementCount());
+        }
+    }
+
+    @Test
+    void subFiltersFollowTheGeometricSizing() {
+        try (ScalableBloomFilter scalable = ScalableBloomFilter.create("scalable", directory, properties(3, 0.5))) {
+            add(scalable, "element-", 20 * CAPACITY);
+            List<BloomFilter> filters = scalable.getFilters();
+            // 1000 + 3000 + 9000 < 20000 < 1000 + 3000 + 9000 + 27000
+            assertEquals(4, filters.size());
+            for (int i = 0; i < filters.size(); i++) {
+                assertEquals(CAPACITY * (long) Math.pow(3, i), filters.get(i).getExpectedInsertions(), "capacity " + i);
+                assertEquals(FPP * 0.5 * Math.pow(0.5, i), filters.get(i).getFalsePositiveProbability(), 1e-15, "fpp " + i);
+            }
+            assertTrue(scalable.getEstimatedFalsePositiveProbability() <= FPP);
+        }
+    }
+
+    @Test
+    void falsePositivesStayBelowTheConfiguredProbability() {
+        try (ScalableBloomFilter scalable = ScalableBloomFilter.create("scalable", directory, properties(2, 0.85))) {
+            int elements = 40 * CAPACITY;
+            add(scalable, "element-", elements);
+            assertEquals(6, scalable.getFilters().size());
+            for (int i = 0; i < elements; i++) {
+                assertTrue(scalable.isContain("element-" + i), "element-" + i);
+            }
+            int queries = 200_000;
+            int falsePositives = 0;
+            for (int i = 0; i < queries; i++) {
+                if (scalable.isContain("absent-" + i)) {
+                    falsePositives++;
+                }
+            }
+            assertTrue(falsePositives <= queries * FPP, "false positives " + falsePositives);
+        }
+    }
+
+    @Test
+    void checkpointRecoversEverySubFilter() {
+        FilterProperties properties = properties(2, 0.5);
+        ScalableBloomFilter scalable = ScalableBloomFilter.create("scalable", directory, properties);
+        add(scalable, "element-", 5 * CAPACITY);
+        assertEquals(3, scalable.getFilters().size());
+        assertTrue(scalable.checkpoint());
+        scalable.close();
+        assertTrue(Files.exists(directory.resolve("scalable.txt")));
+
+        // 恢复时按清单中的尺寸, 不按当前配置
+        properties.setRecovery(true);
+        properties.setExpectedInsertions(7 * CAPACITY);
+        properties.setGrowthFactor(4);
+        try (ScalableBloomFilter recovered = ScalableBloomFilter.create("scalable", directory, properties)) {
+            assertSameFilters(scalable, recovered);
+            assertContains(recovered, "element-", 5 * CAPACITY);
+            // 恢复后继续按原来的比例扩容
+            add(recovered, "more-", 3 * CAPACITY);
+            assertEquals(4, recovered.getFilters().size());
+            assertEquals(8L * CAPACITY, recovered.getFilters().get(3).getExpectedInsertions());
+        }
+    }
+
+    @Test
+    void streamRoundTripsEverySubFilter() {
+        try (ScalableBloomFilter scalable = ScalableBloomFilter.create("scalable", directory.resolve("source"), properties(2, 0.5))) {
+            add(scalable, "element-", 5 * CAPACITY);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            scalable.writeTo(out);
+
+            FilterProperties properties = properties(4, 0.85);
+            properties.setDirectory(directory.resolve("copy").toString());
+            try (ScalableBloomFilter copy = ScalableBloomFilter.readFrom(new ByteArrayInputStream(out.toByteArray()), "copy", properties)) {
+                assertSameFilters(scalable, copy);
+                assertContains(copy, "element-", 5 * CAPACITY);
+            }
+        }
+    }
+
+    private static void assertSameFilters(ScalableBloomFilter expected, ScalableBloomFilter actual) {
+        assertEquals(expected.getInitialCapacity(), actual.getInitialCapacity());
+        assertEquals(expected.getFalsePositiveProbability(), actual.getFalsePositiveProbability());
+        assertEquals(expected.getGrowthFactor(), actual.getGrowthFactor());
+        assertEquals(expected.getTighteningRatio(), actual.getTighteningRatio());
+        assertEquals(expected.getElementCount(), actual.getElementCount());
+        assertEquals(expected.getFilters().size(), actual.getFilters().size());
+        for (int i = 0; i < expected.getFilters().size(); i++) {
+            BloomFilter from = expected.getFilters().get(i);
+            BloomFilter to = actual.getFilters().get(i);
+            assertEquals(from.getExpectedInsertions(), to.getExpectedInsertions(), "capacity " + i);
+            assertEquals(from.getFalsePositiveProbability(), to.getFalsePositiveProbability(), "fpp " + i);
+            assertEquals(from.getElementCount(), to.getElementCount(), "elements " + i);
+            for (long w = 0; w < from.getBitStore().wordCount(); w++) {
+                assertEquals(from.getBitStore().getWord(w), to.getBitStore().getWord(w), "filter " + i + " word " + w);
+            }
+        }
+    }
+
+    private static void add(ScalableBloomFilter scalable, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            scalable.add(prefix + i);
+        }
+    }
+
+    private static void assertContains(ScalableBloomFilter scalable, String prefix, int count) {
+        for (int i = 0; i < count; i++) {
+            assertTrue(scalable.isContain(prefix + i), prefix + i);
+        }
+    }
+
+    private static FilterProperties properties(int growthFactor, double tighteningRatio) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(CAPACITY);
+        properties.setFalsePositiveProbability(FPP);
+        properties.setEnableLogging(false);
+        properties.setScalable(true);
+        properties.setGrowthFactor(growthFactor);
+        properties.setTighteningRatio(tighteningRatio);
+        return properties;
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.hash.HashStrategy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * sharded filters hash an element once for all shards: membership, recovery and shards that do
+ * not share the hashing
+ * @author dalowed
+ * @since 0.0.4
+ */
+class ShardedBloomFilterTest {
+
+    private static final int ELEMENTS = 100_000;
+
+    @TempDir
+    Path directory;
+
+    @ParameterizedTest
+    @EnumSource(HashStrategy.class)
+    void noFalseNegativesAfterRecovery(HashStrategy strategy) {
+        FilterProperties properties = properties(strategy);
+        ShardedBloomFilter sharded = ShardedBloomFilter.create("sharded", directory, properties);
+        for (BloomFilter shard : sharded.getShards()) {
+            assertNull(sharded.getShards().get(0).hashingMismatchOf(shard));
+        }
+        long[] longs = new long[ELEMENTS / 2];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i;
+        }
+        sharded.addAll(longs);
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < ELEMENTS / 4; i++) {
+            strings.add("element-" + i);
+        }
+        sharded.addAll(strings);
+        for (int i = 0; i < ELEMENTS / 4; i++) {
+            assertTrue(sharded.add("single-" + i));
+        }
+        assertEquals(ELEMENTS, sharded.getElementCount());
+        for (BloomFilter shard : sharded.getShards()) {
+            // 按 h1 高位路由, 各分片的元素数接近平均值
+            assertTrue(Math.abs(shard.getElementCount() - ELEMENTS / 4) < ELEMENTS / 40, "shard elements " + shard.getElementCount());
+        }
+        assertTrue(sharded.checkpoint());
+        sharded.close();
+
+        properties.setRecovery(true);
+        ShardedBloomFilter recovered = ShardedBloomFilter.create("sharded", directory, properties);
+        for (long element : longs) {
+            assertTrue(recovered.isContain(element), "element " + element);
+        }
+        for (String element : strings) {
+            assertTrue(recovered.isContain(element), element);
+        }
+        for (int i = 0; i < ELEMENTS / 4; i++) {
+            assertTrue(recovered.isContain("single-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < ELEMENTS; i++) {
+            if (recovered.isContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < ELEMENTS * 0.01 * 1.5, "false positives " + falsePositives);
+        recovered.close();
+    }
+
+    @Test
+    void recoveryRejectsShardsWithOtherHashing() {
+        FilterProperties properties = properties(HashStrategy.MURMUR3_128);
+        ShardedBloomFilter sharded = ShardedBloomFilter.create("sharded", directory, properties);
+        assertTrue(sharded.checkpoint());
+        long seed = sharded.getShards().get(0).getHashSeed();
+        sharded.close();
+
+        // 用另一个种子重建分片 1
+        FilterProperties shardProperties = properties(HashStrategy.MURMUR3_128);
+        shardProperties.setExpectedInsertions(ELEMENTS / 4);
+        shardProperties.setShards(1);
+        shardProperties.setHashSeed(seed + 1);
+        BloomFilter shard = BloomFilter.create("sharded-1", directory.resolve("1"), shardProperties);
+        assertTrue(shard.checkpoint());
+        shard.close();
+
+        properties.setRecovery(true);
+        assertThrows(IllegalStateException.class, () -> ShardedBloomFilter.create("sharded", directory, properties));
+    }
+
+    private static FilterProperties properties(HashStrategy strategy) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(ELEMENTS);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        properties.setShards(4);
+        properties.setHashStrategy(strategy);
+        return properties;
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.dalowed.filter;
+
+import io.github.dalowed.bean.WindowInformation;
+import io.github.dalowed.configuration.FilterProperties;
+import io.github.dalowed.utils.BloomFilterInfoUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * elements expire after windowSlices + 1 rotations, the manifest round trip and the rotations
+ * caught up on recovery, manual rotations restart the schedule
+ * @author dalowed
+ * @since 0.0.4
+ */
+class SlidingWindowBloomFilterTest {
+
+    private static final int SLICES = 4;
+    private static final int ELEMENTS = 1_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void elementsExpireAfterTheWindow() {
+        try (SlidingWindowBloomFilter windowFilter = SlidingWindowBloomFilter.create("window", directory, properties(Duration.ofHours(4)))) {
+            assertEquals(SLICES + 1, windowFilter.getFilters().size());
+            add(windowFilter, "first-");
+            for (int i = 0; i < SLICES; i++) {
+                windowFilter.rotate();
+                // 轮转 windowSlices 次后仍在窗口内
+                assertContains(windowFilter, "first-");
+            }
+            add(windowFilter, "last-");
+            windowFilter.rotate();
+            assertEquals(0, containedOf(windowFilter, "first-"));
+            assertContains(windowFilter, "last-");
+            assertEquals(SLICES + 1, windowFilter.getFirstGeneration());
+            assertEquals(ELEMENTS, windowFilter.getElementCount());
+            assertTrue(windowFilter.getEstimatedFalsePositiveProbability() <= 0.01 + 1e-12);
+        }
+        // 丢弃的时间片文件被删除
+        assertFalse(Files.exists(directory.resolve("0")));
+    }
+
+    @Test
+    void manifestRoundTrip() {
+        FilterProperties properties = properties(Duration.ofHours(4));
+        long rotatedAt;
+        try (SlidingWindowBloomFilter windowFilter = SlidingWindowBloomFilter.create("window", directory, properties)) {
+            add(windowFilter, "first-");
+            windowFilter.rotate();
+            add(windowFilter, "second-");
+            assertTrue(windowFilter.checkpoint());
+            rotatedAt = windowFilter.getRotatedAt();
+        }
+        WindowInformation information = BloomFilterInfoUtils.getWindowInfo(directory.resolve("window.txt"));
+        assertEquals(1, information.getFirstGeneration());
+        assertEquals(SLICES + 1, information.getFilterCount());
+        assertEquals(rotatedAt, information.getRotatedAt());
+
+        properties.setRecovery(true);
+        try (SlidingWindowBloomFilter recovered = SlidingWindowBloomFilter.create("window", directory, properties)) {
+            assertEquals(1, recovered.getFirstGeneration());
+            assertEquals(rotatedAt, recovered.getRotatedAt());
+            assertEquals(SLICES, recovered.getSlices());
+            assertEquals(Duration.ofHours(4), recovered.getWindow());
+            assertEquals(2 * ELEMENTS, recovered.getElementCount());
+            assertContains(recovered, "first-");
+            assertContains(recovered, "second-");
+        }
+    }
+
+    @Test
+    void recoveryCatchesUpMissedRotations() throws IOException {
+        FilterProperties properties = properties(Duration.ofHours(4));
+        try (SlidingWindowBloomFilter windowFilter = SlidingWindowBloomFilter.create("window", directory, properties)) {
+            add(windowFilter, "first-");
+            windowFilter.rotate();
+            add(windowFilter, "second-");
+            windowFilter.rotate();
+            add(windowFilter, "third-");
+            assertTrue(windowFilter.checkpoint());
+        }
+        // 停机四个半时间片, 补轮转四次: first- 和 second- 所在的时间片都被丢弃
+        Path manifest = directory.resolve("window.txt");
+        WindowInformation information = BloomFilterInfoUtils.getWindowInfo(manifest);
+        long rotatedAt = information.getRotatedAt() - Duration.ofMinutes(270).toMillis();
+        information.setRotatedAt(rotatedAt);
+        Files.writeString(manifest, information.toString());
+
+        properties.setRecovery(true);
+        try (SlidingWindowBloomFilter recovered = SlidingWindowBloomFilter.create("window", directory, properties)) {
+            assertEquals(2 + 4, recovered.getFirstGeneration());
+            assertEquals(rotatedAt + Duration.ofHours(4).toMillis(), recovered.getRotatedAt());
+            assertEquals(0, containedOf(recovered, "first-"));
+            assertEquals(0, containedOf(recovered, "second-"));
+            assertContains(recovered, "third-");
+        }
+    }
+
+    @Test
+    void manualRotationRestartsTheSchedule() throws InterruptedException {
+        FilterProperties properties = properties(Duration.ofSeconds(SLICES * 2));
+        long createdAt = System.currentTimeMillis();
+        try (SlidingWindowBloomFilter windowFilter = SlidingWindowBloomFilter.create("window", directory, properties)) {
+            add(windowFilter, "first-");
+            Thread.sleep(1_000);
+            long before = System.currentTimeMillis();
+            windowFilter.rotate();
+            assertTrue(windowFilter.getRotatedAt() >= before);
+            assertTrue(windowFilter.checkpoint());
+        }
+        // 重启时距创建已超过一个时间片, 距手动轮转还不到一个时间片, 不应再补轮转
+        Thread.sleep(Math.max(0, createdAt + 2_500 - System.currentTimeMillis()));
+        properties.setRecovery(true);
+        try (SlidingWindowBloomFilter recovered = SlidingWindowBloomFilter.create("window", directory, properties)) {
+            assertEquals(1, recovered.getFirstGeneration());
+            assertContains(recovered, "first-");
+        }
+    }
+
+    private static void add(SlidingWindowBloomFilter windowFilter, String prefix) {
+        for (int i = 0; i < ELEMENTS; i++) {
+            windowFilter.add(prefix + i);
+        }
+    }
+
+    private static void assertContains(SlidingWindowBloomFilter windowFilter, String prefix) {
+        for (int i = 0; i < ELEMENTS; i++) {
+            assertTrue(windowFilter.isContain(prefix + i), prefix + i);
+        }
+    }
+
+    private static int containedOf(SlidingWindowBloomFilter windowFilter, String prefix) {
+        int contained = 0;
+        for (int i = 0; i < ELEMENTS; i++) {
+            if (windowFilter.isContain(prefix + i)) {
+                contained++;
+            }
+        }
+        return contained;
+    }
+
+    private static FilterProperties properties(Duration window) {
+        FilterProperties properties = new FilterProperties();
+        properties.setExpectedInsertions(SLICES * ELEMENTS * 2L);
+        properties.setFalsePositiveProbability(0.01);
+        properties.setEnableLogging(false);
+        properties.setWindow(window);
+        properties.setWindowSlices(SLICES);
+        return properties;
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.dalowed.hash;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * HmacSHA256 against RFC 4231, chars are hashed as their UTF-16LE code units
+ * @author dalowed
+ * @since 0.0.4
+ */
+class HmacSha256HasherTest {
+
+    @Test
+    void rfc4231Vector() {
+        // 测试用例 2, 取摘要的前 16 字节
+        HmacSha256Hasher hasher = new HmacSha256Hasher("Jefe");
+        byte[] data = "what do ya want for nothing?".getBytes(StandardCharsets.US_ASCII);
+        long[] out = new long[2];
+        hasher.hashBytes(data, 0, data.length, out);
+        assertArrayEquals(new long[]{0x5bdcc146bf60754eL, 0x6a042426089575c7L}, out);
+    }
+
+    @Test
+    void charsHashTheirUtf16LittleEndianBytes() {
+        HmacSha256Hasher hasher = new HmacSha256Hasher("salt");
+        long[] expected = new long[2];
+        long[] actual = new long[2];
+        StringBuilder chars = new StringBuilder();
+        // 跨过分块边界, 含代理对和非 ASCII 字符
+        for (int length = 0; length <= 300; length++) {
+            byte[] bytes = chars.toString().getBytes(StandardCharsets.UTF_16LE);
+            hasher.hashBytes(bytes, 0, bytes.length, expected);
+            hasher.hashChars(chars, 0, chars.length(), actual);
+            assertArrayEquals(expected, actual, "length " + length);
+            chars.append(length % 3 == 0 ? "😀" : length % 3 == 1 ? "é" : "a");
+        }
+
+        byte[] bytes = "ell".getBytes(StandardCharsets.UTF_16LE);
+        hasher.hashBytes(bytes, 0, bytes.length, expected);
+        hasher.hashChars(" hello ", 2, 5, actual);
+        assertArrayEquals(expected, actual);
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.dalowed.hash;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Murmur3 x64 128 against the reference vectors (same as Guava murmur3_128), and the typed
+ * overloads against the bytes they are documented to hash
+ * @author dalowed
+ * @since 0.0.4
+ */
+class Murmur3HasherTest {
+
+    @Test
+    void referenceVectors() {
+        assertHash(0, "", 0L, 0L);
+        assertHash(0, "hell", 0x629942693e10f867L, 0x92db0b82baeb5347L);
+        assertHash(1, "hello", 0xa78ddff5adae8d10L, 0x128900ef20900135L);
+        assertHash(2, "hello ", 0x8a486b23f422e826L, 0xf962a2c58947765fL);
+        assertHash(3, "hello w", 0x2ea59f466f6bed8cL, 0xc610990acc428a17L);
+        assertHash(4, "hello wo", 0x79f6305a386c572cL, 0x46305aed3483b94eL);
+        assertHash(5, "hello wor", 0xc2219d213ec1f1b5L, 0xa1d8e2e0a52785bdL);
+        assertHash(0, "The quick brown fox jumps over the lazy dog", 0xe34bbc7bbc071b6cL, 0x7a433ca9c49a9347L);
+        assertHash(0, "The quick brown fox jumps over the lazy cog", 0x658ca970ff85269aL, 0x43fee3eaa68e5c3eL);
+    }
+
+    @Test
+    void typedOverloadsHashTheirLittleEndianBytes() {
+        Murmur3Hasher hasher = new Murmur3Hasher(0x5eedL);
+        long[] expected = new long[2];
+        long[] actual = new long[2];
+        for (long value : new long[]{0, 1, -1, Long.MIN_VALUE, 0x0123456789abcdefL}) {
+            hasher.hashBytes(littleEndian(Long.BYTES).putLong(value).array(), 0, Long.BYTES, expected);
+            hasher.hashLong(value, actual);
+            assertArrayEquals(expected, actual);
+
+            hasher.hashBytes(littleEndian(Integer.BYTES).putInt((int) value).array(), 0, Integer.BYTES, expected);
+            hasher.hashInt((int) value, actual);
+            assertArrayEquals(expected, actual);
+        }
+        UUID uuid = UUID.fromString("0f8fad5b-d9cb-469f-a165-70867728950e");
+        byte[] bytes = littleEndian(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+        hasher.hashBytes(bytes, 0, bytes.length, expected);
+        hasher.hashLongs(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), actual);
+        assertArrayEquals(expected, actual);
+    }
+
+    @Test
+    void charsAndBuffersHashTheSameBytes() {
+        Murmur3Hasher hasher = new Murmur3Hasher(42);
+        long[] expected = new long[2];
+        long[] actual = new long[2];
+        StringBuilder element = new StringBuilder();
+        // 覆盖 0 到 40 个字符, 包含整块和各种尾部长度
+        for (int length = 0; length <= 40; length++) {
+            String chars = element.toString();
+            byte[] utf16 = chars.getBytes(StandardCharsets.UTF_16LE);
+            hasher.hashBytes(utf16, 0, utf16.length, expected);
+            hasher.hashChars(chars, 0, chars.length(), actual);
+            assertArrayEquals(expected, actual);
+
+            ByteBuffer direct = ByteBuffer.allocateDirect(utf16.length + 3);
+            direct.position(3);
+            direct.put(utf16).position(3);
+            hasher.hashBuffer(direct, actual);
+            assertArrayEquals(expected, actual);
+            assertArrayEquals(expected, hashOf(hasher, ByteBuffer.wrap(utf16)));
+            element.append((char) ('a' + length % 26));
+        }
+    }
+
+    private static void assertHash(long seed, String input, long h1, long h2) {
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        long[] out = new long[2];
+        new Murmur3Hasher(seed).hashBytes(bytes, 0, bytes.length, out);
+        assertArrayEquals(new long[]{h1, h2}, out, input);
+    }
+
+    private static long[] hashOf(ElementHasher hasher, ByteBuffer buffer) {
+        long[] out = new long[2];
+        hasher.hashBuffer(buffer, out);
+        return out;
+    }
+
+    private static ByteBuffer littleEndian(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.dalowed.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * bits set from several threads at once are not lost: each bit is reported as changed exactly
+ * once and the words equal those of the same bits set by one thread
+ * @author dalowed
+ * @since 0.0.4
+ */
+class ConcurrentBitStoreTest {
+
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 50_000;
+    // 字数较少, 各线程频繁写同一个字
+    private static final int WORDS = 1_024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentHeapOrsMatchSequentialOrs() throws Exception {
+        assertMatchesSequential(new ConcurrentHeapBitStore(new long[WORDS]));
+    }
+
+    @Test
+    void concurrentOffHeapOrsMatchSequentialOrs() throws Exception {
+        assertMatchesSequential(new ConcurrentOffHeapBitStore(WORDS));
+    }
+
+    @Test
+    void concurrentMappedOrsMatchSequentialOrs() throws Exception {
+        assertMatchesSequential(new ConcurrentMappedBitStore(directory.resolve("bitmap.bin"), WORDS, true));
+    }
+
+    /**
+     * set the same random bits from THREADS threads and from one thread
+     * @param concurrent empty store of WORDS words
+     * @throws Exception Exception
+     */
+    private static void assertMatchesSequential(BitStore concurrent) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        LongAdder changed = new LongAdder();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                SplittableRandom random = new SplittableRandom(thread);
+                for (int i = 0; i < PER_THREAD; i++) {
+                    int bit = random.nextInt(WORDS << 6);
+                    if (concurrent.orWord(bit >>> 6, 1L << bit)) {
+                        changed.increment();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        BitStore sequential = new HeapBitStore(new long[WORDS]);
+        long sequentialChanged = 0;
+        for (int t = 0; t < THREADS; t++) {
+            SplittableRandom random = new SplittableRandom(t);
+            for (int i = 0; i < PER_THREAD; i++) {
+                int bit = random.nextInt(WORDS << 6);
+                if (sequential.orWord(bit >>> 6, 1L << bit)) {
+                    sequentialChanged++;
+                }
+            }
+        }
+        // 每个位只有一个线程看到它从 0 变为 1
+        assertEquals(sequentialChanged, changed.sum());
+        for (long i = 0; i < WORDS; i++) {
+            assertEquals(sequential.getWord(i), concurrent.getWord(i), "word " + i);
+        }
+    }
+}
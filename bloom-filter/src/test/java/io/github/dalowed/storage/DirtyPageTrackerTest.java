@@ -0,0 +1,43 @@
+package io.github.dalowed.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * a changed word marks its page once, draining clears the marks and markAll stops at the last page
+ * @author dalowed
+ * @since 0.0.4
+ */
+class DirtyPageTrackerTest {
+
+    @Test
+    void marksThePageOfAWord() {
+        DirtyPageTracker tracker = new DirtyPageTracker(DirtyPageTracker.PAGE_WORDS * 100L, false);
+        assertEquals(100, tracker.pageCount());
+        assertEquals(2, tracker.groupCount());
+
+        tracker.markWord(0);
+        tracker.markWord(DirtyPageTracker.PAGE_WORDS - 1);
+        tracker.markWord(DirtyPageTracker.PAGE_WORDS);
+        tracker.markWord(DirtyPageTracker.PAGE_WORDS * 70L + 3);
+        assertEquals(0b11L, tracker.drain(0));
+        assertEquals(1L << 6, tracker.drain(1));
+        // 已取走的页不再是脏页
+        assertEquals(0L, tracker.drain(0));
+        assertEquals(0L, tracker.drain(1));
+    }
+
+    @Test
+    void markAllStopsAtTheLastPage() {
+        // 71 页, 最后一页不满
+        DirtyPageTracker tracker = new DirtyPageTracker(DirtyPageTracker.PAGE_WORDS * 70L + 1, true);
+        assertEquals(71, tracker.pageCount());
+        assertEquals(-1L, tracker.drain(0));
+        assertEquals((1L << 7) - 1, tracker.drain(1));
+
+        tracker.markAll();
+        assertEquals(-1L, tracker.drain(0));
+        assertEquals((1L << 7) - 1, tracker.drain(1));
+    }
+}
@@ -0,0 +1,156 @@
+package io.github.dalowed.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * records appended by several threads are all replayed, across a rotation, with a held epoch and
+ * with a torn tail
+ * @author dalowed
+ * @since 0.0.4
+ */
+class InsertJournalTest {
+
+    private static final long SEED = 0x5eedL;
+    private static final long SIZE = 1 << 20;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysEveryRecordAppendedConcurrently() throws Exception {
+        Path file = directory.resolve("journal.bin");
+        int threads = 4;
+        // 每个线程的记录数超过环的容量, 覆盖环已满时的等待
+        int perThread = 100_000;
+        try (InsertJournal journal = new InsertJournal(file, SEED, SIZE, Duration.ofMillis(5))) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            Future<?>[] futures = new Future<?>[threads];
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures[t] = pool.submit(() -> append(journal, thread * perThread, perThread));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+        }
+        assertReplayed(file, threads * perThread);
+    }
+
+    @Test
+    void replaysRotatedAndCurrentJournal() {
+        Path file = directory.resolve("journal.bin");
+        try (InsertJournal journal = new InsertJournal(file, SEED, SIZE, Duration.ofMillis(5))) {
+            append(journal, 0, 1_000);
+            journal.rotate();
+            append(journal, 1_000, 1_000);
+        }
+        assertTrue(Files.exists(file.resolveSibling("journal.bin.old")));
+        assertReplayed(file, 2_000);
+
+        try (InsertJournal journal = new InsertJournal(file, SEED, SIZE, Duration.ofMillis(5))) {
+            journal.commit();
+        }
+        assertFalse(Files.exists(file.resolveSibling("journal.bin.old")));
+        assertEquals(1_000, InsertJournal.replay(file, SEED, SIZE, hashes -> { }));
+    }
+
+    @Test
+    void heldEpochGoesToNewJournal() {
+        Path file = directory.resolve("journal.bin");
+        try (InsertJournal journal = new InsertJournal(file, SEED, SIZE, Duration.ofMillis(5))) {
+            append(journal, 0, 1_000);
+            journal.hold(1);
+            // 被保留纪元的记录和轮转前仍在进行的上一纪元的记录交错
+            for (int i = 1_000; i < 2_000; i++) {
+                journal.append(i & 1, i, ~i);
+            }
+            journal.rotate();
+            append(journal, 2_000, 1_000);
+            journal.commit();
+        }
+        BitSet seen = new BitSet();
+        assertEquals(1_500, InsertJournal.replay(file, SEED, SIZE, hashes -> seen.set((int) hashes[0])));
+        for (int i = 1_001; i < 2_000; i += 2) {
+            assertTrue(seen.get(i), "record " + i);
+        }
+        assertEquals(1_000, seen.get(2_000, 3_000).cardinality());
+    }
+
+    @Test
+    void ignoresTornLastRecord() throws IOException {
+        Path file = directory.resolve("journal.bin");
+        try (InsertJournal journal = new InsertJournal(file, SEED, SIZE, Duration.ofMillis(5))) {
+            append(journal, 0, 100);
+        }
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9}, StandardOpenOption.APPEND);
+        assertReplayed(file, 100);
+    }
+
+    @Test
+    void skipsJournalOfAnotherFilter() {
+        Path file = directory.resolve("journal.bin");
+        try (InsertJournal journal = new InsertJournal(file, SEED, SIZE, Duration.ofMillis(5))) {
+            append(journal, 0, 100);
+        }
+        assertEquals(0, InsertJournal.replay(file, SEED + 1, SIZE, hashes -> { }));
+        assertEquals(0, InsertJournal.replay(file, SEED, SIZE * 2, hashes -> { }));
+    }
+
+    /**
+     * append records (i, ~i), single records and batches alternately
+     * @param journal journal
+     * @param from first record
+     * @param count number of records
+     */
+    private static void append(InsertJournal journal, int from, int count) {
+        long[] h1 = new long[64];
+        long[] h2 = new long[64];
+        int i = from;
+        while (i < from + count) {
+            if ((i & 128) == 0) {
+                journal.append(0, i, ~i);
+                i++;
+                continue;
+            }
+            int batch = Math.min(h1.length, from + count - i);
+            for (int j = 0; j < batch; j++, i++) {
+                h1[j] = i;
+                h2[j] = ~i;
+            }
+            journal.appendAll(0, h1, h2, batch);
+        }
+    }
+
+    /**
+     * replay the journal, every record (i, ~i) below count exactly once
+     * @param file journal file
+     * @param count number of records
+     */
+    private static void assertReplayed(Path file, int count) {
+        BitSet seen = new BitSet(count);
+        long replayed = InsertJournal.replay(file, SEED, SIZE, hashes -> {
+            int i = (int) hashes[0];
+            assertEquals(~hashes[0], hashes[1]);
+            assertFalse(seen.get(i), "record " + i + " replayed twice");
+            seen.set(i);
+        });
+        assertEquals(count, replayed);
+        assertEquals(count, seen.cardinality());
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.dalowed.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * an existing bitmap file is mapped, not read: changes to the file show in the store and writes to
+ * the store reach the file
+ * @author dalowed
+ * @since 0.0.4
+ */
+class MappedBitStoreTest {
+
+    private static final int WORDS = 4_096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void existingBitmapFileIsMapped() throws IOException {
+        Path file = directory.resolve("bitmap.bin");
+        // 与保存的位图文件相同, DataOutputStream 按大端写出
+        try (OutputStream out = Files.newOutputStream(file); DataOutputStream data = new DataOutputStream(out)) {
+            for (long i = 0; i < WORDS; i++) {
+                data.writeLong(i * 0x9E3779B97F4A7C15L);
+            }
+        }
+        BitStore mapped = new MappedBitStore(file, WORDS, false);
+        for (long i = 0; i < WORDS; i++) {
+            assertEquals(i * 0x9E3779B97F4A7C15L, mapped.getWord(i), "word " + i);
+        }
+
+        // 映射后改写文件, 改动立即可见
+        long marker = 0x0123456789ABCDEFL;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, marker), 100L * Long.BYTES);
+        }
+        assertEquals(marker, mapped.getWord(100));
+
+        // 写入不经保存即到达文件
+        mapped.setWord(7, -1L);
+        mapped.orWord(WORDS - 1, 1L << 63);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(-1L, bytes.getLong(7 * Long.BYTES));
+        assertEquals(mapped.getWord(WORDS - 1), bytes.getLong((WORDS - 1) * Long.BYTES));
+    }
+
+    @Test
+    void rejectsShortBitmapFile() throws IOException {
+        Path file = directory.resolve("bitmap.bin");
+        Files.write(file, new byte[WORDS * Long.BYTES - 1]);
+        assertThrows(IllegalStateException.class, () -> new MappedBitStore(file, WORDS, false));
+    }
+}
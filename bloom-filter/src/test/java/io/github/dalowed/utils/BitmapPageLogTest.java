@@ -0,0 +1,112 @@
+package io.github.dalowed.utils;
+
+import io.github.dalowed.storage.DirtyPageTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * a page log left by an interrupted checkpoint: a complete log is copied into the bitmap file, a torn
+ * or corrupt one is discarded without touching it
+ * @author dalowed
+ * @since 0.0.4
+ */
+class BitmapPageLogTest {
+
+    private static final int WORDS = DirtyPageTracker.PAGE_WORDS * 4;
+
+    @TempDir
+    Path directory;
+
+    private Path bitmap;
+    private Path pages;
+    private byte[] before;
+
+    @BeforeEach
+    void writeBitmap() throws IOException {
+        bitmap = directory.resolve("bitmap.bin");
+        pages = directory.resolve("bitmap.bin.pages");
+        ByteBuffer words = ByteBuffer.allocate(WORDS * Long.BYTES);
+        for (int i = 0; i < WORDS; i++) {
+            words.putLong(i);
+        }
+        before = words.array();
+        Files.write(bitmap, before);
+    }
+
+    @Test
+    void completePageLogIsApplied() throws IOException {
+        Files.write(pages, pageLog(DirtyPageTracker.PAGE_WORDS, WORDS - DirtyPageTracker.PAGE_WORDS));
+        BloomFilterInfoUtils.recoverBitmapPages(bitmap);
+
+        ByteBuffer expected = ByteBuffer.wrap(before.clone());
+        for (long word : new long[]{DirtyPageTracker.PAGE_WORDS, WORDS - DirtyPageTracker.PAGE_WORDS}) {
+            for (long i = word; i < word + DirtyPageTracker.PAGE_WORDS; i++) {
+                expected.putLong((int) i * Long.BYTES, ~i);
+            }
+        }
+        assertArrayEquals(expected.array(), Files.readAllBytes(bitmap));
+        assertFalse(Files.exists(pages));
+    }
+
+    @Test
+    void tornPageLogIsDiscarded() throws IOException {
+        byte[] log = pageLog(0, DirtyPageTracker.PAGE_WORDS * 2);
+        Files.write(pages, Arrays.copyOf(log, log.length - 3));
+        BloomFilterInfoUtils.recoverBitmapPages(bitmap);
+
+        assertArrayEquals(before, Files.readAllBytes(bitmap));
+        assertFalse(Files.exists(pages));
+    }
+
+    @Test
+    void corruptPageLogIsDiscarded() throws IOException {
+        byte[] log = pageLog(0, DirtyPageTracker.PAGE_WORDS * 2);
+        log[100] ^= 1;
+        Files.write(pages, log);
+        BloomFilterInfoUtils.recoverBitmapPages(bitmap);
+
+        assertArrayEquals(before, Files.readAllBytes(bitmap));
+        assertFalse(Files.exists(pages));
+    }
+
+    @Test
+    void runPastTheEndOfTheBitmapFails() throws IOException {
+        // 位图文件被截断, 复制不能无限循环
+        Files.write(bitmap, Arrays.copyOf(before, Long.BYTES * 10));
+        Files.write(pages, pageLog(DirtyPageTracker.PAGE_WORDS));
+        assertThrows(UncheckedIOException.class, () -> BloomFilterInfoUtils.recoverBitmapPages(bitmap));
+    }
+
+    /**
+     * a complete page log with one page run per start word, word i holds ~i
+     * @param fromWords start words of the runs
+     * @return {@link Byte[]} page log
+     */
+    private static byte[] pageLog(long... fromWords) {
+        int recordBytes = Long.BYTES + Integer.BYTES + DirtyPageTracker.PAGE_WORDS * Long.BYTES;
+        ByteBuffer log = ByteBuffer.allocate(fromWords.length * recordBytes + Long.BYTES + Integer.BYTES);
+        for (long from : fromWords) {
+            log.putLong(from).putInt(DirtyPageTracker.PAGE_WORDS);
+            for (long i = from; i < from + DirtyPageTracker.PAGE_WORDS; i++) {
+                log.putLong(~i);
+            }
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(log.array(), 0, log.position());
+        log.putLong(-1).putInt((int) crc.getValue());
+        return log.array();
+    }
+}